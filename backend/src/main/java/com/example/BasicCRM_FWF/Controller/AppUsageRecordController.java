@@ -2,12 +2,18 @@ package com.example.BasicCRM_FWF.Controller;
 
 import com.example.BasicCRM_FWF.Service.AppUsageRecord.AppUsageRecordInterface;
 import com.example.BasicCRM_FWF.Service.AppUsageRecord.AppUsageRecordService;
+import com.example.BasicCRM_FWF.DTOResponse.ImportJobResponse;
+import com.example.BasicCRM_FWF.Service.Import.ImportJob;
+import com.example.BasicCRM_FWF.Service.Import.ImportJobService;
+import com.example.BasicCRM_FWF.Service.Import.ImportType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 // BÁO CÁO KHÁCH SỬ DỤNG APP
 @RestController
 @RequestMapping("/api/app-usage")
@@ -17,12 +23,14 @@ import org.springframework.web.multipart.MultipartFile;
 public class AppUsageRecordController {
 
     private final AppUsageRecordInterface service;
+    private final ImportJobService importJobService;
 
     @PostMapping("/upload")
     @PreAuthorize("hasAuthority('admin:insertData')")
-    public ResponseEntity<String> upload(@RequestParam("file") MultipartFile file) {
-        service.importFromExcel(file);
-        return ResponseEntity.ok("Upload completed. Check logs for details." + file.getOriginalFilename());
+    public ResponseEntity<ImportJobResponse> upload(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(defaultValue = "false") boolean dryRun) throws IOException {
+        ImportJob job = importJobService.submit(ImportType.APP_USAGE, file, dryRun);
+        return ResponseEntity.accepted().body(ImportJobResponse.from(job, false));
     }
 
     @GetMapping("/test")
@@ -0,0 +1,55 @@
+package com.example.BasicCRM_FWF.Controller;
+
+import com.example.BasicCRM_FWF.DTORequest.BackfillRequest;
+import com.example.BasicCRM_FWF.DTOResponse.BackfillJobResponse;
+import com.example.BasicCRM_FWF.Model.BackfillJob;
+import com.example.BasicCRM_FWF.Service.Backfill.BackfillService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// BACKFILL LỊCH SỬ TỪ API UPSTREAM
+@RestController
+@RequestMapping("/api/backfill")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class BackfillController {
+
+    private final BackfillService backfillService;
+
+    // Tạo job backfill cho khoảng ngày, chạy nền
+    @PostMapping
+    public ResponseEntity<BackfillJobResponse> start(@RequestBody BackfillRequest request) {
+        BackfillJob job = backfillService.start(request.getSource(), request.getFromDate(), request.getToDate(),
+                request.getChunkDays());
+        return ResponseEntity.accepted().body(BackfillJobResponse.from(job, backfillService.chunks(job.getId()), false));
+    }
+
+    // Chạy tiếp các chunk chưa xong của job
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable Long id) {
+        try {
+            BackfillJob job = backfillService.resume(id);
+            return ResponseEntity.accepted().body(BackfillJobResponse.from(job, backfillService.chunks(id), false));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<BackfillJobResponse>> recent() {
+        return ResponseEntity.ok(backfillService.recent().stream()
+                .map(job -> BackfillJobResponse.from(job, backfillService.chunks(job.getId()), false))
+                .toList());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BackfillJobResponse> get(@PathVariable Long id) {
+        BackfillJob job = backfillService.get(id);
+        return ResponseEntity.ok(BackfillJobResponse.from(job, backfillService.chunks(id), true));
+    }
+}
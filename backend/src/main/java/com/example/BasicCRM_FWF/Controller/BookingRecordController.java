@@ -4,12 +4,16 @@ import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
 import com.example.BasicCRM_FWF.DTOResponse.*;
 import com.example.BasicCRM_FWF.Service.BookingRecord.BookingRecordInterface;
 import com.example.BasicCRM_FWF.Service.BookingRecord.BookingRecordService;
+import com.example.BasicCRM_FWF.Service.Import.ImportJob;
+import com.example.BasicCRM_FWF.Service.Import.ImportJobService;
+import com.example.BasicCRM_FWF.Service.Import.ImportType;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -19,11 +23,13 @@ import java.util.List;
 public class BookingRecordController {
 
     private final BookingRecordInterface service;
+    private final ImportJobService importJobService;
 
     @PostMapping("/upload")
-    public ResponseEntity<String> upload(@RequestParam("file") MultipartFile file) {
-        service.importFromExcel(file);
-        return ResponseEntity.ok("Upload completed. Check logs for details." + file.getOriginalFilename());
+    public ResponseEntity<ImportJobResponse> upload(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(defaultValue = "false") boolean dryRun) throws IOException {
+        ImportJob job = importJobService.submit(ImportType.BOOKING, file, dryRun);
+        return ResponseEntity.accepted().body(ImportJobResponse.from(job, false));
     }
 
     // Table thời gian đặt lịch
@@ -5,13 +5,18 @@ import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
 import com.example.BasicCRM_FWF.DTOResponse.*;
 import com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordInterface;
 import com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordService;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
 import com.example.BasicCRM_FWF.Service.FullDateRangeService;
+import com.example.BasicCRM_FWF.Service.Import.ImportJob;
+import com.example.BasicCRM_FWF.Service.Import.ImportJobService;
+import com.example.BasicCRM_FWF.Service.Import.ImportType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -25,12 +30,15 @@ import java.util.Map;
 public class CustomerSaleRecordController {
 
     private final CustomerSaleRecordInterface service;
+    private final ImportJobService importJobService;
     private final FullDateRangeService fullDateRangeService;
+    private final DataWatermarkService watermarkService;
 
     @PostMapping("/upload")
-    public ResponseEntity<String> upload(@RequestParam("file") MultipartFile file) {
-        service.importFromExcel(file);
-        return ResponseEntity.ok("Upload completed. Check logs for details." + file.getOriginalFilename());
+    public ResponseEntity<ImportJobResponse> upload(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(defaultValue = "false") boolean dryRun) throws IOException {
+        ImportJob job = importJobService.submit(ImportType.CUSTOMER_SALE, file, dryRun);
+        return ResponseEntity.accepted().body(ImportJobResponse.from(job, false));
     }
 
     // Trả về API thông báo select range time hợp lệ
@@ -39,6 +47,14 @@ public class CustomerSaleRecordController {
         return ResponseEntity.ok(fullDateRangeService.getFullRange());
     }
 
+    // Tính lại watermark min/max từ các bảng dữ liệu (khi nghi lệch, vd. sau khi xoá dữ liệu trực tiếp trong DB)
+    @PostMapping("/range-time-alert/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FullDateRangeResponse> rebuildDateRange() {
+        watermarkService.rebuild();
+        return ResponseEntity.ok(fullDateRangeService.getFullRange());
+    }
+
     // line chart số khách tạo mới
     @PostMapping("/new-customer-lineChart")
     public ResponseEntity<CustomerReportResponse> getNewCustomerReport(@RequestBody CustomerReportRequest request) {
@@ -0,0 +1,33 @@
+package com.example.BasicCRM_FWF.Controller;
+
+import com.example.BasicCRM_FWF.DTORequest.DashboardBatchRequest;
+import com.example.BasicCRM_FWF.DTOResponse.DashboardBatchResponse;
+import com.example.BasicCRM_FWF.Service.Report.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Set;
+
+// DASHBOARD: gọi nhiều widget báo cáo trong một request
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN', 'CEO', 'TEAM_LEAD')")
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    // Khoảng ngày + danh sách widget -> dữ liệu của từng widget trong một payload
+    @PostMapping("/batch")
+    public ResponseEntity<DashboardBatchResponse> batch(@RequestBody DashboardBatchRequest request) {
+        return ResponseEntity.ok(dashboardService.compute(request));
+    }
+
+    // Danh sách id widget hỗ trợ
+    @GetMapping("/widgets")
+    public ResponseEntity<Set<String>> widgets() {
+        return ResponseEntity.ok(dashboardService.widgetIds());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.BasicCRM_FWF.Controller;
+
+import com.example.BasicCRM_FWF.DTOResponse.ImportJobResponse;
+import com.example.BasicCRM_FWF.Service.Import.ImportJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// TIẾN ĐỘ IMPORT FILE
+@RestController
+@RequestMapping("/api/import-jobs")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN', 'CEO', 'TEAM_LEAD')")
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+
+    // Danh sách job gần đây (không kèm lỗi từng dòng)
+    @GetMapping
+    public ResponseEntity<List<ImportJobResponse>> getJobs() {
+        return ResponseEntity.ok(importJobService.recent().stream()
+                .map(job -> ImportJobResponse.from(job, false))
+                .toList());
+    }
+
+    // Tiến độ + báo cáo lỗi theo dòng của một job
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobResponse> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(ImportJobResponse.from(importJobService.get(id), true));
+    }
+}
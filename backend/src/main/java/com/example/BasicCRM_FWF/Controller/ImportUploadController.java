@@ -0,0 +1,57 @@
+package com.example.BasicCRM_FWF.Controller;
+
+import com.example.BasicCRM_FWF.DTORequest.UploadSessionRequest;
+import com.example.BasicCRM_FWF.DTOResponse.ImportJobResponse;
+import com.example.BasicCRM_FWF.DTOResponse.UploadSessionResponse;
+import com.example.BasicCRM_FWF.Service.Import.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+// UPLOAD FILE IMPORT LỚN THEO TỪNG PHẦN (có thể gửi tiếp sau khi mất kết nối)
+@RestController
+@RequestMapping("/api/import-uploads")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN', 'CEO', 'TEAM_LEAD')")
+public class ImportUploadController {
+
+    private final UploadSessionService uploadSessionService;
+
+    // Tạo phiên upload
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> create(@RequestBody UploadSessionRequest request) throws IOException {
+        return ResponseEntity.ok(UploadSessionResponse.from(uploadSessionService.create(request)));
+    }
+
+    // Trạng thái: receivedBytes là offset để gửi tiếp
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionResponse> status(@PathVariable String id) {
+        return ResponseEntity.ok(UploadSessionResponse.from(uploadSessionService.get(id)));
+    }
+
+    // Gửi một phần: body là byte thô, header Upload-Offset = vị trí bắt đầu
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionResponse> append(@PathVariable String id,
+                                                        @RequestHeader("Upload-Offset") long offset,
+                                                        HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(UploadSessionResponse.from(
+                uploadSessionService.append(id, offset, request.getInputStream())));
+    }
+
+    // Đã gửi đủ: bắt đầu import từ file đã ghi
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<ImportJobResponse> complete(@PathVariable String id) throws IOException {
+        return ResponseEntity.accepted().body(ImportJobResponse.from(uploadSessionService.complete(id), false));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abort(@PathVariable String id) throws IOException {
+        uploadSessionService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,9 +2,18 @@ package com.example.BasicCRM_FWF.Controller;
 
 import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
 import com.example.BasicCRM_FWF.DTOResponse.*;
+import com.example.BasicCRM_FWF.Model.SyncState;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.PosSalesSyncService;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.SalesDailyRollupService;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.SalesTransactionFlagService;
 import com.example.BasicCRM_FWF.Service.SalesTransaction.SalesTransactionInterface;
 import com.example.BasicCRM_FWF.Service.SalesTransaction.SalesTransactionService;
+import com.example.BasicCRM_FWF.Service.Import.ImportJob;
+import com.example.BasicCRM_FWF.Service.Import.ImportJobService;
+import com.example.BasicCRM_FWF.Service.Import.ImportProgress;
+import com.example.BasicCRM_FWF.Service.Import.ImportType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -22,6 +31,10 @@ import java.util.List;
 public class SalesTransactionController {
 
     private final SalesTransactionInterface service;
+    private final ImportJobService importJobService;
+    private final SalesDailyRollupService rollupService;
+    private final SalesTransactionFlagService flagService;
+    private final PosSalesSyncService posSalesSyncService;
 
 //    @PostMapping("/upload-temp")
 //    public ResponseEntity<String> uploadTemp(@RequestParam("file") MultipartFile file) throws IOException {
@@ -30,9 +43,10 @@ public class SalesTransactionController {
 //    }
 
     @PostMapping("/upload")
-    public ResponseEntity<String> upload(@RequestParam("file") MultipartFile file) throws IOException {
-        service.importFromExcel(file);
-        return ResponseEntity.ok("Upload successful" + file.getOriginalFilename());
+    public ResponseEntity<ImportJobResponse> upload(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(defaultValue = "false") boolean dryRun) throws IOException {
+        ImportJob job = importJobService.submit(ImportType.SALES, file, dryRun);
+        return ResponseEntity.accepted().body(ImportJobResponse.from(job, false));
     }
 
 //    // Tổng doanh số vùng
@@ -137,4 +151,43 @@ public class SalesTransactionController {
     public ResponseEntity<List<TopCustomerSpendingDTO>> getTopSpenders(@RequestBody CustomerReportRequest request) {
         return ResponseEntity.ok(service.getTopCustomersBySpending(request));
     }
+
+    // Dựng lại bảng tổng hợp ngày x cơ sở; không gửi khoảng ngày thì dựng lại toàn bộ
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> rebuildRollup(@RequestBody(required = false) CustomerReportRequest request) {
+        int rows = request == null || request.getFromDate() == null || request.getToDate() == null
+                ? rollupService.rebuild()
+                : rollupService.rebuild(request.getFromDate().toLocalDate(), request.getToDate().toLocalDate());
+        return ResponseEntity.ok("Rebuilt " + rows + " rollup rows");
+    }
+
+    // Tính lại cờ phân loại item cho giao dịch cũ (all=true: tính lại toàn bộ), chạy nền
+    @PostMapping("/flags/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> backfillFlags(@RequestParam(defaultValue = "false") boolean all) {
+        if (!flagService.startBackfill(all)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Backfill is already running");
+        }
+        return ResponseEntity.accepted().body("Backfill started");
+    }
+
+    // Chạy đồng bộ doanh số từ POS ngay (không chờ lịch)
+    @PostMapping("/sync/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> runSalesSync() {
+        try {
+            ImportProgress p = posSalesSyncService.sync();
+            return ResponseEntity.ok("Synced: success = " + p.getSuccess() + ", unchanged = " + p.getUnchanged()
+                    + ", failed = " + p.getFailed() + ", skipped = " + p.getSkipped());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/sync/state")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SyncState> salesSyncState() {
+        return posSalesSyncService.getState().map(ResponseEntity::ok).orElse(ResponseEntity.noContent().build());
+    }
 }
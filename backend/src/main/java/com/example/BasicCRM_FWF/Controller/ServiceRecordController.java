@@ -3,12 +3,16 @@ package com.example.BasicCRM_FWF.Controller;
 import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
 import com.example.BasicCRM_FWF.DTOResponse.*;
 import com.example.BasicCRM_FWF.Service.ServiceRecord.ServiceRecordService;
+import com.example.BasicCRM_FWF.Service.Import.ImportJob;
+import com.example.BasicCRM_FWF.Service.Import.ImportJobService;
+import com.example.BasicCRM_FWF.Service.Import.ImportType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 
 // BÁO CÁO DỊCH VỤ
@@ -20,6 +24,7 @@ import java.util.List;
 public class ServiceRecordController {
 
     private final ServiceRecordService service;
+    private final ImportJobService importJobService;
 
 
 //    @PostMapping("/upload-temp")
@@ -29,15 +34,17 @@ public class ServiceRecordController {
 //    }
 
     @PostMapping("/upload")
-    public ResponseEntity<String> upload(@RequestParam("file") MultipartFile file) {
-        service.importFromExcelOrigin(file);
-        return ResponseEntity.ok("Upload completed. Check logs for details." + file.getOriginalFilename());
+    public ResponseEntity<ImportJobResponse> upload(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(defaultValue = "false") boolean dryRun) throws IOException {
+        ImportJob job = importJobService.submit(ImportType.SERVICE_RECORD, file, dryRun);
+        return ResponseEntity.accepted().body(ImportJobResponse.from(job, false));
     }
 
     @PostMapping("/upload-sale-service")
-    public ResponseEntity<String> uploadSaleService(@RequestParam("file") MultipartFile file) {
-        service.importSaleServiceFile(file);
-        return ResponseEntity.ok("Upload completed. Check logs for details." + file.getOriginalFilename());
+    public ResponseEntity<ImportJobResponse> uploadSaleService(@RequestParam("file") MultipartFile file,
+                                                               @RequestParam(defaultValue = "false") boolean dryRun) throws IOException {
+        ImportJob job = importJobService.submit(ImportType.SALE_SERVICE_CATALOG, file, dryRun);
+        return ResponseEntity.accepted().body(ImportJobResponse.from(job, false));
     }
 
     // Tổng dịch vụ thực hiện theo cửa hàng
@@ -1,10 +1,20 @@
 package com.example.BasicCRM_FWF.Controller;
 
+import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
+import com.example.BasicCRM_FWF.DTOResponse.AttendanceStatDTO;
 import com.example.BasicCRM_FWF.Service.Realtime.RealTimeInterface;
 import com.example.BasicCRM_FWF.Service.ShiftEmployee.ShiftEmployeeService;
+import com.example.BasicCRM_FWF.Service.ShiftEmployee.WorkTrackSyncService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/shift")
 @RequiredArgsConstructor
@@ -12,6 +22,7 @@ public class ShiftController {
 
     private final ShiftEmployeeService service;
     private final RealTimeInterface realTimeService;
+    private final WorkTrackSyncService workTrackSyncService;
 
 //    @PostMapping("/upload")
 //    public ResponseEntity<String> upload(@RequestParam("file") MultipartFile file) throws IOException {
@@ -24,4 +35,38 @@ public class ShiftController {
 //        List<ShiftDTO> shiftDTOS = realTimeService.autoSaveWorkTrack();
 //        return ResponseEntity.ok(shiftDTOS);
 //    }
+
+    // Đồng bộ lại chấm công cho khoảng ngày bất kỳ (yyyy-MM-dd), ghi đè theo (username, stockId, date)
+    @PostMapping("/work-track/sync")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> syncWorkTrack(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) throws Exception {
+        try {
+            return ResponseEntity.ok(workTrackSyncService.sync(from, to));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    // Báo cáo chấm công (đi muộn/về sớm/công) theo nhân viên, cơ sở, tháng; stockId bỏ trống = mọi cơ sở
+    @PostMapping("/attendance/employees")
+    @PreAuthorize("hasAnyRole('ADMIN', 'CEO', 'TEAM_LEAD')")
+    public ResponseEntity<List<AttendanceStatDTO>> attendanceByEmployee(@RequestBody CustomerReportRequest request,
+                                                                        @RequestParam(required = false) String stockId) {
+        return ResponseEntity.ok(service.getAttendanceByEmployee(request, stockId));
+    }
+
+    @PostMapping("/attendance/stores")
+    @PreAuthorize("hasAnyRole('ADMIN', 'CEO', 'TEAM_LEAD')")
+    public ResponseEntity<List<AttendanceStatDTO>> attendanceByStore(@RequestBody CustomerReportRequest request,
+                                                                     @RequestParam(required = false) String stockId) {
+        return ResponseEntity.ok(service.getAttendanceByStore(request, stockId));
+    }
+
+    @PostMapping("/attendance/monthly")
+    @PreAuthorize("hasAnyRole('ADMIN', 'CEO', 'TEAM_LEAD')")
+    public ResponseEntity<List<AttendanceStatDTO>> attendanceByMonth(@RequestBody CustomerReportRequest request,
+                                                                     @RequestParam(required = false) String stockId) {
+        return ResponseEntity.ok(service.getAttendanceByMonth(request, stockId));
+    }
 }
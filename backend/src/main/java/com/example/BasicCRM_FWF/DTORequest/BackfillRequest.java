@@ -0,0 +1,18 @@
+package com.example.BasicCRM_FWF.DTORequest;
+
+import com.example.BasicCRM_FWF.Service.Backfill.BackfillService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BackfillRequest {
+    private BackfillService.Source source = BackfillService.Source.SALES;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private int chunkDays = 1; // 1 = theo ngày, 7 = theo tuần
+}
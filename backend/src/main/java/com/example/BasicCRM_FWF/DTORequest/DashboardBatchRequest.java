@@ -0,0 +1,21 @@
+package com.example.BasicCRM_FWF.DTORequest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DashboardBatchRequest {
+    private LocalDateTime fromDate; // ngày bắt đầu user chọn
+    private LocalDateTime toDate;   // ngày kết thúc user chọn
+    private List<String> widgets;   // id widget, vd. "sales/revenue-summary" (GET /api/dashboard/widgets)
+
+    public CustomerReportRequest toReportRequest() {
+        return new CustomerReportRequest(fromDate, toDate);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.BasicCRM_FWF.DTORequest;
+
+import com.example.BasicCRM_FWF.Service.Import.ImportType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadSessionRequest {
+    private ImportType type;    // loại import sẽ chạy khi upload xong
+    private String fileName;    // tên file gốc (giữ đuôi .xlsx/.csv/.tsv)
+    private long totalSize;     // tổng số byte của file
+    private boolean dryRun;     // chỉ kiểm tra dữ liệu, không ghi DB
+}
@@ -0,0 +1,28 @@
+package com.example.BasicCRM_FWF.DTOResponse;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Một dòng báo cáo chấm công. {@code key}/{@code name} tuỳ theo cách gom:
+ * nhân viên (username, họ tên), cơ sở (stockId, tên cơ sở) hoặc tháng (yyyy-MM, null).
+ * Số phút đi muộn/về sớm/về muộn là giá trị dương.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceStatDTO {
+    private String key;
+    private String name;
+    private long employees;
+    private long workDays;
+    private BigDecimal mandays;
+    private long lateCount;
+    private double lateMinutes;
+    private long earlyLeaveCount;
+    private double earlyLeaveMinutes;
+    private double overtimeMinutes;
+}
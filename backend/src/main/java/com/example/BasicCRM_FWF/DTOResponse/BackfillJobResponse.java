@@ -0,0 +1,62 @@
+package com.example.BasicCRM_FWF.DTOResponse;
+
+import com.example.BasicCRM_FWF.Model.BackfillChunk;
+import com.example.BasicCRM_FWF.Model.BackfillJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BackfillJobResponse {
+    private Long id;
+    private String source;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private Integer chunkDays;
+    private String status;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+
+    // số chunk theo trạng thái
+    private Map<BackfillChunk.Status, Long> chunks;
+    private int success;
+    private int unchanged;
+    private int failed;
+
+    // chỉ có khi xem chi tiết 1 job
+    private List<BackfillChunk> chunkDetails;
+
+    public static BackfillJobResponse from(BackfillJob job, List<BackfillChunk> chunks, boolean withChunks) {
+        return BackfillJobResponse.builder()
+                .id(job.getId())
+                .source(job.getSource())
+                .fromDate(job.getFromDate())
+                .toDate(job.getToDate())
+                .chunkDays(job.getChunkDays())
+                .status(job.getStatus().name())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .chunks(chunks.stream().collect(Collectors.groupingBy(BackfillChunk::getStatus, Collectors.counting())))
+                .success(sum(chunks, BackfillChunk::getSuccessRows))
+                .unchanged(sum(chunks, BackfillChunk::getUnchangedRows))
+                .failed(sum(chunks, BackfillChunk::getFailedRows))
+                .chunkDetails(withChunks ? chunks : null)
+                .build();
+    }
+
+    private static int sum(List<BackfillChunk> chunks, Function<BackfillChunk, Integer> value) {
+        return chunks.stream().map(value).filter(Objects::nonNull).mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.BasicCRM_FWF.DTOResponse;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DashboardBatchResponse {
+    private Map<String, Object> widgets; // id widget -> dữ liệu, giống body của endpoint lẻ tương ứng
+    private Map<String, String> errors;  // id widget -> lỗi; các widget khác vẫn được trả về
+}
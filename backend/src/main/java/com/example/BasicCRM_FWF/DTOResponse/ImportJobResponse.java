@@ -0,0 +1,65 @@
+package com.example.BasicCRM_FWF.DTOResponse;
+
+import com.example.BasicCRM_FWF.Service.Import.ImportJob;
+import com.example.BasicCRM_FWF.Service.Import.ImportProgress;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportJobResponse {
+    private String jobId;
+    private String type;
+    private String fileName;
+    private String status;
+    private boolean dryRun;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    private int rowsRead;
+    private int success;
+    private int failed;
+    private int skipped;
+    private int unchanged;
+    private double rowsPerSecond;
+
+    private String errorMessage;
+    private List<ImportProgress.IssueSummary> issues;
+    private Object report;
+    private List<ImportProgress.RowError> errors;
+    private int errorsNotShown;
+
+    public static ImportJobResponse from(ImportJob job, boolean withErrors) {
+        ImportProgress p = job.getProgress();
+        List<ImportProgress.RowError> errors = withErrors ? p.getErrors() : null;
+        return ImportJobResponse.builder()
+                .jobId(job.getId())
+                .type(job.getType().name())
+                .fileName(job.getFileName())
+                .status(job.getStatus().name())
+                .dryRun(job.isDryRun())
+                .submittedAt(job.getSubmittedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .rowsRead(p.getRowsRead())
+                .success(p.getSuccess())
+                .failed(p.getFailed())
+                .skipped(p.getSkipped())
+                .unchanged(p.getUnchanged())
+                .rowsPerSecond(Math.round(p.getRowsPerSecond() * 10) / 10.0)
+                .errorMessage(job.getErrorMessage())
+                .issues(p.getIssues())
+                .report(withErrors ? p.getReport() : null)
+                .errors(errors)
+                .errorsNotShown(p.getDroppedErrors())
+                .build();
+    }
+}
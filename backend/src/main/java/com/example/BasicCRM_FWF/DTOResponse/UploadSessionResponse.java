@@ -0,0 +1,39 @@
+package com.example.BasicCRM_FWF.DTOResponse;
+
+import com.example.BasicCRM_FWF.Service.Import.UploadSession;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionResponse {
+    private String uploadId;
+    private String type;
+    private String fileName;
+    private long totalSize;
+    private long receivedBytes;   // gửi phần tiếp theo từ offset này
+    private boolean dryRun;
+    private String jobId;         // có sau khi complete
+    private LocalDateTime createdAt;
+    private LocalDateTime lastActivityAt;
+
+    public static UploadSessionResponse from(UploadSession session) {
+        return UploadSessionResponse.builder()
+                .uploadId(session.getId())
+                .type(session.getType().name())
+                .fileName(session.getFileName())
+                .totalSize(session.getTotalSize())
+                .receivedBytes(session.getReceivedBytes())
+                .dryRun(session.isDryRun())
+                .jobId(session.getJobId())
+                .createdAt(session.getCreatedAt())
+                .lastActivityAt(session.getLastActivityAt())
+                .build();
+    }
+}
@@ -41,6 +41,24 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    @ExceptionHandler(ImportRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleImportRejectedException(ImportRejectedException ex) {
+        ErrorResponse error = new ErrorResponse(429 ,ex.getMessage(), "Import Queue Full");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
+    }
+
+    @ExceptionHandler(ReportTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleReportTimeoutException(ReportTimeoutException ex) {
+        ErrorResponse error = new ErrorResponse(503 ,ex.getMessage(), "Report Query Timeout");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    @ExceptionHandler(UploadConflictException.class)
+    public ResponseEntity<ErrorResponse> handleUploadConflictException(UploadConflictException ex) {
+        ErrorResponse error = new ErrorResponse(409 ,ex.getMessage(), "Upload Offset Conflict");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
 //    public ResponseEntity<Object> handleDuplicateResourceException(DuplicateResourceException ex ) {
 //        Map<String, Object> response = new HashMap<>();
 //        response.put("statusCode", HttpStatus.BAD_REQUEST.value());
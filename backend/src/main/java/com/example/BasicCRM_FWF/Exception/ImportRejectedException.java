@@ -0,0 +1,7 @@
+package com.example.BasicCRM_FWF.Exception;
+
+public class ImportRejectedException extends RuntimeException {
+    public ImportRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.BasicCRM_FWF.Exception;
+
+public class ReportTimeoutException extends RuntimeException {
+    public ReportTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.BasicCRM_FWF.Exception;
+
+public class UploadConflictException extends RuntimeException {
+    public UploadConflictException(String message) {
+        super(message);
+    }
+}
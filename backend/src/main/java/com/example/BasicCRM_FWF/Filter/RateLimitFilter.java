@@ -2,8 +2,6 @@ package com.example.BasicCRM_FWF.Filter;
 
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Bucket4j;
-import io.github.bucket4j.Refill;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,9 +22,11 @@ public class RateLimitFilter extends OncePerRequestFilter {
 
     private Bucket createNewBucket() {
         // 30 tokens mỗi giây, cho phép burst tối đa 50
-        Refill refill = Refill.greedy(30, Duration.ofSeconds(1));
-        Bandwidth limit = Bandwidth.classic(50, refill); // burst = 50
-        return Bucket4j.builder().addLimit(limit).build();
+        Bandwidth limit = Bandwidth.builder()
+                .capacity(50) // burst = 50
+                .refillGreedy(30, Duration.ofSeconds(1))
+                .build();
+        return Bucket.builder().addLimit(limit).build();
     }
 
     @Override
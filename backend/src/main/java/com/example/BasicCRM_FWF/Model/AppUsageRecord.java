@@ -9,7 +9,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "app_usage_record")
+@Table(name = "app_usage_record", indexes = @Index(name = "idx_app_usage_record_customer_key", columnList = "customer_key"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -26,4 +26,8 @@ public class AppUsageRecord {
     private Boolean device;
     private Boolean status;
     private LocalDateTime installedAt;
-}
\ No newline at end of file
+
+    // Khách hàng theo số điện thoại, xem CustomerKey
+    @Column(name = "customer_key")
+    private Long customerKey;
+}
@@ -0,0 +1,54 @@
+package com.example.BasicCRM_FWF.Model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Một đoạn ngày của {@link BackfillJob}. Trạng thái được lưu sau mỗi lần chạy để job bị ngắt
+ * (restart, lỗi) chạy tiếp từ các chunk chưa DONE.
+ */
+@Entity
+@Table(name = "backfill_chunk",
+        uniqueConstraints = @UniqueConstraint(name = "uk_backfill_chunk_job_from", columnNames = {"job_id", "from_date"}),
+        indexes = @Index(name = "idx_backfill_chunk_job_status", columnList = "job_id, status"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BackfillChunk {
+
+    public enum Status { PENDING, RUNNING, DONE, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @Column(name = "from_date", nullable = false)
+    private LocalDate fromDate;
+
+    @Column(name = "to_date", nullable = false)
+    private LocalDate toDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Status status;
+
+    private Integer attempts;
+
+    // Kết quả ghi của lần chạy thành công gần nhất
+    private Integer successRows;
+    private Integer unchangedRows;
+    private Integer failedRows;
+
+    @Column(length = 500)
+    private String lastError;
+
+    private LocalDateTime updatedAt;
+}
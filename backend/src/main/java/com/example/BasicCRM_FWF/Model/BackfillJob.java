@@ -0,0 +1,48 @@
+package com.example.BasicCRM_FWF.Model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Một lần backfill lịch sử từ API upstream cho khoảng ngày [fromDate, toDate], chia thành các
+ * {@link BackfillChunk} theo ngày hoặc tuần.
+ */
+@Entity
+@Table(name = "backfill_job")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BackfillJob {
+
+    public enum Status { RUNNING, DONE, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 30)
+    private String source;
+
+    private LocalDate fromDate;
+    private LocalDate toDate;
+
+    // Số ngày mỗi chunk (1 = theo ngày, 7 = theo tuần)
+    private Integer chunkDays;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Status status;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+
+    // Instance đang chạy job và hạn giữ (gia hạn theo heartbeat); hết hạn thì instance khác được nhận chạy tiếp
+    @Column(length = 100)
+    private String owner;
+    private LocalDateTime leaseUntil;
+}
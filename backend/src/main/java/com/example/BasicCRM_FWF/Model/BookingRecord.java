@@ -12,8 +12,12 @@ import java.time.LocalDateTime;
 @Data
 @Entity
 @SuperBuilder
-@Table(name = "booking_record")
-public class BookingRecord {
+@Table(name = "booking_record",
+        uniqueConstraints = @UniqueConstraint(name = "uk_booking_record_import_key", columnNames = "import_key"),
+        indexes = {
+                @Index(name = "idx_booking_record_customer_key", columnList = "customer_key")
+        })
+public class BookingRecord implements ImportedRecord {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -40,4 +44,25 @@ public class BookingRecord {
     private String bookingEmployee;
     private boolean customerStatus;
     private Integer customer_amount;
+
+    // Khách hàng theo số điện thoại, xem CustomerKey
+    @Column(name = "customer_key")
+    private Long customerKey;
+
+    // Khoá tự nhiên + MD5 nội dung dòng Excel, để import lại không tạo bản ghi trùng
+    @Column(name = "import_key", length = 40)
+    private String importKey;
+
+    @Column(name = "row_fingerprint", length = 32)
+    private String rowFingerprint;
+
+    @Override
+    public void assignId(Number id) {
+        this.id = id == null ? null : id.intValue();
+    }
+
+    @Override
+    public LocalDateTime importDate() {
+        return created_date;
+    }
 }
@@ -0,0 +1,25 @@
+package com.example.BasicCRM_FWF.Model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bảng chiều khách hàng: mỗi số điện thoại chuẩn hoá ({@code ServiceUtils.canonicalPhone}) có một id số nguyên.
+ * Các bảng giao dịch (sales_transaction, service_record, customer_sale_record, booking_record, app_usage_record)
+ * lưu id này ở cột customer_key để ghép khách giữa các nguồn bằng join số nguyên; số không chuẩn hoá được để NULL.
+ */
+@Entity
+@Table(name = "customer_key", uniqueConstraints = @UniqueConstraint(name = "uk_customer_key_phone", columnNames = "phone"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String phone;
+}
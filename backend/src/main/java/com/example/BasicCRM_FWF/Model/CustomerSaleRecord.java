@@ -11,7 +11,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "customer_sale_record")
+@Table(name = "customer_sale_record", indexes = @Index(name = "idx_customer_sale_record_customer_key", columnList = "customer_key"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -45,4 +45,8 @@ public class CustomerSaleRecord {
     private BigDecimal debt;
     private BigDecimal prepaidCard;
     private BigDecimal rewardPoint;
+
+    // Khách hàng theo số điện thoại, xem CustomerKey
+    @Column(name = "customer_key")
+    private Long customerKey;
 }
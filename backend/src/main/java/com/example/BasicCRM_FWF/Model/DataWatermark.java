@@ -0,0 +1,30 @@
+package com.example.BasicCRM_FWF.Model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thời điểm sự kiện nhỏ nhất/lớn nhất của từng bảng dữ liệu, cập nhật cùng transaction với lần ghi.
+ * {@code version} tăng sau mỗi lần ghi, dùng làm tín hiệu "dữ liệu đã đổi" cho các tính năng khác.
+ */
+@Entity
+@Table(name = "data_watermark")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DataWatermark {
+    @Id
+    @Column(name = "source_table", length = 50)
+    private String sourceTable;
+
+    private LocalDateTime minTime;
+    private LocalDateTime maxTime;
+
+    private Long version;
+
+    private LocalDateTime updatedAt;
+}
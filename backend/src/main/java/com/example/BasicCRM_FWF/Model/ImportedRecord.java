@@ -0,0 +1,26 @@
+package com.example.BasicCRM_FWF.Model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bản ghi được import từ file: có khoá tự nhiên ({@code import_key}) và fingerprint nội dung dòng
+ * ({@code row_fingerprint}) để import lại cùng dữ liệu không tạo bản ghi trùng.
+ */
+public interface ImportedRecord {
+
+    Number getId();
+
+    /** Gán id của bản ghi đã có trong DB (hoặc null) để lần ghi sau là UPDATE thay vì INSERT. */
+    void assignId(Number id);
+
+    String getImportKey();
+
+    void setImportKey(String importKey);
+
+    String getRowFingerprint();
+
+    void setRowFingerprint(String rowFingerprint);
+
+    /** Thời điểm nghiệp vụ của bản ghi, dùng để nạp khoá đã có theo ngày. */
+    LocalDateTime importDate();
+}
@@ -0,0 +1,44 @@
+package com.example.BasicCRM_FWF.Model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Tổng doanh số theo ngày x cơ sở, được cập nhật cùng transaction với import sales_transaction
+@Entity
+@Table(name = "sales_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_daily_rollup_day_facility", columnNames = {"day", "facility_id"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SalesDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    // 0 = giao dịch không gắn cơ sở (NULL không dùng được trong unique key)
+    @Column(name = "facility_id", nullable = false)
+    private Long facilityId;
+
+    @Column(nullable = false)
+    private Long orders;
+
+    private BigDecimal totalAmount;
+    private BigDecimal cashTransferCredit;
+    private BigDecimal cash;
+    private BigDecimal transfer;
+    private BigDecimal creditCard;
+    private BigDecimal prepaidCard;
+    private BigDecimal wallet;
+    private BigDecimal debt;
+}
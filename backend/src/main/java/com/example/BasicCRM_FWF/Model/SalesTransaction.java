@@ -12,12 +12,17 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "sales_transaction")
+@Table(name = "sales_transaction",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_transaction_import_key", columnNames = "import_key"),
+        indexes = {
+                @Index(name = "idx_sales_transaction_order_date", columnList = "order_date"),
+                @Index(name = "idx_sales_transaction_customer_key", columnList = "customer_key")
+        })
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-public class SalesTransaction {
+public class SalesTransaction implements ImportedRecord {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -53,4 +58,54 @@ public class SalesTransaction {
 
     @OneToMany(mappedBy = "salesTransaction", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<SaleServiceItem> saleServiceItems;
-}
\ No newline at end of file
+
+    // Khách hàng theo số điện thoại, xem CustomerKey
+    @Column(name = "customer_key")
+    private Long customerKey;
+
+    // Khoá tự nhiên + MD5 nội dung dòng Excel, để import lại không tạo bản ghi trùng
+    @Column(name = "import_key", length = 40)
+    private String importKey;
+
+    @Column(name = "row_fingerprint", length = 32)
+    private String rowFingerprint;
+
+    // Phân loại item của đơn, tính sẵn khi import (SalesTransactionFlagService); NULL = chưa backfill
+    @Column(name = "item_count")
+    private Integer itemCount;
+
+    // số dòng item mã CB%/DV% (combo + dịch vụ lẻ)
+    @Column(name = "cb_dv_count")
+    private Integer cbDvCount;
+
+    // số dòng item mã DV% (dịch vụ lẻ)
+    @Column(name = "dv_count")
+    private Integer dvCount;
+
+    // số dòng item mã MD%/MP% (sản phẩm)
+    @Column(name = "product_count")
+    private Integer productCount;
+
+    // số dòng item mua thẻ thành viên
+    @Column(name = "card_count")
+    private Integer cardCount;
+
+    @Column(name = "has_service")
+    private Boolean hasService;
+
+    @Column(name = "has_product")
+    private Boolean hasProduct;
+
+    @Column(name = "has_card")
+    private Boolean hasCard;
+
+    @Override
+    public void assignId(Number id) {
+        this.id = id == null ? null : id.longValue();
+    }
+
+    @Override
+    public LocalDateTime importDate() {
+        return orderDate;
+    }
+}
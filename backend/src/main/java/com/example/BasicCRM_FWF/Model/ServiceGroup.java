@@ -0,0 +1,39 @@
+package com.example.BasicCRM_FWF.Model;
+
+import static com.example.BasicCRM_FWF.Utils.ServiceUtils.foldForMatch;
+
+/**
+ * Nhóm dịch vụ theo tiền tố tên, lưu sẵn ở cột service_group của service_type/service_type_temp
+ * (giá trị lưu là {@link #getLabel()}, cũng là nhãn trả về cho báo cáo).
+ * So khớp không phân biệt hoa thường/dấu như LIKE 'COMBO CS%' ... trên collation *_ai_ci.
+ */
+public enum ServiceGroup {
+    COMBO_CS("Combo CS", "COMBO CS"),
+    COMBO("Combo", "COMBO"),
+    SERVICE("Dịch vụ", "DV"),
+    ADD_ON("Cộng thêm", "CT"),
+    GIFT("Quà tặng", "QUÀ TẶNG"),
+    OTHER("Khác", null);
+
+    private final String label;
+    private final String foldedPrefix;
+
+    ServiceGroup(String label, String prefix) {
+        this.label = label;
+        this.foldedPrefix = foldForMatch(prefix);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /** Thứ tự khai báo là thứ tự ưu tiên: COMBO CS phải được xét trước COMBO. */
+    public static ServiceGroup classify(String serviceName) {
+        String name = foldForMatch(serviceName);
+        if (name == null) return OTHER;
+        for (ServiceGroup group : values()) {
+            if (group.foldedPrefix != null && name.startsWith(group.foldedPrefix)) return group;
+        }
+        return OTHER;
+    }
+}
@@ -10,12 +10,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "service_record")
+@Table(name = "service_record",
+        uniqueConstraints = @UniqueConstraint(name = "uk_service_record_import_key", columnNames = "import_key"),
+        indexes = {
+                @Index(name = "idx_service_record_customer_key", columnList = "customer_key")
+        })
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-public class ServiceRecord {
+public class ServiceRecord implements ImportedRecord {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -53,4 +57,25 @@ public class ServiceRecord {
     private Double rating;
     private String reviewContent;
     private String note;
+
+    // Khách hàng theo số điện thoại, xem CustomerKey
+    @Column(name = "customer_key")
+    private Long customerKey;
+
+    // Khoá tự nhiên + MD5 nội dung dòng Excel, để import lại không tạo bản ghi trùng
+    @Column(name = "import_key", length = 40)
+    private String importKey;
+
+    @Column(name = "row_fingerprint", length = 32)
+    private String rowFingerprint;
+
+    @Override
+    public void assignId(Number id) {
+        this.id = id == null ? null : id.longValue();
+    }
+
+    @Override
+    public LocalDateTime importDate() {
+        return bookingDate;
+    }
 }
@@ -10,7 +10,8 @@ import java.math.BigDecimal;
 import java.util.List;
 
 @Entity
-@Table(name = "service_type")
+@Table(name = "service_type",
+        indexes = @Index(name = "idx_service_type_group", columnList = "id, service_group"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -28,6 +29,16 @@ public class ServiceType {
 
     private String category;
 
+    // ServiceGroup.getLabel(), suy ra từ tên
+    @Column(name = "service_group", length = 20)
+    private String serviceGroup;
+
     @OneToMany(mappedBy = "serviceType", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<SaleServiceItem> saleServiceItems;
+
+    @PrePersist
+    @PreUpdate
+    void classify() {
+        serviceGroup = ServiceGroup.classify(service_name).getLabel();
+    }
 }
@@ -7,7 +7,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "service_type_temp")
+@Table(name = "service_type_temp",
+        indexes = @Index(name = "idx_service_type_temp_group", columnList = "id, service_group"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -18,4 +19,14 @@ public class ServiceTypeTemp {
     private Long id;
 
     private String service_name;
+
+    // ServiceGroup.getLabel(), suy ra từ tên
+    @Column(name = "service_group", length = 20)
+    private String serviceGroup;
+
+    @PrePersist
+    @PreUpdate
+    void classify() {
+        serviceGroup = ServiceGroup.classify(service_name).getLabel();
+    }
 }
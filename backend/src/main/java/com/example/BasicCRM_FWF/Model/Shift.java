@@ -7,9 +7,9 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
-import java.sql.Time;
+import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 //@EqualsAndHashCode(callSuper = true)
 @AllArgsConstructor
@@ -17,7 +17,12 @@ import java.time.LocalDateTime;
 @Data
 @Entity
 @SuperBuilder
-@Table(name = "shift")
+// Khoá duy nhất (username, stock_id, work_date) do ShiftTypedColumnMigrator tạo sau khi dọn dòng trùng
+@Table(name = "shift", indexes = {
+        @Index(name = "idx_shift_stock_date", columnList = "stock_id, work_date"),
+        @Index(name = "idx_shift_user_date", columnList = "username, work_date"),
+        @Index(name = "idx_shift_date_stock", columnList = "work_date, stock_id")
+})
 public class Shift {
 
     @Id
@@ -29,13 +34,22 @@ public class Shift {
     private String username;
     private String stockId;
     private String stockTitle;
-    private String date;
-    private String checkIn;
-    private String checkOut;
+    // Ngày công và giờ chấm công thực tế
+    @Column(name = "work_date")
+    private LocalDate workDate;
+    @Column(name = "check_in_time")
+    private LocalTime checkInTime;
+    @Column(name = "check_out_time")
+    private LocalTime checkOutTime;
+
+    // Ca làm trong ngày: tên ca, giờ bắt đầu/kết thúc, số công
     private String title;
-    private String timeFrom;
-    private String timeTo;
-    private String mandays;
+    @Column(name = "shift_start")
+    private LocalTime shiftStart;
+    @Column(name = "shift_end")
+    private LocalTime shiftEnd;
+    @Column(name = "mandays_value", precision = 6, scale = 2)
+    private BigDecimal mandaysValue;
     private String typeCheckIn;
     private String desTypeCheckIn;
     private String typeCheckOut;
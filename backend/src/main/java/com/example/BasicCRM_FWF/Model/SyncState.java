@@ -0,0 +1,37 @@
+package com.example.BasicCRM_FWF.Model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mốc đồng bộ (watermark) của các job kéo dữ liệu từ hệ thống POS, mỗi job một dòng theo tên.
+ * Job nền chạy theo dải id dùng {@code position} làm mốc thay cho thời điểm.
+ */
+@Entity
+@Table(name = "sync_state")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncState {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    // Đã đồng bộ đủ mọi đơn tạo trước thời điểm này
+    private LocalDateTime watermark;
+
+    // Đã xử lý đủ mọi dòng có id <= position
+    private Long position;
+
+    private LocalDateTime lastRunAt;
+
+    @Column(length = 20)
+    private String lastStatus;
+
+    @Column(length = 500)
+    private String lastMessage;
+}
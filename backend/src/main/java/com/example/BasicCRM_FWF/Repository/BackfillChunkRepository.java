@@ -0,0 +1,23 @@
+package com.example.BasicCRM_FWF.Repository;
+
+import com.example.BasicCRM_FWF.Model.BackfillChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface BackfillChunkRepository extends JpaRepository<BackfillChunk, Long> {
+    List<BackfillChunk> findByJobIdOrderByFromDate(Long jobId);
+
+    List<BackfillChunk> findByJobIdAndStatusNotOrderByFromDate(Long jobId, BackfillChunk.Status status);
+
+    // Chunk đang RUNNING/FAILED của job bị ngắt -> chạy lại từ đầu chunk
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE backfill_chunk SET status = 'PENDING', attempts = 0 WHERE job_id = :jobId AND status <> 'DONE'",
+            nativeQuery = true)
+    int resetUnfinished(@Param("jobId") Long jobId);
+}
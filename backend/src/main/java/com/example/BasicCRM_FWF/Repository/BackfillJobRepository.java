@@ -0,0 +1,49 @@
+package com.example.BasicCRM_FWF.Repository;
+
+import com.example.BasicCRM_FWF.Model.BackfillJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BackfillJobRepository extends JpaRepository<BackfillJob, Long> {
+    List<BackfillJob> findByStatus(BackfillJob.Status status);
+
+    List<BackfillJob> findTop20ByOrderByIdDesc();
+
+    // Nhận job nếu chưa ai giữ hoặc hạn giữ đã qua; trả về 0 nếu instance khác đang giữ
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE backfill_job SET owner = :owner, lease_until = :until
+            WHERE id = :jobId AND (owner IS NULL OR owner = :owner OR lease_until IS NULL OR lease_until < :now)
+            """, nativeQuery = true)
+    int claim(@Param("jobId") Long jobId, @Param("owner") String owner,
+              @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    // Gia hạn; trả về 0 nếu đã mất quyền giữ
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE backfill_job SET lease_until = :until WHERE id = :jobId AND owner = :owner", nativeQuery = true)
+    int renew(@Param("jobId") Long jobId, @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE backfill_job SET owner = NULL, lease_until = NULL WHERE id = :jobId AND owner = :owner",
+            nativeQuery = true)
+    int release(@Param("jobId") Long jobId, @Param("owner") String owner);
+
+    // Ghi kết quả và nhả job, chỉ khi còn giữ
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE backfill_job SET status = :status, finished_at = :finishedAt, owner = NULL, lease_until = NULL
+            WHERE id = :jobId AND owner = :owner
+            """, nativeQuery = true)
+    int finish(@Param("jobId") Long jobId, @Param("owner") String owner,
+               @Param("status") String status, @Param("finishedAt") LocalDateTime finishedAt);
+}
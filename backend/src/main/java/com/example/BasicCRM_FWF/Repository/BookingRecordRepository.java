@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 
 import java.awt.print.Pageable;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -99,4 +100,24 @@ public interface BookingRecordRepository extends JpaRepository<BookingRecord, In
     long countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(@Param("cusStatus") int cusStatus,
                                                                       @Param("fromDate") LocalDateTime fromDate,
                                                                       @Param("toDate") LocalDateTime toDate);
+
+    // Khoá import đã có trong khoảng thời gian (ImportKeyIndex); legacy_key ghép giống ImportKeyIndex.naturalKey
+    @Query(value = """
+        SELECT br.id, br.import_key, br.row_fingerprint,
+               MD5(CONCAT_WS('|', DATE_FORMAT(br.created_date, '%Y-%m-%d %H:%i'),
+                                  COALESCE(br.phone_number, ''), COALESCE(br.facility_id, ''))) AS legacy_key
+        FROM booking_record br
+        WHERE br.created_date >= :start AND br.created_date < :end
+        ORDER BY br.id
+    """, nativeQuery = true)
+    List<Object[]> findImportKeysBetween(@Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end);
+
+    // Bản ghi theo đúng các import_key (ImportKeyIndex tra lại trước khi ghi lô)
+    @Query(value = """
+        SELECT br.id, br.import_key, br.row_fingerprint
+        FROM booking_record br
+        WHERE br.import_key IN (:keys)
+    """, nativeQuery = true)
+    List<Object[]> findByImportKeys(@Param("keys") Collection<String> keys);
 }
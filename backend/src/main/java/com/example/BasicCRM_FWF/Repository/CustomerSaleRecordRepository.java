@@ -2,7 +2,6 @@ package com.example.BasicCRM_FWF.Repository;
 
 import com.example.BasicCRM_FWF.DTOResponse.DailyCustomerCount;
 import com.example.BasicCRM_FWF.Model.CustomerSaleRecord;
-import com.example.BasicCRM_FWF.Service.FullDateRangeService;
 import com.example.BasicCRM_FWF.Service.Realtime.RealTimeService;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -13,21 +12,6 @@ import java.util.List;
 
 public interface CustomerSaleRecordRepository extends JpaRepository<CustomerSaleRecord, Integer> {
 
-    @Query(value = """
-        SELECT
-            (SELECT MAX(created_at)   FROM temp_crm.customer_sale_record) AS maxCustomerCreatedAt,
-            (SELECT MAX(created_date) FROM temp_crm.booking_record)       AS maxBookingCreatedDate,
-            (SELECT MAX(order_date)   FROM temp_crm.sales_transaction)    AS maxSalesOrderDate,
-            (SELECT MAX(booking_date) FROM temp_crm.service_record)       AS maxServiceBookingDate,
-
-            (SELECT MIN(created_at)   FROM temp_crm.customer_sale_record) AS minCustomerCreatedAt,
-            (SELECT MIN(created_date) FROM temp_crm.booking_record)       AS minBookingCreatedDate,
-            (SELECT MIN(order_date)   FROM temp_crm.sales_transaction)    AS minSalesOrderDate,
-            (SELECT MIN(booking_date) FROM temp_crm.service_record)       AS minServiceBookingDate
-        """,
-            nativeQuery = true)
-    FullDateRangeService.FullDateRangeInfo getFullRange();
-
     @Query(value = """
         WITH ranked AS (
             SELECT *,
@@ -117,4 +101,22 @@ public interface CustomerSaleRecordRepository extends JpaRepository<CustomerSale
     @Query(value = "SELECT DISTINCT phone_number FROM customer_sale_record WHERE created_at < :before", nativeQuery = true)
     List<String> findPhonesByCreatedAtBefore(@Param("before") LocalDateTime before);
 
+    // Khách tạo trong kỳ (theo customer_key) và số khách trong đó đã cài app trong kỳ: [customers, downloaded]
+    @Query(value = """
+        SELECT COUNT(*), COUNT(a.customer_key)
+        FROM (
+            SELECT DISTINCT customer_key
+            FROM customer_sale_record
+            WHERE created_at BETWEEN :start AND :end
+              AND customer_key IS NOT NULL
+        ) c
+        LEFT JOIN (
+            SELECT DISTINCT customer_key
+            FROM app_usage_record
+            WHERE installed_at BETWEEN :start AND :end
+              AND customer_key IS NOT NULL
+        ) a ON a.customer_key = c.customer_key
+        """, nativeQuery = true)
+    List<Object[]> countAppDownloadSummary(@Param("start") LocalDateTime start,
+                                           @Param("end") LocalDateTime end);
 }
@@ -0,0 +1,7 @@
+package com.example.BasicCRM_FWF.Repository;
+
+import com.example.BasicCRM_FWF.Model.DataWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DataWatermarkRepository extends JpaRepository<DataWatermark, String> {
+}
@@ -23,185 +23,160 @@ public interface SalesTransactionRepository extends JpaRepository<SalesTransacti
 
     List<SalesTransaction> findByOrderDateBetween(LocalDateTime start, LocalDateTime end);
 
-//
-//
+    // Các báo cáo theo ngày x vùng/cửa hàng đọc sales_daily_rollup (xem SalesDailyRollupService),
+    // khoảng thời gian được tính theo ngày trọn vẹn: DATE(:start) .. DATE(:end).
+    // Tổng cả khoảng (không chia theo ngày) lấy từ SalesDailyIndex trong bộ nhớ thay vì query.
     @Query(value = """
         SELECT r.region AS region,
-               DATE(s.order_date) AS date,
-               SUM(s.cash_transfer_credit) AS totalRevenue
-        FROM sales_transaction s
-        JOIN region r ON s.facility_id = r.id
-        WHERE s.order_date BETWEEN :start AND :end
-        GROUP BY r.region, DATE(s.order_date)
-        ORDER BY DATE(s.order_date)
+               d.day AS date,
+               SUM(d.cash_transfer_credit) AS totalRevenue
+        FROM sales_daily_rollup d
+        JOIN region r ON d.facility_id = r.id
+        WHERE d.day BETWEEN DATE(:start) AND DATE(:end)
+          AND d.orders > 0
+        GROUP BY r.region, d.day
+        ORDER BY d.day
     """, nativeQuery = true)
     List<Object[]> fetchRevenueByRegionAndDate(@Param("start") LocalDateTime start,
                                                @Param("end") LocalDateTime end);
 
     @Query(value = """
         SELECT r.shop_type AS shopType,
-               DATE(s.order_date) AS date,
-               SUM(s.total_amount) AS totalRevenue
-        FROM sales_transaction s
-        JOIN region r ON s.facility_id = r.id
-        WHERE s.order_date BETWEEN :start AND :end
-        GROUP BY r.shop_type, DATE(s.order_date)
-        ORDER BY DATE(s.order_date)
+               d.day AS date,
+               SUM(d.total_amount) AS totalRevenue
+        FROM sales_daily_rollup d
+        JOIN region r ON d.facility_id = r.id
+        WHERE d.day BETWEEN DATE(:start) AND DATE(:end)
+          AND d.orders > 0
+        GROUP BY r.shop_type, d.day
+        ORDER BY d.day
     """, nativeQuery = true)
     List<Object[]> fetchRevenueByShopTypeAndDate(@Param("start") LocalDateTime start,
                                                  @Param("end") LocalDateTime end);
 
     @Query(value = """
-        SELECT SUM(s.prepaid_card)
-        FROM sales_transaction s
-        WHERE s.order_date BETWEEN :start AND :end
-    """, nativeQuery = true)
-    BigDecimal fetchRevenueSummary(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
-    @Query(value = """
-        SELECT SUM(s.cash_transfer_credit)
-        FROM sales_transaction s
-        WHERE s.order_date BETWEEN :start AND :end
-    """, nativeQuery = true)
-    BigDecimal fetchActualRevenueSummary(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
-    @Query(value = """
-        SELECT r.region AS region,
-               COUNT(*) AS orders,
-               SUM(s.cash_transfer_credit) AS revenue
-        FROM sales_transaction s
-        JOIN region r ON s.facility_id = r.id
-        WHERE s.order_date BETWEEN :start AND :end
-        GROUP BY r.region
-    """, nativeQuery = true)
-    List<Object[]> fetchOrderAndRevenueByRegion(@Param("start") LocalDateTime start,
-                                                 @Param("end") LocalDateTime end);
-
-    @Query(value = """
-    SELECT r.region AS region,
-           SUM(s.cash_transfer_credit) AS actualRevenue
-    FROM sales_transaction s
-    JOIN region r ON s.facility_id = r.id
-    WHERE s.order_date BETWEEN :start AND :end
-    GROUP BY r.region
-""", nativeQuery = true)
-    List<Object[]> fetchActualRevenueByRegion(@Param("start") LocalDateTime start,
-                                              @Param("end") LocalDateTime end);
-
-    @Query(value = """
-        SELECT DATE(s.order_date) AS order_date,
+        SELECT d.day AS order_date,
                r.region AS region,
-               SUM(s.cash_transfer_credit) AS revenue
-        FROM sales_transaction s
-        JOIN region r ON s.facility_id = r.id
-        WHERE s.order_date BETWEEN :start AND :end
-        GROUP BY DATE(s.order_date), r.region
-        ORDER BY DATE(s.order_date), r.region
+               SUM(d.cash_transfer_credit) AS revenue
+        FROM sales_daily_rollup d
+        JOIN region r ON d.facility_id = r.id
+        WHERE d.day BETWEEN DATE(:start) AND DATE(:end)
+          AND d.orders > 0
+        GROUP BY d.day, r.region
+        ORDER BY d.day, r.region
     """, nativeQuery = true)
     List<Object[]> fetchDailyRevenueByRegion(@Param("start") LocalDateTime start,
                                              @Param("end") LocalDateTime end);
 
     @Query(value = """
-        SELECT DATE(st.order_date) AS order_date,
+        SELECT d.day AS order_date,
                r.shop_type AS shop_type,
-               SUM(st.cash_transfer_credit) AS revenue
-        FROM sales_transaction st
-                 JOIN region r ON st.facility_id = r.id
-        WHERE st.order_date BETWEEN :start AND :end
-        GROUP BY DATE(st.order_date), r.shop_type
-        ORDER BY DATE(st.order_date), r.shop_type
+               SUM(d.cash_transfer_credit) AS revenue
+        FROM sales_daily_rollup d
+                 JOIN region r ON d.facility_id = r.id
+        WHERE d.day BETWEEN DATE(:start) AND DATE(:end)
+          AND d.orders > 0
+        GROUP BY d.day, r.shop_type
+        ORDER BY d.day, r.shop_type
         """, nativeQuery = true)
     List<Object[]> getDailyRevenueByShopType(@Param("start") LocalDateTime start,
                                              @Param("end") LocalDateTime end);
 
     @Query(value = "SELECT c.customer_type, DATE(s.order_date), SUM(s.cash_transfer_credit) " +
             "FROM customer_sale_record c " +
-            "JOIN sales_transaction s ON c.phone_number = s.phone_number " +
+            "JOIN sales_transaction s ON c.customer_key = s.customer_key " +
             "WHERE s.order_date BETWEEN :start AND :end " +
             "GROUP BY c.customer_type, DATE(s.order_date)", nativeQuery = true)
     List<Object[]> findRevenueByCustomerTypeAndDate(@Param("start") LocalDateTime start,
                                                     @Param("end") LocalDateTime end);
 
-    @Query(value = """
-        SELECT r.shop_name,
-               SUM(s.cash_transfer_credit) AS actualRevenue,
-               SUM(s.prepaid_card) AS foxieCardRevenue
-        FROM sales_transaction s
-        JOIN region r ON s.facility_id = r.id
-        WHERE s.order_date BETWEEN :start AND :end
-        GROUP BY r.shop_name
-        ORDER BY actualRevenue DESC
-    """, nativeQuery = true)
-    List<Object[]> findTop10StoreRevenue(@Param("start") LocalDateTime start,
-                                         @Param("end") LocalDateTime end);
+    // Các query *ByPeriod quét một lần cả kỳ hiện tại [start, end] và kỳ trước [prevStart, prevEnd],
+    // cột đầu là period = 'current' | 'previous' (tách bằng Service.Report.PeriodRows)
 
     @Query(value = """
         SELECT
+            CASE WHEN st.order_date BETWEEN :start AND :end THEN 'current' ELSE 'previous' END AS period,
             r.shop_name,
-            SUM(COALESCE(s.count_cb_dv, 0)) AS count_cb_dv,
+            SUM(COALESCE(st.cb_dv_count, 0)) AS count_cb_dv,
             SUM(COALESCE(st.cash_transfer_credit, 0)) AS total_cash_transfer,
             SUM(COALESCE(st.prepaid_card, 0)) AS total_prepaid_card
         FROM
             sales_transaction st
         JOIN
             region r ON st.facility_id = r.id
-        LEFT JOIN (
-            SELECT ssi.sale_transaction_id, COUNT(*) AS count_cb_dv
-            FROM sale_service_item ssi
-            JOIN service_type ser ON ssi.service_type_id = ser.id
-            WHERE ser.service_code LIKE 'CB%' OR ser.service_code LIKE 'DV%'
-            GROUP BY ssi.sale_transaction_id
-        ) s ON st.id = s.sale_transaction_id
         WHERE
-            st.order_date BETWEEN :start AND :end
+            (st.order_date BETWEEN :start AND :end OR st.order_date BETWEEN :prevStart AND :prevEnd)
         GROUP BY
-            r.shop_name
+            period, r.shop_name
 """, nativeQuery = true)
-    List<Object[]> findStoreRevenueStatsBetween(@Param("start") LocalDateTime start,
-                                                @Param("end") LocalDateTime end);
+    List<Object[]> findStoreRevenueStatsByPeriod(@Param("start") LocalDateTime start,
+                                                 @Param("end") LocalDateTime end,
+                                                 @Param("prevStart") LocalDateTime prevStart,
+                                                 @Param("prevEnd") LocalDateTime prevEnd);
 
 
-    @Query(value = "SELECT DATE(order_date) as order_day, COUNT(*) as total_orders, COUNT(DISTINCT facility_id) as shop_count\n" +
-            "FROM sales_transaction\n" +
-            "WHERE order_date BETWEEN :start AND :end\n" +
-            "GROUP BY DATE(order_date)\n" +
-            "ORDER BY DATE(order_date)", nativeQuery = true)
+    // facility_id = 0: giao dịch không gắn cơ sở, không tính vào số cửa hàng (như COUNT(DISTINCT facility_id) cũ)
+    @Query(value = """
+        SELECT d.day AS order_day,
+               SUM(d.orders) AS total_orders,
+               COUNT(CASE WHEN d.facility_id <> 0 THEN 1 END) AS shop_count
+        FROM sales_daily_rollup d
+        WHERE d.day BETWEEN DATE(:start) AND DATE(:end)
+          AND d.orders > 0
+        GROUP BY d.day
+        ORDER BY d.day
+    """, nativeQuery = true)
     List<Object[]> findDailyOrderAndShopStats(@Param("start") LocalDateTime start,
                                               @Param("end") LocalDateTime end);
 
+    // Cờ/số đếm item tính sẵn trên sales_transaction (SalesTransactionFlagService).
+    // Các cột đếm theo dòng item như bản LEFT JOIN cũ: đơn trả bằng thẻ được đếm một lần cho mỗi item (tối thiểu 1).
     @Query(value = """
             SELECT
                 r.shop_name AS shop_name,
-                COUNT(DISTINCT st.id) AS total_orders,
+                COUNT(*) AS total_orders,
             
                 -- dịch vụ lẻ
-                COUNT(CASE WHEN ser.service_code LIKE 'DV%' THEN 1 END) AS service_orders,
+                COALESCE(SUM(st.dv_count), 0) AS service_orders,
             
                 -- đơn trả bằng tiền mặt/CK/quẹt thẻ (cash_transfer_credit)
-                COUNT(CASE WHEN st.prepaid_card > 0 THEN 1 END) AS cash_transfer_credit_orders,
+                COALESCE(SUM(CASE WHEN st.prepaid_card > 0 THEN GREATEST(COALESCE(st.item_count, 0), 1) END), 0) AS cash_transfer_credit_orders,
             
                 -- combo
-                COUNT(CASE WHEN ser.service_code LIKE 'CB%' THEN 1 END) AS combo_orders,
+                COALESCE(SUM(st.cb_dv_count - st.dv_count), 0) AS combo_orders,
             
                 -- mua thẻ
-                COUNT(CASE\s
-                        WHEN ser.category = 'Foxie Member Card'\s
-                          OR ser.service_name LIKE 'Foxie Card%'\s
-                        THEN 1 END) AS card_purchase_orders
+                COALESCE(SUM(st.card_count), 0) AS card_purchase_orders
             
             FROM sales_transaction st
             JOIN region r\s
                 ON st.facility_id = r.id
-            LEFT JOIN sale_service_item ssi\s
-                ON st.id = ssi.sale_transaction_id
-            LEFT JOIN service_type ser\s
-                ON ssi.service_type_id = ser.id
             WHERE st.order_date BETWEEN :start AND :end
             GROUP BY r.shop_name
             ORDER BY total_orders DESC;
     """, nativeQuery = true)
     List<Object[]> fetchRegionOrderBreakdown(LocalDateTime start, LocalDateTime end);
 
+    @Query(value = """
+            SELECT
+                CASE WHEN st.order_date BETWEEN :start AND :end THEN 'current' ELSE 'previous' END AS period,
+                r.shop_name AS shop_name,
+                COUNT(*) AS total_orders,
+                COALESCE(SUM(st.dv_count), 0) AS service_orders,
+                COALESCE(SUM(CASE WHEN st.prepaid_card > 0 THEN GREATEST(COALESCE(st.item_count, 0), 1) END), 0) AS cash_transfer_credit_orders,
+                COALESCE(SUM(st.cb_dv_count - st.dv_count), 0) AS combo_orders,
+                COALESCE(SUM(st.card_count), 0) AS card_purchase_orders
+            FROM sales_transaction st
+            JOIN region r ON st.facility_id = r.id
+            WHERE (st.order_date BETWEEN :start AND :end OR st.order_date BETWEEN :prevStart AND :prevEnd)
+            GROUP BY period, r.shop_name
+            ORDER BY period, total_orders DESC
+    """, nativeQuery = true)
+    List<Object[]> fetchRegionOrderBreakdownByPeriod(@Param("start") LocalDateTime start,
+                                                     @Param("end") LocalDateTime end,
+                                                     @Param("prevStart") LocalDateTime prevStart,
+                                                     @Param("prevEnd") LocalDateTime prevEnd);
+
     @Query("SELECT st.facility.region, " +
             "       COALESCE(SUM(st.cash), 0), " +
             "       COALESCE(SUM(st.transfer), 0), " +
@@ -214,79 +189,53 @@ public interface SalesTransactionRepository extends JpaRepository<SalesTransacti
 
     @Query(value = """
         SELECT
-            COUNT(DISTINCT st.id) AS total_orders,
+            CASE WHEN st.order_date BETWEEN :start AND :end THEN 'current' ELSE 'previous' END AS period,
+            COUNT(*) AS total_orders,
         
             -- dịch vụ hoặc combo
-            COUNT(CASE\s
-                    WHEN ser.service_code LIKE 'CB%'\s
-                      OR ser.service_code LIKE 'DV%'\s
-                    THEN 1 END) AS service_combo_orders,
+            COALESCE(SUM(st.cb_dv_count), 0) AS service_combo_orders,
         
-            -- đơn có thanh toán bằng prepaid_card > 0
-            COUNT(CASE\s
-                    WHEN st.prepaid_card > 0\s
-                    THEN 1 END) AS foxie_card_orders,
+            -- đơn có thanh toán bằng prepaid_card > 0 (đếm theo item như bản LEFT JOIN cũ)
+            COALESCE(SUM(CASE WHEN st.prepaid_card > 0 THEN GREATEST(COALESCE(st.item_count, 0), 1) END), 0) AS foxie_card_orders,
         
             -- sản phẩm
-            COUNT(CASE\s
-                    WHEN ser.service_code LIKE 'MD%'\s
-                      OR ser.service_code LIKE 'MP%'\s
-                    THEN 1 END) AS product_orders,
+            COALESCE(SUM(st.product_count), 0) AS product_orders,
         
             -- mua thẻ thành viên
-            COUNT(CASE\s
-                    WHEN ser.category LIKE 'Foxie Member Card'\s
-                      OR ser.service_name LIKE 'Foxie Card%'\s
-                    THEN 1 END) AS card_purchase_orders
+            COALESCE(SUM(st.card_count), 0) AS card_purchase_orders
         
         FROM sales_transaction st
-        LEFT JOIN sale_service_item ssi\s
-            ON st.id = ssi.sale_transaction_id
-        LEFT JOIN service_type ser\s
-            ON ssi.service_type_id = ser.id
-        WHERE st.order_date BETWEEN :start AND :end;
+        WHERE (st.order_date BETWEEN :start AND :end OR st.order_date BETWEEN :prevStart AND :prevEnd)
+        GROUP BY period
 """, nativeQuery = true)
-    List<Object[]> fetchOverallOrderSummary(@Param("start") LocalDateTime start,
-                                            @Param("end") LocalDateTime end);
+    List<Object[]> fetchOverallOrderSummaryByPeriod(@Param("start") LocalDateTime start,
+                                                    @Param("end") LocalDateTime end,
+                                                    @Param("prevStart") LocalDateTime prevStart,
+                                                    @Param("prevEnd") LocalDateTime prevEnd);
 
 //    3 ô đầu (dịch vụ lẻ / mua thẻ / sản phẩm) là nhóm loại TRỪ nhau ⇒ cộng lại = total_revenue ✅
 //    Foxie card là chỉ tiêu thanh toán (không phải nhóm hàng) ⇒ độc lập và có thể chồng lên 3 ô trên ✅
 //    Vì thế, số “Foxie card” khác tổng hay khác từng ô là bình thường.
+    // Chỉ tính đơn có item (như JOIN cũ với bảng cờ gom từ sale_service_item)
     @Query(value = """
         SELECT
+            CASE WHEN st.order_date BETWEEN :start AND :end THEN 'current' ELSE 'previous' END AS period,
             COALESCE(SUM(st.total_amount), 0) AS total_revenue,
-            COALESCE(SUM((service_type_flags.has_service = 1) * st.total_amount), 0) AS service_revenue,
-            COALESCE(SUM((service_type_flags.has_card = 1) * st.cash_transfer_credit), 0) AS card_purchase_revenue,
-            COALESCE(SUM((service_type_flags.has_product = 1) * st.cash_transfer_credit), 0) AS product_revenue,
+            COALESCE(SUM((st.has_service = 1) * st.total_amount), 0) AS service_revenue,
+            COALESCE(SUM((st.has_card = 1) * st.cash_transfer_credit), 0) AS card_purchase_revenue,
+            COALESCE(SUM((st.has_product = 1) * st.cash_transfer_credit), 0) AS product_revenue,
             COALESCE(SUM(st.prepaid_card), 0) AS foxie_card_paid,
             COALESCE(SUM(st.cash_transfer_credit), 0) AS thucthu
     
         FROM sales_transaction st
-        JOIN (
-            SELECT
-                ssi.sale_transaction_id,
-                MAX(stt.category = 'Foxie Member Card' OR stt.service_name LIKE 'Foxie Card%') AS has_card,
-                MAX(
-                    (stt.service_code LIKE 'MD%' OR stt.service_code LIKE 'MP%')
-                    AND NOT (stt.category = 'Foxie Member Card' OR stt.service_name LIKE 'Foxie Card%')
-                ) AS has_product,
-                MAX(
-                    NOT (
-                        stt.category = 'Foxie Member Card'
-                        OR stt.service_name LIKE 'Foxie Card%'
-                        OR stt.service_code LIKE 'MD%'
-                        OR stt.service_code LIKE 'MP%'
-                    )
-                ) AS has_service
-            FROM sale_service_item ssi
-            JOIN service_type stt ON ssi.service_type_id = stt.id
-            GROUP BY ssi.sale_transaction_id
-        ) AS service_type_flags
-            ON service_type_flags.sale_transaction_id = st.id
-        WHERE st.order_date BETWEEN :start AND :end
+        WHERE (st.order_date BETWEEN :start AND :end OR st.order_date BETWEEN :prevStart AND :prevEnd)
+          AND st.item_count > 0
+        GROUP BY period
     """, nativeQuery = true)
-    List<Object[]> fetchOverallRevenueSummary(@Param("start") LocalDateTime start,
-                                              @Param("end") LocalDateTime end);
+    List<Object[]> fetchOverallRevenueSummaryByPeriod(@Param("start") LocalDateTime start,
+                                                      @Param("end") LocalDateTime end,
+                                                      @Param("prevStart") LocalDateTime prevStart,
+                                                      @Param("prevEnd") LocalDateTime prevEnd);
 
 
     @Query(value = """
@@ -295,7 +244,7 @@ public interface SalesTransactionRepository extends JpaRepository<SalesTransacti
         WHERE st.order_date >= :start AND st.order_date <= :end
           AND EXISTS (
               SELECT 1 FROM customer_sale_record c
-              WHERE c.phone_number = st.phone_number
+              WHERE c.customer_key = st.customer_key
                 AND c.gender IS NOT NULL
                 AND LOWER(c.gender) IN (:gender)
           )
@@ -316,4 +265,71 @@ public interface SalesTransactionRepository extends JpaRepository<SalesTransacti
     List<Object[]> fetchTopCustomersBySpending(@Param("start") LocalDateTime start,
                                                @Param("end") LocalDateTime end);
 
+    // Khoá import đã có trong khoảng thời gian (ImportKeyIndex); bản ghi cũ không có mã đơn nên không có legacy key
+    @Query(value = """
+        SELECT s.id, s.import_key, s.row_fingerprint, NULL AS legacy_key
+        FROM sales_transaction s
+        WHERE s.order_date >= :start AND s.order_date < :end
+          AND s.import_key IS NOT NULL
+        ORDER BY s.id
+    """, nativeQuery = true)
+    List<Object[]> findImportKeysBetween(@Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end);
+
+    // Bản ghi theo đúng các import_key (ImportKeyIndex tra lại trước khi ghi lô)
+    @Query(value = """
+        SELECT s.id, s.import_key, s.row_fingerprint
+        FROM sales_transaction s
+        WHERE s.import_key IN (:keys)
+    """, nativeQuery = true)
+    List<Object[]> findByImportKeys(@Param("keys") Collection<String> keys);
+
+    // Theo ngày: số khách (customer_key) có đơn và đã/chưa cài app
+    @Query(value = """
+        SELECT DATE(st.order_date) AS day,
+               COUNT(DISTINCT CASE WHEN a.customer_key IS NOT NULL THEN st.customer_key END) AS downloaded,
+               COUNT(DISTINCT st.customer_key) AS customers
+        FROM sales_transaction st
+        LEFT JOIN (
+            SELECT DISTINCT customer_key FROM app_usage_record WHERE customer_key IS NOT NULL
+        ) a ON a.customer_key = st.customer_key
+        WHERE st.order_date BETWEEN :start AND :end
+          AND st.customer_key IS NOT NULL
+        GROUP BY DATE(st.order_date)
+        ORDER BY day
+        """, nativeQuery = true)
+    List<Object[]> countAppDownloadByDay(@Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end);
+
+    // Theo giới tính khách: tổng thực thu, tổng trả bằng thẻ trả trước và số đơn
+    @Query(value = """
+        SELECT g.gender,
+               SUM(COALESCE(st.cash_transfer_credit, 0)),
+               SUM(COALESCE(st.prepaid_card, 0)),
+               COUNT(*)
+        FROM sales_transaction st
+        JOIN (
+            SELECT customer_key, MIN(gender) AS gender
+            FROM customer_sale_record
+            WHERE customer_key IS NOT NULL AND gender IS NOT NULL
+            GROUP BY customer_key
+        ) g ON g.customer_key = st.customer_key
+        WHERE st.order_date BETWEEN :start AND :end
+        GROUP BY g.gender
+        """, nativeQuery = true)
+    List<Object[]> sumRevenueByGender(@Param("start") LocalDateTime start,
+                                      @Param("end") LocalDateTime end);
+
+    // known = true: đơn của khách đã có trong customer_sale_record; false: khách chưa có
+    @Query(value = """
+        SELECT st.*
+        FROM sales_transaction st
+        WHERE st.order_date BETWEEN :start AND :end
+          AND EXISTS (
+              SELECT 1 FROM customer_sale_record c WHERE c.customer_key = st.customer_key
+          ) = :known
+        """, nativeQuery = true)
+    List<SalesTransaction> findByOrderDateBetweenAndKnownCustomer(@Param("start") LocalDateTime start,
+                                                                  @Param("end") LocalDateTime end,
+                                                                  @Param("known") boolean known);
 }
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -22,13 +23,7 @@ public interface ServiceRecordRepository extends JpaRepository<ServiceRecord, Lo
     List<ServiceRecord> findByBookingDateBetween(LocalDateTime start, LocalDateTime end);
 
     @Query(value = "SELECT DATE(booking_date) AS date, " +
-            "CASE " +
-            " WHEN st.service_name LIKE 'COMBO CS%' THEN 'Combo CS' " +
-            " WHEN st.service_name LIKE 'COMBO%' THEN 'Combo' " +
-            " WHEN st.service_name LIKE 'DV%' THEN 'Dịch vụ' " +
-            " WHEN st.service_name LIKE 'CT%' THEN 'Cộng thêm' " +
-            " WHEN st.service_name LIKE 'QUÀ TẶNG%' THEN 'Quà tặng' " +
-            " ELSE 'Khác' END AS type, " +
+            "COALESCE(st.service_group, 'Khác') AS type, " +
             "COUNT(*) AS total " +
             "FROM service_record sr " +
             "JOIN service_type_temp st ON sr.base_service_id = st.id " +
@@ -38,25 +33,24 @@ public interface ServiceRecordRepository extends JpaRepository<ServiceRecord, Lo
     List<Object[]> countServiceTypesPerDay(@Param("start") LocalDateTime start,
                                            @Param("end") LocalDateTime end);
 
-    @Query(value = "SELECT COUNT(*) FROM service_record sr \n" +
-            "JOIN service_type_temp st ON sr.base_service_id = st.id \n" +
-            "WHERE sr.booking_date BETWEEN :start AND :end \n" +
-            "AND st.service_name LIKE :prefix%", nativeQuery = true)
-    long countByServiceCodePrefix(@Param("prefix") String prefix,
-                                  @Param("start") LocalDateTime start,
-                                  @Param("end") LocalDateTime end);
+    // Số lượt theo nhóm dịch vụ (service_type_temp.service_group), kỳ hiện tại và kỳ trước trong một lần quét
+    @Query(value = """
+        SELECT CASE WHEN sr.booking_date BETWEEN :start AND :end THEN 'current' ELSE 'previous' END AS period,
+               st.service_group, COUNT(*) AS total
+        FROM service_record sr
+        JOIN service_type_temp st ON sr.base_service_id = st.id
+        WHERE (sr.booking_date BETWEEN :start AND :end OR sr.booking_date BETWEEN :prevStart AND :prevEnd)
+        GROUP BY period, st.service_group
+    """, nativeQuery = true)
+    List<Object[]> countByServiceGroupByPeriod(@Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end,
+                                               @Param("prevStart") LocalDateTime prevStart,
+                                               @Param("prevEnd") LocalDateTime prevEnd);
 
     @Query(value = """
         SELECT\s
             r.region AS shop,
-            CASE\s
-                WHEN st.service_name LIKE 'COMBO CS%' THEN 'Combo CS'
-                WHEN st.service_name LIKE 'COMBO%' THEN 'Combo'
-                WHEN st.service_name LIKE 'DV%' THEN 'Dịch vụ'
-                WHEN st.service_name LIKE 'CT%' THEN 'Cộng thêm'
-                WHEN st.service_name LIKE 'QUÀ TẶNG%' THEN 'Quà tặng'
-                ELSE 'Khác'
-            END AS type,
+            COALESCE(st.service_group, 'Khác') AS type,
             COUNT(*) AS total
         FROM service_record sr
         JOIN service_type_temp st\s
@@ -73,14 +67,7 @@ public interface ServiceRecordRepository extends JpaRepository<ServiceRecord, Lo
     @Query(value = """
             SELECT\s
                 r.shop_name AS shop,
-                CASE\s
-                    WHEN st.service_name LIKE 'COMBO CS%' THEN 'Combo CS'
-                    WHEN st.service_name LIKE 'COMBO%' THEN 'Combo'
-                    WHEN st.service_name LIKE 'DV%' THEN 'Dịch vụ'
-                    WHEN st.service_name LIKE 'CT%' THEN 'Cộng thêm'
-                    WHEN st.service_name LIKE 'QUÀ TẶNG%' THEN 'Quà tặng'
-                    ELSE 'Khác'
-                END AS type,
+                COALESCE(st.service_group, 'Khác') AS type,
                 COUNT(*) AS total
             FROM service_record sr
             JOIN service_type_temp st\s
@@ -94,6 +81,17 @@ public interface ServiceRecordRepository extends JpaRepository<ServiceRecord, Lo
     List<Object[]> findServiceUsageByShop(@Param("start") LocalDateTime start,
                                           @Param("end") LocalDateTime end);
 
+    // Số lượt và doanh thu theo tên dịch vụ: dashboard batch suy ra 4 bảng top/bottom bên dưới từ một lần quét
+    @Query(value = """
+        SELECT st.service_name, COUNT(*) AS cnt, SUM(sr.session_price) AS totalRevenue
+        FROM service_record sr
+        JOIN service_type_temp st ON sr.base_service_id = st.id
+        WHERE sr.booking_date BETWEEN :start AND :end
+        GROUP BY st.service_name
+    """, nativeQuery = true)
+    List<Object[]> sumUsageAndRevenueByServiceName(@Param("start") LocalDateTime start,
+                                                   @Param("end") LocalDateTime end);
+
     // Query top 10 service names by count within date range
     @Query(value = "SELECT st.service_name, COUNT(*) AS cnt " +
             "FROM service_record sr " +
@@ -138,38 +136,24 @@ public interface ServiceRecordRepository extends JpaRepository<ServiceRecord, Lo
     """, nativeQuery = true)
     List<Object[]> findTopBottomServicesUsage(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
-    // Repository
+    // Bảng top dịch vụ: số lượt/doanh thu kỳ hiện tại và kỳ trước trong một lần quét
     @Query(value = """
         SELECT 
+            CASE WHEN sr.booking_date BETWEEN :start AND :end THEN 'current' ELSE 'previous' END AS period,
             st.service_name,
-            CASE 
-                WHEN st.service_name LIKE 'COMBO CS%' THEN 'Combo CS'
-                WHEN st.service_name LIKE 'COMBO%' THEN 'Combo'
-                WHEN st.service_name LIKE 'DV%' THEN 'Dịch vụ'
-                WHEN st.service_name LIKE 'CT%' THEN 'Cộng thêm'
-                WHEN st.service_name LIKE 'QUÀ TẶNG%' THEN 'Quà tặng'
-                ELSE 'Khác' END AS type,
-            COUNT(*) AS currentCount,
-            SUM(sr.session_price) AS currentRevenue
+            COALESCE(st.service_group, 'Khác') AS type,
+            COUNT(*) AS cnt,
+            SUM(sr.session_price) AS revenue
         FROM service_record sr
         JOIN service_type_temp st ON sr.base_service_id = st.id
-        WHERE sr.booking_date BETWEEN :start AND :end
-        GROUP BY st.service_name, type
-        ORDER BY currentCount DESC
+        WHERE (sr.booking_date BETWEEN :start AND :end OR sr.booking_date BETWEEN :prevStart AND :prevEnd)
+        GROUP BY period, st.service_name, type
+        ORDER BY period, cnt DESC
     """, nativeQuery = true)
-    List<Object[]> findTop10ServicesWithCurrentData(LocalDateTime start, LocalDateTime end);
-
-    @Query(value = """
-        SELECT 
-            st.service_name,
-            COUNT(*) AS previousCount,
-            SUM(sr.session_price) AS previousRevenue
-        FROM service_record sr
-        JOIN service_type_temp st ON sr.base_service_id = st.id
-        WHERE sr.booking_date BETWEEN :prevStart AND :prevEnd
-        GROUP BY st.service_name
-    """, nativeQuery = true)
-    List<Object[]> findTop10ServicesWithPreviousData(LocalDateTime prevStart, LocalDateTime prevEnd);
+    List<Object[]> findTopServicesByPeriod(@Param("start") LocalDateTime start,
+                                           @Param("end") LocalDateTime end,
+                                           @Param("prevStart") LocalDateTime prevStart,
+                                           @Param("prevEnd") LocalDateTime prevEnd);
 
     @Query(value = """
        SELECT COUNT(*) AS total_non_ct
@@ -187,11 +171,11 @@ public interface ServiceRecordRepository extends JpaRepository<ServiceRecord, Lo
             FROM service_record sr
             WHERE sr.booking_date >= :start
               AND sr.booking_date <= :end
-              AND sr.phone_number IS NOT NULL
+              AND sr.customer_key IS NOT NULL
               AND EXISTS (
                   SELECT 1
                   FROM customer_sale_record c
-                  WHERE c.phone_number = sr.phone_number
+                  WHERE c.customer_key = sr.customer_key
                     AND c.gender IS NOT NULL
                     AND LOWER(c.gender) = LOWER(:gender)
               )
@@ -199,4 +183,45 @@ public interface ServiceRecordRepository extends JpaRepository<ServiceRecord, Lo
     long countServiceByGenderBetween(@Param("start") LocalDateTime start,
                                      @Param("end") LocalDateTime end,
                                      @Param("gender") String gender);
-}
\ No newline at end of file
+
+    // Khoá import đã có trong khoảng thời gian (ImportKeyIndex); legacy_key ghép giống ImportKeyIndex.naturalKey
+    @Query(value = """
+        SELECT sr.id, sr.import_key, sr.row_fingerprint,
+               MD5(CONCAT_WS('|', DATE_FORMAT(sr.booking_date, '%Y-%m-%d %H:%i'),
+                                  COALESCE(sr.phone_number, ''), COALESCE(sr.facility_id, ''),
+                                  COALESCE(sr.service_name, ''))) AS legacy_key
+        FROM service_record sr
+        WHERE sr.booking_date >= :start AND sr.booking_date < :end
+        ORDER BY sr.id
+    """, nativeQuery = true)
+    List<Object[]> findImportKeysBetween(@Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end);
+
+    // Bản ghi theo đúng các import_key (ImportKeyIndex tra lại trước khi ghi lô)
+    @Query(value = """
+        SELECT sr.id, sr.import_key, sr.row_fingerprint
+        FROM service_record sr
+        WHERE sr.import_key IN (:keys)
+    """, nativeQuery = true)
+    List<Object[]> findByImportKeys(@Param("keys") Collection<String> keys);
+
+    // Số khách (customer_key) có lượt dịch vụ trong kỳ, theo giới tính trong customer_sale_record
+    @Query(value = """
+        SELECT g.gender, COUNT(*)
+        FROM (
+            SELECT DISTINCT customer_key
+            FROM service_record
+            WHERE booking_date BETWEEN :start AND :end
+              AND customer_key IS NOT NULL
+        ) s
+        JOIN (
+            SELECT customer_key, MIN(gender) AS gender
+            FROM customer_sale_record
+            WHERE customer_key IS NOT NULL AND gender IS NOT NULL
+            GROUP BY customer_key
+        ) g ON g.customer_key = s.customer_key
+        GROUP BY g.gender
+        """, nativeQuery = true)
+    List<Object[]> countServiceCustomersByGender(@Param("start") LocalDateTime start,
+                                                 @Param("end") LocalDateTime end);
+}
@@ -3,14 +3,75 @@ package com.example.BasicCRM_FWF.Repository;
 import com.example.BasicCRM_FWF.Model.Shift;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.List;
 
 public interface ShiftRepository extends JpaRepository<Shift, Integer> {
-//    Shift findByEmployeeNameAndDate(String employeeName, LocalDate date);
+
+    // Báo cáo chấm công: di_muon/ve_som lưu số phút âm, ve_muon số phút dương.
+    // Không lọc cửa hàng (mặc định của /attendance/*) chỉ còn điều kiện work_date: quét khoảng trên idx_shift_date_stock;
+    // có stockId thì idx_shift_stock_date hoặc idx_shift_date_stock (stock_id lọc ngay trong index)
+
+    @Query(value = """
+        SELECT s.username,
+               MAX(s.fullname) AS fullname,
+               COUNT(DISTINCT s.work_date) AS work_days,
+               COALESCE(SUM(s.mandays_value), 0) AS mandays,
+               SUM(s.di_muon < 0) AS late_count,
+               COALESCE(-SUM(s.di_muon), 0) AS late_minutes,
+               SUM(s.ve_som < 0) AS early_leave_count,
+               COALESCE(-SUM(s.ve_som), 0) AS early_leave_minutes,
+               COALESCE(SUM(s.ve_muon), 0) AS overtime_minutes
+        FROM shift s
+        WHERE s.work_date BETWEEN :start AND :end
+          AND (:stockId IS NULL OR s.stock_id = :stockId)
+        GROUP BY s.username
+        ORDER BY late_minutes DESC, s.username
+    """, nativeQuery = true)
+    List<Object[]> attendanceByEmployee(@Param("start") LocalDate start,
+                                        @Param("end") LocalDate end,
+                                        @Param("stockId") String stockId);
+
+    @Query(value = """
+        SELECT s.stock_id,
+               MAX(s.stock_title) AS stock_title,
+               COUNT(DISTINCT s.username) AS employees,
+               COUNT(*) AS work_days,
+               COALESCE(SUM(s.mandays_value), 0) AS mandays,
+               SUM(s.di_muon < 0) AS late_count,
+               COALESCE(-SUM(s.di_muon), 0) AS late_minutes,
+               SUM(s.ve_som < 0) AS early_leave_count,
+               COALESCE(-SUM(s.ve_som), 0) AS early_leave_minutes,
+               COALESCE(SUM(s.ve_muon), 0) AS overtime_minutes
+        FROM shift s
+        WHERE s.work_date BETWEEN :start AND :end
+          AND (:stockId IS NULL OR s.stock_id = :stockId)
+        GROUP BY s.stock_id
+        ORDER BY stock_title
+    """, nativeQuery = true)
+    List<Object[]> attendanceByStore(@Param("start") LocalDate start,
+                                     @Param("end") LocalDate end,
+                                     @Param("stockId") String stockId);
 
     @Query(value = """
-        SELECT * FROM Shift WHERE employee_name = :employeeName AND date = :date
-    """,nativeQuery = true)
-    Shift findByNameAndDate(String employeeName, LocalDate date);
+        SELECT DATE_FORMAT(s.work_date, '%Y-%m') AS month,
+               COUNT(DISTINCT s.username) AS employees,
+               COUNT(*) AS work_days,
+               COALESCE(SUM(s.mandays_value), 0) AS mandays,
+               SUM(s.di_muon < 0) AS late_count,
+               COALESCE(-SUM(s.di_muon), 0) AS late_minutes,
+               SUM(s.ve_som < 0) AS early_leave_count,
+               COALESCE(-SUM(s.ve_som), 0) AS early_leave_minutes,
+               COALESCE(SUM(s.ve_muon), 0) AS overtime_minutes
+        FROM shift s
+        WHERE s.work_date BETWEEN :start AND :end
+          AND (:stockId IS NULL OR s.stock_id = :stockId)
+        GROUP BY month
+        ORDER BY month
+    """, nativeQuery = true)
+    List<Object[]> attendanceByMonth(@Param("start") LocalDate start,
+                                     @Param("end") LocalDate end,
+                                     @Param("stockId") String stockId);
 }
@@ -0,0 +1,7 @@
+package com.example.BasicCRM_FWF.Repository;
+
+import com.example.BasicCRM_FWF.Model.SyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SyncStateRepository extends JpaRepository<SyncState, String> {
+}
@@ -1,7 +1,9 @@
 package com.example.BasicCRM_FWF.Service.AppUsageRecord;
 
-import org.springframework.web.multipart.MultipartFile;
+import com.example.BasicCRM_FWF.Service.Import.ImportProgress;
+
+import java.nio.file.Path;
 
 public interface AppUsageRecordInterface {
-    public void importFromExcel(MultipartFile file);
+    public void importFromExcel(Path file, ImportProgress progress);
 }
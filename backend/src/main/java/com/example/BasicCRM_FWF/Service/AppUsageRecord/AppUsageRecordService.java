@@ -2,25 +2,21 @@ package com.example.BasicCRM_FWF.Service.AppUsageRecord;
 
 import com.example.BasicCRM_FWF.Model.AppUsageRecord;
 import com.example.BasicCRM_FWF.Repository.AppUsageRecordRepository;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import com.example.BasicCRM_FWF.Service.Import.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.time.LocalDate;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
-import static com.example.BasicCRM_FWF.Utils.ServiceUtils.isRowEmpty;
-import static javax.swing.UIManager.getString;
 
 @Service
 @RequiredArgsConstructor
@@ -28,93 +24,93 @@ import static javax.swing.UIManager.getString;
 public class AppUsageRecordService implements AppUsageRecordInterface {
 
     private final AppUsageRecordRepository repository;
+    private final ImportPipeline importPipeline;
+    private final CustomerKeyRegistry customerKeyRegistry;
+    private final DataWatermarkService watermarkService;
 
-    public void importFromExcel(MultipartFile file) {
-        int success = 0;
-        int failed = 0;
+    // Cột 6: ngày cài app, file export cũ/mới dùng nhiều định dạng khác nhau
+    private static final ColumnSchema APP_USAGE_COLUMNS = ColumnSchema.builder()
+            .dateTime(6, DateLayout.TIME_DMY, DateLayout.DMY_TIME, DateLayout.ISO_SPACE,
+                    DateLayout.DMY, DateLayout.MDY, DateLayout.ISO_T)
+            .build();
 
-        // Dùng DataFormatter để lấy đúng “giá trị hiển thị” trong Excel (tránh số serial date)
-        final DataFormatter formatter = new DataFormatter();
-        final ZoneId zone = ZoneId.systemDefault();
-
-        try (InputStream is = file.getInputStream()) {
-            Workbook workbook = WorkbookFactory.create(is);
-            Sheet sheet = workbook.getSheetAt(0);
+    public void importFromExcel(Path file, ImportProgress progress) {
+        try {
+            RowDecoder decoder = APP_USAGE_COLUMNS.decoder();
+
+            importPipeline.run(file, progress, new RowImporter<AppUsageRecord>() {
+                @Override
+                public AppUsageRecord parse(ImportRow row) {
+                    try {
+                        return parseRow(decoder.decode(row));
+                    } catch (RuntimeException e) {
+                        // Log chi tiết giá trị hiển thị từng ô quan trọng
+                        log.warn(
+                                "Row {} failed: {} | values => id:'{}' name:'{}' phone:'{}' device:'{}' status:'{}' installedAt:'{}'",
+                                row.getRowNum(), e.toString(),
+                                trimForLog(row.getString(1)), trimForLog(row.getString(2)), trimForLog(row.getString(3)),
+                                trimForLog(row.getString(4)), trimForLog(row.getString(5)), trimForLog(row.getString(6))
+                        );
+                        throw e;
+                    }
+                }
 
-            for (int i = 2; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null || isRowEmpty(row)) {
-                    log.info("Stopped at row {} (blank)", i);
-                    break;
+                @Override
+                public void write(List<ParsedRow<AppUsageRecord>> batch, ImportProgress progress) {
+                    ImportPipeline.writeWithFallback(batch, progress, list -> {
+                        customerKeyRegistry.assign(list, AppUsageRecord::getPhoneNumber, AppUsageRecord::setCustomerKey);
+                        repository.saveAll(list);
+                    });
+                    // app_usage_record được join theo khách hàng, không theo ngày báo cáo
+                    watermarkService.touch("app_usage_record", null, null);
                 }
 
-                try {
-                    // ---- Extract & validate từng cột ----
-                    String rawCustomerId = safeGetString(row.getCell(1), formatter); // ví dụ: "#123"
-                    if (rawCustomerId == null || rawCustomerId.length() < 2 || !Character.isDigit(rawCustomerId.charAt(1))) {
-                        throw new IllegalArgumentException("Invalid customerId: " + rawCustomerId);
-                    }
-                    int customerId = Integer.parseInt(rawCustomerId.substring(1));
-
-                    String customerName = nullToEmpty(safeGetString(row.getCell(2), formatter));
-                    String phoneNumber  = nullToEmpty(safeGetString(row.getCell(3), formatter));
-
-                    // Cột 4: device — file gốc đang parse boolean rồi map sang "IOS"/"Android".
-                    // Ở đây mình giữ nguyên logic nhận boolean, nhưng trả ra String deviceType cho an toàn.
-                    String deviceType = parseDeviceType(row.getCell(4), formatter); // "IOS" | "Android" | "UNKNOWN"
-
-                    // Cột 5: status — ví dụ "Online"/"Offline"
-                    boolean status = parseStatus(row.getCell(5), formatter);
-
-                    // Cột 6: installedAt — hỗ trợ NUMERIC (date) và STRING với nhiều pattern
-                    LocalDateTime installedAt = parseInstalledAt(row.getCell(6), formatter, zone);
-
-                    AppUsageRecord record = AppUsageRecord.builder()
-                            .customerId(customerId)
-                            .customerName(customerName)
-                            .phoneNumber(phoneNumber)
-                            // !!! Sửa cho đúng kiểu field của bạn:
-                            // .device(deviceType) // nếu field là String
-                            // hoặc .device(Device.valueOf(deviceType)) nếu là enum
-                            .status(status)
-                            .installedAt(installedAt)
-                            .build();
-
-                    repository.save(record);
-                    success++;
-
-                } catch (Exception e) {
-                    failed++;
-
-                    // Log chi tiết: giá trị hiển thị & cell type từng ô quan trọng
-                    String c1 = safeGetString(row.getCell(1), formatter);
-                    String c2 = safeGetString(row.getCell(2), formatter);
-                    String c3 = safeGetString(row.getCell(3), formatter);
-                    String c4 = safeGetString(row.getCell(4), formatter);
-                    String c5 = safeGetString(row.getCell(5), formatter);
-                    String c6 = safeGetString(row.getCell(6), formatter);
-
-                    log.warn(
-                            "Row {} failed: {} | values => id:'{}' name:'{}' phone:'{}' device:'{}' status:'{}' installedAt:'{}' | types => c4:{} c6:{}",
-                            i, e.toString(),
-                            trimForLog(c1), trimForLog(c2), trimForLog(c3), trimForLog(c4), trimForLog(c5), trimForLog(c6),
-                            cellType(row.getCell(4)), cellType(row.getCell(6))
-                    );
-
-                    // In stacktrace ở mức DEBUG để không “ngập” log WARN
-                    if (log.isDebugEnabled()) {
-                        log.debug("Row {} exception stack:", i, e);
-                    }
+                @Override
+                public boolean isEnd(ImportRow row) {
+                    return row.isBlank();
                 }
-            }
+            });
 
-            log.info("IMPORT APP USAGE: Success = {}, Failed = {}", success, failed);
+            log.info("IMPORT APP USAGE: Success = {}, Failed = {}", progress.getSuccess(), progress.getFailed());
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to import app usage Excel", e);
         }
     }
 
+    private AppUsageRecord parseRow(DecodedRow r) {
+        // ---- Extract & validate từng cột ----
+        String rawCustomerId = r.text(1); // ví dụ: "#123"
+        if (rawCustomerId == null || rawCustomerId.length() < 2 || !Character.isDigit(rawCustomerId.charAt(1))) {
+            throw new IllegalArgumentException("Invalid customerId: " + rawCustomerId);
+        }
+        int customerId = Integer.parseInt(rawCustomerId.substring(1));
+
+        String customerName = nullToEmpty(r.text(2));
+        String phoneNumber  = nullToEmpty(r.text(3));
+
+        // Cột 4: device — file gốc đang parse boolean rồi map sang "IOS"/"Android".
+        // Ở đây mình giữ nguyên logic nhận boolean, nhưng trả ra String deviceType cho an toàn.
+        String deviceType = parseDeviceType(r.text(4)); // "IOS" | "Android" | "UNKNOWN"
+
+        // Cột 5: status — ví dụ "Online"/"Offline"
+        boolean status = parseStatus(r.text(5));
+
+        // Cột 6: installedAt — ô ngày đã được reader format sẵn, còn lại là chuỗi nhiều pattern
+        LocalDateTime installedAt = r.requireDateTime(6);
+
+        return AppUsageRecord.builder()
+                .customerId(customerId)
+                .customerName(customerName)
+                .phoneNumber(phoneNumber)
+                // !!! Sửa cho đúng kiểu field của bạn:
+                // .device(deviceType) // nếu field là String
+                // hoặc .device(Device.valueOf(deviceType)) nếu là enum
+                .status(status)
+                .installedAt(installedAt)
+                .build();
+    }
+
 // ----------------- Helpers -----------------
 
     private static String nullToEmpty(String s) {
@@ -127,41 +123,7 @@ public class AppUsageRecordService implements AppUsageRecordInterface {
         return s.length() > 200 ? s.substring(0, 200) + "..." : s;
     }
 
-    private static String cellType(Cell cell) {
-        if (cell == null) return "null";
-        return cell.getCellType().name();
-    }
-
-    private static String safeGetString(Cell cell, DataFormatter formatter) {
-        if (cell == null) return null;
-        // DataFormatter sẽ convert mọi loại cell về “hiển thị” giống người dùng nhìn thấy
-        String v = formatter.formatCellValue(cell);
-        return v != null ? v.trim() : null;
-    }
-
-    private static boolean isRowEmpty(Row row) {
-        if (row == null) return true;
-        for (int cn = row.getFirstCellNum(); cn < row.getLastCellNum(); cn++) {
-            Cell c = row.getCell(cn);
-            if (c != null && c.getCellType() != CellType.BLANK && !safeIsBlank(c)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private static boolean safeIsBlank(Cell c) {
-        if (c == null) return true;
-        if (c.getCellType() == CellType.BLANK) return true;
-        if (c.getCellType() == CellType.STRING) {
-            String s = c.getStringCellValue();
-            return s == null || s.trim().isEmpty();
-        }
-        return false;
-    }
-
-    private static String parseDeviceType(Cell cell, DataFormatter formatter) {
-        String v = safeGetString(cell, formatter);
+    private static String parseDeviceType(String v) {
         if (v == null) return "UNKNOWN";
         // Giữ tương thích với code cũ: cột 4 là "true"/"false"
         // true -> IOS, false -> Android
@@ -173,61 +135,10 @@ public class AppUsageRecordService implements AppUsageRecordInterface {
         return "UNKNOWN";
     }
 
-    private static boolean parseStatus(Cell cell, DataFormatter formatter) {
-        String v = safeGetString(cell, formatter);
+    private static boolean parseStatus(String v) {
         if (v == null) return false;
         // theo code gốc: startsWith("Onl")
         return v.trim().toLowerCase(Locale.ROOT).startsWith("onl");
     }
 
-    private static LocalDateTime parseInstalledAt(Cell cell, DataFormatter formatter, ZoneId zone) {
-        if (cell == null) throw new IllegalArgumentException("installedAt cell is null");
-
-        // 1) Nếu là numeric & định dạng ngày: lấy trực tiếp
-        if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
-            Date date = cell.getDateCellValue();
-            return LocalDateTime.ofInstant(date.toInstant(), zone);
-        }
-
-        // 2) Chuỗi: thử nhiều pattern phổ biến
-        String s = safeGetString(cell, formatter);
-        if (s == null || s.isBlank()) {
-            throw new IllegalArgumentException("installedAt is blank");
-        }
-
-        // Loại bỏ ký tự lạ phổ biến
-        s = s.replace('\u00A0', ' ').trim();
-
-        List<DateTimeFormatter> fmts = List.of(
-                DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy"),
-                DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"),
-                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
-                DateTimeFormatter.ofPattern("dd/MM/yyyy"),
-                DateTimeFormatter.ofPattern("MM/dd/yyyy"),
-                // Thêm nếu bạn gặp dạng khác:
-                DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss") // ISO không zone
-        );
-
-        // Thử LocalDateTime trước
-        for (DateTimeFormatter f : fmts) {
-            try {
-                TemporalAccessor ta = f.parse(s);
-                if (ta.isSupported(ChronoField.HOUR_OF_DAY)) {
-                    return LocalDateTime.from(ta);
-                } else {
-                    // Nếu chỉ là LocalDate -> atStartOfDay
-                    LocalDate d = LocalDate.from(ta);
-                    return d.atStartOfDay();
-                }
-            } catch (Exception ignore) {}
-        }
-
-        // 3) Thử parse ISO với offset (ví dụ: 2025-11-03T11:49:28)
-        try {
-            return LocalDateTime.parse(s);
-        } catch (Exception ignore) {}
-
-        throw new IllegalArgumentException("Unparseable installedAt: '" + s + "'");
-    }
-
 }
@@ -0,0 +1,355 @@
+package com.example.BasicCRM_FWF.Service.Backfill;
+
+import com.example.BasicCRM_FWF.Exception.ResourceNotFoundException;
+import com.example.BasicCRM_FWF.Model.BackfillChunk;
+import com.example.BasicCRM_FWF.Model.BackfillJob;
+import com.example.BasicCRM_FWF.Repository.BackfillChunkRepository;
+import com.example.BasicCRM_FWF.Repository.BackfillJobRepository;
+import com.example.BasicCRM_FWF.Service.Import.ImportProgress;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.PosSalesSyncService;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Backfill lịch sử từ API upstream thay cho việc xuất/upload lại nhiều tháng file Excel.
+ *
+ * <p>Khoảng ngày được chia thành chunk (ngày/tuần) lưu ở backfill_chunk. Các chunk chạy song song trên
+ * tối đa {@code workers} thread, mọi lần gọi API của mọi job dùng chung một bucket giới hạn tốc độ.
+ * Chunk lỗi được thử lại với thời gian chờ tăng dần; chunk nào xong thì lưu DONE ngay, nên job bị ngắt
+ * (restart) được chạy tiếp từ các chunk còn lại khi khởi động hoặc qua {@link #resume}.
+ * Mỗi job do đúng một instance chạy: instance nhận job bằng UPDATE có điều kiện trên owner/lease_until và gia hạn
+ * theo heartbeat; job RUNNING chỉ được instance khác nhận chạy tiếp khi hạn giữ đã qua.
+ * Ghi dữ liệu đi qua cùng đường ghi theo lô với import nên chạy lại một chunk không tạo bản ghi trùng.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackfillService {
+
+    private final BackfillJobRepository jobRepository;
+    private final BackfillChunkRepository chunkRepository;
+    private final PosSalesSyncService posSalesSyncService;
+
+    @Value("${application.backfill.workers:4}")
+    private int workers;
+
+    @Value("${application.backfill.requests-per-second:5}")
+    private int requestsPerSecond;
+
+    @Value("${application.backfill.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${application.backfill.retry-backoff-ms:2000}")
+    private long retryBackoffMs;
+
+    // Hạn giữ job; heartbeat gia hạn nhiều lần trong một hạn
+    @Value("${application.backfill.lease-seconds:120}")
+    private long leaseSeconds;
+
+    private volatile ExecutorService executor;
+    private volatile Bucket bucket;
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+    // Job đã mất quyền giữ (heartbeat không gia hạn được): không chạy thêm chunk, không ghi kết quả
+    private final Set<Long> lostJobs = ConcurrentHashMap.newKeySet();
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    /** Nguồn dữ liệu có thể backfill. */
+    public enum Source { SALES }
+
+    /** Tạo job, chia chunk và bắt đầu chạy nền. */
+    public BackfillJob start(Source source, LocalDate from, LocalDate to, int chunkDays) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Khoảng ngày không hợp lệ");
+        }
+        if (chunkDays < 1) {
+            throw new IllegalArgumentException("chunkDays phải >= 1");
+        }
+        BackfillJob job = new BackfillJob();
+        job.setSource(source.name());
+        job.setFromDate(from);
+        job.setToDate(to);
+        job.setChunkDays(chunkDays);
+        job.setStatus(BackfillJob.Status.RUNNING);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setOwner(instanceId);
+        job.setLeaseUntil(leaseUntil(LocalDateTime.now()));
+        job = jobRepository.save(job);
+
+        List<BackfillChunk> chunks = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(chunkDays)) {
+            BackfillChunk c = new BackfillChunk();
+            c.setJobId(job.getId());
+            c.setFromDate(d);
+            c.setToDate(d.plusDays(chunkDays - 1).isAfter(to) ? to : d.plusDays(chunkDays - 1));
+            c.setStatus(BackfillChunk.Status.PENDING);
+            c.setAttempts(0);
+            c.setUpdatedAt(LocalDateTime.now());
+            chunks.add(c);
+        }
+        chunkRepository.saveAll(chunks);
+
+        activeJobs.add(job.getId());
+        launch(job);
+        return job;
+    }
+
+    /**
+     * Chạy tiếp job: các chunk chưa DONE được đặt lại PENDING.
+     * @throws IllegalStateException nếu job đang chạy trên instance này hoặc instance khác còn giữ job
+     */
+    public BackfillJob resume(Long jobId) {
+        BackfillJob job = get(jobId);
+        // Giữ chỗ trước khi đụng tới chunk: hai lần resume đồng thời chỉ một lần qua được
+        if (!activeJobs.add(jobId)) {
+            throw new IllegalStateException("Backfill job " + jobId + " đang chạy");
+        }
+        boolean claimed = false;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = leaseUntil(now);
+            claimed = jobRepository.claim(jobId, instanceId, now, until) > 0;
+            if (!claimed) {
+                throw new IllegalStateException("Backfill job " + jobId + " đang chạy trên instance khác");
+            }
+            chunkRepository.resetUnfinished(jobId);
+            job.setStatus(BackfillJob.Status.RUNNING);
+            job.setFinishedAt(null);
+            job.setOwner(instanceId);
+            job.setLeaseUntil(until);
+            job = jobRepository.save(job);
+            launch(job);
+        } catch (RuntimeException e) {
+            if (claimed) jobRepository.release(jobId, instanceId);
+            activeJobs.remove(jobId);
+            throw e;
+        }
+        return job;
+    }
+
+    public BackfillJob get(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy backfill job " + jobId));
+    }
+
+    public List<BackfillChunk> chunks(Long jobId) {
+        return chunkRepository.findByJobIdOrderByFromDate(jobId);
+    }
+
+    public List<BackfillJob> recent() {
+        return jobRepository.findTop20ByOrderByIdDesc();
+    }
+
+    // Job còn RUNNING lúc tắt máy -> chạy tiếp sau khi khởi động
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        resumeExpired();
+    }
+
+    // Gia hạn job đang chạy ở đây, rồi nhận các job RUNNING mà instance giữ đã chết (hết hạn giữ)
+    @Scheduled(fixedDelayString = "${application.backfill.heartbeat-ms:30000}",
+            initialDelayString = "${application.backfill.heartbeat-ms:30000}")
+    public void heartbeat() {
+        LocalDateTime until = leaseUntil(LocalDateTime.now());
+        for (Long jobId : activeJobs) {
+            try {
+                if (jobRepository.renew(jobId, instanceId, until) == 0 && lostJobs.add(jobId)) {
+                    log.warn("Backfill job {} lease lost, stopping after running chunks", jobId);
+                }
+            } catch (Exception e) {
+                log.warn("Renew backfill job {} lease failed: {}", jobId, e.getMessage());
+            }
+        }
+        resumeExpired();
+    }
+
+    private void resumeExpired() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (BackfillJob job : jobRepository.findByStatus(BackfillJob.Status.RUNNING)) {
+                if (activeJobs.contains(job.getId())) continue;
+                if (job.getLeaseUntil() != null && job.getLeaseUntil().isAfter(now)) continue; // instance khác còn giữ
+                try {
+                    resume(job.getId());
+                    log.info("Resumed interrupted backfill job {}", job.getId());
+                } catch (IllegalStateException e) {
+                    log.info("Backfill job {} not resumed: {}", job.getId(), e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Resume backfill jobs failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Người gọi đã giữ chỗ job trong activeJobs (và giữ job trong DB); thread tự nhả khi chạy xong
+    private void launch(BackfillJob job) {
+        Thread t = new Thread(() -> {
+            try {
+                runJob(job);
+            } finally {
+                activeJobs.remove(job.getId());
+                lostJobs.remove(job.getId());
+            }
+        }, "backfill-job-" + job.getId());
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void runJob(BackfillJob job) {
+        Source source = Source.valueOf(job.getSource());
+        List<BackfillChunk> pending = chunkRepository.findByJobIdAndStatusNotOrderByFromDate(job.getId(), BackfillChunk.Status.DONE);
+        log.info("Backfill job {} ({} {} -> {}): {} chunks to run", job.getId(), source, job.getFromDate(), job.getToDate(), pending.size());
+
+        AtomicInteger failedChunks = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(pending.size());
+        for (BackfillChunk chunk : pending) {
+            futures.add(executor().submit(() -> {
+                if (lostJobs.contains(job.getId())) return null;
+                if (!runChunk(source, chunk)) failedChunks.incrementAndGet();
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return; // đang tắt máy: job giữ RUNNING để chạy tiếp lần sau
+            } catch (ExecutionException e) {
+                failedChunks.incrementAndGet();
+                log.error("Backfill job {} chunk crashed: {}", job.getId(), e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        BackfillJob.Status status = failedChunks.get() == 0 ? BackfillJob.Status.DONE : BackfillJob.Status.FAILED;
+        // Mất quyền giữ giữa chừng: instance đang giữ job sẽ ghi kết quả
+        if (lostJobs.contains(job.getId())
+                || jobRepository.finish(job.getId(), instanceId, status.name(), LocalDateTime.now()) == 0) {
+            log.warn("Backfill job {} is owned by another instance, result not recorded", job.getId());
+            return;
+        }
+        log.info("Backfill job {} finished: {} ({} failed chunks)", job.getId(), status, failedChunks.get());
+    }
+
+    // Chạy một chunk, thử lại tối đa maxAttempts lần; trả về true nếu DONE
+    private boolean runChunk(Source source, BackfillChunk chunk) throws InterruptedException {
+        int attempts = chunk.getAttempts() == null ? 0 : chunk.getAttempts();
+        while (true) {
+            attempts++;
+            chunk.setStatus(BackfillChunk.Status.RUNNING);
+            chunk.setAttempts(attempts);
+            chunk.setUpdatedAt(LocalDateTime.now());
+            chunkRepository.save(chunk);
+
+            ImportProgress progress = new ImportProgress();
+            progress.start();
+            try {
+                fetch(source, chunk, progress);
+                progress.finish();
+                chunk.setSuccessRows(progress.getSuccess());
+                chunk.setUnchangedRows(progress.getUnchanged());
+                chunk.setFailedRows(progress.getFailed());
+                // Còn dòng ghi lỗi: coi như lần chạy lỗi để thử lại / resume (ghi lại idempotent nên không trùng)
+                if (progress.getFailed() > 0) {
+                    throw new IllegalStateException(progress.getFailed() + " dòng ghi lỗi");
+                }
+                chunk.setStatus(BackfillChunk.Status.DONE);
+                chunk.setLastError(null);
+                chunk.setUpdatedAt(LocalDateTime.now());
+                chunkRepository.save(chunk);
+                return true;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                String message = String.valueOf(e.getMessage());
+                log.warn("Backfill chunk {} -> {} attempt {} failed: {}", chunk.getFromDate(), chunk.getToDate(), attempts, message);
+                chunk.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+                chunk.setUpdatedAt(LocalDateTime.now());
+                if (attempts >= maxAttempts) {
+                    chunk.setStatus(BackfillChunk.Status.FAILED);
+                    chunkRepository.save(chunk);
+                    return false;
+                }
+                chunkRepository.save(chunk);
+                Thread.sleep(retryBackoffMs * (1L << (attempts - 1)));
+            }
+        }
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plusSeconds(leaseSeconds);
+    }
+
+    private void fetch(Source source, BackfillChunk chunk, ImportProgress progress) throws Exception {
+        Runnable throttle = this::acquire;
+        switch (source) {
+            case SALES -> posSalesSyncService.syncRange(chunk.getFromDate(), chunk.getToDate(), progress, throttle);
+        }
+    }
+
+    // Chờ tới lượt gọi API theo bucket chung
+    private void acquire() {
+        try {
+            bucket().asBlocking().consume(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Backfill bị ngắt", e);
+        }
+    }
+
+    private Bucket bucket() {
+        Bucket b = bucket;
+        if (b == null) {
+            synchronized (this) {
+                b = bucket;
+                if (b == null) {
+                    Bandwidth limit = Bandwidth.builder()
+                            .capacity(requestsPerSecond)
+                            .refillGreedy(requestsPerSecond, Duration.ofSeconds(1))
+                            .build();
+                    b = Bucket.builder().addLimit(limit).build();
+                    bucket = b;
+                }
+            }
+        }
+        return b;
+    }
+
+    private ExecutorService executor() {
+        ExecutorService ex = executor;
+        if (ex == null) {
+            synchronized (this) {
+                ex = executor;
+                if (ex == null) {
+                    AtomicInteger seq = new AtomicInteger();
+                    ex = Executors.newFixedThreadPool(workers, r -> {
+                        Thread t = new Thread(r, "backfill-worker-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    executor = ex;
+                }
+            }
+        }
+        return ex;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
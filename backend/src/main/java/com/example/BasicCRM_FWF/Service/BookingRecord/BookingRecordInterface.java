@@ -1,14 +1,16 @@
 package com.example.BasicCRM_FWF.Service.BookingRecord;
 
 import com.example.BasicCRM_FWF.DTOResponse.*;
-import org.springframework.web.multipart.MultipartFile;
+import com.example.BasicCRM_FWF.Service.Import.ImportProgress;
+
+import java.nio.file.Path;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface BookingRecordInterface {
 
-    public void importFromExcel(MultipartFile file);
+    public void importFromExcel(Path file, ImportProgress progress);
 
     public List<HourlyFacilityStatsDTO> getHourlyArrivalStats(CustomerReportRequestVer2 request);
 
@@ -7,13 +7,14 @@ import com.example.BasicCRM_FWF.Model.Region;
 import com.example.BasicCRM_FWF.Repository.BookingRecordRepository;
 import com.example.BasicCRM_FWF.Repository.BookingStatusRepository;
 import com.example.BasicCRM_FWF.Repository.RegionRepository;
+import com.example.BasicCRM_FWF.Service.Import.*;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import com.example.BasicCRM_FWF.Service.Report.ReportCached;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -24,7 +25,6 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.example.BasicCRM_FWF.Utils.ServiceUtils.*;
-import static javax.swing.UIManager.getString;
 
 @Slf4j
 @Service
@@ -34,16 +34,19 @@ public class BookingRecordService implements BookingRecordInterface {
     private final BookingRecordRepository repository;
     private final RegionRepository regionRepository;
     private final BookingStatusRepository bookingStatusRepository;
-
-    public void importFromExcel(MultipartFile file) {
-        int successCount = 0;
-        int failCount = 0;
-        int skippedCount = 0;
-
-        try (InputStream is = file.getInputStream()) {
-            Workbook workbook = WorkbookFactory.create(is);
-            Sheet sheet = workbook.getSheetAt(0);
-
+    private final ImportPipeline importPipeline;
+    private final CustomerKeyRegistry customerKeyRegistry;
+    private final DataWatermarkService watermarkService;
+
+    // Cột 1: ngày tạo, 2: ngày hẹn, 15: số khách
+    private static final ColumnSchema BOOKING_COLUMNS = ColumnSchema.builder()
+            .dateTime(1, DateLayout.TIME_DMY)
+            .dateTime(2, DateLayout.TIME_DMY)
+            .integer(15)
+            .build();
+
+    public void importFromExcel(Path file, ImportProgress progress) {
+        try {
             // ✅ Map Region: shop_name (chuẩn hoá) → Region
             Map<String, Region> regionMap = regionRepository.findAll()
                     .stream()
@@ -59,70 +62,67 @@ public class BookingRecordService implements BookingRecordInterface {
                             Function.identity()
                     ));
 
-            // Bỏ qua 2 dòng đầu (header)
-            for (int i = 2; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-
-                if (row == null || isRowEmpty(row)) {
-                    log.info("Stopped at row {} (blank)", i);
-                    break;
-                }
-
-                try {
-                    // Lấy dữ liệu gốc từ cell
-                    String createdStr = getStringCell(row.getCell(1));
-                    String bookingStr = getStringCell(row.getCell(2));
-                    String shopName = getStringCell(row.getCell(3));
-                    String cus_amount = getStringCell(row.getCell(15));
-                    if (cus_amount.endsWith(".")) {
-                        cus_amount = cus_amount.substring(0, cus_amount.length() - 1);
+            // ✅ Khoá booking đã import (ngày tạo + SĐT + cơ sở), nạp theo ngày để import lại không tạo trùng
+            ImportKeyIndex<BookingRecord> importKeys = new ImportKeyIndex<>(DataWatermarkService.BOOKING_RECORD,
+                    repository::findImportKeysBetween, repository::findByImportKeys);
+            RowDecoder decoder = BOOKING_COLUMNS.decoder();
+
+            importPipeline.run(file, progress, new RowImporter<BookingRecord>() {
+                @Override
+                public BookingRecord parse(ImportRow row) {
+                    DecodedRow r = decoder.decode(row);
+                    String shopName = r.text(3);
+
+                    // Số khách: "2" hoặc "2." đều được
+                    Integer customerAmount = r.integer(15);
+                    if (customerAmount == null && !r.isBlank(15)) {
+                        throw new InvalidRowException(ImportIssue.OTHER, "Số khách không hợp lệ: '" + r.text(15) + "'");
                     }
 
                     // Parse ngày giờ
-                    LocalDateTime created_date = parseDate(createdStr);
-                    LocalDateTime booking_date = parseDate(bookingStr);
+                    LocalDateTime created_date = r.requireDateTime(1);
+                    LocalDateTime booking_date = r.requireDateTime(2);
 
-                    Region facilityRecordService = regionMap.get(shopName.trim().toLowerCase());
+                    Region facilityRecordService = regionMap.get(shopName.toLowerCase());
                     if (facilityRecordService == null) {
-                        log.warn("Row {} skipped: Không tìm thấy Region cho tên '{}'", i, shopName);
-                        skippedCount++;
-                        continue;
+                        throw new SkipRowException(ImportIssue.UNKNOWN_SHOP, "Không tìm thấy Region cho tên '" + shopName + "'");
                     }
 
-                    String bookingStatusName = getStringCell(row.getCell(7));
-                    log.info("DTHIS IS INFO: " +  bookingStatusName);
+                    String bookingStatusName = r.text(7);
                     BookingStatus bookingStatus = null;
                     if (bookingStatusName != null) {
-                        bookingStatus = bookingStatusMap.get(normalize(bookingStatusName.trim().toLowerCase()));
+                        bookingStatus = bookingStatusMap.get(normalize(bookingStatusName.toLowerCase()));
                     }
 
-                    BookingRecord bookingRecord = BookingRecord.builder()
+                    String phone = r.optional(5);
+                    return BookingRecord.builder()
+                            .importKey(created_date == null ? null
+                                    : ImportKeyIndex.naturalKey(created_date, phone, facilityRecordService.getId()))
+                            .rowFingerprint(row.fingerprint())
                             .created_date(created_date)
                             .booking_date(booking_date)
                             .facility(facilityRecordService)
-                            .customer_name(getOptional(row.getCell(4)))
-                            .phone_number(getOptional(row.getCell(5)))
+                            .customer_name(r.optional(4))
+                            .phone_number(phone)
                             .bookingStatus(bookingStatus)
-                            .bookingEmployee(getOptional(row.getCell(11)))
-                            .customerStatus("Khách cũ".equalsIgnoreCase(getOptional(row.getCell(13))))
-                            .customer_amount(cus_amount.isBlank()? null : Integer.parseInt(cus_amount))
+                            .bookingEmployee(r.optional(11))
+                            .customerStatus("Khách cũ".equalsIgnoreCase(r.optional(13)))
+                            .customer_amount(customerAmount)
                             .build();
-                    repository.save(bookingRecord);
-                    successCount++;
-                } catch (Exception e) {
-                    log.error("Row {} failed. Data snapshot: created='{}', booking='{}', shop='{}', status='{}'. Error:",
-                            i,
-                            getSafeString(row.getCell(1)),
-                            getSafeString(row.getCell(2)),
-                            getSafeString(row.getCell(3)),
-                            getSafeString(row.getCell(7)),
-                            e
-                    );
-                    failCount++;
                 }
-            }
 
-            log.info("IMPORT COMPLETE: Success = {}, Failed = {}, Skipped = {}", successCount, failCount, skippedCount);
+                @Override
+                public void write(List<ParsedRow<BookingRecord>> batch, ImportProgress progress) {
+                    importKeys.writeBatch(batch, progress, list -> {
+                        customerKeyRegistry.assign(list, BookingRecord::getPhone_number, BookingRecord::setCustomerKey);
+                        watermarkService.write(DataWatermarkService.BOOKING_RECORD,
+                                list, BookingRecord::getCreated_date, repository::saveAll);
+                    });
+                }
+            });
+
+            log.info("IMPORT COMPLETE: Success = {}, Unchanged = {}, Failed = {}, Skipped = {}",
+                    progress.getSuccess(), progress.getUnchanged(), progress.getFailed(), progress.getSkipped());
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to import Excel", e);
@@ -152,6 +152,7 @@ public class BookingRecordService implements BookingRecordInterface {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<BookingStatusStatsDTO> getBookingStatusStats(LocalDateTime start, LocalDateTime end) {
         List<Object[]> rows = repository.countBookingByStatusBetween(start, end);
 
@@ -163,6 +164,7 @@ public class BookingRecordService implements BookingRecordInterface {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public CustomerStatusRatioDTO getCustomerStatusRatio(LocalDateTime start, LocalDateTime end) {
         List<Object[]> rows = repository.countByCustomerStatus(start, end);
 
@@ -180,6 +182,7 @@ public class BookingRecordService implements BookingRecordInterface {
         return new CustomerStatusRatioDTO(newCustomers, returningCustomers);
     }
 
+    @ReportCached
     public List<TopCustomerDTO> getTopCustomers(LocalDateTime start, LocalDateTime end) {
         List<Object[]> rows = repository.findTopCustomers(start, end);
         return rows.stream()
@@ -191,6 +194,7 @@ public class BookingRecordService implements BookingRecordInterface {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<TopEmployeeDTO> getTopBookingEmployee(LocalDateTime start, LocalDateTime end) {
         List<Object[]> rows = repository.findTopBookingEmployees(start, end);
         return rows.stream()
@@ -2,7 +2,9 @@ package com.example.BasicCRM_FWF.Service.CustomerSaleRecord;
 
 import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
 import com.example.BasicCRM_FWF.DTOResponse.*;
-import org.springframework.web.multipart.MultipartFile;
+import com.example.BasicCRM_FWF.Service.Import.ImportProgress;
+
+import java.nio.file.Path;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -10,7 +12,7 @@ import java.util.Map;
 
 public interface CustomerSaleRecordInterface {
 
-    void importFromExcel(MultipartFile file);
+    void importFromExcel(Path file, ImportProgress progress);
 
     CustomerReportResponse getNewCustomerReport(CustomerReportRequest request);
 
@@ -4,14 +4,17 @@ import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
 import com.example.BasicCRM_FWF.DTOResponse.*;
 import com.example.BasicCRM_FWF.Model.*;
 import com.example.BasicCRM_FWF.Repository.*;
+import com.example.BasicCRM_FWF.Service.Import.*;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import com.example.BasicCRM_FWF.Service.Report.ReportCached;
+import com.example.BasicCRM_FWF.Service.Report.ReportQueryExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -21,6 +24,7 @@ import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.example.BasicCRM_FWF.Utils.ServiceUtils.*;
@@ -36,89 +40,74 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
     private final ServiceRecordRepository serviceRecordRepository;
     private final BookingRecordRepository bookingRecordRepository;
     private final RegionRepository regionRepository;
-
-    public void importFromExcel(MultipartFile file) {
-        int success = 0;
-        int failed = 0;
-
-        try (InputStream is = file.getInputStream()) {
-            Workbook workbook = WorkbookFactory.create(is);
-            Sheet sheet = workbook.getSheetAt(0);
-
-            // ✅ Tạo map Region: shop_name (chuẩn hoá) → Region
-            Map<String, Region> regionMap = regionRepository.findAll()
-                    .stream()
-                    .collect(Collectors.toMap(
-                            r -> r.getShop_name().trim().toLowerCase(),
-                            Function.identity()
-                    ));
-
-            for (int i = 2; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null || isRowEmpty(row)) {
-                    log.info("Stopped at row {} (blank)", i);
-                    break;
-                }
-
-                try {
-                    String createdStr = getString(row.getCell(1));
-                    LocalDateTime createdAt = LocalDateTime.parse(createdStr, DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy"));
-
-                    // ✅ Tra Region bằng shop name (cột CƠ SỞ trong Excel, cột 11 tính từ 0)
-                    String shopName = getString(row.getCell(11)).trim().toLowerCase();
-
-                    // Nếu "không có" thì set facility = null
-//                    Region facilityRecordService;
-//                    if ("không có".equals(shopName)) {
-//                        facilityRecordService = null;
-//                    } else {
-//                        facilityRecordService = regionMap.get(shopName);
-//                        if (facilityRecordService == null) {
-//                            log.warn("Row {}: Không tìm thấy Region cho tên '{}', sẽ import với facility = null", i, shopName);
-//                        }
-//                    }
-
-                    // ✅ Tạo record dù facility = null
-                    CustomerSaleRecord record = CustomerSaleRecord.builder()
+    private final ImportPipeline importPipeline;
+    private final CustomerKeyRegistry customerKeyRegistry;
+    private final DataWatermarkService watermarkService;
+    private final ReportQueryExecutor reportQueryExecutor;
+
+    // Cột 1: ngày tạo, 3: mã khách, 16-19: ví / công nợ / thẻ trả trước / điểm
+    private static final ColumnSchema CUSTOMER_SALE_COLUMNS = ColumnSchema.builder()
+            .dateTime(1, DateLayout.TIME_DMY)
+            .integer(3)
+            .decimal(16, 17, 18, 19)
+            .build();
+
+    public void importFromExcel(Path file, ImportProgress progress) {
+        try {
+            RowDecoder decoder = CUSTOMER_SALE_COLUMNS.decoder();
+
+            importPipeline.run(file, progress, new RowImporter<CustomerSaleRecord>() {
+                @Override
+                public CustomerSaleRecord parse(ImportRow row) {
+                    DecodedRow r = decoder.decode(row);
+                    LocalDateTime createdAt = r.requireDateTime(1);
+
+                    Integer customerId = r.integer(3);
+                    if (customerId == null && !r.isBlank(3)) {
+                        throw new InvalidRowException(ImportIssue.OTHER, "Mã khách không hợp lệ: '" + r.text(3) + "'");
+                    }
+
+                    // ✅ Tạo record với facility = null (cột CƠ SỞ 11 chưa dùng)
+                    return CustomerSaleRecord.builder()
                             .createdAt(createdAt)
-                            .customerName(getString(row.getCell(2)))
-                            .customerId(parseExcelInteger(getString(row.getCell(3))))
-                            .phoneNumber(getString(row.getCell(4)))
-                            .email(getString(row.getCell(5)).contains("Không có Email") ? null : getString(row.getCell(5)))
-                            .dob(getString(row.getCell(6)).contains("Không có") ? null : getString(row.getCell(6)))
-                            .gender(getString(row.getCell(7)))
-                            .address(getString(row.getCell(8)).contains("Không có") ? null : getString(row.getCell(8)))
-                            .district(getString(row.getCell(9)).contains("Không có") ? null : getString(row.getCell(9)))
-                            .province(getString(row.getCell(10)).contains("Không có") ? null : getString(row.getCell(10)))
-//                            .facility(null) // null nếu không tìm thấy hoặc "không có"
-                            .customerType(getString(row.getCell(12)))
-                            .source(getString(row.getCell(13)))
-                            .cardCode(getString(row.getCell(14)).contains("Chưa có") ? null : getString(row.getCell(14)))
-                            .careStaff(getString(row.getCell(15)).contains("Chưa có") ? null : getString(row.getCell(15)))
-                            .wallet(toBigDecimal(getString(row.getCell(16)).isBlank() ? null : row.getCell(16)))
-                            .debt(toBigDecimal(getString(row.getCell(17)).isBlank() ? null : row.getCell(17)))
-                            .prepaidCard(toBigDecimal(getString(row.getCell(18)).startsWith("0") ? null : row.getCell(18)))
-                            .rewardPoint(toBigDecimal(getString(row.getCell(19)).startsWith("0") ? null : row.getCell(19)))
+                            .customerName(r.text(2))
+                            .customerId(customerId != null ? customerId : 0)
+                            .phoneNumber(r.text(4))
+                            .email(r.text(5).contains("Không có Email") ? null : r.text(5))
+                            .dob(r.text(6).contains("Không có") ? null : r.text(6))
+                            .gender(r.text(7))
+                            .address(r.text(8).contains("Không có") ? null : r.text(8))
+                            .district(r.text(9).contains("Không có") ? null : r.text(9))
+                            .province(r.text(10).contains("Không có") ? null : r.text(10))
+                            .customerType(r.text(12))
+                            .source(r.text(13))
+                            .cardCode(r.text(14).contains("Chưa có") ? null : r.text(14))
+                            .careStaff(r.text(15).contains("Chưa có") ? null : r.text(15))
+                            .wallet(r.decimal(16))
+                            .debt(r.decimal(17))
+                            .prepaidCard(r.decimal(18))
+                            .rewardPoint(r.decimal(19))
                             .build();
+                }
 
-                    System.out.println(record.toString());
-
-                    customerSaleRecordRepository.save(record);
-                    success++;
-
-                } catch (Exception e) {
-                    failed++;
-                    log.warn("Row {} skipped due to error: {}", i, e.getMessage());
+                @Override
+                public void write(List<ParsedRow<CustomerSaleRecord>> batch, ImportProgress progress) {
+                    ImportPipeline.writeWithFallback(batch, progress, list -> {
+                        customerKeyRegistry.assign(list, CustomerSaleRecord::getPhoneNumber, CustomerSaleRecord::setCustomerKey);
+                        watermarkService.write(DataWatermarkService.CUSTOMER_SALE_RECORD,
+                                list, CustomerSaleRecord::getCreatedAt, customerSaleRecordRepository::saveAll);
+                    });
                 }
-            }
+            });
 
-            log.info("IMPORT CUSTOMER SALE: Success = {}, Failed = {}", success, failed);
+            log.info("IMPORT CUSTOMER SALE: Success = {}, Failed = {}", progress.getSuccess(), progress.getFailed());
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to import customer sale Excel", e);
         }
     }
 
+    @ReportCached
     public CustomerReportResponse getNewCustomerReport(CustomerReportRequest request) {
         Result r = getResult(request);
         List<DailyCustomerCount> currentRange = customerSaleRecordRepository.countNewCustomersByDate(r.fromDate, r.toDate);
@@ -127,6 +116,7 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         return new CustomerReportResponse(currentRange, previousRange);
     }
 
+    @ReportCached
     public CustomerReportResponse getOldCustomerReport(CustomerReportRequest request) {
         Result r = getResult(request);
         List<DailyCustomerCount> currentRange = customerSaleRecordRepository.countOldCustomersByDate(r.fromDate, r.toDate);
@@ -135,6 +125,7 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         return new CustomerReportResponse(currentRange, previousRange);
     }
 
+    @ReportCached
     public GenderRatioResponse getGenderRatio(CustomerReportRequest request) {
         LocalDateTime start = request.getFromDate();
         LocalDateTime end = request.getToDate();
@@ -158,6 +149,7 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         return new GenderRatioResponse(male, female);
     }
 
+    @ReportCached
     public Map<String, List<DailyCountDTO>> getCustomerTypeTrend(CustomerReportRequest request) {
         LocalDateTime start = request.getFromDate();
         LocalDateTime end = request.getToDate();
@@ -180,6 +172,7 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         return result;
     }
 
+    @ReportCached
     public Map<String, List<DailyCountDTO>> getCustomerSourceTrend(CustomerReportRequest request) {
         LocalDateTime start = request.getFromDate();
         LocalDateTime end = request.getToDate();
@@ -200,104 +193,73 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         return result;
     }
 
+    @ReportCached
     public List<AppDownloadStatus> calculateAppDownloadStatus(CustomerReportRequest request) {
         LocalDateTime start = request.getFromDate();
         LocalDateTime end = request.getToDate();
 
-        List<SalesTransaction> transactions = salesTransactionRepository.findAll().stream()
-                .filter(tx -> !tx.getOrderDate().isBefore(start) && !tx.getOrderDate().isAfter(end))
-                .collect(Collectors.toList());
-
-        List<CustomerSaleRecord> customerSaleRecords = customerSaleRecordRepository.findAll();
-        List<ServiceRecord> serviceRecords = serviceRecordRepository.findAll();
-
-        Set<String> downloadedPhones = appUsageRecordRepository.findAll().stream()
-                .map(AppUsageRecord::getPhoneNumber)
-                .collect(Collectors.toSet());
-
-        Set<String> allPhones = new HashSet<>();
-        transactions.forEach(tx -> allPhones.add(tx.getPhoneNumber()));
-        customerSaleRecords.forEach(c -> allPhones.add(c.getPhoneNumber()));
-        serviceRecords.forEach(s -> allPhones.add(s.getPhoneNumber()));
-
-        Map<LocalDateTime, Set<String>> phoneByDate = new HashMap<>();
-        for (SalesTransaction tx : transactions) {
-            LocalDateTime date = tx.getOrderDate().toLocalDate().atStartOfDay();
-            phoneByDate.computeIfAbsent(date, k -> new HashSet<>()).add(tx.getPhoneNumber());
-        }
-
         List<AppDownloadStatus> result = new ArrayList<>();
-
-        for (Map.Entry<LocalDateTime, Set<String>> entry : phoneByDate.entrySet()) {
-            LocalDateTime date = entry.getKey();
-            Set<String> phonesOnDate = entry.getValue();
-
-            long downloaded = phonesOnDate.stream()
-                    .filter(downloadedPhones::contains)
-                    .count();
-
-            long notDownloaded = phonesOnDate.size() - downloaded;
-
-            result.add(new AppDownloadStatus(date, downloaded, notDownloaded));
+        for (Object[] row : salesTransactionRepository.countAppDownloadByDay(start, end)) {
+            LocalDateTime date = ((Date) row[0]).toLocalDate().atStartOfDay();
+            long downloaded = ((Number) row[1]).longValue();
+            long customers = ((Number) row[2]).longValue();
+            result.add(new AppDownloadStatus(date, downloaded, customers - downloaded));
         }
-
         return result;
     }
 
+    @ReportCached
     public CustomerOrderSummaryDTO calculateAppDownloadSummary(LocalDateTime start, LocalDateTime end) {
-        // 1. Lấy danh sách khách hàng (distinct theo phone_number)
-        List<CustomerSaleRecord> customerPhones = customerSaleRecordRepository.findDistinctCustomerByCreatedAt(start, end);
-
-        // 2. Lấy danh sách số điện thoại đã tải app
-        List<AppUsageRecord> downloadedRecords = appUsageRecordRepository.findDistinctCustomerByInstalled(start, end);
-
-        // 3. Extract danh sách số điện thoại đã tải app
-        Set<String> downloadedPhoneNumbers = downloadedRecords.stream()
-                .map(AppUsageRecord::getPhoneNumber)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        // 4. So sánh số điện thoại customer với số đã tải app
-        long downloaded = customerPhones.stream()
-                .map(CustomerSaleRecord::getPhoneNumber)
-                .filter(Objects::nonNull)
-                .filter(downloadedPhoneNumbers::contains)
-                .count();
-
-        long notDownloaded = customerPhones.size() - downloaded;
+        // Khách tạo trong kỳ (distinct theo customer_key), đối chiếu với khách cài app trong kỳ
+        Object[] counts = customerSaleRecordRepository.countAppDownloadSummary(start, end).get(0);
+        long customers = ((Number) counts[0]).longValue();
+        long downloaded = ((Number) counts[1]).longValue();
+        long notDownloaded = customers - downloaded;
 
         return new CustomerOrderSummaryDTO(downloaded, notDownloaded);
     }
 
+    @ReportCached
     public CustomerSummaryDTO calculateCustomerSummary(CustomerReportRequest request) {
         Result result = getResult(request);
 
-        // ===== Kỳ hiện tại - khách mới =====
-        long totalNew = bookingRecordRepository.countByCustomerStatusAndBookingDateBetween(
-                0, result.fromDate, result.toDate);
-        long actualNew = bookingRecordRepository.countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(
-                0, result.fromDate, result.toDate);
-
-        // ===== Kỳ trước - khách mới =====
-        long prevTotalNew = bookingRecordRepository.countByCustomerStatusAndBookingDateBetween(
-                0, result.prevFrom, result.prevTo);
-        long prevActualNew = bookingRecordRepository.countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(
-                0, result.prevFrom, result.prevTo);
+        // 8 query đếm độc lập: chạy song song, thời gian ~ query chậm nhất
+        ReportQueryExecutor.Batch batch = reportQueryExecutor.batch();
+
+        // ===== Khách mới (customer_status = 0) =====
+        Supplier<Long> totalNewQ = batch.submit("booking.new.total", () -> bookingRecordRepository
+                .countByCustomerStatusAndBookingDateBetween(0, result.fromDate, result.toDate));
+        Supplier<Long> actualNewQ = batch.submit("booking.new.actual", () -> bookingRecordRepository
+                .countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(0, result.fromDate, result.toDate));
+        Supplier<Long> prevTotalNewQ = batch.submit("booking.new.total.prev", () -> bookingRecordRepository
+                .countByCustomerStatusAndBookingDateBetween(0, result.prevFrom, result.prevTo));
+        Supplier<Long> prevActualNewQ = batch.submit("booking.new.actual.prev", () -> bookingRecordRepository
+                .countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(0, result.prevFrom, result.prevTo));
+
+        // ===== Khách cũ (customer_status = 1) =====
+        Supplier<Long> totalOldQ = batch.submit("booking.old.total", () -> bookingRecordRepository
+                .countByCustomerStatusAndBookingDateBetween(1, result.fromDate, result.toDate));
+        Supplier<Long> actualOldQ = batch.submit("booking.old.actual", () -> bookingRecordRepository
+                .countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(1, result.fromDate, result.toDate));
+        Supplier<Long> prevTotalOldQ = batch.submit("booking.old.total.prev", () -> bookingRecordRepository
+                .countByCustomerStatusAndBookingDateBetween(1, result.prevFrom, result.prevTo));
+        Supplier<Long> prevActualOldQ = batch.submit("booking.old.actual.prev", () -> bookingRecordRepository
+                .countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(1, result.prevFrom, result.prevTo));
+
+        batch.await();
+
+        long totalNew = totalNewQ.get();
+        long actualNew = actualNewQ.get();
+        long prevTotalNew = prevTotalNewQ.get();
+        long prevActualNew = prevActualNewQ.get();
 
         double growthTotalNew  = calculateGrowth(prevTotalNew, totalNew);
         double growthActualNew = calculateGrowth(prevActualNew, actualNew);
 
-        // ===== Kỳ hiện tại - khách cũ =====
-        long totalOld = bookingRecordRepository.countByCustomerStatusAndBookingDateBetween(
-                1, result.fromDate, result.toDate);
-        long actualOld = bookingRecordRepository.countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(
-                1, result.fromDate, result.toDate);
-
-        // ===== Kỳ trước - khách cũ =====
-        long prevTotalOld = bookingRecordRepository.countByCustomerStatusAndBookingDateBetween(
-                1, result.prevFrom, result.prevTo);
-        long prevActualOld = bookingRecordRepository.countByCustomerStatusAndBookingStatusIdAndBookingDateBetween(
-                1, result.prevFrom, result.prevTo);
+        long totalOld = totalOldQ.get();
+        long actualOld = actualOldQ.get();
+        long prevTotalOld = prevTotalOldQ.get();
+        long prevActualOld = prevActualOldQ.get();
 
         double growthTotalOld  = calculateGrowth(prevTotalOld, totalOld);
         double growthActualOld = calculateGrowth(prevActualOld, actualOld);
@@ -308,10 +270,18 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         );
     }
 
+    @ReportCached
     public List<DailyCustomerOrderTrendDTO> calculateCustomerOrderTrends(LocalDateTime start, LocalDateTime end) {
-        List<SalesTransaction> transactions = salesTransactionRepository.findByOrderDateBetween(start, end);
+        return calculateCustomerOrderTrends(findTransactions(start, end));
+    }
+
+    public List<SalesTransaction> findTransactions(LocalDateTime start, LocalDateTime end) {
+        return salesTransactionRepository.findByOrderDateBetween(start, end);
+    }
 
-        Set<String> seenPhones = new HashSet<>();
+    // Dùng chung danh sách giao dịch đã đọc (dashboard batch đọc một lần cho cả trend và pie chart)
+    public List<DailyCustomerOrderTrendDTO> calculateCustomerOrderTrends(List<SalesTransaction> transactions) {
+        Set<Long> seenCustomers = new HashSet<>();
         Map<LocalDateTime, List<SalesTransaction>> grouped = transactions.stream()
                 .collect(Collectors.groupingBy(tx -> tx.getOrderDate().toLocalDate().atStartOfDay()));
 
@@ -325,7 +295,7 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
             long oldCount = 0;
 
             for (SalesTransaction tx : dayTx) {
-                if (tx.getPhoneNumber() != null && seenPhones.add(tx.getPhoneNumber())) {
+                if (tx.getCustomerKey() != null && seenCustomers.add(tx.getCustomerKey())) {
                     newCount++;
                 } else {
                     oldCount++;
@@ -338,15 +308,18 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         return result;
     }
 
+    @ReportCached
     public CustomerOrderSummaryDTO calculateCustomerOrderSummary(LocalDateTime start, LocalDateTime end) {
-        List<SalesTransaction> transactions = salesTransactionRepository.findByOrderDateBetween(start, end);
+        return calculateCustomerOrderSummary(findTransactions(start, end));
+    }
 
-        Set<String> seenPhones = new HashSet<>();
+    public CustomerOrderSummaryDTO calculateCustomerOrderSummary(List<SalesTransaction> transactions) {
+        Set<Long> seenCustomers = new HashSet<>();
         long newCustomers = 0;
         long oldCustomers = 0;
 
         for (SalesTransaction tx : transactions) {
-            if (tx.getPhoneNumber() != null && seenPhones.add(tx.getPhoneNumber())) {
+            if (tx.getCustomerKey() != null && seenCustomers.add(tx.getCustomerKey())) {
                 newCustomers++;
             } else {
                 oldCustomers++;
@@ -356,90 +329,53 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         return new CustomerOrderSummaryDTO(newCustomers, oldCustomers);
     }
 
+    @ReportCached
     public CustomerOrderSummaryDTO calculateGenderSummary(LocalDateTime start, LocalDateTime end) {
-        List<CustomerSaleRecord> customers = customerSaleRecordRepository.findAll();
-        List<ServiceRecord> services = serviceRecordRepository.findAll().stream()
-                .filter(s -> s.getBookingDate() != null && !s.getBookingDate().isBefore(start) && !s.getBookingDate().isAfter(end))
-                .collect(Collectors.toList());
-
-        Set<String> servicePhones = services.stream()
-                .map(ServiceRecord::getPhoneNumber)
-                .collect(Collectors.toSet());
-
-        Map<String, String> phoneToGender = customers.stream()
-                .filter(c -> c.getPhoneNumber() != null && c.getGender() != null)
-                .collect(Collectors.toMap(CustomerSaleRecord::getPhoneNumber, CustomerSaleRecord::getGender, (g1, g2) -> g1));
-
-        Set<String> counted = new HashSet<>();
         long male = 0;
         long female = 0;
-
-        for (String phone : servicePhones) {
-            if (counted.contains(phone)) continue;
-            String gender = phoneToGender.get(phone);
-            if (gender == null) continue;
-
-            if (gender.equalsIgnoreCase("Nam")) male++;
-            else if (gender.equalsIgnoreCase("Nữ")) female++;
-
-            counted.add(phone);
+        for (Object[] row : serviceRecordRepository.countServiceCustomersByGender(start, end)) {
+            String gender = (String) row[0];
+            long count = ((Number) row[1]).longValue();
+            if (gender.equalsIgnoreCase("Nam")) male += count;
+            else if (gender.equalsIgnoreCase("Nữ")) female += count;
         }
 
         return new CustomerOrderSummaryDTO(female, male);
     }
 
+    @ReportCached
     public GenderRevenueDTO calculateGenderRevenue(LocalDateTime start, LocalDateTime end) {
-        List<CustomerSaleRecord> customers = customerSaleRecordRepository.findAll();
-        Map<String, String> phoneToGender = customers.stream()
-                .filter(c -> c.getPhoneNumber() != null && c.getGender() != null)
-                .collect(Collectors.toMap(CustomerSaleRecord::getPhoneNumber, CustomerSaleRecord::getGender, (g1, g2) -> g1));
-
-        List<SalesTransaction> sales = salesTransactionRepository.findByOrderDateBetween(start, end);
-
-        Map<String, List<BigDecimal>> revenueMapActualRevenue = new HashMap<>();
-        Map<String, List<BigDecimal>> revenueMapFoxieCardRevenue = new HashMap<>();
-
-        for (SalesTransaction tx : sales) {
-            String gender = phoneToGender.get(tx.getPhoneNumber()); // dùng phoneToGen để tìm gender
-            if (gender != null) {
-                revenueMapActualRevenue.computeIfAbsent(gender, k -> new ArrayList<>()).add(tx.getCashTransferCredit());
-            }
-        }
-
-        for (SalesTransaction tx : sales) {
-            String gender = phoneToGender.get(tx.getPhoneNumber()); // dùng phoneToGen để tìm gender
-            if (gender != null) {
-                revenueMapFoxieCardRevenue.computeIfAbsent(gender, k -> new ArrayList<>()).add(tx.getPrepaidCard());
+        BigDecimal avgActualRevenueMale = BigDecimal.ZERO;
+        BigDecimal avgActualRevenueFemale = BigDecimal.ZERO;
+        BigDecimal avgFoxieRevenueMale = BigDecimal.ZERO;
+        BigDecimal avgFoxieRevenueFemale = BigDecimal.ZERO;
+
+        // [gender, tổng thực thu, tổng thẻ trả trước, số đơn]; chia HALF_UP giống ServiceUtils.avg
+        for (Object[] row : salesTransactionRepository.sumRevenueByGender(start, end)) {
+            String gender = (String) row[0];
+            BigDecimal orders = BigDecimal.valueOf(((Number) row[3]).longValue());
+            BigDecimal actual = ((BigDecimal) row[1]).divide(orders, RoundingMode.HALF_UP);
+            BigDecimal foxie = ((BigDecimal) row[2]).divide(orders, RoundingMode.HALF_UP);
+            if (gender.equalsIgnoreCase("Nam")) {
+                avgActualRevenueMale = actual;
+                avgFoxieRevenueMale = foxie;
+            } else if (gender.equalsIgnoreCase("Nữ")) {
+                avgActualRevenueFemale = actual;
+                avgFoxieRevenueFemale = foxie;
             }
         }
 
-        BigDecimal avgActualRevenueMale = avg(revenueMapActualRevenue.get("Nam"));
-        BigDecimal avgActualRevenueFemale = avg(revenueMapActualRevenue.get("Nữ"));
-        BigDecimal avgFoxieRevenueMale = avg(revenueMapFoxieCardRevenue.get("Nam"));
-        BigDecimal avgFoxieRevenueFemale = avg(revenueMapFoxieCardRevenue.get("Nữ"));
-
         return new GenderRevenueDTO(avgActualRevenueMale, avgActualRevenueFemale, avgFoxieRevenueMale, avgFoxieRevenueFemale);
     }
 
+    @ReportCached
     public PaymentBreakdownDTO calculatePaymentStatus(CustomerReportRequest request, boolean isNew) {
         LocalDateTime start = request.getFromDate();
         LocalDateTime end = request.getToDate();
 
-        Set<String> knownPhones = customerSaleRecordRepository.findAll().stream()
-                .map(CustomerSaleRecord::getPhoneNumber)
-                .collect(Collectors.toSet());
-
-        List<SalesTransaction> transactions = salesTransactionRepository.findByOrderDateBetween(start, end);
-
-        if (isNew) {
-            transactions = transactions.stream()
-                    .filter(tx -> !knownPhones.contains(tx.getPhoneNumber()))
-                    .collect(Collectors.toList());
-        } else {
-            transactions = transactions.stream()
-                    .filter(tx -> knownPhones.contains(tx.getPhoneNumber()))
-                    .collect(Collectors.toList());
-        }
+        // Khách mới: chưa có trong customer_sale_record (so theo customer_key)
+        List<SalesTransaction> transactions =
+                salesTransactionRepository.findByOrderDateBetweenAndKnownCustomer(start, end, !isNew);
 
         BigDecimal totalCash = BigDecimal.ZERO;
         BigDecimal totalTransfer = BigDecimal.ZERO;
@@ -458,17 +394,27 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
         return new PaymentBreakdownDTO(totalCash, totalTransfer, totalCredit, totalPrepaid, totalDebt);
     }
 
+    @ReportCached
     public TotalCustomerResponse getCustomerSaleRecord(CustomerReportRequest request) {
         Result result = getResult(request);
 
-        long current  = serviceRecordRepository.findByServiceOrderDateBetween(result.fromDate(), result.toDate());
-        long previous = serviceRecordRepository.findByServiceOrderDateBetween(result.prevFrom(), result.prevTo());
+        ReportQueryExecutor.Batch batch = reportQueryExecutor.batch();
+        Supplier<Long> currentQ  = batch.submit("service.total", () -> serviceRecordRepository.findByServiceOrderDateBetween(result.fromDate(), result.toDate()));
+        Supplier<Long> previousQ = batch.submit("service.total.prev", () -> serviceRecordRepository.findByServiceOrderDateBetween(result.prevFrom(), result.prevTo()));
+
+        Supplier<Long> currentMaleQ    = batch.submit("service.male", () -> serviceRecordRepository.countServiceByGenderBetween(result.fromDate(), result.toDate(), "Nam"));
+        Supplier<Long> previousMaleQ   = batch.submit("service.male.prev", () -> serviceRecordRepository.countServiceByGenderBetween(result.prevFrom(), result.prevTo(), "Nam"));
 
-        long currentMale    = serviceRecordRepository.countServiceByGenderBetween(result.fromDate(), result.toDate(), "Nam");
-        long previousMale   = serviceRecordRepository.countServiceByGenderBetween(result.prevFrom(), result.prevTo(), "Nam");
+        Supplier<Long> currentFemaleQ  = batch.submit("service.female", () -> serviceRecordRepository.countServiceByGenderBetween(result.fromDate(), result.toDate(), "Nữ"));
+        Supplier<Long> previousFemaleQ = batch.submit("service.female.prev", () -> serviceRecordRepository.countServiceByGenderBetween(result.prevFrom(), result.prevTo(), "Nữ"));
+        batch.await();
 
-        long currentFemale  = serviceRecordRepository.countServiceByGenderBetween(result.fromDate(), result.toDate(), "Nữ");
-        long previousFemale = serviceRecordRepository.countServiceByGenderBetween(result.prevFrom(), result.prevTo(), "Nữ");
+        long current  = currentQ.get();
+        long previous = previousQ.get();
+        long currentMale    = currentMaleQ.get();
+        long previousMale   = previousMaleQ.get();
+        long currentFemale  = currentFemaleQ.get();
+        long previousFemale = previousFemaleQ.get();
 
         double changePercentTotal  = pct(current, previous);
         double changePercentMale   = pct(currentMale, previousMale);
@@ -516,6 +462,7 @@ public class CustomerSaleRecordService implements CustomerSaleRecordInterface {
     public record Result(LocalDateTime fromDate, LocalDateTime toDate, LocalDateTime prevFrom, LocalDateTime prevTo) {
     }
 
+    @ReportCached
     public List<HourlyFacilityStatsDTO> getHourlyStats(LocalDateTime start, LocalDateTime end) {
         List<ServiceRecord> records = serviceRecordRepository.findByBookingDateBetween(start, end);
 
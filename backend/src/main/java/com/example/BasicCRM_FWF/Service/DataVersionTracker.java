@@ -0,0 +1,49 @@
+package com.example.BasicCRM_FWF.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Version data_watermark mà một bộ nhớ đệm (cache, index) đã phản ánh, theo bảng nguồn.
+ * Sự kiện {@code ReportDataChangedEvent} trong JVM này được ghi nhận qua {@link #observe}; {@link #advance} so version
+ * hiện tại trong DB với các version đã ghi nhận. Thiếu version nào ở giữa nghĩa là dữ liệu được ghi mà JVM này
+ * không nhận sự kiện (instance khác, đường ghi không phát sự kiện): người gọi phải làm mới toàn bộ.
+ * Không tự đồng bộ với dữ liệu của người gọi: gọi observe/advance trong cùng khoá với hàng đợi thay đổi của họ.
+ */
+public class DataVersionTracker {
+
+    // bảng -> version đã phản ánh; chưa có nghĩa là chưa biết
+    private final Map<String, Long> base = new HashMap<>();
+    // bảng -> version > base đã nhận qua sự kiện
+    private final Map<String, TreeSet<Long>> observed = new HashMap<>();
+
+    /** Ghi nhận version của một lần ghi đã nhận sự kiện (0: lần ghi không tăng version, bỏ qua). */
+    public synchronized void observe(String table, long version) {
+        if (version <= 0 || version <= base.getOrDefault(table, 0L)) return;
+        observed.computeIfAbsent(table, k -> new TreeSet<>()).add(version);
+    }
+
+    /** Đặt mốc sau một lần làm mới toàn bộ: dữ liệu đã phản ánh đến {@code version}. */
+    public synchronized void reset(String table, long version) {
+        base.put(table, version);
+        TreeSet<Long> seen = observed.get(table);
+        if (seen != null) seen.headSet(version, true).clear();
+    }
+
+    /**
+     * Dời mốc lên {@code current}.
+     * @return {@code true} nếu mọi version trong (mốc cũ, current] đều đã có sự kiện, tức các thay đổi
+     *         nhận qua sự kiện là đủ; {@code false} nếu có thay đổi không rõ khoảng hoặc chưa có mốc
+     */
+    public synchronized boolean advance(String table, long current) {
+        Long from = base.get(table);
+        TreeSet<Long> seen = observed.computeIfAbsent(table, k -> new TreeSet<>());
+        // Version lùi (DB được khôi phục...) cũng coi là không rõ
+        boolean explained = from != null && current >= from
+                && seen.subSet(from, false, current, true).size() == current - from;
+        base.put(table, current);
+        seen.headSet(current, true).clear();
+        return explained;
+    }
+}
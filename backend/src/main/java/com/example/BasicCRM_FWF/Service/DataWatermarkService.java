@@ -0,0 +1,156 @@
+package com.example.BasicCRM_FWF.Service;
+
+import com.example.BasicCRM_FWF.Model.DataWatermark;
+import com.example.BasicCRM_FWF.Repository.DataWatermarkRepository;
+import com.example.BasicCRM_FWF.Service.Report.ReportDataChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Duy trì bảng data_watermark (min/max thời điểm sự kiện + version theo bảng nguồn).
+ * Đường ghi import/sync gọi {@link #write} hoặc {@link #extend} trong cùng transaction với lần ghi dữ liệu,
+ * nên watermark không bao giờ đi trước dữ liệu đã commit. Watermark chỉ nới rộng (dữ liệu không bị xoá qua import);
+ * {@link #rebuild} tính lại từ bảng gốc.
+ * Mỗi lần nới watermark cũng phát {@link ReportDataChangedEvent} cho khoảng ngày vừa ghi (cache báo cáo nghe sau commit),
+ * kèm version mới của bảng. {@link #version} là tín hiệu "dữ liệu đã đổi" xuyên instance: bộ nhớ đệm so nó với các version
+ * đã nhận qua sự kiện (xem {@link DataVersionTracker}). Đường ghi không nới watermark (dựng lại bảng tổng hợp, backfill cột)
+ * gọi {@link #touch} để vẫn tăng version.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataWatermarkService {
+
+    public static final String CUSTOMER_SALE_RECORD = "customer_sale_record";
+    public static final String BOOKING_RECORD = "booking_record";
+    public static final String SALES_TRANSACTION = "sales_transaction";
+    public static final String SERVICE_RECORD = "service_record";
+
+    // bảng nguồn -> cột thời điểm sự kiện
+    private static final Map<String, String> TIME_COLUMNS = new LinkedHashMap<>();
+    static {
+        TIME_COLUMNS.put(CUSTOMER_SALE_RECORD, "created_at");
+        TIME_COLUMNS.put(BOOKING_RECORD, "created_date");
+        TIME_COLUMNS.put(SALES_TRANSACTION, "order_date");
+        TIME_COLUMNS.put(SERVICE_RECORD, "booking_date");
+    }
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO data_watermark (source_table, min_time, max_time, version, updated_at)
+            SELECT * FROM (SELECT ? AS d_table, ? AS d_min, ? AS d_max, 1 AS d_version, NOW() AS d_updated) AS d
+            ON DUPLICATE KEY UPDATE
+                min_time = LEAST(COALESCE(data_watermark.min_time, d.d_min), COALESCE(d.d_min, data_watermark.min_time)),
+                max_time = GREATEST(COALESCE(data_watermark.max_time, d.d_max), COALESCE(d.d_max, data_watermark.max_time)),
+                version = COALESCE(data_watermark.version, 0) + 1,
+                updated_at = d.d_updated
+            """;
+
+    private static final String TOUCH_SQL = """
+            INSERT INTO data_watermark (source_table, version, updated_at) VALUES (?, 1, NOW())
+            ON DUPLICATE KEY UPDATE version = COALESCE(version, 0) + 1, updated_at = NOW()
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataWatermarkRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Ghi lô qua {@code writer} rồi nới watermark của bảng, trong cùng một transaction. */
+    @Transactional
+    public <T> void write(String table, List<T> records, Function<T, LocalDateTime> eventTime, Consumer<List<T>> writer) {
+        writer.accept(records);
+        extend(table, records, eventTime);
+    }
+
+    /** Nới watermark theo thời điểm của các bản ghi vừa ghi (gọi trong transaction ghi). */
+    public <T> void extend(String table, Collection<T> records, Function<T, LocalDateTime> eventTime) {
+        LocalDateTime min = null;
+        LocalDateTime max = null;
+        for (T record : records) {
+            LocalDateTime t = eventTime.apply(record);
+            if (t == null) continue;
+            if (min == null || t.isBefore(min)) min = t;
+            if (max == null || t.isAfter(max)) max = t;
+        }
+        if (min != null) extend(table, min, max);
+    }
+
+    public void extend(String table, LocalDateTime min, LocalDateTime max) {
+        jdbcTemplate.update(UPSERT_SQL, table, Timestamp.valueOf(min), Timestamp.valueOf(max));
+        eventPublisher.publishEvent(new ReportDataChangedEvent(table, min.toLocalDate(), max.toLocalDate(), currentVersion(table)));
+    }
+
+    /**
+     * Tăng version của bảng mà không đổi min/max và phát sự kiện cho [from, to] (null: toàn bộ).
+     * Gọi trong transaction ghi nếu có, như {@link #extend}.
+     */
+    public void touch(String table, LocalDate from, LocalDate to) {
+        jdbcTemplate.update(TOUCH_SQL, table);
+        eventPublisher.publishEvent(new ReportDataChangedEvent(table, from, to, currentVersion(table)));
+    }
+
+    /** Watermark theo bảng nguồn (một lần đọc bảng nhỏ). */
+    public Map<String, DataWatermark> all() {
+        Map<String, DataWatermark> result = new LinkedHashMap<>();
+        for (DataWatermark w : repository.findAll()) result.put(w.getSourceTable(), w);
+        return result;
+    }
+
+    /** Version dữ liệu của bảng, 0 nếu chưa có lần ghi nào. */
+    public long version(String table) {
+        return repository.findById(table).map(DataWatermark::getVersion).orElse(0L);
+    }
+
+    /** Version của mọi bảng đã có dòng watermark (một lần đọc bảng nhỏ). */
+    public Map<String, Long> versions() {
+        Map<String, Long> result = new HashMap<>();
+        for (DataWatermark w : repository.findAll()) {
+            result.put(w.getSourceTable(), w.getVersion() == null ? 0L : w.getVersion());
+        }
+        return result;
+    }
+
+    // Đọc trong transaction vừa tăng version: dòng đang bị khoá nên đúng là version của lần ghi này
+    private long currentVersion(String table) {
+        Long version = jdbcTemplate.queryForObject("SELECT version FROM data_watermark WHERE source_table = ?", Long.class, table);
+        return version == null ? 0L : version;
+    }
+
+    /** Tính lại watermark từ bảng gốc (version tăng thêm 1). */
+    @Transactional
+    public void rebuild() {
+        for (Map.Entry<String, String> e : TIME_COLUMNS.entrySet()) {
+            Map<String, Object> range = jdbcTemplate.queryForMap(
+                    "SELECT MIN(" + e.getValue() + ") AS min_time, MAX(" + e.getValue() + ") AS max_time FROM " + e.getKey());
+            jdbcTemplate.update("""
+                    INSERT INTO data_watermark (source_table, min_time, max_time, version, updated_at)
+                    VALUES (?, ?, ?, 1, NOW())
+                    ON DUPLICATE KEY UPDATE min_time = ?, max_time = ?, version = COALESCE(version, 0) + 1, updated_at = NOW()
+                    """, e.getKey(), range.get("min_time"), range.get("max_time"), range.get("min_time"), range.get("max_time"));
+            eventPublisher.publishEvent(ReportDataChangedEvent.all(e.getKey(), currentVersion(e.getKey())));
+        }
+        log.info("Rebuilt data_watermark for {}", TIME_COLUMNS.keySet());
+    }
+
+    // Lần đầu triển khai: dựng watermark từ dữ liệu sẵn có
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        try {
+            if (!versions().keySet().containsAll(TIME_COLUMNS.keySet())) rebuild();
+        } catch (Exception e) {
+            log.error("data_watermark rebuild failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,55 +1,43 @@
 package com.example.BasicCRM_FWF.Service;
 
 import com.example.BasicCRM_FWF.DTO.FullDateRangeResponse;
-import com.example.BasicCRM_FWF.Repository.CustomerSaleRecordRepository;
-import com.example.BasicCRM_FWF.Service.Realtime.RealTimeService;
+import com.example.BasicCRM_FWF.Model.DataWatermark;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class FullDateRangeService {
 
-    private final CustomerSaleRecordRepository repo;
+    private final DataWatermarkService watermarkService;
 
     public FullDateRangeResponse getFullRange() {
 
-        FullDateRangeService.FullDateRangeInfo info = repo.getFullRange();
+        // Đọc watermark đã lưu sẵn thay vì quét MIN/MAX trên các bảng dữ liệu
+        Map<String, DataWatermark> watermarks = watermarkService.all();
+
+        Map<String, LocalDateTime> minMap = new LinkedHashMap<>();
+        Map<String, LocalDateTime> maxMap = new LinkedHashMap<>();
+        for (String table : List.of(DataWatermarkService.CUSTOMER_SALE_RECORD, DataWatermarkService.BOOKING_RECORD,
+                DataWatermarkService.SALES_TRANSACTION, DataWatermarkService.SERVICE_RECORD)) {
+            DataWatermark w = watermarks.get(table);
+            minMap.put(table, w == null ? null : w.getMinTime());
+            maxMap.put(table, w == null ? null : w.getMaxTime());
+        }
 
         // Gộp min
-        LocalDateTime globalMin = Stream.of(
-                info.getMinCustomerCreatedAt(),
-                info.getMinBookingCreatedDate(),
-                info.getMinSalesOrderDate(),
-                info.getMinServiceBookingDate()
-        ).filter(Objects::nonNull).min(LocalDateTime::compareTo).orElse(null);
+        LocalDateTime globalMin = minMap.values().stream()
+                .filter(Objects::nonNull).min(LocalDateTime::compareTo).orElse(null);
 
         // Gộp max
-        LocalDateTime globalMax = Stream.of(
-                info.getMaxCustomerCreatedAt(),
-                info.getMaxBookingCreatedDate(),
-                info.getMaxSalesOrderDate(),
-                info.getMaxServiceBookingDate()
-        ).filter(Objects::nonNull).max(LocalDateTime::compareTo).orElse(null);
-
-        // Maps detail cho frontend muốn show bảng
-        Map<String, LocalDateTime> minMap = new LinkedHashMap<>();
-        minMap.put("customer_sale_record", info.getMinCustomerCreatedAt());
-        minMap.put("booking_record", info.getMinBookingCreatedDate());
-        minMap.put("sales_transaction", info.getMinSalesOrderDate());
-        minMap.put("service_record", info.getMinServiceBookingDate());
-
-        Map<String, LocalDateTime> maxMap = new LinkedHashMap<>();
-        maxMap.put("customer_sale_record", info.getMaxCustomerCreatedAt());
-        maxMap.put("booking_record", info.getMaxBookingCreatedDate());
-        maxMap.put("sales_transaction", info.getMaxSalesOrderDate());
-        maxMap.put("service_record", info.getMaxServiceBookingDate());
+        LocalDateTime globalMax = maxMap.values().stream()
+                .filter(Objects::nonNull).max(LocalDateTime::compareTo).orElse(null);
 
         FullDateRangeResponse result = new FullDateRangeResponse();
         result.setGlobalMin(globalMin);
@@ -67,16 +55,4 @@ public class FullDateRangeService {
 
         return result;
     }
-
-    public interface FullDateRangeInfo {
-        LocalDateTime getMaxCustomerCreatedAt();
-        LocalDateTime getMaxBookingCreatedDate();
-        LocalDateTime getMaxSalesOrderDate();
-        LocalDateTime getMaxServiceBookingDate();
-
-        LocalDateTime getMinCustomerCreatedAt();
-        LocalDateTime getMinBookingCreatedDate();
-        LocalDateTime getMinSalesOrderDate();
-        LocalDateTime getMinServiceBookingDate();
-    }
 }
@@ -0,0 +1,94 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.util.Arrays;
+
+/**
+ * Kiểu của từng cột trong file import, khai báo một lần (thường là hằng static của importer).
+ * Cột không khai báo là text. Mỗi file tạo một {@link RowDecoder} riêng từ schema để cache định dạng ngày theo cột.
+ *
+ * <pre>
+ * ColumnSchema.builder()
+ *         .dateTime(3, DateLayout.TIME_DMY)
+ *         .decimal(16, 17, 18)
+ *         .build();
+ * </pre>
+ */
+public final class ColumnSchema {
+
+    enum Kind { TEXT, DECIMAL, INTEGER, DATE_TIME }
+
+    private final Kind[] kinds;
+    private final DateLayout[][] layouts;
+
+    private ColumnSchema(Kind[] kinds, DateLayout[][] layouts) {
+        this.kinds = kinds;
+        this.layouts = layouts;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Decoder cho một file; an toàn khi gọi từ nhiều thread parse. */
+    public RowDecoder decoder() {
+        return new RowDecoder(this);
+    }
+
+    int width() {
+        return kinds.length;
+    }
+
+    Kind kind(int col) {
+        return col < kinds.length ? kinds[col] : Kind.TEXT;
+    }
+
+    DateLayout[] layouts(int col) {
+        return layouts[col];
+    }
+
+    public static final class Builder {
+
+        private Kind[] kinds = new Kind[0];
+        private DateLayout[][] layouts = new DateLayout[0][];
+
+        private Builder() {
+        }
+
+        public Builder decimal(int... cols) {
+            for (int col : cols) set(col, Kind.DECIMAL, null);
+            return this;
+        }
+
+        public Builder integer(int... cols) {
+            for (int col : cols) set(col, Kind.INTEGER, null);
+            return this;
+        }
+
+        /**
+         * Cột ngày giờ. Các định dạng được thử theo thứ tự khai báo; định dạng đọc được gần nhất được thử trước
+         * cho các dòng sau của cùng file.
+         */
+        public Builder dateTime(int col, DateLayout... accepted) {
+            if (accepted.length == 0) throw new IllegalArgumentException("Cột " + col + " cần ít nhất một định dạng ngày");
+            set(col, Kind.DATE_TIME, accepted.clone());
+            return this;
+        }
+
+        public ColumnSchema build() {
+            Kind[] k = kinds.clone();
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == null) k[i] = Kind.TEXT;
+            }
+            return new ColumnSchema(k, layouts.clone());
+        }
+
+        private void set(int col, Kind kind, DateLayout[] accepted) {
+            if (col >= kinds.length) {
+                kinds = Arrays.copyOf(kinds, col + 1);
+                layouts = Arrays.copyOf(layouts, col + 1);
+            }
+            kinds[col] = kind;
+            layouts[col] = accepted;
+        }
+    }
+}
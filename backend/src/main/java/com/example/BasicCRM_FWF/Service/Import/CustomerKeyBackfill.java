@@ -0,0 +1,121 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import com.example.BasicCRM_FWF.Model.SyncState;
+import com.example.BasicCRM_FWF.Repository.SyncStateRepository;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import com.example.BasicCRM_FWF.Utils.ServiceUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gán customer_key cho dữ liệu đã import trước khi có cột này. Chạy nền theo dải id trên từng bảng,
+ * chỉ đụng các dòng customer_key IS NULL nên chạy lại nhiều lần không sao.
+ * Dòng có số không chuẩn hoá được vẫn NULL; mốc id đã quét của từng bảng lưu ở sync_state
+ * ("customer-key:" + tên bảng) nên lần khởi động sau không quét lại chúng.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CustomerKeyBackfill {
+
+    private static final List<String> TABLES = List.of(
+            "sales_transaction", "service_record", "customer_sale_record", "booking_record", "app_usage_record");
+    private static final int ID_STEP = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerKeyRegistry registry;
+    private final DataWatermarkService watermarkService;
+    private final SyncStateRepository syncStateRepository;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Chạy backfill trên thread nền.
+     * @return {@code false} nếu đang có lần backfill khác chạy
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) return false;
+        Thread t = new Thread(() -> {
+            try {
+                for (String table : TABLES) {
+                    try {
+                        int updated = backfill(table);
+                        if (updated > 0) {
+                            log.info("Backfilled customer_key for {} rows in {}", updated, table);
+                            watermarkService.touch(table, null, null);
+                        }
+                    } catch (Exception e) {
+                        log.error("customer_key backfill failed for {}: {}", table, e.getMessage(), e);
+                    }
+                }
+            } finally {
+                running.set(false);
+            }
+        }, "customer-key-backfill");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        start();
+    }
+
+    int backfill(String table) {
+        SyncState state = syncStateRepository.findById("customer-key:" + table).orElseGet(() -> {
+            SyncState s = new SyncState();
+            s.setName("customer-key:" + table);
+            return s;
+        });
+        long after = state.getPosition() == null ? 0 : state.getPosition();
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM " + table +
+                " WHERE id > ? AND customer_key IS NULL AND phone_number IS NOT NULL", after);
+        if (range.get("min_id") == null) return 0;
+        long min = ((Number) range.get("min_id")).longValue();
+        long max = ((Number) range.get("max_id")).longValue();
+
+        String select = "SELECT id, phone_number FROM " + table +
+                " WHERE id BETWEEN ? AND ? AND customer_key IS NULL AND phone_number IS NOT NULL";
+        String update = "UPDATE " + table + " SET customer_key = ? WHERE id = ?";
+        int updated = 0;
+        for (long from = min; from <= max; from += ID_STEP) {
+            List<Long> ids = new ArrayList<>();
+            List<String> phones = new ArrayList<>();
+            jdbcTemplate.query(select, rs -> {
+                String phone = ServiceUtils.canonicalPhone(rs.getString("phone_number"));
+                if (phone != null) {
+                    ids.add(rs.getLong("id"));
+                    phones.add(phone);
+                }
+            }, from, Math.min(from + ID_STEP - 1, max));
+            if (ids.isEmpty()) continue;
+
+            Map<String, Long> keys = registry.keysFor(phones);
+            List<Object[]> args = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                args.add(new Object[]{keys.get(phones.get(i)), ids.get(i)});
+            }
+            jdbcTemplate.batchUpdate(update, args);
+            updated += args.size();
+        }
+        // Dòng còn NULL tới max là số không hợp lệ: ghi mốc để lần sau bỏ qua
+        state.setPosition(max);
+        state.setLastRunAt(LocalDateTime.now());
+        state.setLastStatus("SUCCESS");
+        state.setLastMessage(updated + " rows");
+        syncStateRepository.save(state);
+        return updated;
+    }
+}
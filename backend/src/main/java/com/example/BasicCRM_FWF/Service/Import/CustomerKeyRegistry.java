@@ -0,0 +1,68 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import com.example.BasicCRM_FWF.Utils.ServiceUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Cấp customer_key cho số điện thoại lúc import. Số chưa có trong bảng customer_key được thêm bằng
+ * INSERT IGNORE (an toàn khi hai lô import chạy song song) rồi đọc lại id.
+ */
+@Component
+@RequiredArgsConstructor
+public class CustomerKeyRegistry {
+
+    private static final int PHONES_PER_STATEMENT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Gán customer_key cho từng bản ghi theo số điện thoại thô của nó.
+     * Bản ghi không có số hợp lệ được gán {@code null}.
+     */
+    public <T> void assign(Collection<T> records, Function<T, String> phone, BiConsumer<T, Long> setter) {
+        if (records.isEmpty()) return;
+        Map<T, String> canonical = new IdentityHashMap<>();
+        for (T record : records) {
+            String c = ServiceUtils.canonicalPhone(phone.apply(record));
+            if (c != null) canonical.put(record, c);
+        }
+        Map<String, Long> keys = keysFor(canonical.values());
+        for (T record : records) {
+            String c = canonical.get(record);
+            setter.accept(record, c == null ? null : keys.get(c));
+        }
+    }
+
+    /** Id của các số đã chuẩn hoá, tạo mới những số chưa có. */
+    public Map<String, Long> keysFor(Collection<String> canonicalPhones) {
+        List<String> phones = new ArrayList<>(new LinkedHashSet<>(canonicalPhones));
+        Map<String, Long> keys = new HashMap<>(phones.size() * 2);
+        if (phones.isEmpty()) return keys;
+
+        lookup(phones, keys);
+        List<String> missing = phones.stream().filter(p -> !keys.containsKey(p)).toList();
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT IGNORE INTO customer_key (phone) VALUES (?)",
+                    missing.stream().map(p -> new Object[]{p}).toList());
+            lookup(missing, keys);
+        }
+        return keys;
+    }
+
+    private void lookup(List<String> phones, Map<String, Long> keys) {
+        for (int from = 0; from < phones.size(); from += PHONES_PER_STATEMENT) {
+            List<String> chunk = phones.subList(from, Math.min(from + PHONES_PER_STATEMENT, phones.size()));
+            String sql = "SELECT id, phone FROM customer_key WHERE phone IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sql, rs -> {
+                keys.put(rs.getString("phone"), rs.getLong("id"));
+            }, chunk.toArray());
+        }
+    }
+}
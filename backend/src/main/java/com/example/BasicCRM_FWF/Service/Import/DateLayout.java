@@ -0,0 +1,123 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.time.LocalDateTime;
+import java.time.Year;
+
+/**
+ * Các định dạng ngày giờ gặp trong file export, parse tay theo vị trí ký tự.
+ * {@link #parse} không ném exception: chuỗi sai hình dạng hoặc ngày/giờ ngoài khoảng đều trả về {@code null},
+ * để {@link RowDecoder} có thể thử định dạng khác mà không tốn chi phí exception.
+ */
+public enum DateLayout {
+
+    /** HH:mm dd/MM/yyyy — định dạng mặc định của các file export. */
+    TIME_DMY("dd:dd dd/dd/dddd") {
+        @Override
+        LocalDateTime read(String s) {
+            return of(num(s, 12, 4), num(s, 9, 2), num(s, 6, 2), num(s, 0, 2), num(s, 3, 2), 0);
+        }
+    },
+    /** dd/MM/yyyy HH:mm */
+    DMY_TIME("dd/dd/dddd dd:dd") {
+        @Override
+        LocalDateTime read(String s) {
+            return of(num(s, 6, 4), num(s, 3, 2), num(s, 0, 2), num(s, 11, 2), num(s, 14, 2), 0);
+        }
+    },
+    /** yyyy-MM-dd HH:mm:ss */
+    ISO_SPACE("dddd-dd-dd dd:dd:dd") {
+        @Override
+        LocalDateTime read(String s) {
+            return of(num(s, 0, 4), num(s, 5, 2), num(s, 8, 2), num(s, 11, 2), num(s, 14, 2), num(s, 17, 2));
+        }
+    },
+    /** yyyy-MM-dd'T'HH:mm:ss, phần lẻ giây (nếu có) bị bỏ qua */
+    ISO_T("dddd-dd-ddTdd:dd:dd") {
+        @Override
+        boolean matches(String s) {
+            if (s.length() > 19 && !fraction(s, 19)) return false;
+            return shape(s.substring(0, Math.min(s.length(), 19)));
+        }
+
+        @Override
+        LocalDateTime read(String s) {
+            return of(num(s, 0, 4), num(s, 5, 2), num(s, 8, 2), num(s, 11, 2), num(s, 14, 2), num(s, 17, 2));
+        }
+    },
+    /** dd/MM/yyyy, lấy đầu ngày */
+    DMY("dd/dd/dddd") {
+        @Override
+        LocalDateTime read(String s) {
+            return of(num(s, 6, 4), num(s, 3, 2), num(s, 0, 2), 0, 0, 0);
+        }
+    },
+    /** MM/dd/yyyy, lấy đầu ngày */
+    MDY("dd/dd/dddd") {
+        @Override
+        LocalDateTime read(String s) {
+            return of(num(s, 6, 4), num(s, 0, 2), num(s, 3, 2), 0, 0, 0);
+        }
+    };
+
+    // 'd' = chữ số, ký tự khác phải khớp đúng
+    private final String shape;
+
+    DateLayout(String shape) {
+        this.shape = shape;
+    }
+
+    abstract LocalDateTime read(String s);
+
+    /** Hai định dạng cùng hình dạng (vd. DMY và MDY) thì chuỗi khớp cái này cũng khớp cái kia. */
+    boolean sameShape(DateLayout other) {
+        return shape.equals(other.shape);
+    }
+
+    boolean matches(String s) {
+        return shape(s);
+    }
+
+    /** Giá trị ngày giờ, hoặc {@code null} nếu không đúng định dạng / không phải ngày hợp lệ. */
+    public LocalDateTime parse(String s) {
+        if (s == null || !matches(s)) return null;
+        return read(s);
+    }
+
+    boolean shape(String s) {
+        if (s.length() != shape.length()) return false;
+        for (int i = 0; i < shape.length(); i++) {
+            char expected = shape.charAt(i);
+            char c = s.charAt(i);
+            if (expected == 'd' ? (c < '0' || c > '9') : c != expected) return false;
+        }
+        return true;
+    }
+
+    private static boolean fraction(String s, int from) {
+        if (s.charAt(from) != '.' || s.length() == from + 1) return false;
+        for (int i = from + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static int num(String s, int from, int len) {
+        int v = 0;
+        for (int i = from; i < from + len; i++) {
+            v = v * 10 + (s.charAt(i) - '0');
+        }
+        return v;
+    }
+
+    private static LocalDateTime of(int year, int month, int day, int hour, int minute, int second) {
+        if (month < 1 || month > 12 || day < 1 || hour > 23 || minute > 59 || second > 59) return null;
+        int maxDay = switch (month) {
+            case 2 -> Year.isLeap(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+        if (day > maxDay) return null;
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng đã giải mã bởi {@link RowDecoder}. Chỉ đọc lại giá trị đã tính, không parse lại.
+ */
+public final class DecodedRow {
+
+    private final int rowNum;
+    private final String[] text;
+    private final Object[] typed;
+
+    DecodedRow(int rowNum, String[] text, Object[] typed) {
+        this.rowNum = rowNum;
+        this.text = text;
+        this.typed = typed;
+    }
+
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /** Giá trị đã trim, {@code null} nếu ô không có. */
+    public String text(int col) {
+        return col < text.length ? text[col] : null;
+    }
+
+    /** Giá trị đã trim, {@code null} nếu ô không có hoặc rỗng. */
+    public String optional(int col) {
+        String s = text(col);
+        return s == null || s.isEmpty() ? null : s;
+    }
+
+    /** Ô trống hoặc không có. */
+    public boolean isBlank(int col) {
+        return optional(col) == null;
+    }
+
+    /** Cột DECIMAL; trống hoặc sai định dạng trả về 0 (giống {@code ServiceUtils.toBigDecimal}). */
+    public BigDecimal decimal(int col) {
+        BigDecimal value = decimalOrNull(col);
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    public BigDecimal decimalOrNull(int col) {
+        return (BigDecimal) typed(col);
+    }
+
+    /** Cột INTEGER; {@code null} nếu trống hoặc sai định dạng. */
+    public Integer integer(int col) {
+        return (Integer) typed(col);
+    }
+
+    /** Cột DATE_TIME; {@code null} nếu trống hoặc không khớp định dạng nào. */
+    public LocalDateTime dateTime(int col) {
+        return (LocalDateTime) typed(col);
+    }
+
+    /** Như {@link #dateTime} nhưng bắt buộc có: trống -> MISSING_FIELD, sai định dạng -> BAD_DATE. */
+    public LocalDateTime requireDateTime(int col) {
+        LocalDateTime value = dateTime(col);
+        if (value != null) return value;
+        String raw = optional(col);
+        if (raw == null) {
+            throw new InvalidRowException(ImportIssue.MISSING_FIELD, "Thiếu ngày ở cột " + col);
+        }
+        throw new InvalidRowException(ImportIssue.BAD_DATE, "Ngày không hợp lệ ở cột " + col + ": '" + raw + "'");
+    }
+
+    private Object typed(int col) {
+        return col < typed.length ? typed[col] : null;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Đọc file CSV/TSV (UTF-8, RFC 4180) bằng memory-mapped I/O. File được map theo từng cửa sổ
+ * {@link #WINDOW_BYTES}; bộ tách trường là một máy trạng thái chạy thẳng trên byte của vùng map,
+ * không qua Reader/BufferedReader. Byte của trường được gom vào một buffer dùng lại và chỉ giải mã UTF-8
+ * một lần khi tạo String của trường.
+ *
+ * <ul>
+ *   <li>trường trong ngoặc kép có thể chứa dấu phân cách, xuống dòng và {@code ""} (dấu nháy thoát);</li>
+ *   <li>kết thúc dòng LF hoặc CRLF; BOM UTF-8 đầu file được bỏ qua;</li>
+ *   <li>dòng trống giữa file được phát ra như dòng rỗng (importer dừng ở đó giống file Excel).</li>
+ * </ul>
+ * Số dòng (rowNum) là số bản ghi tính từ 0, tương ứng với số dòng trong sheet Excel cùng bố cục.
+ */
+public final class DelimitedRowSource implements RowSource {
+
+    private static final long WINDOW_BYTES = 256L * 1024 * 1024;
+    private static final int SNIFF_BYTES = 8 * 1024;
+
+    private final Path path;
+    private final byte delimiter;
+
+    public DelimitedRowSource(Path path, char delimiter) {
+        if (delimiter > 0x7F) throw new IllegalArgumentException("Dấu phân cách phải là ký tự ASCII");
+        this.path = path;
+        this.delimiter = (byte) delimiter;
+    }
+
+    /**
+     * Đoán dấu phân cách từ vài KB đầu: ký tự nào trong tab, chấm phẩy, phẩy xuất hiện (ngoài ngoặc kép) nhiều nhất.
+     * Không đếm theo dòng đầu vì dòng tiêu đề của file export thường chỉ có một ô.
+     */
+    static char detectDelimiter(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), SNIFF_BYTES));
+            int tabs = 0, semicolons = 0, commas = 0;
+            boolean quoted = false;
+            while (buf.hasRemaining()) {
+                byte b = buf.get();
+                if (b == '"') quoted = !quoted;
+                else if (quoted) continue;
+                else if (b == '\t') tabs++;
+                else if (b == ';') semicolons++;
+                else if (b == ',') commas++;
+            }
+            if (tabs >= semicolons && tabs >= commas && tabs > 0) return '\t';
+            return semicolons > commas ? ';' : ',';
+        }
+    }
+
+    @Override
+    public void forEachRow(RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Tokenizer tokenizer = new Tokenizer(handler, delimiter);
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += WINDOW_BYTES) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW_BYTES, size - pos));
+                if (!tokenizer.feed(window, pos == 0)) return;
+            }
+            tokenizer.finish();
+        }
+    }
+
+    /** Máy trạng thái tách trường; giữ trạng thái qua ranh giới giữa các cửa sổ map. */
+    private static final class Tokenizer {
+
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        private static final int QUOTE_IN_QUOTED = 3;   // vừa gặp " trong trường có ngoặc: "" hoặc hết trường
+
+        private final RowHandler handler;
+        private final byte delimiter;
+
+        private byte[] field = new byte[256];
+        private int fieldLen;
+        private final List<String> values = new ArrayList<>();
+        private int state = FIELD_START;
+        private boolean afterCr;
+        private boolean recordStarted;
+        private int rowNum;
+
+        private Tokenizer(RowHandler handler, byte delimiter) {
+            this.handler = handler;
+            this.delimiter = delimiter;
+        }
+
+        /** @return {@code false} nếu handler yêu cầu dừng */
+        boolean feed(MappedByteBuffer buf, boolean fileStart) {
+            int i = buf.position();
+            int limit = buf.limit();
+            if (fileStart && limit - i >= 3
+                    && buf.get(i) == (byte) 0xEF && buf.get(i + 1) == (byte) 0xBB && buf.get(i + 2) == (byte) 0xBF) {
+                i += 3;
+            }
+
+            for (; i < limit; i++) {
+                byte b = buf.get(i);
+
+                if (afterCr) {
+                    afterCr = false;
+                    if (b == '\n') continue;   // CRLF: dòng đã kết thúc ở CR
+                }
+
+                switch (state) {
+                    case QUOTED -> {
+                        if (b == '"') state = QUOTE_IN_QUOTED;
+                        else append(b);
+                    }
+                    case QUOTE_IN_QUOTED -> {
+                        if (b == '"') {
+                            append(b);
+                            state = QUOTED;
+                        } else {
+                            state = UNQUOTED;   // ký tự sau dấu nháy đóng: xử lý như trường thường
+                            if (!plain(b)) return false;
+                        }
+                    }
+                    default -> {
+                        if (state == FIELD_START && b == '"') {
+                            state = QUOTED;
+                            recordStarted = true;
+                        } else {
+                            if (!plain(b)) return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        void finish() {
+            // file không kết thúc bằng xuống dòng
+            if (recordStarted || fieldLen > 0 || !values.isEmpty() || state != FIELD_START) {
+                endRecord();
+            }
+        }
+
+        // Byte ngoài ngoặc kép
+        private boolean plain(byte b) {
+            if (b == delimiter) {
+                endField();
+                recordStarted = true;
+                return true;
+            }
+            if (b == '\n' || b == '\r') {
+                afterCr = b == '\r';
+                return endRecord();
+            }
+            append(b);
+            recordStarted = true;
+            state = UNQUOTED;
+            return true;
+        }
+
+        private void append(byte b) {
+            if (fieldLen == field.length) field = Arrays.copyOf(field, field.length * 2);
+            field[fieldLen++] = b;
+        }
+
+        private void endField() {
+            values.add(new String(field, 0, fieldLen, StandardCharsets.UTF_8));
+            fieldLen = 0;
+            state = FIELD_START;
+        }
+
+        private boolean endRecord() {
+            endField();
+            ImportRow row = new ImportRow(rowNum++, values.toArray(new String[0]));
+            values.clear();
+            recordStarted = false;
+            return handler.onRow(row);
+        }
+    }
+}
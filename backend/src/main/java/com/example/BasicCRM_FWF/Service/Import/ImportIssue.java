@@ -0,0 +1,14 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+/**
+ * Nhóm lỗi/cảnh báo khi import, dùng cho bảng tổng hợp (đặc biệt ở chế độ dry run).
+ */
+public enum ImportIssue {
+    UNKNOWN_SHOP,
+    UNKNOWN_SERVICE,
+    BAD_DATE,
+    BLANK_AMOUNT,
+    MISSING_FIELD,
+    DUPLICATE,
+    OTHER
+}
@@ -0,0 +1,57 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+@Getter
+public class ImportJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final ImportType type;
+    private final String fileName;
+    private final Path file;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final boolean dryRun;
+    private final ImportProgress progress;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String errorMessage;
+
+    public ImportJob(String id, ImportType type, String fileName, Path file, boolean dryRun) {
+        this.id = id;
+        this.type = type;
+        this.fileName = fileName;
+        this.file = file;
+        this.dryRun = dryRun;
+        this.progress = new ImportProgress(dryRun);
+    }
+
+    void markRunning() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+        progress.start();
+    }
+
+    void markCompleted() {
+        progress.finish();
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    void markFailed(String message) {
+        progress.finish();
+        finishedAt = LocalDateTime.now();
+        errorMessage = message;
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
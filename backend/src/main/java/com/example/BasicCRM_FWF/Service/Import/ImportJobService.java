@@ -0,0 +1,200 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import com.example.BasicCRM_FWF.Exception.ImportRejectedException;
+import com.example.BasicCRM_FWF.Exception.ResourceNotFoundException;
+import com.example.BasicCRM_FWF.Service.AppUsageRecord.AppUsageRecordInterface;
+import com.example.BasicCRM_FWF.Service.BookingRecord.BookingRecordInterface;
+import com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordInterface;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.SalesTransactionInterface;
+import com.example.BasicCRM_FWF.Service.ServiceRecord.ServiceRecordService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chạy import ở background. Upload chỉ chép file ra thư mục tạm rồi trả về job id ngay.
+ * <ul>
+ *   <li>executor giới hạn số thread và số job chờ;</li>
+ *   <li>mỗi {@link ImportType} có một hàng đợi riêng, tại một thời điểm chỉ một job cùng loại được chạy;</li>
+ *   <li>job đã xong được giữ lại {@code application.import.job-retention-hours} giờ để tra cứu.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportJobService {
+
+    private final SalesTransactionInterface salesTransactionService;
+    private final CustomerSaleRecordInterface customerSaleRecordService;
+    private final ServiceRecordService serviceRecordService;
+    private final BookingRecordInterface bookingRecordService;
+    private final AppUsageRecordInterface appUsageRecordService;
+
+    @Value("${application.import.workers:2}")
+    private int workers;
+
+    @Value("${application.import.max-pending-jobs:20}")
+    private int maxPendingJobs;
+
+    @Value("${application.import.job-retention-hours:24}")
+    private long retentionHours;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<ImportType, Deque<ImportJob>> lanes = new EnumMap<>(ImportType.class);
+    private final Set<ImportType> runningTypes = EnumSet.noneOf(ImportType.class);
+    private volatile ThreadPoolExecutor executor;
+
+    /**
+     * @param dryRun chỉ đọc + kiểm tra dữ liệu, không ghi DB; kết quả nằm trong {@code issues} của job
+     */
+    public ImportJob submit(ImportType type, MultipartFile file, boolean dryRun) throws IOException {
+        Path spool = Files.createTempFile("import-" + type.name().toLowerCase() + "-", spoolSuffix(file.getOriginalFilename()));
+        try (InputStream is = file.getInputStream()) {
+            Files.copy(is, spool, StandardCopyOption.REPLACE_EXISTING);
+            return submit(type, file.getOriginalFilename(), spool, dryRun);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+    }
+
+    /**
+     * Đưa file đã nằm trên đĩa vào hàng đợi. Khi được nhận, job sở hữu file và xoá nó khi chạy xong;
+     * nếu bị từ chối (hàng đợi đầy) file vẫn thuộc về bên gọi.
+     */
+    public ImportJob submit(ImportType type, String fileName, Path file, boolean dryRun) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), type, fileName, file, dryRun);
+
+        synchronized (lanes) {
+            int pending = lanes.values().stream().mapToInt(Deque::size).sum();
+            if (pending >= maxPendingJobs) {
+                throw new ImportRejectedException("Đang có " + pending + " file chờ import, vui lòng thử lại sau");
+            }
+            jobs.put(job.getId(), job);
+            lanes.computeIfAbsent(type, t -> new ArrayDeque<>()).addLast(job);
+            dispatch(type);
+        }
+
+        log.info("Import job {} queued: type={}, file={}, dryRun={}", job.getId(), type, fileName, dryRun);
+        return job;
+    }
+
+    // Giữ đuôi file gốc (.xlsx/.csv/.tsv) để RowSource chọn đúng dấu phân cách cho .tsv
+    static String spoolSuffix(String fileName) {
+        if (fileName != null) {
+            String lower = fileName.toLowerCase(Locale.ROOT);
+            for (String ext : List.of(".xlsx", ".csv", ".tsv", ".txt")) {
+                if (lower.endsWith(ext)) return ext;
+            }
+        }
+        return ".xlsx";
+    }
+
+    public ImportJob get(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null) throw new ResourceNotFoundException("Không tìm thấy import job " + id);
+        return job;
+    }
+
+    public List<ImportJob> recent() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(ImportJob::getSubmittedAt).reversed())
+                .toList();
+    }
+
+    // Gọi trong synchronized(lanes): lane rảnh và còn job chờ thì đẩy job đầu tiên sang executor
+    private void dispatch(ImportType type) {
+        if (runningTypes.contains(type)) return;
+        Deque<ImportJob> lane = lanes.get(type);
+        if (lane == null || lane.isEmpty()) return;
+
+        ImportJob next = lane.pollFirst();
+        runningTypes.add(type);
+        executor().execute(() -> run(next));
+    }
+
+    private void run(ImportJob job) {
+        job.markRunning();
+        log.info("Import job {} started ({})", job.getId(), job.getType());
+        try {
+            runImport(job.getType(), job.getFile(), job.getProgress());
+            job.markCompleted();
+            ImportProgress p = job.getProgress();
+            log.info("Import job {} completed: read={}, success={}, failed={}, skipped={}, {} rows/s",
+                    job.getId(), p.getRowsRead(), p.getSuccess(), p.getFailed(), p.getSkipped(),
+                    Math.round(p.getRowsPerSecond()));
+        } catch (Exception e) {
+            log.error("Import job {} failed", job.getId(), e);
+            job.markFailed(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(job.getFile());
+            } catch (IOException e) {
+                log.warn("Could not delete spool file {}", job.getFile());
+            }
+            synchronized (lanes) {
+                runningTypes.remove(job.getType());
+                dispatch(job.getType());
+            }
+        }
+    }
+
+    private void runImport(ImportType type, Path file, ImportProgress progress) {
+        switch (type) {
+            case SALES -> salesTransactionService.importFromExcel(file, progress);
+            case CUSTOMER_SALE -> customerSaleRecordService.importFromExcel(file, progress);
+            case SERVICE_RECORD -> serviceRecordService.importFromExcelOrigin(file, progress);
+            case SALE_SERVICE_CATALOG -> serviceRecordService.importSaleServiceFile(file, progress);
+            case BOOKING -> bookingRecordService.importFromExcel(file, progress);
+            case APP_USAGE -> appUsageRecordService.importFromExcel(file, progress);
+        }
+    }
+
+    private ThreadPoolExecutor executor() {
+        ThreadPoolExecutor ex = executor;
+        if (ex == null) {
+            synchronized (this) {
+                ex = executor;
+                if (ex == null) {
+                    AtomicInteger seq = new AtomicInteger();
+                    // Số job đang chạy không vượt quá số loại import nhờ lane, hàng đợi chỉ là dự phòng
+                    ex = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(ImportType.values().length),
+                            r -> {
+                                Thread t = new Thread(r, "import-job-" + seq.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            });
+                    ex.allowCoreThreadTimeOut(true);
+                    executor = ex;
+                }
+            }
+        }
+        return ex;
+    }
+
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
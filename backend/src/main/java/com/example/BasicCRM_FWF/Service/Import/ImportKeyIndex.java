@@ -0,0 +1,200 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import com.example.BasicCRM_FWF.Model.ImportedRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Khoá tự nhiên + fingerprint của các bản ghi đã import, nạp theo ngày khi lô đầu tiên chạm tới ngày đó.
+ * Dùng ở tầng ghi của {@link ImportPipeline} (mỗi job một index, một thread) để:
+ * <ul>
+ *   <li>bỏ qua dòng không đổi (cùng khoá, cùng fingerprint) mà không ghi gì;</li>
+ *   <li>gán id cũ cho dòng đã thay đổi để lần ghi là UPDATE;</li>
+ *   <li>INSERT dòng mới.</li>
+ * </ul>
+ * Khoá trùng nhau trong cùng file (hai dòng giống hệt khoá) được đánh số theo thứ tự xuất hiện: {@code key}, {@code key#2}...
+ * Bản ghi cũ chưa có import_key thì dùng khoá tính lại từ cột (legacy key), đánh số theo thứ tự id.
+ *
+ * <p>Nhiều job có thể cùng ghi một bảng (upload, đồng bộ POS, backfill), mỗi job một snapshot riêng.
+ * {@link #writeBatch} giữ khoá ghi theo bảng (dùng chung trong JVM) từ lúc phân loại tới khi ghi xong,
+ * và trước khi phân loại tra lại DB các khoá của lô ({@link KeyLookup}) nên thấy cả dòng job khác vừa ghi.
+ * Cột import_key là UNIQUE: nếu vẫn có hai lần INSERT cùng khoá (vd. hai instance), lần sau lỗi thay vì tạo trùng.
+ *
+ * <p>Khoá là MD5 của các phần ghép bằng {@code |} (xem {@link #naturalKey}); SQL tính legacy key phải ghép giống hệt:
+ * {@code MD5(CONCAT_WS('|', DATE_FORMAT(col, '%Y-%m-%d %H:%i'), COALESCE(col2, ''), ...))}.
+ */
+public final class ImportKeyIndex<T extends ImportedRecord> {
+
+    /**
+     * Nạp các bản ghi có thời điểm trong [from, to). Mỗi dòng: id, import_key, row_fingerprint, legacy_key
+     * (legacy_key chỉ cần khi import_key null; null nếu không tính được). Kết quả phải sắp theo id.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<Object[]> load(LocalDateTime from, LocalDateTime to);
+    }
+
+    /** Bản ghi đang có theo đúng các import_key cho trước. Mỗi dòng: id, import_key, row_fingerprint. */
+    @FunctionalInterface
+    public interface KeyLookup {
+        List<Object[]> find(Collection<String> importKeys);
+    }
+
+    private record Existing(Number id, String fingerprint) {}
+
+    // bảng -> khoá ghi, dùng chung cho mọi job ghi bảng đó
+    private static final Map<String, ReentrantLock> WRITE_LOCKS = new ConcurrentHashMap<>();
+
+    private static final DateTimeFormatter KEY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final Loader loader;
+    private final KeyLookup lookup;
+    private final ReentrantLock writeLock;
+    private final Set<LocalDate> loadedDays = new HashSet<>();
+    private final Map<String, Existing> byKey = new HashMap<>();
+    private final Map<String, Integer> occurrencesInFile = new HashMap<>();
+
+    public ImportKeyIndex(String table, Loader loader, KeyLookup lookup) {
+        this.loader = loader;
+        this.lookup = lookup;
+        this.writeLock = WRITE_LOCKS.computeIfAbsent(table, t -> new ReentrantLock());
+    }
+
+    /** MD5 (hex) của các phần khoá ghép bằng "|"; null thành chuỗi rỗng, thời gian lấy tới phút. */
+    public static String naturalKey(Object... parts) {
+        StringJoiner joiner = new StringJoiner("|");
+        for (Object part : parts) {
+            if (part == null) joiner.add("");
+            else if (part instanceof LocalDateTime t) joiner.add(t.format(KEY_TIME));
+            else joiner.add(part.toString());
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(joiner.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Phân loại rồi ghi một lô qua {@link ImportPipeline#writeWithFallback}, giữ khoá ghi của bảng suốt quá trình.
+     * {@code writer} nhận các bản ghi cần ghi (id đã gán cho dòng UPDATE).
+     */
+    public void writeBatch(List<RowImporter.ParsedRow<T>> batch, ImportProgress progress, Consumer<List<T>> writer) {
+        writeLock.lock();
+        try {
+            ImportPipeline.writeWithFallback(classify(batch, progress), progress, list -> write(list, writer));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Phân loại một lô đã parse ({@code importKey} là khoá gốc, chưa đánh số). Dòng không đổi được đếm
+     * {@code unchanged} và bị loại; trả về các dòng cần ghi theo đúng thứ tự.
+     */
+    public List<RowImporter.ParsedRow<T>> classify(List<RowImporter.ParsedRow<T>> batch, ImportProgress progress) {
+        ensureLoaded(batch);
+
+        List<String> keys = new ArrayList<>(batch.size());
+        for (RowImporter.ParsedRow<T> row : batch) {
+            T record = row.value();
+            if (record.getImportKey() == null) continue;
+            String key = claim(record.getImportKey(), occurrencesInFile);
+            record.setImportKey(key);
+            keys.add(key);
+        }
+        // Snapshot có thể cũ nếu job khác đã ghi cùng ngày: trạng thái trong DB của các khoá này là chuẩn
+        if (!keys.isEmpty()) {
+            for (Object[] r : lookup.find(keys)) {
+                byKey.put((String) r[1], new Existing((Number) r[0], (String) r[2]));
+            }
+        }
+
+        List<RowImporter.ParsedRow<T>> toWrite = new ArrayList<>(batch.size());
+        for (RowImporter.ParsedRow<T> row : batch) {
+            T record = row.value();
+            if (record.getImportKey() == null) {
+                toWrite.add(row);
+                continue;
+            }
+
+            String key = record.getImportKey();
+            Existing existing = byKey.get(key);
+            if (existing == null) {
+                record.assignId(null);
+                toWrite.add(row);
+            } else if (existing.fingerprint() != null && existing.fingerprint().equals(record.getRowFingerprint())) {
+                progress.unchanged();
+            } else {
+                record.assignId(existing.id());
+                toWrite.add(row);
+            }
+        }
+        return toWrite;
+    }
+
+    /**
+     * Ghi qua {@code writer}; thành công thì ghi nhớ khoá mới, lỗi thì trả id về như trước khi ghi
+     * (INSERT bị rollback vẫn để lại id trên entity) để lần ghi lại từng dòng vẫn phân biệt đúng INSERT/UPDATE.
+     */
+    public void write(List<T> records, Consumer<List<T>> writer) {
+        List<Number> idsBefore = records.stream().map(ImportedRecord::getId).toList();
+        try {
+            writer.accept(records);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < records.size(); i++) {
+                records.get(i).assignId(idsBefore.get(i));
+            }
+            throw e;
+        }
+        for (T record : records) {
+            if (record.getImportKey() != null) {
+                byKey.put(record.getImportKey(), new Existing(record.getId(), record.getRowFingerprint()));
+            }
+        }
+    }
+
+    // Nạp một lần cho cả dải ngày còn thiếu của lô
+    private void ensureLoaded(List<RowImporter.ParsedRow<T>> batch) {
+        LocalDate min = null;
+        LocalDate max = null;
+        for (RowImporter.ParsedRow<T> row : batch) {
+            T record = row.value();
+            if (record.getImportKey() == null || record.importDate() == null) continue;
+            LocalDate day = record.importDate().toLocalDate();
+            if (loadedDays.contains(day)) continue;
+            if (min == null || day.isBefore(min)) min = day;
+            if (max == null || day.isAfter(max)) max = day;
+        }
+        if (min == null) return;
+
+        Map<String, Integer> legacyOccurrences = new HashMap<>();
+        for (Object[] r : loader.load(min.atStartOfDay(), max.plusDays(1).atStartOfDay())) {
+            Number id = (Number) r[0];
+            String key = (String) r[1];
+            if (key == null) {
+                if (r[3] == null) continue;
+                key = claim((String) r[3], legacyOccurrences);
+            }
+            byKey.putIfAbsent(key, new Existing(id, (String) r[2]));
+        }
+        for (LocalDate d = min; !d.isAfter(max); d = d.plusDays(1)) {
+            loadedDays.add(d);
+        }
+    }
+
+    private static String claim(String baseKey, Map<String, Integer> occurrences) {
+        int n = occurrences.merge(baseKey, 1, Integer::sum);
+        return n == 1 ? baseKey : baseKey + "#" + n;
+    }
+}
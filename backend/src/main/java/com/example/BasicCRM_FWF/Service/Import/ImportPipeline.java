@@ -0,0 +1,295 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pipeline import 3 tầng:
+ * <pre>
+ *   reader (thread của job) --chunk--> N parse worker --kết quả--> 1 writer (ghi theo lô, đúng thứ tự dòng)
+ * </pre>
+ * Dòng được gom thành chunk có số thứ tự; writer sắp xếp lại theo số thứ tự nên lỗi và dữ liệu được ghi
+ * đúng thứ tự file. Reader phải lấy permit trước khi đẩy chunk và writer trả permit khi đã nhận chunk,
+ * nên số dòng nằm trong bộ nhớ luôn bị chặn (backpressure) dù worker hay DB chậm.
+ *
+ * <p>Dry run ({@link ImportProgress#isDryRun()}): chạy đủ đọc + parse/tra cứu song song nhưng không gọi
+ * {@link RowImporter#write}, dòng hợp lệ chỉ được đếm (trừ importer bật {@link RowImporter#previewInDryRun()}).
+ * Lỗi parse được gom theo {@link ImportIssue}.
+ */
+@Slf4j
+@Component
+public class ImportPipeline {
+
+    private static final int CHUNK_ROWS = 256;
+    private static final long POLL_MILLIS = 100;
+
+    @Value("${application.import.parse-workers:0}")
+    private int configuredWorkers;
+
+    public <T> void run(Path file, ImportProgress progress, RowImporter<T> importer) throws IOException {
+        int workers = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+        new Run<>(importer, progress, workers).execute(RowSource.open(file));
+    }
+
+    /**
+     * Ghi cả lô một lần; nếu lô lỗi thì ghi lại từng dòng để chỉ đánh dấu failed đúng dòng hỏng.
+     */
+    public static <T> void writeWithFallback(List<RowImporter.ParsedRow<T>> batch, ImportProgress progress,
+                                             Consumer<List<T>> writer) {
+        if (batch.isEmpty()) return;
+        try {
+            writer.accept(batch.stream().map(RowImporter.ParsedRow::value).toList());
+            progress.success(batch.size());
+        } catch (Exception batchError) {
+            log.warn("Batch of {} rows failed ({}), retrying row by row", batch.size(), describe(batchError));
+            for (RowImporter.ParsedRow<T> row : batch) {
+                try {
+                    writer.accept(List.of(row.value()));
+                    progress.success();
+                } catch (Exception e) {
+                    log.warn("Row {} failed: {}", row.rowNum(), describe(e));
+                    progress.failed(row.rowNum(), describe(e));
+                }
+            }
+        }
+    }
+
+    static String describe(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    static ImportIssue classify(Exception e) {
+        if (e instanceof SkipRowException skip) return skip.getIssue();
+        if (e instanceof InvalidRowException invalid) return invalid.getIssue();
+        if (e instanceof DateTimeParseException) return ImportIssue.BAD_DATE;
+        // ImportRow.getString trả null cho ô không có -> NPE ở bước parse
+        if (e instanceof NullPointerException) return ImportIssue.MISSING_FIELD;
+        return ImportIssue.OTHER;
+    }
+
+    private record Chunk(long seq, List<ImportRow> rows) {}
+
+    // value != null: dòng hợp lệ; ngược lại skipped/failed kèm nhóm lỗi và lý do
+    private record Outcome<T>(int rowNum, T value, boolean skipped, ImportIssue issue, String error) {}
+
+    private record ParsedChunk<T>(long seq, List<Outcome<T>> outcomes) {}
+
+    private static final Chunk POISON = new Chunk(-1, List.of());
+
+    private static final class Run<T> {
+
+        private final RowImporter<T> importer;
+        private final ImportProgress progress;
+        private final int workers;
+
+        private final BlockingQueue<Chunk> parseQueue;
+        private final BlockingQueue<ParsedChunk<T>> doneQueue = new LinkedBlockingQueue<>();
+        private final Semaphore permits;
+
+        private volatile Throwable failure;
+        private volatile long totalChunks = -1;
+
+        private List<ImportRow> current = new ArrayList<>(CHUNK_ROWS);
+        private long nextSeq;
+
+        private Run(RowImporter<T> importer, ImportProgress progress, int workers) {
+            this.importer = importer;
+            this.progress = progress;
+            this.workers = workers;
+            this.parseQueue = new ArrayBlockingQueue<>(workers * 2);
+            this.permits = new Semaphore(workers * 4);
+        }
+
+        void execute(RowSource source) throws IOException {
+            AtomicInteger threadSeq = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(workers + 1, r -> {
+                Thread t = new Thread(r, "import-pipeline-" + threadSeq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+            try {
+                for (int w = 0; w < workers; w++) {
+                    pool.execute(this::parseLoop);
+                }
+                Future<?> writer = pool.submit(this::writeLoop);
+
+                try {
+                    source.forEachRow(this::read);
+                    if (!current.isEmpty()) submit(current);
+                } catch (StopPipeline ignored) {
+                    // writer/worker đã lỗi, lỗi gốc nằm trong failure
+                } catch (IOException | RuntimeException e) {
+                    fail(e);
+                } finally {
+                    totalChunks = nextSeq;
+                    for (int w = 0; w < workers; w++) {
+                        offer(parseQueue, POISON, true);
+                    }
+                }
+
+                try {
+                    writer.get();
+                } catch (ExecutionException e) {
+                    fail(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+
+            Throwable t = failure;
+            if (t instanceof IOException io) throw io;
+            if (t instanceof RuntimeException re) throw re;
+            if (t != null) throw new IllegalStateException(t);
+        }
+
+        private boolean read(ImportRow row) {
+            if (failure != null) return false;
+            int i = row.getRowNum();
+            if (i < importer.firstDataRow()) return true;
+            if (importer.isEnd(row)) {
+                log.info("Stopped at row {} (blank)", i);
+                return false;
+            }
+            progress.rowRead();
+            current.add(row);
+            if (current.size() == CHUNK_ROWS) {
+                submit(current);
+                current = new ArrayList<>(CHUNK_ROWS);
+            }
+            return true;
+        }
+
+        private void submit(List<ImportRow> rows) {
+            try {
+                while (!permits.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure != null) throw new StopPipeline();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StopPipeline();
+            }
+            if (!offer(parseQueue, new Chunk(nextSeq, rows), false)) throw new StopPipeline();
+            nextSeq++;
+        }
+
+        // Đưa vào hàng đợi có giới hạn; bỏ cuộc khi pipeline đã lỗi (trừ lúc gửi POISON để dừng worker)
+        private <E> boolean offer(BlockingQueue<E> queue, E item, boolean force) {
+            try {
+                while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure != null && !force) return false;
+                    if (failure != null) return queue.offer(item);
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void parseLoop() {
+            try {
+                while (true) {
+                    Chunk chunk = parseQueue.take();
+                    if (chunk == POISON) return;
+
+                    List<Outcome<T>> outcomes = new ArrayList<>(chunk.rows().size());
+                    for (ImportRow row : chunk.rows()) {
+                        outcomes.add(parse(row));
+                    }
+                    doneQueue.put(new ParsedChunk<>(chunk.seq(), outcomes));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        private Outcome<T> parse(ImportRow row) {
+            try {
+                T value = importer.parse(row);
+                if (value == null) return new Outcome<>(row.getRowNum(), null, true, ImportIssue.OTHER, "Bỏ qua");
+                return new Outcome<>(row.getRowNum(), value, false, null, null);
+            } catch (SkipRowException e) {
+                return new Outcome<>(row.getRowNum(), null, true, classify(e), e.getMessage());
+            } catch (Exception e) {
+                return new Outcome<>(row.getRowNum(), null, false, classify(e), describe(e));
+            }
+        }
+
+        private void writeLoop() {
+            PriorityQueue<ParsedChunk<T>> pending = new PriorityQueue<>(Comparator.comparingLong(ParsedChunk::seq));
+            List<RowImporter.ParsedRow<T>> batch = new ArrayList<>(importer.batchSize());
+            long expected = 0;
+
+            try {
+                while (totalChunks < 0 || expected < totalChunks) {
+                    if (failure != null) return;
+                    ParsedChunk<T> parsed = doneQueue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (parsed == null) continue;
+                    pending.add(parsed);
+
+                    while (!pending.isEmpty() && pending.peek().seq() == expected) {
+                        for (Outcome<T> o : pending.poll().outcomes()) {
+                            if (o.value() != null) {
+                                batch.add(new RowImporter.ParsedRow<>(o.rowNum(), o.value()));
+                                if (batch.size() >= importer.batchSize()) {
+                                    flush(batch);
+                                    batch = new ArrayList<>(importer.batchSize());
+                                }
+                            } else if (o.skipped()) {
+                                progress.skipped(o.rowNum(), o.error());
+                                progress.issue(o.issue(), o.rowNum(), o.error());
+                            } else {
+                                log.warn("Row {} failed: {}", o.rowNum(), o.error());
+                                progress.failed(o.rowNum(), o.error());
+                                progress.issue(o.issue(), o.rowNum(), o.error());
+                            }
+                        }
+                        expected++;
+                        permits.release();
+                    }
+                }
+                if (!batch.isEmpty()) flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        private void flush(List<RowImporter.ParsedRow<T>> batch) {
+            if (progress.isDryRun() && !importer.previewInDryRun()) {
+                progress.success(batch.size());
+            } else {
+                importer.write(batch, progress);
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (failure == null) failure = t;
+        }
+    }
+
+    private static final class StopPipeline extends RuntimeException {
+        private StopPipeline() {
+            super(null, null, false, false);
+        }
+    }
+}
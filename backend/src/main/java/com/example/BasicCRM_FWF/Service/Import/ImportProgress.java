@@ -0,0 +1,189 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tiến độ của một lần import. Thread đang import ghi, API trạng thái đọc song song nên dùng atomic.
+ * Lỗi theo dòng được giữ tối đa {@link #MAX_ERRORS} bản ghi, phần dư chỉ được đếm.
+ * Ngoài ra lỗi/cảnh báo được gom theo {@link ImportIssue}: số lượng + {@link #MAX_SAMPLES} dòng đầu tiên làm mẫu.
+ *
+ * <p>Ở chế độ dry run không ghi gì xuống DB; {@code success} là số dòng hợp lệ (sẽ được ghi).
+ */
+public class ImportProgress {
+
+    public static final int MAX_ERRORS = 1000;
+
+    public static final int MAX_SAMPLES = 20;
+
+    public record RowError(int rowNum, String message) {}
+
+    public record IssueSummary(ImportIssue issue, int count, List<RowError> samples) {}
+
+    private final AtomicInteger rowsRead = new AtomicInteger();
+    private final AtomicInteger success = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger droppedErrors = new AtomicInteger();
+    private final List<RowError> errors = new ArrayList<>();
+    private final Map<ImportIssue, AtomicInteger> issueCounts = new EnumMap<>(ImportIssue.class);
+    // max-heap theo số dòng: giữ MAX_SAMPLES dòng nhỏ nhất dù worker báo không theo thứ tự
+    private final Map<ImportIssue, PriorityQueue<RowError>> issueSamples = new EnumMap<>(ImportIssue.class);
+
+    private final boolean dryRun;
+    // báo cáo riêng của từng loại import (vd. diff danh mục), trả nguyên trong API job
+    private volatile Object report;
+
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    public ImportProgress() {
+        this(false);
+    }
+
+    public ImportProgress(boolean dryRun) {
+        this.dryRun = dryRun;
+        for (ImportIssue issue : ImportIssue.values()) {
+            issueCounts.put(issue, new AtomicInteger());
+            issueSamples.put(issue, new PriorityQueue<>(Comparator.comparingInt(RowError::rowNum).reversed()));
+        }
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public Object getReport() {
+        return report;
+    }
+
+    public void setReport(Object report) {
+        this.report = report;
+    }
+
+    public void start() {
+        startedAt = Instant.now();
+    }
+
+    public void finish() {
+        finishedAt = Instant.now();
+    }
+
+    public void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    public void success() {
+        success.incrementAndGet();
+    }
+
+    public void success(int rows) {
+        success.addAndGet(rows);
+    }
+
+    public void failed(int rowNum, String message) {
+        failed.incrementAndGet();
+        addError(rowNum, message);
+    }
+
+    public void skipped(int rowNum, String message) {
+        skipped.incrementAndGet();
+        addError(rowNum, message);
+    }
+
+    /** Dòng đã có trong DB với nội dung y hệt (import lại), không ghi và không tính là lỗi. */
+    public void unchanged() {
+        unchanged.incrementAndGet();
+    }
+
+    /**
+     * Ghi nhận một lỗi/cảnh báo theo nhóm. Không đổi trạng thái dòng (success/failed/skipped),
+     * có thể gọi từ nhiều thread parse cùng lúc.
+     */
+    public void issue(ImportIssue issue, int rowNum, String message) {
+        issueCounts.get(issue).incrementAndGet();
+        PriorityQueue<RowError> samples = issueSamples.get(issue);
+        RowError error = new RowError(rowNum + 1, message);
+        synchronized (samples) {
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(error);
+            } else if (samples.peek().rowNum() > error.rowNum()) {
+                samples.poll();
+                samples.add(error);
+            }
+        }
+    }
+
+    private void addError(int rowNum, String message) {
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                // số dòng hiển thị theo Excel (bắt đầu từ 1)
+                errors.add(new RowError(rowNum + 1, message));
+                return;
+            }
+        }
+        droppedErrors.incrementAndGet();
+    }
+
+    public int getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public int getSuccess() {
+        return success.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    public int getUnchanged() {
+        return unchanged.get();
+    }
+
+    public int getDroppedErrors() {
+        return droppedErrors.get();
+    }
+
+    /** Lỗi theo thứ tự dòng trong file. */
+    public List<RowError> getErrors() {
+        List<RowError> snapshot;
+        synchronized (errors) {
+            snapshot = new ArrayList<>(errors);
+        }
+        snapshot.sort(Comparator.comparingInt(RowError::rowNum));
+        return snapshot;
+    }
+
+    /** Các nhóm có phát sinh, kèm mẫu theo thứ tự dòng. */
+    public List<IssueSummary> getIssues() {
+        List<IssueSummary> result = new ArrayList<>();
+        for (ImportIssue issue : ImportIssue.values()) {
+            int count = issueCounts.get(issue).get();
+            if (count == 0) continue;
+            PriorityQueue<RowError> samples = issueSamples.get(issue);
+            List<RowError> sorted;
+            synchronized (samples) {
+                sorted = new ArrayList<>(samples);
+            }
+            sorted.sort(Comparator.comparingInt(RowError::rowNum));
+            result.add(new IssueSummary(issue, count, sorted));
+        }
+        return result;
+    }
+
+    public double getRowsPerSecond() {
+        Instant start = startedAt;
+        if (start == null) return 0;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(start, end).toMillis());
+        return rowsRead.get() * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Một dòng dữ liệu đọc từ file import: số thứ tự dòng (tính từ 0) và giá trị hiển thị của từng ô.
+ * Ô không tồn tại trả về {@code null}, giống {@code ServiceUtils.getString(row.getCell(i))}.
+ */
+public final class ImportRow {
+
+    private static final String[] NO_VALUES = new String[0];
+
+    private final int rowNum;
+    private final String[] values;
+
+    public ImportRow(int rowNum, String[] values) {
+        this.rowNum = rowNum;
+        this.values = values == null ? NO_VALUES : values;
+    }
+
+    public static ImportRow empty(int rowNum) {
+        return new ImportRow(rowNum, NO_VALUES);
+    }
+
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /** Giá trị đã trim, {@code null} nếu ô không có. */
+    public String getString(int col) {
+        if (col < 0 || col >= values.length || values[col] == null) return null;
+        return values[col].trim();
+    }
+
+    /** Giá trị đã trim, {@code null} nếu ô không có hoặc rỗng. */
+    public String getOptional(int col) {
+        String s = getString(col);
+        return (s == null || s.isBlank()) ? null : s;
+    }
+
+    /** Cùng quy ước với {@code ServiceUtils.isRowEmpty}: 5 cột đầu đều trống. */
+    public boolean isEmpty() {
+        for (int c = 0; c <= 4; c++) {
+            if (getOptional(c) != null) return false;
+        }
+        return true;
+    }
+
+    /** Toàn bộ các ô đều trống. */
+    public boolean isBlank() {
+        for (int c = 0; c < values.length; c++) {
+            if (getOptional(c) != null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * MD5 (hex) của nội dung dòng, dùng để nhận ra dòng không đổi khi import lại.
+     * Bỏ qua cột 0 (STT) vì số thứ tự thay đổi khi file xuất lại có thêm dòng.
+     */
+    public String fingerprint() {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // ô trống cuối dòng không tính, để ô rỗng và ô không tồn tại cho cùng kết quả
+        int last = values.length - 1;
+        while (last > 0 && getOptional(last) == null) last--;
+        for (int c = 1; c <= last; c++) {
+            String s = getOptional(c);
+            if (s != null) md.update(s.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0x1f);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+}
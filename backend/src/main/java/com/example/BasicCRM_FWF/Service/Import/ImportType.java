@@ -0,0 +1,11 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+// Mỗi loại import chạy tuần tự với nhau (cùng một "lane"), khác loại thì có thể chạy song song
+public enum ImportType {
+    SALES,
+    CUSTOMER_SALE,
+    SERVICE_RECORD,
+    SALE_SERVICE_CATALOG,
+    BOOKING,
+    APP_USAGE
+}
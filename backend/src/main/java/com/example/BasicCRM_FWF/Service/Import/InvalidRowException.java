@@ -0,0 +1,18 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+/**
+ * Ném ra từ {@link RowImporter#parse} khi dòng sai dữ liệu (đếm vào failed) và biết rõ nhóm lỗi.
+ */
+public class InvalidRowException extends IllegalArgumentException {
+
+    private final ImportIssue issue;
+
+    public InvalidRowException(ImportIssue issue, String message) {
+        super(message);
+        this.issue = issue;
+    }
+
+    public ImportIssue getIssue() {
+        return issue;
+    }
+}
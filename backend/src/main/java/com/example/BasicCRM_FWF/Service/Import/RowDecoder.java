@@ -0,0 +1,129 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Giải mã {@link ImportRow} theo {@link ColumnSchema}: mỗi ô được trim và chuyển kiểu đúng một lần.
+ * Không dùng exception để dò định dạng: số được kiểm tra ký tự trước khi tạo BigDecimal,
+ * ngày được khớp hình dạng theo {@link DateLayout} và định dạng thắng được nhớ theo cột cho các dòng sau.
+ */
+public final class RowDecoder {
+
+    private final ColumnSchema schema;
+    // chỉ số DateLayout đọc được gần nhất của từng cột, -1 = chưa có
+    private final AtomicIntegerArray lastLayout;
+    // định dạng trùng hình dạng với một định dạng khai báo trước nó (MDY sau DMY) không được ưu tiên,
+    // để chuỗi mơ hồ như 05/06/2025 luôn đọc theo thứ tự khai báo
+    private final boolean[][] cacheable;
+
+    RowDecoder(ColumnSchema schema) {
+        this.schema = schema;
+        this.lastLayout = new AtomicIntegerArray(schema.width());
+        this.cacheable = new boolean[schema.width()][];
+        for (int col = 0; col < schema.width(); col++) {
+            lastLayout.set(col, -1);
+            if (schema.kind(col) != ColumnSchema.Kind.DATE_TIME) continue;
+
+            DateLayout[] layouts = schema.layouts(col);
+            cacheable[col] = new boolean[layouts.length];
+            for (int i = 0; i < layouts.length; i++) {
+                cacheable[col][i] = true;
+                for (int j = 0; j < i; j++) {
+                    if (layouts[j].sameShape(layouts[i])) cacheable[col][i] = false;
+                }
+            }
+        }
+    }
+
+    public DecodedRow decode(ImportRow row) {
+        int width = Math.max(row.size(), schema.width());
+        String[] text = new String[width];
+        Object[] typed = new Object[schema.width()];
+
+        for (int col = 0; col < width; col++) {
+            String s = row.getString(col);
+            text[col] = s;
+            if (col >= schema.width() || s == null || s.isEmpty()) continue;
+
+            typed[col] = switch (schema.kind(col)) {
+                case DECIMAL -> decimal(s);
+                case INTEGER -> integer(s);
+                case DATE_TIME -> dateTime(col, s);
+                case TEXT -> null;
+            };
+        }
+        return new DecodedRow(row.getRowNum(), text, typed);
+    }
+
+    private LocalDateTime dateTime(int col, String s) {
+        if (s.indexOf('\u00A0') >= 0) s = s.replace('\u00A0', ' ').trim();
+
+        DateLayout[] layouts = schema.layouts(col);
+        int last = lastLayout.get(col);
+        if (last >= 0) {
+            LocalDateTime value = layouts[last].parse(s);
+            if (value != null) return value;
+        }
+        for (int i = 0; i < layouts.length; i++) {
+            if (i == last) continue;
+            LocalDateTime value = layouts[i].parse(s);
+            if (value != null) {
+                if (cacheable[col][i]) lastLayout.set(col, i);
+                return value;
+            }
+        }
+        return null;
+    }
+
+    // Cùng quy ước với ServiceUtils.toBigDecimal: bỏ dấu phẩy ngăn cách nghìn; sai định dạng -> null
+    static BigDecimal decimal(String s) {
+        String cleaned = s.indexOf(',') >= 0 ? s.replace(",", "") : s;
+        int i = 0;
+        int n = cleaned.length();
+        if (n > 0 && (cleaned.charAt(0) == '-' || cleaned.charAt(0) == '+')) i++;
+        boolean digits = false;
+        boolean dot = false;
+        for (; i < n; i++) {
+            char c = cleaned.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return null;
+            }
+        }
+        return digits ? new BigDecimal(cleaned) : null;
+    }
+
+    // "123", "123.0", "123." -> 123 (cắt phần lẻ như (int) Double.parseDouble); sai định dạng/tràn -> null
+    static Integer integer(String s) {
+        int i = 0;
+        int n = s.length();
+        boolean negative = false;
+        if (n > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            negative = s.charAt(0) == '-';
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '.') break;
+            if (c == ',') continue;
+            if (c < '0' || c > '9') return null;
+            value = value * 10 + (c - '0');
+            if (++digits > 10) return null;
+        }
+        for (i++; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return null;
+        }
+        if (digits == 0) return null;
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) return null;
+        return (int) value;
+    }
+}
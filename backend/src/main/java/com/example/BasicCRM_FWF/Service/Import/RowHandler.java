@@ -0,0 +1,10 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+@FunctionalInterface
+public interface RowHandler {
+
+    /**
+     * Xử lý một dòng. Trả về {@code false} để dừng đọc file (ví dụ gặp dòng trống).
+     */
+    boolean onRow(ImportRow row);
+}
@@ -0,0 +1,48 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.util.List;
+
+/**
+ * Một loại import chạy trong {@link ImportPipeline}.
+ *
+ * @param <T> bản ghi đã parse, sẵn sàng để ghi
+ */
+public interface RowImporter<T> {
+
+    record ParsedRow<T>(int rowNum, T value) {}
+
+    /**
+     * Parse + tra cứu một dòng. Được gọi song song từ nhiều thread nên chỉ được đọc dữ liệu dùng chung.
+     * Ném {@link SkipRowException} để bỏ qua dòng, exception khác tính là dòng lỗi.
+     */
+    T parse(ImportRow row);
+
+    /**
+     * Ghi một lô theo đúng thứ tự dòng trong file, luôn chạy trên một thread duy nhất.
+     * Importer tự cập nhật success/failed/skipped cho từng dòng trong lô,
+     * thường qua {@link ImportPipeline#writeWithFallback}.
+     */
+    void write(List<ParsedRow<T>> batch, ImportProgress progress);
+
+    /** Dòng dữ liệu đầu tiên (bỏ qua header). */
+    default int firstDataRow() {
+        return 2;
+    }
+
+    /** Dòng đánh dấu hết dữ liệu. */
+    default boolean isEnd(ImportRow row) {
+        return row.isEmpty();
+    }
+
+    default int batchSize() {
+        return 1000;
+    }
+
+    /**
+     * {@code true}: ở dry run vẫn gọi {@link #write} để importer dựng báo cáo xem trước (vd. diff danh mục);
+     * khi đó importer phải tự kiểm tra {@link ImportProgress#isDryRun()} và không ghi DB.
+     */
+    default boolean previewInDryRun() {
+        return false;
+    }
+}
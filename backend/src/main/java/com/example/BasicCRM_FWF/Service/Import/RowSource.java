@@ -0,0 +1,36 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Nguồn dòng cho import: file .xlsx ({@link XlsxRowSource}) hoặc CSV/TSV ({@link DelimitedRowSource}).
+ * Cả hai đưa ra cùng {@link ImportRow} nên mọi importer nhận được cả hai định dạng với cùng bố cục cột.
+ */
+public interface RowSource {
+
+    /** Đọc tuần tự từng dòng cho tới hết file hoặc tới khi handler trả về {@code false}. */
+    void forEachRow(RowHandler handler) throws IOException;
+
+    /**
+     * Chọn nguồn theo nội dung file: .xlsx là file zip (bắt đầu bằng "PK\3\4"), còn lại đọc như văn bản có phân cách.
+     * Đuôi .tsv luôn dùng tab; các file văn bản khác tự nhận dấu phân cách.
+     */
+    static RowSource open(Path file) throws IOException {
+        byte[] magic = new byte[4];
+        int n;
+        try (InputStream in = Files.newInputStream(file)) {
+            n = in.readNBytes(magic, 0, magic.length);
+        }
+        if (n == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+            return new XlsxRowSource(file);
+        }
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".tsv")
+                ? new DelimitedRowSource(file, '\t')
+                : new DelimitedRowSource(file, DelimitedRowSource.detectDelimiter(file));
+    }
+}
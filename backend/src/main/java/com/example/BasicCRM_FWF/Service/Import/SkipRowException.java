@@ -0,0 +1,22 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+/**
+ * Ném ra từ {@link RowImporter#parse} khi dòng hợp lệ nhưng cần bỏ qua (đếm vào skipped, không phải failed).
+ */
+public class SkipRowException extends RuntimeException {
+
+    private final ImportIssue issue;
+
+    public SkipRowException(String message) {
+        this(ImportIssue.OTHER, message);
+    }
+
+    public SkipRowException(ImportIssue issue, String message) {
+        super(message, null, false, false);
+        this.issue = issue;
+    }
+
+    public ImportIssue getIssue() {
+        return issue;
+    }
+}
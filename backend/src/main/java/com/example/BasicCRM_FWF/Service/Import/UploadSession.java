@@ -0,0 +1,49 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Một lần upload theo từng phần. {@code receivedBytes} là số byte liên tục đã ghi từ đầu file,
+ * client ngắt kết nối thì hỏi lại giá trị này và gửi tiếp từ đó.
+ */
+@Getter
+public class UploadSession {
+
+    private final String id;
+    private final ImportType type;
+    private final String fileName;
+    private final long totalSize;
+    private final boolean dryRun;
+    private final Path file;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile long receivedBytes;
+    private volatile LocalDateTime lastActivityAt = createdAt;
+    private volatile String jobId;
+
+    UploadSession(String id, ImportType type, String fileName, long totalSize, boolean dryRun, Path file) {
+        this.id = id;
+        this.type = type;
+        this.fileName = fileName;
+        this.totalSize = totalSize;
+        this.dryRun = dryRun;
+        this.file = file;
+    }
+
+    void advance(long bytes) {
+        receivedBytes += bytes;
+        lastActivityAt = LocalDateTime.now();
+    }
+
+    void complete(String jobId) {
+        this.jobId = jobId;
+        lastActivityAt = LocalDateTime.now();
+    }
+
+    public boolean isComplete() {
+        return jobId != null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import com.example.BasicCRM_FWF.DTORequest.UploadSessionRequest;
+import com.example.BasicCRM_FWF.Exception.InvalidInputException;
+import com.example.BasicCRM_FWF.Exception.ResourceNotFoundException;
+import com.example.BasicCRM_FWF.Exception.UploadConflictException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Upload file import theo từng phần, không qua multipart (không giới hạn 10MB, không buffer cả file trong bộ nhớ).
+ * <ol>
+ *   <li>tạo phiên: khai báo loại import, tên file, tổng dung lượng;</li>
+ *   <li>gửi từng phần bằng body thô kèm offset, server ghi thẳng xuống file spool;
+ *       mất kết nối thì hỏi lại {@code receivedBytes} và gửi tiếp từ đó;</li>
+ *   <li>complete: đủ byte thì đưa file spool vào {@link ImportJobService} như upload thường.</li>
+ * </ol>
+ * Phiên không hoạt động quá {@code application.import.upload.session-ttl-hours} giờ bị xoá cùng file.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadSessionService {
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final ImportJobService importJobService;
+
+    @Value("${application.import.upload.max-file-bytes:2147483648}")
+    private long maxFileBytes;
+
+    @Value("${application.import.upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadSession create(UploadSessionRequest request) throws IOException {
+        if (request.getType() == null) {
+            throw new InvalidInputException("Thiếu loại import");
+        }
+        if (request.getTotalSize() <= 0 || request.getTotalSize() > maxFileBytes) {
+            throw new InvalidInputException("Dung lượng file phải trong khoảng 1.." + maxFileBytes + " byte");
+        }
+
+        Path spool = Files.createTempFile("upload-" + request.getType().name().toLowerCase() + "-",
+                ImportJobService.spoolSuffix(request.getFileName()));
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), request.getType(),
+                request.getFileName(), request.getTotalSize(), request.isDryRun(), spool);
+        sessions.put(session.getId(), session);
+
+        log.info("Upload session {} created: type={}, file={}, size={}",
+                session.getId(), session.getType(), session.getFileName(), session.getTotalSize());
+        return session;
+    }
+
+    public UploadSession get(String id) {
+        UploadSession session = sessions.get(id);
+        if (session == null) throw new ResourceNotFoundException("Không tìm thấy phiên upload " + id);
+        return session;
+    }
+
+    /**
+     * Ghi một phần bắt đầu tại {@code offset}, offset phải bằng số byte đã nhận.
+     * Kết nối đứt giữa chừng thì phần đã ghi vẫn được tính, client gửi tiếp từ {@code receivedBytes} mới.
+     */
+    public UploadSession append(String id, long offset, InputStream body) throws IOException {
+        UploadSession session = get(id);
+        synchronized (session) {
+            if (session.isComplete()) {
+                throw new UploadConflictException("Phiên upload " + id + " đã hoàn tất");
+            }
+            if (offset != session.getReceivedBytes()) {
+                throw new UploadConflictException("Offset " + offset + " không khớp, server đã nhận "
+                        + session.getReceivedBytes() + " byte");
+            }
+
+            long remaining = session.getTotalSize() - offset;
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_BYTES);
+            try (FileChannel channel = FileChannel.open(session.getFile(), StandardOpenOption.WRITE)) {
+                channel.truncate(offset);   // bỏ phần ghi dở của lần gửi lỗi trước (nếu có)
+                channel.position(offset);
+                int n;
+                while ((n = body.read(buffer.array(), 0, buffer.capacity())) != -1) {
+                    if (n > remaining) {
+                        throw new InvalidInputException("Dữ liệu vượt quá dung lượng đã khai báo ("
+                                + session.getTotalSize() + " byte)");
+                    }
+                    buffer.limit(n).position(0);
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                    buffer.clear();
+                    remaining -= n;
+                    session.advance(n);
+                }
+            }
+            return session;
+        }
+    }
+
+    /** Đủ byte thì tạo import job từ file spool; job sở hữu và xoá file khi chạy xong. */
+    public ImportJob complete(String id) throws IOException {
+        UploadSession session = get(id);
+        synchronized (session) {
+            if (session.isComplete()) {
+                return importJobService.get(session.getJobId());
+            }
+            if (session.getReceivedBytes() != session.getTotalSize()) {
+                throw new UploadConflictException("Mới nhận " + session.getReceivedBytes() + "/"
+                        + session.getTotalSize() + " byte");
+            }
+            ImportJob job = importJobService.submit(session.getType(), session.getFileName(),
+                    session.getFile(), session.isDryRun());
+            session.complete(job.getId());
+            return job;
+        }
+    }
+
+    public void abort(String id) throws IOException {
+        UploadSession session = get(id);
+        synchronized (session) {
+            sessions.remove(id);
+            if (!session.isComplete()) Files.deleteIfExists(session.getFile());
+        }
+    }
+
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public void evictStaleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(sessionTtlHours);
+        sessions.values().removeIf(session -> {
+            if (session.getLastActivityAt().isAfter(cutoff)) return false;
+            if (!session.isComplete()) {
+                try {
+                    Files.deleteIfExists(session.getFile());
+                } catch (IOException e) {
+                    log.warn("Could not delete upload spool {}", session.getFile());
+                }
+            }
+            return true;
+        });
+    }
+}
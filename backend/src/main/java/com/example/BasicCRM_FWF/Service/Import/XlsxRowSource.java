@@ -0,0 +1,143 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.UnsupportedFileFormatException;
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Đọc sheet đầu tiên của file .xlsx theo kiểu streaming (XSSF event model: shared strings + SAX),
+ * bộ nhớ không phụ thuộc số dòng của file. Mỗi dòng được đẩy cho {@link RowHandler} ngay khi đọc xong.
+ *
+ * <p>Giá trị ô là chuỗi hiển thị; riêng ô số được trả về dạng số thuần (không dấu phân cách)
+ * và ô ngày được format {@code HH:mm dd/MM/yyyy}, giống {@code ServiceUtils.getStringCell}.
+ */
+@Slf4j
+public final class XlsxRowSource implements RowSource {
+
+    private final Path path;
+
+    public XlsxRowSource(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public void forEachRow(RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(path.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) return;
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, strings, new RowCollector(handler), new PlainValueFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            } catch (StopReading ignored) {
+                // handler yêu cầu dừng
+            }
+        } catch (OpenXML4JException | InvalidOperationException | UnsupportedFileFormatException | POIXMLException
+                 | SAXException | ParserConfigurationException e) {
+            // Chỉ lỗi định dạng/XML của file được gói thành IOException; IOException và exception của handler đi thẳng ra
+            throw new IOException("Không đọc được file Excel: " + e.getMessage(), e);
+        }
+    }
+
+    /** Gom các ô của một dòng rồi giao cho handler khi dòng kết thúc. */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowHandler handler;
+        private String[] values = new String[32];
+        private int width;
+        private int currentCol;
+        private int lastRow = -1;
+
+        private RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            // Dòng bị bỏ trống hoàn toàn không xuất hiện trong XML -> phát dòng rỗng như sheet.getRow(i) == null
+            for (int r = lastRow + 1; r < rowNum; r++) {
+                deliver(ImportRow.empty(r));
+            }
+            Arrays.fill(values, 0, width, null);
+            width = 0;
+            currentCol = -1;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = cellReference == null ? currentCol + 1 : new CellReference(cellReference).getCol();
+            currentCol = col;
+            if (col >= values.length) {
+                values = Arrays.copyOf(values, Math.max(col + 1, values.length * 2));
+            }
+            values[col] = formattedValue;
+            width = Math.max(width, col + 1);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            lastRow = rowNum;
+            deliver(new ImportRow(rowNum, Arrays.copyOf(values, width)));
+        }
+
+        private void deliver(ImportRow row) {
+            if (!handler.onRow(row)) {
+                throw new StopReading();
+            }
+        }
+    }
+
+    /** Số trả về dạng thuần, ngày trả về "HH:mm dd/MM/yyyy"; phần còn lại giữ như DataFormatter. */
+    private static final class PlainValueFormatter extends DataFormatter {
+
+        private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value).format(DATE_TIME);
+            }
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                return String.valueOf((long) value);
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private static final class StopReading extends RuntimeException {
+        private StopReading() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -1,16 +1,14 @@
 package com.example.BasicCRM_FWF.Service.Realtime;
 
 import com.example.BasicCRM_FWF.DTORealTime.*;
-import com.example.BasicCRM_FWF.Model.Shift;
-import com.example.BasicCRM_FWF.Repository.ShiftRepository;
 import com.example.BasicCRM_FWF.Service.AuthRealTime.AuthService;
+import com.example.BasicCRM_FWF.Service.ShiftEmployee.WorkTrackSyncService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -26,7 +24,7 @@ public class RealTimeService implements RealTimeInterface {
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final AuthService authService;
-    private final ShiftRepository shiftRepository;
+    private final WorkTrackSyncService workTrackSyncService;
 
     @Value("${application.stock.id}")
     private String stockId;
@@ -685,109 +683,10 @@ public class RealTimeService implements RealTimeInterface {
         }
     }
 
+    // Chạy bù chấm công tới hôm qua; lịch chạy hằng đêm nằm ở WorkTrackSyncService
     @Override
-    @Scheduled(cron = "0 0 1 * * *")
     public void autoSaveWorkTrack() throws Exception {
-        String token = authService.getToken();
-        String url = "https://app.facewashfox.com/api/v3/userwork23@workList";
-
-        LocalDateTime pastDay = LocalDateTime.now().minusDays(1);
-        String dateStart = pastDay.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
-        String endDate = dateStart;
-
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("From", dateStart);
-        payload.put("To", endDate);
-        payload.put("key", "");
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("Accept", "application/json, text/plain, */*");
-        headers.set("Authorization", "Bearer " + token);
-        headers.set("User-Agent", "Mozilla/5.0 (iPhone; CPU iPhone OS 18_6_2 like Mac OS X)");
-
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-
-        if (response.getStatusCode() != HttpStatus.OK) {
-            throw new RuntimeException("API call failed: " + response.getStatusCode());
-        }
-
-        JsonNode root = objectMapper.readTree(response.getBody());
-        JsonNode items = root.path("list");
-        if (items.isArray()) {
-            for (JsonNode item : items) {
-                String userId = item.path("UserID").asText();  // ✅ đúng key
-                String fullname = item.path("FullName").asText();
-                String username = item.path("UserName").asText();
-                String stockId = item.path("StockID").asText();
-                String stockTitle = item.path("StockTitle").asText();
-
-                JsonNode dates = item.path("Dates");
-                if (dates.isArray()) {
-                    for (JsonNode dateNode : dates) {
-                        String date = dateNode.path("Date").asText();
-                        JsonNode workTrack = dateNode.path("WorkTrack");
-
-                        // ✅ Kiểm tra null
-                        if (workTrack.isMissingNode() || workTrack.isNull()) continue;
-
-                        String checkIn = workTrack.path("CheckIn").asText();
-                        String checkOut = workTrack.path("CheckOut").asText();
-
-                        JsonNode info = workTrack.path("Info");
-                        double diSom = 0, diMuon = 0, veSom = 0, veMuon = 0;
-
-                        if (info.has("DI_MUON")) {
-                            diMuon = 0 - Math.abs(info.path("DI_MUON").path("Value").asDouble(0)); // luôn âm
-                        }
-                        if (info.has("VE_SOM")) {
-                            veSom = 0 - Math.abs(info.path("VE_SOM").path("Value").asDouble(0)); // luôn âm
-                        }
-                        if (info.has("CheckOut") && info.path("CheckOut").has("VE_MUON")) {
-                            veMuon = Math.abs(info.path("CheckOut").path("VE_MUON").path("Value").asDouble(0)); // luôn dương
-                        }
-
-                        String typeCheckIn = info.path("Type").asText();
-                        String desTypeCheckIn = info.path("Desc").asText();
-
-                        JsonNode workToday = info.path("WorkToday");
-                        JsonNode checkOutNode = info.path("CheckOut");
-                        String title = workToday.path("Title").asText();
-                        String timeFrom = workToday.path("TimeFrom").asText();
-                        String timeTo = workToday.path("TimeTo").asText();
-                        String mandays = workToday.path("Value").asText();
-                        String typeCheckOut = checkOutNode.path("Type").asText();
-                        String desTypeCheckOut = checkOutNode.path("Desc").asText();
-
-                        Shift dto = Shift.builder()
-                                .fullname(fullname)
-                                .username(username)
-                                .stockId(stockId)
-                                .stockTitle(stockTitle)
-                                .date(date)
-                                .checkIn(checkIn)
-                                .checkOut(checkOut)
-                                .title(title)
-                                .timeFrom(timeFrom)
-                                .timeTo(timeTo)
-                                .mandays(mandays)
-                                .typeCheckIn(typeCheckIn)
-                                .desTypeCheckIn(desTypeCheckIn)
-                                .typeCheckOut(typeCheckOut)
-                                .desTypeCheckOut(desTypeCheckOut)
-                                .diSom(diSom)
-                                .diMuon(diMuon)
-                                .veSom(veSom)
-                                .veMuon(veMuon)
-                                .build();
-
-                        shiftRepository.save(dto);
-                    }
-                }
-            }
-        }
-        log.info("==== AUTO SAVE WORK TRACK ====");
+        workTrackSyncService.catchUp();
     }
 
 }
@@ -0,0 +1,56 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
+import com.example.BasicCRM_FWF.Exception.ReportTimeoutException;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Ngữ cảnh của một lần gọi dashboard batch: khoảng ngày chung và các lần quét dùng chung giữa widget.
+ * Widget đầu tiên cần một khoá sẽ chạy loader, các widget khác cùng khoá chờ kết quả đó thay vì quét lại,
+ * nhưng không quá hạn chót của batch: quá hạn hoặc bị huỷ thì widget đang chờ lỗi {@link ReportTimeoutException}.
+ */
+public class DashboardScope {
+
+    private final CustomerReportRequest request;
+    private final long deadlineNanos;
+    private final Map<String, CompletableFuture<Object>> scans = new ConcurrentHashMap<>();
+
+    public DashboardScope(CustomerReportRequest request, long deadlineNanos) {
+        this.request = request;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public CustomerReportRequest request() {
+        return request;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T shared(String key, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = scans.putIfAbsent(key, mine);
+        if (existing == null) {
+            try {
+                T value = loader.get();
+                mine.complete(value);
+                return value;
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return (T) existing.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ReportTimeoutException("Quá thời gian chờ dữ liệu dùng chung " + key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReportTimeoutException("Widget bị huỷ khi chờ dữ liệu dùng chung " + key);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Quét dùng chung " + key + " lỗi", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import com.example.BasicCRM_FWF.DTORequest.DashboardBatchRequest;
+import com.example.BasicCRM_FWF.DTOResponse.DashboardBatchResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Tính nhiều widget dashboard trong một request: một lần xác thực, các widget độc lập chạy song song trên
+ * {@link ReportQueryExecutor} (chung hạn chót), widget cùng dữ liệu gốc dùng chung một lần quét qua {@link DashboardScope}.
+ * Lỗi của một widget được trả trong {@code errors}, không làm hỏng các widget còn lại; quá hạn chót thì cả batch lỗi.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DashboardService {
+
+    private final DashboardWidgetRegistry registry;
+    private final ReportQueryExecutor reportQueryExecutor;
+
+    public DashboardBatchResponse compute(DashboardBatchRequest request) {
+        if (request.getFromDate() == null || request.getToDate() == null) {
+            throw new IllegalArgumentException("fromDate và toDate là bắt buộc");
+        }
+        if (request.getWidgets() == null || request.getWidgets().isEmpty()) {
+            throw new IllegalArgumentException("Danh sách widget trống");
+        }
+        List<String> ids = request.getWidgets().stream().distinct().toList();
+        List<String> unknown = ids.stream().filter(id -> registry.get(id) == null).toList();
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Widget không tồn tại: " + String.join(", ", unknown));
+        }
+
+        ReportQueryExecutor.Batch batch = reportQueryExecutor.batch();
+        DashboardScope scope = new DashboardScope(request.toReportRequest(), batch.deadlineNanos());
+        Map<String, String> errors = new ConcurrentHashMap<>();
+        Map<String, Supplier<Object>> results = new LinkedHashMap<>();
+        for (String id : ids) {
+            DashboardWidgetRegistry.Widget widget = registry.get(id);
+            results.put(id, batch.submit("dashboard:" + id, () -> {
+                try {
+                    return widget.compute(scope);
+                } catch (RuntimeException e) {
+                    log.warn("Dashboard widget {} failed: {}", id, e.getMessage(), e);
+                    errors.put(id, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                    return null;
+                }
+            }));
+        }
+        batch.await();
+
+        Map<String, Object> widgets = new LinkedHashMap<>();
+        results.forEach((id, value) -> {
+            if (!errors.containsKey(id)) widgets.put(id, value.get());
+        });
+        return new DashboardBatchResponse(widgets, new TreeMap<>(errors));
+    }
+
+    public Set<String> widgetIds() {
+        return registry.ids();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
+import com.example.BasicCRM_FWF.Model.SalesTransaction;
+import com.example.BasicCRM_FWF.Service.BookingRecord.BookingRecordService;
+import com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordService;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.SalesTransactionService;
+import com.example.BasicCRM_FWF.Service.ServiceRecord.ServiceRecordService;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Danh sách widget của dashboard batch. Id widget là đường dẫn của endpoint lẻ tương ứng (bỏ tiền tố /api/),
+ * dữ liệu trả về giống hệt body của endpoint đó.
+ *
+ * <p>Các widget đọc cùng một dữ liệu gốc lấy qua {@link DashboardScope#shared} với cùng khoá nên chỉ quét một lần:
+ * <ul>
+ *   <li>{@code sales.region-period}: region-stat và region-actual-pie;</li>
+ *   <li>{@code sales.transactions}: customer-old-new-order-trends và customer-old-new-order-pieChart;</li>
+ *   <li>{@code service.by-name}: top10/bottom3 dịch vụ theo lượt và doanh thu.</li>
+ * </ul>
+ */
+@Component
+public class DashboardWidgetRegistry {
+
+    @FunctionalInterface
+    public interface Widget {
+        Object compute(DashboardScope scope);
+    }
+
+    private static final String REGION_PERIOD = "sales.region-period";
+    private static final String TRANSACTIONS = "sales.transactions";
+    private static final String SERVICE_BY_NAME = "service.by-name";
+
+    private final Map<String, Widget> widgets = new LinkedHashMap<>();
+
+    public DashboardWidgetRegistry(SalesTransactionService sales,
+                                   CustomerSaleRecordService customers,
+                                   ServiceRecordService services,
+                                   BookingRecordService bookings) {
+        // ===== /api/sales =====
+        report("sales/region-revenue", sales::getRevenueByRegion);
+        report("sales/shop-type-revenue", sales::getRevenueByShopType);
+        report("sales/revenue-summary", sales::getRevenueSummary);
+        widgets.put("sales/region-stat", scope -> sales.getStatus(regionPeriod(scope, sales)));
+        widgets.put("sales/region-actual-pie", scope -> sales.getActualRevenuePie(
+                regionPeriod(scope, sales).current().stream()
+                        .map(row -> new Object[]{row[0], row[2]}) // [region, revenue]
+                        .toList()));
+        report("sales/daily-by-shop-type", sales::getDailyRevenueByShopType);
+        report("sales/daily-by-customer-type", sales::getRevenueByCustomerTypePerDay);
+        report("sales/top-store-revenue", sales::getTopStoreRevenue);
+        report("sales/full-store-revenue", sales::getFullStoreRevenueStats);
+        report("sales/daily-order-stats", sales::getDailyOrderStats);
+        report("sales/daily-region-revenue", sales::getDailyRevenue);
+        report("sales/payment-by-region", sales::getPaymentByRegion);
+        report("sales/region-order-breakdown", sales::getRegionOrderBreakdown);
+        report("sales/region-order-breakdown-table", sales::getRegionOrderBreakdownTable);
+        report("sales/overall-order-summary", sales::getOverallOrderSummary);
+        report("sales/overall-summary", sales::getOverallSummary);
+        report("sales/top-spenders", sales::getTopCustomersBySpending);
+
+        // ===== /api/customer-sale =====
+        report("customer-sale/new-customer-lineChart", customers::getNewCustomerReport);
+        report("customer-sale/old-customer-lineChart", customers::getOldCustomerReport);
+        report("customer-sale/gender-ratio", customers::getGenderRatio);
+        report("customer-sale/customer-summary", customers::calculateCustomerSummary);
+        report("customer-sale/customer-type-trend", customers::getCustomerTypeTrend);
+        report("customer-sale/customer-source-trend", customers::getCustomerSourceTrend);
+        report("customer-sale/app-download-status", customers::calculateAppDownloadStatus);
+        widgets.put("customer-sale/customer-old-new-order-trends",
+                scope -> customers.calculateCustomerOrderTrends(transactions(scope, customers)));
+        widgets.put("customer-sale/customer-old-new-order-pieChart",
+                scope -> customers.calculateCustomerOrderSummary(transactions(scope, customers)));
+        report("customer-sale/app-download-pieChart", r -> customers.calculateAppDownloadSummary(r.getFromDate(), r.getToDate()));
+        report("customer-sale/gender-distribution", r -> customers.calculateGenderSummary(r.getFromDate(), r.getToDate()));
+        report("customer-sale/gender-revenue", r -> customers.calculateGenderRevenue(r.getFromDate(), r.getToDate()));
+        report("customer-sale/payment-percent-new", r -> customers.calculatePaymentStatus(r, true));
+        report("customer-sale/payment-percent-old", r -> customers.calculatePaymentStatus(r, false));
+        report("customer-sale/unique-customers-comparison", customers::getCustomerSaleRecord);
+        report("customer-sale/facility-hour-service", r -> customers.getHourlyStats(r.getFromDate(), r.getToDate()));
+
+        // ===== /api/service-record =====
+        report("service-record/service-type-breakdown", services::getServiceTypeBreakdown);
+        report("service-record/service-summary", services::getServiceSummary);
+        report("service-record/region", services::getServiceUsageByRegion);
+        report("service-record/shop", services::getServiceUsageByShop);
+        widgets.put("service-record/top10-services-usage",
+                scope -> ServiceRecordService.top10ServiceUsage(serviceByName(scope, services)));
+        widgets.put("service-record/top10-services-revenue",
+                scope -> ServiceRecordService.top10ServicesByRevenue(serviceByName(scope, services)));
+        widgets.put("service-record/bottom3-services-revenue",
+                scope -> ServiceRecordService.bottom3ServiceRevenue(serviceByName(scope, services)));
+        widgets.put("service-record/bottom3-services-usage",
+                scope -> ServiceRecordService.bottom3ServicesUsage(serviceByName(scope, services)));
+        report("service-record/top-table", services::getTopServiceTable);
+
+        // ===== /api/booking =====
+        report("booking/booking-status-stats", r -> bookings.getBookingStatusStats(r.getFromDate(), r.getToDate()));
+        report("booking/customer-status-ratio", r -> bookings.getCustomerStatusRatio(r.getFromDate(), r.getToDate()));
+        report("booking/top-customers", r -> bookings.getTopCustomers(r.getFromDate(), r.getToDate()));
+        report("booking/top-booking", r -> bookings.getTopBookingEmployee(r.getFromDate(), r.getToDate()));
+    }
+
+    public Widget get(String id) {
+        return widgets.get(id);
+    }
+
+    public Set<String> ids() {
+        return widgets.keySet();
+    }
+
+    // Widget chỉ cần khoảng ngày, không dùng chung dữ liệu với widget khác
+    private void report(String id, Function<CustomerReportRequest, ?> fn) {
+        widgets.put(id, scope -> fn.apply(scope.request()));
+    }
+
+    private static PeriodRows regionPeriod(DashboardScope scope, SalesTransactionService sales) {
+        return scope.shared(REGION_PERIOD, () -> sales.regionPeriodRows(scope.request()));
+    }
+
+    private static List<SalesTransaction> transactions(DashboardScope scope, CustomerSaleRecordService customers) {
+        return scope.shared(TRANSACTIONS, () -> customers.findTransactions(scope.request().getFromDate(), scope.request().getToDate()));
+    }
+
+    private static List<Object[]> serviceByName(DashboardScope scope, ServiceRecordService services) {
+        return scope.shared(SERVICE_BY_NAME, () -> services.getServiceNameStats(scope.request()));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Kết quả của query so sánh kỳ hiện tại / kỳ trước chạy một lần trên hợp hai khoảng thời gian
+ * (xem các query *ByPeriod trong repository). Cột đầu tiên của mỗi dòng là {@code period}
+ * ('current' hoặc 'previous'); {@link #of} tách theo cột này và bỏ nó đi, nên phần còn lại
+ * có đúng thứ tự cột như query một kỳ trước đây và code dựng DTO giữ nguyên chỉ số cột.
+ *
+ * <p>Query dạng tổng (không GROUP BY gì ngoài period) trả về 0 dòng cho kỳ không có dữ liệu,
+ * dùng {@link #currentRow}/{@link #previousRow} với giá trị mặc định cho trường hợp đó.
+ */
+public record PeriodRows(List<Object[]> current, List<Object[]> previous) {
+
+    public static final String CURRENT = "current";
+    public static final String PREVIOUS = "previous";
+
+    public static PeriodRows of(List<Object[]> rows) {
+        List<Object[]> current = new ArrayList<>();
+        List<Object[]> previous = new ArrayList<>();
+        for (Object[] row : rows) {
+            Object[] values = Arrays.copyOfRange(row, 1, row.length);
+            if (CURRENT.equals(String.valueOf(row[0]))) {
+                current.add(values);
+            } else if (PREVIOUS.equals(String.valueOf(row[0]))) {
+                previous.add(values);
+            } else {
+                throw new IllegalStateException("Giá trị period không hợp lệ: " + row[0]);
+            }
+        }
+        return new PeriodRows(current, previous);
+    }
+
+    public Object[] currentRow(Object... empty) {
+        return current.isEmpty() ? empty : current.get(0);
+    }
+
+    public Object[] previousRow(Object... empty) {
+        return previous.isEmpty() ? empty : previous.get(0);
+    }
+}
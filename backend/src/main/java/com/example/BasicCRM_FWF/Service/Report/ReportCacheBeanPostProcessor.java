@@ -0,0 +1,62 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gắn {@link ReportResultCache} vào các bean có hàm {@link ReportCached}. Bean đã là proxy (vd. @Transactional)
+ * thì thêm advisor vào proxy sẵn có, nếu không thì bọc bằng proxy CGLIB.
+ * Cache được lấy lười qua ObjectProvider để post-processor không kéo MeterRegistry khởi tạo sớm.
+ */
+@Component
+public class ReportCacheBeanPostProcessor implements BeanPostProcessor, Ordered {
+
+    private final ObjectProvider<ReportResultCache> cache;
+
+    public ReportCacheBeanPostProcessor(ObjectProvider<ReportResultCache> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if (!hasCachedMethod(targetClass)) return bean;
+
+        MethodInterceptor interceptor = invocation -> cache.getObject().invoke(invocation);
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                new AnnotationMatchingPointcut(null, ReportCached.class, true), interceptor);
+
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvisor(advisor);
+            return bean;
+        }
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        return factory.getProxy(targetClass.getClassLoader());
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    private static boolean hasCachedMethod(Class<?> type) {
+        AtomicBoolean found = new AtomicBoolean();
+        ReflectionUtils.doWithMethods(type, m -> found.set(true),
+                m -> !found.get() && AnnotatedElementUtils.hasAnnotation(m, ReportCached.class));
+        return found.get();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import java.lang.annotation.*;
+
+/**
+ * Đánh dấu hàm báo cáo có kết quả chỉ phụ thuộc tham số (khoảng ngày + cờ đơn giản), được cache bởi
+ * {@link ReportResultCache}. Tham số hỗ trợ: CustomerReportRequest, LocalDateTime, LocalDate, String, số, boolean, enum;
+ * gặp kiểu khác thì gọi thẳng hàm, không cache.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReportCached {
+}
@@ -0,0 +1,19 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import java.time.LocalDate;
+
+/**
+ * Dữ liệu báo cáo của {@code source} trong [from, to] vừa đổi (import/sync/dựng lại bảng tổng hợp).
+ * {@code from}/{@code to} null: không xác định được khoảng, coi như toàn bộ.
+ * {@code version}: version data_watermark của bảng sau lần ghi này, 0 nếu lần ghi không tăng version.
+ */
+public record ReportDataChangedEvent(String source, LocalDate from, LocalDate to, long version) {
+
+    public static ReportDataChangedEvent all(String source, long version) {
+        return new ReportDataChangedEvent(source, null, null, version);
+    }
+
+    public boolean isUnbounded() {
+        return from == null || to == null;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import com.example.BasicCRM_FWF.Exception.ReportTimeoutException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Chạy song song các query đọc độc lập của một báo cáo rồi gom kết quả.
+ *
+ * <p>Pool cố định, hàng đợi có giới hạn; khi đầy thì thread gọi tự chạy query (báo cáo chậm lại như chạy tuần tự
+ * thay vì bị từ chối). Mỗi {@link Batch} có hạn chót tính từ lúc tạo: quá hạn thì huỷ các query còn lại và ném
+ * {@link ReportTimeoutException}. SecurityContext của request được mang sang thread chạy query.
+ * Mỗi query là một lần gọi repository riêng (connection riêng, không chung transaction với nơi gọi),
+ * nên số thread phải nhỏ hơn pool connection.
+ * Mỗi query chạy trong transaction chỉ đọc có timeout bằng thời gian còn lại tới hạn chót; Spring đặt timeout đó
+ * xuống statement JDBC/JPA nên query quá hạn bị MySQL huỷ, trả lại thread và connection (cancel(true) chỉ ngắt thread).
+ * Batch tạo từ chính một thread của pool (vd. widget của dashboard gọi service có fan-out) chạy query ngay trên
+ * thread đó, tránh thread của pool chờ lẫn nhau đến hết hạn.
+ *
+ * <p>Metric: {@code report.query} (timer theo tên query, tag outcome), {@code executor.*} với name = report-query.
+ */
+@Slf4j
+@Component
+public class ReportQueryExecutor {
+
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+    private final long timeoutMs;
+
+    public ReportQueryExecutor(MeterRegistry meterRegistry,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${application.report-query.threads:6}") int threads,
+                               @Value("${application.report-query.queue-capacity:64}") int queueCapacity,
+                               @Value("${application.report-query.timeout-ms:15000}") long timeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.transactionManager = transactionManager;
+        this.timeoutMs = timeoutMs;
+
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(() -> {
+                        WORKER.set(true);
+                        r.run();
+                    }, "report-query-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "report-query");
+    }
+
+    /** Nhóm query mới với hạn chót mặc định. */
+    public Batch batch() {
+        return new Batch(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public final class Batch {
+
+        private final long deadlineNanos;
+        private final List<Future<?>> futures = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+
+        private Batch(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /** Hạn chót theo {@link System#nanoTime()}. */
+        public long deadlineNanos() {
+            return deadlineNanos;
+        }
+
+        /** Gửi query; giá trị đọc được qua supplier sau khi {@link #await()}. */
+        public <T> Supplier<T> submit(String name, Callable<T> query) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Callable<T> timed = () -> {
+                String outcome = "success";
+                try {
+                    return callBeforeDeadline(query);
+                } catch (Exception e) {
+                    outcome = "error";
+                    throw e;
+                } finally {
+                    sample.stop(meterRegistry.timer("report.query", "name", name, "outcome", outcome));
+                }
+            };
+            Future<T> future;
+            if (WORKER.get()) {
+                FutureTask<T> task = new FutureTask<>(timed);
+                task.run();
+                future = task;
+            } else {
+                future = executor.submit(new DelegatingSecurityContextCallable<>(timed, SecurityContextHolder.getContext()));
+            }
+            futures.add(future);
+            names.add(name);
+            return () -> {
+                try {
+                    return future.get(0, TimeUnit.NANOSECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Chưa await() hoặc query " + name + " lỗi", e);
+                }
+            };
+        }
+
+        /** Chờ mọi query xong; lỗi của query được ném lại nguyên gốc nếu là RuntimeException. */
+        public void await() {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    cancelAll();
+                    meterRegistry.counter("report.query.timeout", "name", names.get(i)).increment();
+                    throw new ReportTimeoutException("Báo cáo quá thời gian chờ (query " + names.get(i) + ")");
+                } catch (InterruptedException e) {
+                    cancelAll();
+                    Thread.currentThread().interrupt();
+                    throw new ReportTimeoutException("Báo cáo bị huỷ");
+                } catch (ExecutionException e) {
+                    cancelAll();
+                    if (isTimeout(e.getCause())) {
+                        meterRegistry.counter("report.query.timeout", "name", names.get(i)).increment();
+                        throw new ReportTimeoutException("Báo cáo quá thời gian chờ (query " + names.get(i) + ")");
+                    }
+                    if (e.getCause() instanceof RuntimeException re) throw re;
+                    throw new IllegalStateException("Query " + names.get(i) + " lỗi", e.getCause());
+                }
+            }
+        }
+
+        private void cancelAll() {
+            for (Future<?> f : futures) f.cancel(true);
+        }
+
+        // Transaction chỉ đọc, timeout (giây, làm tròn lên) = thời gian còn lại của batch
+        private <T> T callBeforeDeadline(Callable<T> query) throws Exception {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMs <= 0) throw new TransactionTimedOutException("Hết hạn trước khi chạy query");
+
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.setTimeout((int) Math.max(1, (remainingMs + 999) / 1000));
+            try {
+                return tx.execute(status -> {
+                    try {
+                        return query.call();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new UndeclaredThrowableException(e);
+                    }
+                });
+            } catch (UndeclaredThrowableException e) {
+                throw (Exception) e.getUndeclaredThrowable();
+            }
+        }
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof QueryTimeoutException || t instanceof TransactionTimedOutException
+                    || t instanceof jakarta.persistence.QueryTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
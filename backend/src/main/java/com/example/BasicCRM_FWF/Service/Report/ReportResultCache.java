@@ -0,0 +1,263 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
+import com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordService;
+import com.example.BasicCRM_FWF.Service.DataVersionTracker;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache kết quả các hàm {@link ReportCached} trong bộ nhớ: LRU giới hạn theo số entry và tổng "trọng lượng"
+ * (ước lượng theo số phần tử của kết quả).
+ *
+ * <p>Khoá = lớp + hàm + tham số, khoảng ngày được chuẩn hoá (00:00 -> ngày, từ 23:59:59 trở đi -> cuối ngày).
+ * Mỗi entry nhớ khoảng ngày dữ liệu nó đọc, mở rộng về trước thêm kỳ so sánh của {@link CustomerSaleRecordService#getResult}.
+ * {@link ReportDataChangedEvent} (sau commit) xoá các entry giao với khoảng ngày bị đổi; bảng được join không theo ngày
+ * (customer_sale_record, app_usage_record) và sự kiện không có khoảng xoá toàn bộ.
+ * Lần tính bắt đầu trước một lần xoá không được ghi vào cache (so generation), tránh ghi lại dữ liệu cũ.
+ * Ghi từ instance khác (hoặc đường ghi không phát sự kiện) được phát hiện qua version data_watermark, đọc tối đa mỗi
+ * {@code application.report-cache.version-check-ms}: version tăng mà không có sự kiện tương ứng thì xoá toàn bộ
+ * (không biết khoảng ngày), nên kết quả cũ sống tối đa chừng đó sau lần ghi.
+ *
+ * <p>Cache giữ bản sao riêng của kết quả và trả về một bản sao mới mỗi lần trúng ({@link ReportResults#copy}),
+ * người gọi sửa kết quả không ảnh hưởng lần gọi sau.
+ *
+ * <p>Metric: report.cache.gets{result=hit|miss}, report.cache.evictions{cause=size|invalidated},
+ * report.cache.size, report.cache.weight (xem /actuator/metrics).
+ */
+@Slf4j
+@Component
+public class ReportResultCache {
+
+    private static final Set<String> UNBOUNDED_SOURCES = Set.of(
+            DataWatermarkService.CUSTOMER_SALE_RECORD, "app_usage_record");
+
+    private record Entry(Object value, LocalDate from, LocalDate to, long weight) {
+    }
+
+    private record Key(String value, LocalDate from, LocalDate to) {
+    }
+
+    private final DataWatermarkService watermarkService;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long versionCheckNanos;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalWeight;
+    private final AtomicLong generation = new AtomicLong();
+    // Version data_watermark đã phản ánh, cập nhật khi giữ khoá của cache
+    private final DataVersionTracker versions = new DataVersionTracker();
+    private final AtomicLong lastVersionCheck = new AtomicLong(System.nanoTime() - Long.MAX_VALUE / 2);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter invalidations;
+
+    public ReportResultCache(MeterRegistry meterRegistry,
+                             DataWatermarkService watermarkService,
+                             @Value("${application.report-cache.enabled:true}") boolean enabled,
+                             @Value("${application.report-cache.max-entries:1000}") int maxEntries,
+                             @Value("${application.report-cache.max-weight:500000}") long maxWeight,
+                             @Value("${application.report-cache.version-check-ms:1000}") long versionCheckMs) {
+        this.watermarkService = watermarkService;
+        this.enabled = enabled;
+        this.versionCheckNanos = TimeUnit.MILLISECONDS.toNanos(versionCheckMs);
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.hits = meterRegistry.counter("report.cache.gets", "result", "hit");
+        this.misses = meterRegistry.counter("report.cache.gets", "result", "miss");
+        this.sizeEvictions = meterRegistry.counter("report.cache.evictions", "cause", "size");
+        this.invalidations = meterRegistry.counter("report.cache.evictions", "cause", "invalidated");
+        Gauge.builder("report.cache.size", this, c -> c.size()).register(meterRegistry);
+        Gauge.builder("report.cache.weight", this, c -> c.weight()).register(meterRegistry);
+    }
+
+    /** Gọi từ interceptor của {@link ReportCacheBeanPostProcessor}. */
+    Object invoke(MethodInvocation invocation) throws Throwable {
+        Key key = enabled ? key(invocation.getMethod(), invocation.getArguments()) : null;
+        if (key == null) return invocation.proceed();
+
+        checkVersions();
+        synchronized (this) {
+            Entry entry = entries.get(key.value());
+            if (entry != null) {
+                hits.increment();
+                return ReportResults.copy(entry.value());
+            }
+        }
+        misses.increment();
+        long startGeneration = generation.get();
+        Object value = invocation.proceed();
+        // Cache giữ bản riêng: người gọi có thể sửa value
+        put(key, ReportResults.copy(value), startGeneration);
+        return value;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDataChanged(ReportDataChangedEvent event) {
+        boolean all = event.isUnbounded() || UNBOUNDED_SOURCES.contains(event.source());
+        int removed = 0;
+        synchronized (this) {
+            versions.observe(event.source(), event.version());
+            generation.incrementAndGet();
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (all || e.from() == null
+                        || (!e.from().isAfter(event.to()) && !e.to().isBefore(event.from()))) {
+                    totalWeight -= e.weight();
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        invalidations.increment(removed);
+        if (removed > 0) {
+            log.debug("Report cache: {} entries invalidated by {} [{} -> {}]", removed, event.source(), event.from(), event.to());
+        }
+    }
+
+    // Mỗi version-check-ms một thread đọc version; version tăng mà không có sự kiện tương ứng thì xoá toàn bộ
+    private void checkVersions() {
+        long last = lastVersionCheck.get();
+        long now = System.nanoTime();
+        if (now - last < versionCheckNanos || !lastVersionCheck.compareAndSet(last, now)) return;
+
+        Map<String, Long> current;
+        try {
+            current = watermarkService.versions();
+        } catch (RuntimeException e) {
+            log.warn("Report cache: cannot read data_watermark versions, clearing: {}", e.getMessage());
+            clear();
+            return;
+        }
+        synchronized (this) {
+            boolean explained = true;
+            for (Map.Entry<String, Long> e : current.entrySet()) {
+                explained &= versions.advance(e.getKey(), e.getValue());
+            }
+            if (!explained) {
+                // Xoá cả khi rỗng: tăng generation để lần tính đang chạy không ghi kết quả cũ
+                if (!entries.isEmpty()) {
+                    log.debug("Report cache: data_watermark changed outside this instance, clearing {} entries", entries.size());
+                }
+                clear();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        invalidations.increment(entries.size());
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    private synchronized void put(Key key, Object value, long startGeneration) {
+        if (generation.get() != startGeneration) return; // dữ liệu đã đổi trong lúc tính
+        long weight = weigh(value);
+        if (weight > maxWeight / 10) return; // một kết quả quá lớn không được chiếm phần lớn cache
+
+        Entry old = entries.put(key.value(), new Entry(value, key.from(), key.to(), weight));
+        if (old != null) totalWeight -= old.weight();
+        totalWeight += weight;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && it.hasNext()) {
+            totalWeight -= it.next().weight();
+            it.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    private static Key key(Method method, Object[] args) {
+        StringBuilder sb = new StringBuilder(method.getDeclaringClass().getSimpleName()).append('#').append(method.getName());
+        LocalDateTime min = null;
+        LocalDateTime max = null;
+        for (Object arg : args) {
+            sb.append('|');
+            if (arg instanceof CustomerReportRequest r) {
+                if (r.getFromDate() == null || r.getToDate() == null) return null;
+                sb.append(normalize(r.getFromDate())).append("..").append(normalize(r.getToDate()));
+                min = earliest(min, r.getFromDate());
+                max = latest(max, r.getToDate());
+            } else if (arg instanceof LocalDateTime t) {
+                sb.append(normalize(t));
+                min = earliest(min, t);
+                max = latest(max, t);
+            } else if (arg instanceof LocalDate d) {
+                sb.append(d);
+                min = earliest(min, d.atStartOfDay());
+                max = latest(max, d.atTime(LocalTime.MAX));
+            } else if (arg == null || arg instanceof String || arg instanceof Number
+                    || arg instanceof Boolean || arg instanceof Enum<?>) {
+                sb.append(arg);
+            } else {
+                return null;
+            }
+        }
+        if (min == null) return new Key(sb.toString(), null, null);
+
+        // Báo cáo so sánh đọc cả kỳ trước: mở rộng khoảng phụ thuộc về trước
+        LocalDateTime prevFrom = CustomerSaleRecordService.getResult(new CustomerReportRequest(min, max)).prevFrom();
+        return new Key(sb.toString(), prevFrom.toLocalDate(), max.toLocalDate());
+    }
+
+    private static String normalize(LocalDateTime t) {
+        LocalTime time = t.toLocalTime();
+        if (time.equals(LocalTime.MIDNIGHT)) return t.toLocalDate().toString();
+        if (!time.isBefore(LocalTime.of(23, 59, 59))) return t.toLocalDate() + "~";
+        return t.toString();
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isAfter(a) ? b : a;
+    }
+
+    // Ước lượng: số phần tử (đệ quy một mức cho Map/Collection), tối thiểu 1
+    private static long weigh(Object value) {
+        if (value instanceof Collection<?> c) {
+            long w = 1;
+            for (Object o : c) w += o instanceof Collection<?> inner ? inner.size() + 1 : 1;
+            return w;
+        }
+        if (value instanceof Map<?, ?> m) {
+            long w = 1;
+            for (Object o : m.values()) w += o instanceof Collection<?> inner ? inner.size() + 1 : 1;
+            return w;
+        }
+        if (value instanceof PeriodRows p) return p.current().size() + p.previous().size() + 1L;
+        return 1;
+    }
+}
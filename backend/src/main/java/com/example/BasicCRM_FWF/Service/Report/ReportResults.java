@@ -0,0 +1,95 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import org.springframework.objenesis.SpringObjenesis;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+
+/**
+ * Bản sao sâu của kết quả báo cáo cho {@link ReportResultCache}: cache giữ một bản riêng và mỗi lần trả về một bản mới,
+ * nên người gọi sort/cắt/sửa kết quả không làm đổi giá trị đã cache.
+ * List/Set/Map/mảng được chép từng phần tử, record dựng lại qua constructor chính tắc, DTO chép từng field
+ * (tạo instance không qua constructor vì không phải DTO nào cũng có constructor rỗng). Giá trị bất biến và lớp JDK
+ * khác dùng lại.
+ */
+final class ReportResults {
+
+    private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+    private ReportResults() {
+    }
+
+    static Object copy(Object value) {
+        if (value == null || isImmutable(value)) return value;
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object o : list) copy.add(copy(o));
+            return copy;
+        }
+        if (value instanceof Set<?> set) {
+            @SuppressWarnings("unchecked")
+            Set<Object> copy = set instanceof SortedSet<?> sorted
+                    ? new TreeSet<>((Comparator<Object>) sorted.comparator()) : new LinkedHashSet<>();
+            for (Object o : set) copy.add(copy(o));
+            return copy;
+        }
+        if (value instanceof Map<?, ?> map) {
+            @SuppressWarnings("unchecked")
+            Map<Object, Object> copy = map instanceof SortedMap<?, ?> sorted
+                    ? new TreeMap<>((Comparator<Object>) sorted.comparator()) : new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, copy(v)));
+            return copy;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            for (int i = 0; i < length; i++) Array.set(copy, i, copy(Array.get(value, i)));
+            return copy;
+        }
+        if (value instanceof Date date) return date.clone(); // java.sql.Date/Timestamp trong dòng Object[]
+        if (value instanceof Record record) return copyRecord(record);
+        // Lớp khác của JDK: không chép được qua reflection, coi như giá trị lá
+        if (value.getClass().getModule().isNamed()) return value;
+        return copyBean(value);
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Enum<?> || value instanceof TemporalAccessor || value instanceof UUID
+                || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Float
+                || value instanceof Short || value instanceof Byte
+                || value instanceof java.math.BigDecimal || value instanceof java.math.BigInteger;
+    }
+
+    private static Object copyRecord(Record record) {
+        RecordComponent[] components = record.getClass().getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+        Object[] args = new Object[components.length];
+        try {
+            for (int i = 0; i < components.length; i++) {
+                types[i] = components[i].getType();
+                components[i].getAccessor().setAccessible(true);
+                args[i] = copy(components[i].getAccessor().invoke(record));
+            }
+            Constructor<?> constructor = record.getClass().getDeclaredConstructor(types);
+            constructor.setAccessible(true);
+            return constructor.newInstance(args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Không chép được kết quả " + record.getClass().getName(), e);
+        }
+    }
+
+    private static Object copyBean(Object value) {
+        Object copy = OBJENESIS.newInstance(value.getClass());
+        ReflectionUtils.doWithFields(value.getClass(), field -> {
+            ReflectionUtils.makeAccessible(field);
+            field.set(copy, copy(field.get(value)));
+        }, field -> !Modifier.isStatic(field.getModifiers()));
+        return copy;
+    }
+}
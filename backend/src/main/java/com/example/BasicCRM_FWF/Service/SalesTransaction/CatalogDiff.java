@@ -0,0 +1,68 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Báo cáo diff của một lần import danh mục dịch vụ: bao nhiêu mã mới, bao nhiêu dòng trùng y hệt,
+ * và các dòng xung đột (không ghi) kèm bản ghi đang có để đối chiếu.
+ * Thread import ghi, API job đọc song song nên các getter trả bản sao.
+ */
+public class CatalogDiff {
+
+    public static final int MAX_SAMPLES = 500;
+
+    public enum ConflictReason {
+        /** Mã đã có nhưng tên, giá hoặc nhóm khác. */
+        CODE_EXISTS_WITH_DIFFERENT_DATA,
+        /** Tên đã có dưới một mã khác. */
+        NAME_EXISTS_UNDER_OTHER_CODE
+    }
+
+    public record Entry(int rowNum, String code, String name, BigDecimal price, String category) {}
+
+    /** {@code existingId == null}: bản ghi đang có là một dòng phía trên trong cùng file. */
+    public record Conflict(Entry incoming, ConflictReason reason, Long existingId, String existingCode,
+                           String existingName, BigDecimal existingPrice, String existingCategory) {}
+
+    private int added;
+    private int unchanged;
+    private int conflicting;
+    private final List<Entry> addedSamples = new ArrayList<>();
+    private final List<Conflict> conflicts = new ArrayList<>();
+
+    synchronized void added(Entry entry) {
+        added++;
+        if (addedSamples.size() < MAX_SAMPLES) addedSamples.add(entry);
+    }
+
+    synchronized void unchanged() {
+        unchanged++;
+    }
+
+    synchronized void conflict(Conflict conflict) {
+        conflicting++;
+        if (conflicts.size() < MAX_SAMPLES) conflicts.add(conflict);
+    }
+
+    public synchronized int getAdded() {
+        return added;
+    }
+
+    public synchronized int getUnchanged() {
+        return unchanged;
+    }
+
+    public synchronized int getConflicting() {
+        return conflicting;
+    }
+
+    public synchronized List<Entry> getAddedSamples() {
+        return new ArrayList<>(addedSamples);
+    }
+
+    public synchronized List<Conflict> getConflicts() {
+        return new ArrayList<>(conflicts);
+    }
+}
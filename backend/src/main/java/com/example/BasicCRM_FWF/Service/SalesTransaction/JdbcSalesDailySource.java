@@ -0,0 +1,85 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.Region;
+import com.example.BasicCRM_FWF.Repository.RegionRepository;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/** Đọc sales_daily_rollup, bảng region và version data_watermark cho {@link SalesDailyIndex}. */
+@Component
+@RequiredArgsConstructor
+class JdbcSalesDailySource implements SalesDailyIndex.Source {
+
+    private static final String SELECT_SQL = "SELECT day, facility_id, orders, total_amount, cash_transfer_credit, "
+            + "cash, transfer, credit_card, prepaid_card, wallet, debt FROM sales_daily_rollup";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RegionRepository regionRepository;
+    private final DataWatermarkService watermarkService;
+
+    @Override
+    public long version() {
+        return watermarkService.version(DataWatermarkService.SALES_TRANSACTION);
+    }
+
+    @Override
+    public Map<Long, Region> facilities() {
+        Map<Long, Region> facilities = new HashMap<>();
+        for (Region region : regionRepository.findAll()) facilities.put(region.getId(), region);
+        return facilities;
+    }
+
+    @Override
+    public LocalDate[] dayRange() {
+        Map<String, Object> range = jdbcTemplate.queryForMap("SELECT MIN(day) AS min_day, MAX(day) AS max_day FROM sales_daily_rollup");
+        if (range.get("min_day") == null) return null;
+        return new LocalDate[]{toLocalDate(range.get("min_day")), toLocalDate(range.get("max_day"))};
+    }
+
+    @Override
+    public void rollups(LocalDate from, LocalDate to, Consumer<SalesDailyIndex.Rollup> sink) {
+        if (from == null) {
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                sink.accept(rollup(rs));
+            });
+        } else {
+            jdbcTemplate.query(SELECT_SQL + " WHERE day BETWEEN ? AND ?", rs -> {
+                sink.accept(rollup(rs));
+            }, from, to);
+        }
+    }
+
+    private static SalesDailyIndex.Rollup rollup(ResultSet rs) throws SQLException {
+        long[] v = new long[SalesDailyIndex.Metric.values().length];
+        v[SalesDailyIndex.Metric.ORDERS.ordinal()] = rs.getLong("orders");
+        v[SalesDailyIndex.Metric.TOTAL_AMOUNT.ordinal()] = cents(rs.getBigDecimal("total_amount"));
+        v[SalesDailyIndex.Metric.CASH_TRANSFER_CREDIT.ordinal()] = cents(rs.getBigDecimal("cash_transfer_credit"));
+        v[SalesDailyIndex.Metric.CASH.ordinal()] = cents(rs.getBigDecimal("cash"));
+        v[SalesDailyIndex.Metric.TRANSFER.ordinal()] = cents(rs.getBigDecimal("transfer"));
+        v[SalesDailyIndex.Metric.CREDIT_CARD.ordinal()] = cents(rs.getBigDecimal("credit_card"));
+        v[SalesDailyIndex.Metric.PREPAID_CARD.ordinal()] = cents(rs.getBigDecimal("prepaid_card"));
+        v[SalesDailyIndex.Metric.WALLET.ordinal()] = cents(rs.getBigDecimal("wallet"));
+        v[SalesDailyIndex.Metric.DEBT.ordinal()] = cents(rs.getBigDecimal("debt"));
+        return new SalesDailyIndex.Rollup(rs.getDate("day").toLocalDate(), rs.getLong("facility_id"), v);
+    }
+
+    private static long cents(BigDecimal value) {
+        return value == null ? 0 : value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof Date d ? d.toLocalDate() : (LocalDate) value;
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.*;
+import com.example.BasicCRM_FWF.Repository.RegionRepository;
+import com.example.BasicCRM_FWF.Repository.SalesTransactionRepository;
+import com.example.BasicCRM_FWF.Repository.SyncStateRepository;
+import com.example.BasicCRM_FWF.Service.AuthRealTime.AuthService;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import com.example.BasicCRM_FWF.Service.Import.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Đồng bộ định kỳ đơn bán hàng từ API POS (ban-hang/doanh-so-danh-sach) vào sales_transaction, thay cho upload Excel.
+ *
+ * <p>Mỗi lần chạy kéo các đơn từ ngày của watermark (API lọc theo ngày) tới hôm nay, theo trang,
+ * bỏ các đơn tạo trước {@code watermark - overlap}, rồi ghi theo lô qua cùng đường ghi với import
+ * ({@link ImportKeyIndex} + {@link SalesTransactionBulkWriter}): đơn đã có và không đổi bị bỏ qua,
+ * đơn thay đổi được UPDATE. Watermark chỉ tiến lên (tới CreateDate lớn nhất đã ghi) khi cả lần chạy thành công;
+ * nếu có lô ghi lỗi thì chỉ tiến tới CreateDate sớm nhất của lô đó (trạng thái PARTIAL) để lần sau kéo lại.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PosSalesSyncService {
+
+    public static final String SYNC_NAME = "pos-sales";
+
+    private static final String URL = "https://app.facewashfox.com/api/v3/r23/ban-hang/doanh-so-danh-sach";
+    private static final DateTimeFormatter API_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter CREATE_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuthService authService;
+    private final RegionRepository regionRepository;
+    private final SalesTransactionRepository salesTransactionRepository;
+    private final SyncStateRepository syncStateRepository;
+    private final ServiceTypeResolver serviceTypeResolver;
+    private final SalesTransactionBulkWriter bulkWriter;
+    private final CustomerKeyRegistry customerKeyRegistry;
+
+    @Value("${application.sales-sync.enabled:false}")
+    private boolean enabled;
+
+    @Value("${application.sales-sync.page-size:500}")
+    private int pageSize;
+
+    // Lần chạy đầu (chưa có watermark) kéo lùi bao nhiêu ngày
+    @Value("${application.sales-sync.initial-days:3}")
+    private int initialDays;
+
+    // Kéo lại phần đuôi trước watermark để bắt đơn được sửa/ghi trễ
+    @Value("${application.sales-sync.overlap-minutes:30}")
+    private int overlapMinutes;
+
+    // Chặn vòng lặp vô hạn nếu API bỏ qua tham số phân trang
+    @Value("${application.sales-sync.max-pages:2000}")
+    private int maxPages;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // maxWritten: CreateDate lớn nhất đã kéo về; earliestFailed: CreateDate sớm nhất của lô có dòng ghi lỗi
+    private record PullResult(LocalDateTime maxWritten, LocalDateTime earliestFailed) {
+    }
+
+    @Scheduled(fixedDelayString = "${application.sales-sync.interval-ms:300000}",
+            initialDelayString = "${application.sales-sync.initial-delay-ms:60000}")
+    public void scheduledSync() {
+        if (!enabled) return;
+        try {
+            sync();
+        } catch (IllegalStateException e) {
+            log.info("POS sales sync skipped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Chạy một lần đồng bộ.
+     * @throws IllegalStateException nếu đang có lần đồng bộ khác chạy
+     */
+    public ImportProgress sync() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Đồng bộ doanh số đang chạy");
+        }
+        SyncState state = syncStateRepository.findById(SYNC_NAME).orElseGet(() -> {
+            SyncState s = new SyncState();
+            s.setName(SYNC_NAME);
+            return s;
+        });
+        ImportProgress progress = new ImportProgress();
+        progress.start();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime watermark = state.getWatermark() != null
+                    ? state.getWatermark()
+                    : now.toLocalDate().minusDays(initialDays).atStartOfDay();
+            PullResult result = pull(watermark.minusMinutes(overlapMinutes), now, progress, () -> {});
+
+            LocalDateTime newWatermark = result.maxWritten();
+            if (result.earliestFailed() != null && (newWatermark == null || result.earliestFailed().isBefore(newWatermark))) {
+                newWatermark = result.earliestFailed();
+            }
+            state.setWatermark(newWatermark != null && newWatermark.isAfter(watermark) ? newWatermark : watermark);
+            state.setLastStatus(progress.getFailed() > 0 ? "PARTIAL" : "SUCCESS");
+            state.setLastMessage(String.format("success=%d, unchanged=%d, failed=%d, skipped=%d",
+                    progress.getSuccess(), progress.getUnchanged(), progress.getFailed(), progress.getSkipped()));
+            log.info("POS sales sync done, watermark {}: {}", state.getWatermark(), state.getLastMessage());
+            return progress;
+        } catch (Exception e) {
+            log.error("POS sales sync failed: {}", e.getMessage(), e);
+            state.setLastStatus("FAILED");
+            String message = String.valueOf(e.getMessage());
+            state.setLastMessage(message.length() > 500 ? message.substring(0, 500) : message);
+            throw new RuntimeException("Đồng bộ doanh số thất bại: " + e.getMessage(), e);
+        } finally {
+            progress.finish();
+            state.setLastRunAt(LocalDateTime.now());
+            syncStateRepository.save(state);
+            running.set(false);
+        }
+    }
+
+    public Optional<SyncState> getState() {
+        return syncStateRepository.findById(SYNC_NAME);
+    }
+
+    /**
+     * Kéo lại toàn bộ đơn của các ngày [from, to] (backfill), không đụng tới watermark.
+     * {@code beforeRequest} được gọi trước mỗi lần gọi API (giới hạn tốc độ của bên gọi).
+     */
+    public void syncRange(LocalDate from, LocalDate to, ImportProgress progress, Runnable beforeRequest) throws Exception {
+        pull(from.atStartOfDay(), to.atStartOfDay(), progress, beforeRequest);
+    }
+
+    // Kéo và ghi từng trang
+    private PullResult pull(LocalDateTime since, LocalDateTime until, ImportProgress progress,
+                               Runnable beforeRequest) throws Exception {
+        Map<String, Region> regionMap = regionRepository.findAll().stream()
+                .collect(Collectors.toMap(r -> r.getShop_name().trim().toLowerCase(), Function.identity(), (a, b) -> a));
+        ServiceTypeIndex serviceTypes = serviceTypeResolver.load();
+        ImportKeyIndex<SalesTransaction> importKeys = new ImportKeyIndex<>(DataWatermarkService.SALES_TRANSACTION,
+                salesTransactionRepository::findImportKeysBetween, salesTransactionRepository::findByImportKeys);
+
+        LocalDateTime maxCreated = null;
+        LocalDateTime earliestFailed = null;
+        String previousFirstId = null;
+        int rowNum = 0;
+        for (int page = 1; ; page++) {
+            if (page > maxPages) {
+                throw new IllegalStateException("Vượt quá " + maxPages + " trang, dừng đồng bộ");
+            }
+            beforeRequest.run();
+            JsonNode items = fetchPage(since.format(API_DATE), until.format(API_DATE), page);
+            // API bỏ qua Pi thì trả lại cùng trang đầu mãi
+            String firstId = items.isEmpty() ? null : items.get(0).path("ID").asText(null);
+            if (page > 1 && firstId != null && firstId.equals(previousFirstId)) {
+                throw new IllegalStateException("API trả lại cùng một trang (trang " + page + "), dừng đồng bộ");
+            }
+            previousFirstId = firstId;
+
+            List<RowImporter.ParsedRow<SalesTransaction>> batch = new ArrayList<>();
+            for (JsonNode item : items) {
+                rowNum++;
+                try {
+                    SalesTransaction st = map(item, since, regionMap, serviceTypes, rowNum, progress);
+                    if (st == null) continue;
+                    batch.add(new RowImporter.ParsedRow<>(rowNum, st));
+                    if (maxCreated == null || st.getOrderDate().isAfter(maxCreated)) maxCreated = st.getOrderDate();
+                } catch (SkipRowException e) {
+                    progress.skipped(rowNum, e.getMessage());
+                    progress.issue(e.getIssue(), rowNum, e.getMessage());
+                } catch (InvalidRowException e) {
+                    progress.failed(rowNum, e.getMessage());
+                    progress.issue(e.getIssue(), rowNum, e.getMessage());
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                int failedBefore = progress.getFailed();
+                importKeys.writeBatch(batch, progress, list -> {
+                    customerKeyRegistry.assign(list, SalesTransaction::getPhoneNumber, SalesTransaction::setCustomerKey);
+                    bulkWriter.write(list);
+                });
+                if (progress.getFailed() > failedBefore) {
+                    for (RowImporter.ParsedRow<SalesTransaction> row : batch) {
+                        LocalDateTime t = row.value().getOrderDate();
+                        if (earliestFailed == null || t.isBefore(earliestFailed)) earliestFailed = t;
+                    }
+                }
+            }
+            if (items.size() < pageSize) break;
+        }
+        return new PullResult(maxCreated, earliestFailed);
+    }
+
+    private JsonNode fetchPage(String dateStart, String dateEnd, int page) throws Exception {
+        String token = authService.getToken();
+
+        // Body giống RealTimeService, thêm phân trang
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("StockID", "");
+        payload.put("DateStart", dateStart);
+        payload.put("DateEnd", dateEnd);
+        payload.put("Pi", page);
+        payload.put("Ps", pageSize);
+        payload.put("Voucher", "");
+        payload.put("Payment", "");
+        payload.put("IsMember", "");
+        payload.put("MemberID", "");
+        payload.put("SourceName", "");
+        payload.put("ShipCode", "");
+        payload.put("ShowsX", "2");
+        payload.put("DebtFrom", null);
+        payload.put("DebtTo", null);
+        payload.put("no", "");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Accept", "application/json, text/plain, */*");
+        headers.set("Authorization", "Bearer " + token);
+        headers.set("User-Agent", "Mozilla/5.0");
+        headers.set("Referer", "https://app.facewashfox.com/ban-hang/doanh-so");
+
+        ResponseEntity<String> response = restTemplate.exchange(URL, HttpMethod.POST, new HttpEntity<>(payload, headers), String.class);
+        if (response.getStatusCode() != HttpStatus.OK) {
+            throw new RuntimeException("API error: " + response.getStatusCode());
+        }
+        return objectMapper.readTree(response.getBody()).path("result").path("Items");
+    }
+
+    /**
+     * Một đơn của API -> SalesTransaction. Khoá tự nhiên và fingerprint ({@link SalesTransactionFingerprint}) giống
+     * import Excel, nên đơn không đổi (kể cả đơn đã nạp từ Excel) không bị ghi lại. Tiền thiếu ghi 0 như import Excel.
+     * Trả về {@code null} cho đơn tạo trước {@code since}.
+     */
+    private SalesTransaction map(JsonNode item, LocalDateTime since, Map<String, Region> regionMap, ServiceTypeIndex serviceTypes,
+                                 int rowNum, ImportProgress progress) {
+        String id = item.path("ID").asText("");
+        String createDate = item.path("CreateDate").asText("");
+        if (id.isEmpty() || createDate.isEmpty()) {
+            throw new InvalidRowException(ImportIssue.MISSING_FIELD, "Thiếu ID hoặc CreateDate");
+        }
+        LocalDateTime orderDate;
+        try {
+            orderDate = LocalDateTime.parse(createDate.length() > 19 ? createDate.substring(0, 19) : createDate, CREATE_DATE);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRowException(ImportIssue.BAD_DATE, "CreateDate không hợp lệ: " + createDate);
+        }
+        if (orderDate.isBefore(since)) return null;
+
+        String shopName = item.path("StockTitle").asText("").trim().toLowerCase();
+        Region facility = regionMap.get(shopName);
+        if (facility == null) {
+            throw new SkipRowException(ImportIssue.UNKNOWN_SHOP, "Không tìm thấy Region cho tên '" + shopName + "'");
+        }
+
+        String orderCode = "#" + id;
+        JsonNode member = item.path("Member");
+        SalesTransaction st = SalesTransaction.builder()
+                .orderCode(parseIntOrNull(id))
+                .importKey(ImportKeyIndex.naturalKey(orderCode, orderDate))
+                .facility(facility)
+                .orderDate(orderDate)
+                .customerName(member.path("FullName").asText(null))
+                .phoneNumber(member.path("MobilePhone").asText(null))
+                .totalAmount(decimal(item, "TotalValue"))
+                .cashTransferCredit(decimal(item, "DaThToan"))
+                .cash(decimal(item, "DaThToan_TM"))
+                .transfer(decimal(item, "DaThToan_CK"))
+                .creditCard(decimal(item, "DaThToan_QT"))
+                .wallet(decimal(item, "DaThToan_Vi"))
+                .prepaidCard(decimal(item, "DaThToan_ThTien"))
+                .debt(decimal(item, "ConNo"))
+                .build();
+
+        // Dòng hàng của đơn: tra dịch vụ bằng cùng resolver với import Excel, gộp số lượng theo dịch vụ
+        Map<ServiceType, Integer> serviceTypeMap = new HashMap<>();
+        for (JsonNode prod : item.path("Prods")) {
+            String title = prod.path("ProdTitle").asText("").trim();
+            if (title.isEmpty()) continue;
+            ServiceType serviceType = serviceTypes.resolve(title);
+            if (serviceType != null) {
+                serviceTypeMap.merge(serviceType, Math.max(prod.path("Qty").asInt(1), 1), Integer::sum);
+            } else {
+                progress.issue(ImportIssue.UNKNOWN_SERVICE, rowNum, "Không tìm thấy dịch vụ '" + title + "'");
+            }
+        }
+        st.setSaleServiceItems(serviceTypeMap.entrySet().stream()
+                .map(e -> SaleServiceItem.builder()
+                        .salesTransaction(st)
+                        .serviceType(e.getKey())
+                        .quantity(e.getValue())
+                        .build())
+                .collect(Collectors.toList()));
+        st.setRowFingerprint(SalesTransactionFingerprint.of(st));
+        return st;
+    }
+
+    private static BigDecimal decimal(JsonNode item, String field) {
+        JsonNode node = item.path(field);
+        return node.isNumber() ? node.decimalValue() : BigDecimal.ZERO;
+    }
+
+    private static Integer parseIntOrNull(String s) {
+        try {
+            return Integer.valueOf(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.Region;
+import com.example.BasicCRM_FWF.Service.DataVersionTracker;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import com.example.BasicCRM_FWF.Service.Report.ReportDataChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bản sao trong bộ nhớ của sales_daily_rollup, đánh chỉ mục theo ngày để cộng bất kỳ khoảng ngày nào mà không
+ * quét lại bảng: mỗi cơ sở giữ một cây Fenwick (prefix sum) cho từng chỉ số, tổng [from, to] = prefix(to) - prefix(from - 1).
+ * Gom theo vùng/cửa hàng/loại cửa hàng bằng cách cộng các cơ sở thuộc cùng nhóm (bảng region).
+ *
+ * <p>Tiền được giữ dạng long theo đơn vị 0.01 (scale của cột DECIMAL), nên cộng/trừ chính xác.
+ * Ngày cũ không đổi trừ khi có import: {@link ReportDataChangedEvent} của sales_transaction đánh dấu khoảng ngày bẩn,
+ * lần đọc kế tiếp chỉ nạp lại rollup của các ngày đó (và bảng region) rồi cộng chênh lệch vào cây.
+ * Ghi từ instance khác hoặc đường ghi không phát sự kiện được phát hiện qua version data_watermark
+ * (đọc tối đa mỗi giây một lần): version tăng mà không có sự kiện tương ứng thì nạp lại toàn bộ.
+ * Sự kiện không có khoảng, ngày nằm ngoài vùng đã cấp phát hoặc khoảng bẩn quá lớn cũng nạp lại toàn bộ.
+ * Bản nạp lại được dựng ngoài khoá rồi mới thay vào, người đọc không phải chờ.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SalesDailyIndex {
+
+    public enum Metric {
+        ORDERS, TOTAL_AMOUNT, CASH_TRANSFER_CREDIT, CASH, TRANSFER, CREDIT_CARD, PREPAID_CARD, WALLET, DEBT
+    }
+
+    public enum Dimension {
+        REGION(Region::getRegion),
+        SHOP(Region::getShop_name),
+        SHOP_TYPE(Region::getShop_type);
+
+        private final Function<Region, String> key;
+
+        Dimension(Function<Region, String> key) {
+            this.key = key;
+        }
+    }
+
+    /** Tổng các chỉ số trên một khoảng ngày (tiền theo đơn vị 0.01). */
+    public record Totals(long[] values) {
+
+        public long orders() {
+            return values[Metric.ORDERS.ordinal()];
+        }
+
+        /** Tổng tiền của chỉ số, {@code null} khi khoảng không có đơn nào (như SUM trên tập rỗng). */
+        public BigDecimal sum(Metric metric) {
+            return orders() > 0 ? BigDecimal.valueOf(values[metric.ordinal()], 2) : null;
+        }
+    }
+
+    /** Một dòng rollup (ngày x cơ sở), chỉ số theo thứ tự {@link Metric}, tiền theo đơn vị 0.01. */
+    record Rollup(LocalDate day, long facilityId, long[] values) {
+    }
+
+    /** Nguồn dữ liệu của index (JDBC trong ứng dụng, bộ nhớ trong test). */
+    interface Source {
+
+        /** Version data_watermark của sales_transaction. */
+        long version();
+
+        /** Bảng region theo id cơ sở. */
+        Map<Long, Region> facilities();
+
+        /** Ngày nhỏ nhất/lớn nhất có rollup, {@code null} nếu bảng rỗng. */
+        LocalDate[] dayRange();
+
+        /** Các dòng rollup trong [from, to], cả bảng nếu {@code from} null. */
+        void rollups(LocalDate from, LocalDate to, Consumer<Rollup> sink);
+    }
+
+    private static final int METRICS = Metric.values().length;
+    // Chừa sẵn chỗ cho ngày mới, hết chỗ thì nạp lại toàn bộ
+    private static final int HEADROOM_DAYS = 366;
+
+    private final Source source;
+
+    // Khoảng giữa hai lần đọc version data_watermark (test đặt 0)
+    long versionCheckNanos = TimeUnit.SECONDS.toNanos(1);
+
+    // Snapshot đang phục vụ: đọc khi giữ read lock; recompute sửa tại chỗ và thay snapshot khi giữ write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Snapshot snapshot;
+    // Chỉ một thread làm mới tại một thời điểm
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile long lastCheckNanos;
+
+    // Khoảng ngày bẩn chờ tính lại và version đã nhận qua sự kiện, cùng dưới pendingLock
+    private final Object pendingLock = new Object();
+    private final List<LocalDate[]> pendingRanges = new ArrayList<>();
+    private boolean reloadPending = true;
+    private final DataVersionTracker versions = new DataVersionTracker();
+
+    /** Tổng trên mọi giao dịch trong [from, to], kể cả giao dịch không gắn cơ sở. */
+    public Totals total(LocalDate from, LocalDate to) {
+        return read(s -> {
+            long[] sum = new long[METRICS];
+            int lo = s.lower(from), hi = s.upper(to);
+            if (lo <= hi) {
+                for (Series series : s.series.values()) series.addRange(sum, lo, hi);
+            }
+            return new Totals(sum);
+        });
+    }
+
+    /**
+     * Tổng theo nhóm trong [from, to], như JOIN region ... GROUP BY trên rollup: chỉ cơ sở có trong bảng region,
+     * bỏ nhóm không có đơn nào. Khoá sắp tăng dần, nhóm NULL đứng đầu.
+     */
+    public Map<String, Totals> totalsBy(Dimension dimension, LocalDate from, LocalDate to) {
+        return read(s -> {
+            Map<String, long[]> sums = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+            int lo = s.lower(from), hi = s.upper(to);
+            if (lo <= hi) {
+                for (Map.Entry<Long, Series> e : s.series.entrySet()) {
+                    Region facility = s.facilities.get(e.getKey());
+                    if (facility == null) continue;
+                    e.getValue().addRange(sums.computeIfAbsent(dimension.key.apply(facility), k -> new long[METRICS]), lo, hi);
+                }
+            }
+            Map<String, Totals> result = new LinkedHashMap<>();
+            sums.forEach((key, sum) -> {
+                if (sum[Metric.ORDERS.ordinal()] > 0) result.put(key, new Totals(sum));
+            });
+            return result;
+        });
+    }
+
+    // Chạy trước ReportResultCache: lần tính lại sau khi cache bị xoá luôn thấy ngày bẩn
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDataChanged(ReportDataChangedEvent event) {
+        if (!DataWatermarkService.SALES_TRANSACTION.equals(event.source())) return;
+        synchronized (pendingLock) {
+            versions.observe(event.source(), event.version());
+            if (event.isUnbounded()) {
+                reloadPending = true;
+            } else {
+                pendingRanges.add(new LocalDate[]{event.from(), event.to()});
+            }
+        }
+    }
+
+    private <T> T read(Function<Snapshot, T> query) {
+        if (refreshDue()) {
+            refreshLock.lock();
+            try {
+                // Thread khác có thể vừa làm mới xong trong lúc chờ
+                if (refreshDue()) refresh();
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            return query.apply(snapshot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Thread đang nạp lại đã dời lastCheckNanos: người đọc khác dùng snapshot cũ, trừ khi có thay đổi đã biết
+    private boolean refreshDue() {
+        synchronized (pendingLock) {
+            if (reloadPending || !pendingRanges.isEmpty()) return true;
+        }
+        return System.nanoTime() - lastCheckNanos >= versionCheckNanos;
+    }
+
+    // Gọi khi giữ refreshLock
+    private void refresh() {
+        lastCheckNanos = System.nanoTime();
+        long version = source.version();
+        boolean reload;
+        List<LocalDate[]> ranges;
+        synchronized (pendingLock) {
+            boolean explained = versions.advance(DataWatermarkService.SALES_TRANSACTION, version);
+            reload = !explained || reloadPending || snapshot == null;
+            ranges = new ArrayList<>(pendingRanges);
+            reloadPending = false;
+            pendingRanges.clear();
+        }
+
+        try {
+            if (!reload && !ranges.isEmpty()) {
+                long dirtyDays = 0;
+                for (LocalDate[] r : ranges) {
+                    if (r[0].isBefore(snapshot.origin) || snapshot.index(r[1]) >= snapshot.days) reload = true;
+                    dirtyDays += ChronoUnit.DAYS.between(r[0], r[1]) + 1;
+                }
+                if (dirtyDays > snapshot.span / 4) reload = true;
+            }
+            if (reload) {
+                Snapshot next = load();
+                lock.writeLock().lock();
+                try {
+                    snapshot = next;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } else if (!ranges.isEmpty()) {
+                Map<Long, Region> facilities = source.facilities();
+                List<Map<Long, long[][]>> fresh = new ArrayList<>();
+                for (LocalDate[] r : ranges) fresh.add(fetch(r[0], r[1]));
+                lock.writeLock().lock();
+                try {
+                    snapshot.facilities = facilities;
+                    for (int i = 0; i < ranges.size(); i++) recompute(ranges.get(i)[0], ranges.get(i)[1], fresh.get(i));
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } else if (snapshot.hasUnknownFacility()) {
+                // Cơ sở mới có doanh số trước khi có dòng region: đọc lại region đến khi thấy
+                Map<Long, Region> facilities = source.facilities();
+                lock.writeLock().lock();
+                try {
+                    snapshot.facilities = facilities;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Index có thể đã lệch một phần: lần đọc sau nạp lại toàn bộ
+            synchronized (pendingLock) {
+                reloadPending = true;
+            }
+            throw e;
+        }
+    }
+
+    private Snapshot load() {
+        Map<Long, Region> facilities = source.facilities();
+        LocalDate[] range = source.dayRange();
+        LocalDate today = LocalDate.now();
+        LocalDate min = range != null ? range[0] : today;
+        LocalDate max = range != null && range[1].isAfter(today) ? range[1] : today;
+
+        int span = (int) ChronoUnit.DAYS.between(min, max) + 1;
+        Snapshot next = new Snapshot(min, span, facilities);
+        int[] rows = {0};
+        source.rollups(null, null, r -> {
+            int day = next.index(r.day());
+            if (day < 0 || day >= next.days) return; // ghi sau lúc đọc dayRange: lần làm mới sau sẽ nạp lại
+            next.series.computeIfAbsent(r.facilityId(), k -> new Series(next.days)).load(day, r.values());
+            rows[0]++;
+        });
+        next.series.values().forEach(Series::build);
+        log.info("Loaded sales daily index: {} rows, {} facilities, {} -> {}", rows[0], next.series.size(), min, max);
+        return next;
+    }
+
+    // Rollup của [from, to] theo cơ sở, vị trí d là ngày from + d
+    private Map<Long, long[][]> fetch(LocalDate from, LocalDate to) {
+        int length = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        Map<Long, long[][]> fresh = new HashMap<>();
+        source.rollups(from, to, r -> fresh.computeIfAbsent(r.facilityId(), k -> new long[length][])
+                [(int) ChronoUnit.DAYS.between(from, r.day())] = r.values());
+        return fresh;
+    }
+
+    // Cộng chênh lệch giữa rollup vừa đọc và giá trị đang có (gọi khi giữ write lock)
+    private void recompute(LocalDate from, LocalDate to, Map<Long, long[][]> fresh) {
+        int lo = snapshot.index(from);
+        int hi = snapshot.index(to);
+        Set<Long> facilityIds = new HashSet<>(snapshot.series.keySet());
+        facilityIds.addAll(fresh.keySet());
+        long[] zero = new long[METRICS];
+        for (Long facilityId : facilityIds) {
+            Series s = snapshot.series.computeIfAbsent(facilityId, k -> new Series(snapshot.days));
+            long[][] perDay = fresh.get(facilityId);
+            for (int d = lo; d <= hi; d++) {
+                long[] now = perDay != null && perDay[d - lo] != null ? perDay[d - lo] : zero;
+                long[] delta = s.point(d);
+                for (int m = 0; m < METRICS; m++) delta[m] = now[m] - delta[m];
+                s.add(d, delta);
+            }
+        }
+    }
+
+    /** Trạng thái index: vùng ngày đã cấp phát, cây theo cơ sở và bảng region. */
+    private static final class Snapshot {
+
+        final LocalDate origin;
+        // Số ngày có dữ liệu lúc nạp (origin -> max(ngày cuối, hôm nay)) và tổng số ngày đã cấp phát
+        final int span;
+        final int days;
+        final Map<Long, Series> series = new HashMap<>();
+        Map<Long, Region> facilities;
+
+        Snapshot(LocalDate origin, int span, Map<Long, Region> facilities) {
+            this.origin = origin;
+            this.span = span;
+            this.days = span + HEADROOM_DAYS;
+            this.facilities = facilities;
+        }
+
+        int index(LocalDate day) {
+            return (int) ChronoUnit.DAYS.between(origin, day);
+        }
+
+        int lower(LocalDate from) {
+            return (int) Math.max(0, ChronoUnit.DAYS.between(origin, from));
+        }
+
+        int upper(LocalDate to) {
+            return (int) Math.min(days - 1L, ChronoUnit.DAYS.between(origin, to));
+        }
+
+        // Cơ sở 0 là giao dịch không gắn cơ sở (COALESCE trong rollup)
+        boolean hasUnknownFacility() {
+            for (Long id : series.keySet()) {
+                if (id != 0 && !facilities.containsKey(id)) return true;
+            }
+            return false;
+        }
+    }
+
+    /** Cây Fenwick cho từng chỉ số của một cơ sở, vị trí i (0-based) là ngày origin + i. */
+    static final class Series {
+
+        private final long[][] tree;
+
+        Series(int days) {
+            tree = new long[METRICS][days + 1];
+        }
+
+        // Lúc nạp toàn bộ: ghi giá trị từng ngày rồi build() một lần, O(n)
+        void load(int day, long[] values) {
+            for (int m = 0; m < METRICS; m++) tree[m][day + 1] += values[m];
+        }
+
+        void build() {
+            for (long[] t : tree) {
+                for (int i = 1; i < t.length; i++) {
+                    int parent = i + (i & -i);
+                    if (parent < t.length) t[parent] += t[i];
+                }
+            }
+        }
+
+        void add(int day, long[] delta) {
+            for (int m = 0; m < METRICS; m++) {
+                if (delta[m] == 0) continue;
+                long[] t = tree[m];
+                for (int i = day + 1; i < t.length; i += i & -i) t[i] += delta[m];
+            }
+        }
+
+        long[] point(int day) {
+            long[] v = new long[METRICS];
+            for (int m = 0; m < METRICS; m++) v[m] = prefix(tree[m], day) - prefix(tree[m], day - 1);
+            return v;
+        }
+
+        void addRange(long[] sum, int lo, int hi) {
+            for (int m = 0; m < METRICS; m++) sum[m] += prefix(tree[m], hi) - prefix(tree[m], lo - 1);
+        }
+
+        // Tổng các ngày [0, day]
+        private static long prefix(long[] t, int day) {
+            long s = 0;
+            for (int i = day + 1; i > 0; i -= i & -i) s += t[i];
+            return s;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Duy trì bảng sales_daily_rollup (ngày x cơ sở). Dữ liệu sales_transaction chỉ đổi qua import nên
+ * {@link SalesTransactionBulkWriter} gọi {@link #subtract}/{@link #add} trong cùng transaction với lô ghi:
+ * giao dịch bị UPDATE được trừ giá trị cũ trước, sau đó toàn bộ giao dịch của lô được cộng giá trị mới.
+ * Delta được tính bằng một câu INSERT ... SELECT ... ON DUPLICATE KEY UPDATE theo danh sách id.
+ *
+ * <p>{@link #rebuild} dựng lại từ sales_transaction (lần đầu chạy hoặc khi nghi lệch số).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesDailyRollupService {
+
+    private static final int IDS_PER_STATEMENT = 1000;
+
+    private static final String SUM_COLUMNS =
+            "total_amount, cash_transfer_credit, cash, transfer, credit_card, prepaid_card, wallet, debt";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataWatermarkService watermarkService;
+
+    /** Cộng giá trị hiện tại trong DB của các giao dịch vào rollup. */
+    public void add(Collection<Long> transactionIds) {
+        apply(transactionIds, 1);
+    }
+
+    /** Trừ giá trị hiện tại trong DB của các giao dịch khỏi rollup (gọi trước khi UPDATE chúng). */
+    public void subtract(Collection<Long> transactionIds) {
+        apply(transactionIds, -1);
+    }
+
+    private void apply(Collection<Long> transactionIds, int sign) {
+        Long[] ids = transactionIds.toArray(new Long[0]);
+        for (int from = 0; from < ids.length; from += IDS_PER_STATEMENT) {
+            int to = Math.min(from + IDS_PER_STATEMENT, ids.length);
+            String where = "id IN (" + String.join(", ", Collections.nCopies(to - from, "?")) + ") AND order_date IS NOT NULL";
+            jdbcTemplate.update(upsertSql(sign, where), (Object[]) Arrays.copyOfRange(ids, from, to));
+        }
+    }
+
+    /** Dựng lại toàn bộ rollup. */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.update("DELETE FROM sales_daily_rollup");
+        int rows = jdbcTemplate.update(upsertSql(1, "order_date IS NOT NULL"));
+        log.info("Rebuilt sales_daily_rollup: {} rows", rows);
+        watermarkService.touch(DataWatermarkService.SALES_TRANSACTION, null, null);
+        return rows;
+    }
+
+    /** Dựng lại rollup của các ngày trong [from, to]. */
+    @Transactional
+    public int rebuild(LocalDate from, LocalDate to) {
+        jdbcTemplate.update("DELETE FROM sales_daily_rollup WHERE day BETWEEN ? AND ?", from, to);
+        int rows = jdbcTemplate.update(upsertSql(1, "order_date >= ? AND order_date < ?"),
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        log.info("Rebuilt sales_daily_rollup {} -> {}: {} rows", from, to, rows);
+        watermarkService.touch(DataWatermarkService.SALES_TRANSACTION, from, to);
+        return rows;
+    }
+
+    // Lần đầu triển khai: bảng rollup rỗng nhưng đã có giao dịch -> dựng từ dữ liệu cũ
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            Integer rollups = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM sales_daily_rollup LIMIT 1) t", Integer.class);
+            Integer sales = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM sales_transaction LIMIT 1) t", Integer.class);
+            if (rollups != null && rollups == 0 && sales != null && sales > 0) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("sales_daily_rollup backfill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Gom theo (ngày, cơ sở) trong bảng dẫn xuất rồi cộng dồn vào dòng rollup sẵn có
+    private static String upsertSql(int sign, String where) {
+        String op = sign < 0 ? "-" : "";
+        StringBuilder select = new StringBuilder("SELECT DATE(order_date) AS d_day, COALESCE(facility_id, 0) AS d_facility, ")
+                .append(op).append("COUNT(*) AS d_orders");
+        StringBuilder update = new StringBuilder("orders = sales_daily_rollup.orders + d.d_orders");
+        for (String column : SUM_COLUMNS.split(", ")) {
+            select.append(", ").append(op).append("COALESCE(SUM(").append(column).append("), 0) AS d_").append(column);
+            update.append(", ").append(column).append(" = COALESCE(sales_daily_rollup.").append(column)
+                    .append(", 0) + d.d_").append(column);
+        }
+        select.append(" FROM sales_transaction WHERE ").append(where)
+                .append(" GROUP BY DATE(order_date), COALESCE(facility_id, 0)");
+
+        return "INSERT INTO sales_daily_rollup (day, facility_id, orders, " + SUM_COLUMNS + ") " +
+                "SELECT * FROM (" + select + ") AS d " +
+                "ON DUPLICATE KEY UPDATE " + update;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.SaleServiceItem;
+import com.example.BasicCRM_FWF.Model.SalesTransaction;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ghi SalesTransaction + SaleServiceItem bằng INSERT nhiều dòng qua JDBC.
+ * Entity dùng IDENTITY nên Hibernate không batch được; ở đây mỗi chunk giao dịch là một câu INSERT,
+ * id sinh ra (generated keys, theo đúng thứ tự VALUES) được gán lại để nối sale_transaction_id cho item.
+ * Giao dịch đã có id (import lại, nội dung đổi) được UPDATE theo lô và thay toàn bộ item.
+ * sales_daily_rollup và cờ phân loại item ({@link SalesTransactionFlagService}) được cập nhật trong cùng transaction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SalesTransactionBulkWriter {
+
+    private static final int TRANSACTION_ROWS_PER_STATEMENT = 500;
+    private static final int ITEM_ROWS_PER_STATEMENT = 1000;
+
+    private static final String TRANSACTION_COLUMNS =
+            "order_code, facility_id, order_date, customer_name, phone_number, original_price, price_change, " +
+            "total_amount, cash_transfer_credit, cash, transfer, credit_card, wallet, prepaid_card, debt, " +
+            "note, details, service_type_id, import_key, row_fingerprint, customer_key";
+    private static final int TRANSACTION_PARAMS = 21;
+
+    private static final String UPDATE_TRANSACTION_SQL = "UPDATE sales_transaction SET " +
+            String.join(" = ?, ", TRANSACTION_COLUMNS.split(", ")) + " = ? WHERE id = ?";
+
+    private static final String ITEM_COLUMNS = "quantity, sale_transaction_id, service_type_id";
+    private static final int ITEM_PARAMS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SalesDailyRollupService rollupService;
+    private final SalesTransactionFlagService flagService;
+    private final DataWatermarkService watermarkService;
+
+    /**
+     * Ghi cả lô trong một transaction: id null thì INSERT, có id thì UPDATE.
+     * Sau khi ghi, {@code SalesTransaction.id} của bản ghi mới được gán id thật.
+     */
+    @Transactional
+    public void write(List<SalesTransaction> transactions) {
+        if (transactions.isEmpty()) return;
+
+        List<SalesTransaction> inserts = new ArrayList<>();
+        List<SalesTransaction> updates = new ArrayList<>();
+        for (SalesTransaction st : transactions) {
+            (st.getId() == null ? inserts : updates).add(st);
+        }
+
+        for (int from = 0; from < inserts.size(); from += TRANSACTION_ROWS_PER_STATEMENT) {
+            insertTransactions(inserts.subList(from, Math.min(from + TRANSACTION_ROWS_PER_STATEMENT, inserts.size())));
+        }
+        if (!updates.isEmpty()) {
+            // trừ giá trị cũ khỏi rollup trước khi ghi đè
+            rollupService.subtract(updates.stream().map(SalesTransaction::getId).toList());
+            updateTransactions(updates);
+        }
+        rollupService.add(transactions.stream().map(SalesTransaction::getId).toList());
+
+        List<SaleServiceItem> items = new ArrayList<>();
+        for (SalesTransaction st : transactions) {
+            if (st.getSaleServiceItems() != null) items.addAll(st.getSaleServiceItems());
+        }
+        for (int from = 0; from < items.size(); from += ITEM_ROWS_PER_STATEMENT) {
+            insertItems(items.subList(from, Math.min(from + ITEM_ROWS_PER_STATEMENT, items.size())));
+        }
+        // cờ phân loại item tính lại sau khi item của lô đã ghi xong
+        flagService.refresh(transactions.stream().map(SalesTransaction::getId).toList());
+        watermarkService.extend(DataWatermarkService.SALES_TRANSACTION, transactions, SalesTransaction::getOrderDate);
+    }
+
+    private void insertTransactions(List<SalesTransaction> chunk) {
+        String sql = "INSERT INTO sales_transaction (" + TRANSACTION_COLUMNS + ") VALUES "
+                + placeholders(chunk.size(), TRANSACTION_PARAMS);
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int p = 1;
+                for (SalesTransaction st : chunk) {
+                    p = bindTransaction(ps, p, st);
+                }
+                ps.executeUpdate();
+
+                // INSERT nhiều dòng là "simple insert": InnoDB cấp một dải id liên tiếp theo thứ tự VALUES
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (SalesTransaction st : chunk) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Thiếu generated key cho sales_transaction");
+                        }
+                        st.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void updateTransactions(List<SalesTransaction> updates) {
+        jdbcTemplate.batchUpdate(UPDATE_TRANSACTION_SQL, updates, TRANSACTION_ROWS_PER_STATEMENT, (ps, st) -> {
+            int p = bindTransaction(ps, 1, st);
+            ps.setLong(p, st.getId());
+        });
+
+        // Item của giao dịch được thay toàn bộ: xoá cũ, item mới được INSERT cùng các giao dịch mới
+        for (int from = 0; from < updates.size(); from += ITEM_ROWS_PER_STATEMENT) {
+            List<SalesTransaction> chunk = updates.subList(from, Math.min(from + ITEM_ROWS_PER_STATEMENT, updates.size()));
+            jdbcTemplate.update(
+                    "DELETE FROM sale_service_item WHERE sale_transaction_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                    chunk.stream().map(SalesTransaction::getId).toArray());
+        }
+    }
+
+    private static int bindTransaction(PreparedStatement ps, int p, SalesTransaction st) throws SQLException {
+        ps.setObject(p++, st.getOrderCode());
+        ps.setObject(p++, st.getFacility() != null ? st.getFacility().getId() : null);
+        ps.setObject(p++, st.getOrderDate());
+        ps.setObject(p++, st.getCustomerName());
+        ps.setObject(p++, st.getPhoneNumber());
+        ps.setObject(p++, st.getOriginalPrice());
+        ps.setObject(p++, st.getPriceChange());
+        ps.setObject(p++, st.getTotalAmount());
+        ps.setObject(p++, st.getCashTransferCredit());
+        ps.setObject(p++, st.getCash());
+        ps.setObject(p++, st.getTransfer());
+        ps.setObject(p++, st.getCreditCard());
+        ps.setObject(p++, st.getWallet());
+        ps.setObject(p++, st.getPrepaidCard());
+        ps.setObject(p++, st.getDebt());
+        ps.setObject(p++, st.getNote());
+        ps.setObject(p++, st.getDetails());
+        ps.setObject(p++, st.getServiceType() != null ? st.getServiceType().getId() : null);
+        ps.setObject(p++, st.getImportKey());
+        ps.setObject(p++, st.getRowFingerprint());
+        ps.setObject(p++, st.getCustomerKey());
+        return p;
+    }
+
+    private void insertItems(List<SaleServiceItem> chunk) {
+        String sql = "INSERT INTO sale_service_item (" + ITEM_COLUMNS + ") VALUES "
+                + placeholders(chunk.size(), ITEM_PARAMS);
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                int p = 1;
+                for (SaleServiceItem item : chunk) {
+                    ps.setObject(p++, item.getQuantity());
+                    ps.setObject(p++, item.getSalesTransaction().getId());
+                    ps.setObject(p++, item.getServiceType().getId());
+                }
+                ps.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private static String placeholders(int rows, int params) {
+        String row = "(" + String.join(", ", Collections.nCopies(params, "?")) + ")";
+        return String.join(", ", Collections.nCopies(rows, row));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.SaleServiceItem;
+import com.example.BasicCRM_FWF.Model.SalesTransaction;
+import com.example.BasicCRM_FWF.Service.Import.ImportKeyIndex;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Fingerprint nội dung của một giao dịch, tính trên đúng các trường được ghi vào sales_transaction/sale_service_item
+ * sau khi chuẩn hoá. Import Excel và đồng bộ API POS dùng chung hàm này, nên cùng một đơn nạp từ hai nguồn
+ * cho cùng fingerprint và không bị UPDATE lại mỗi lần chạy xen kẽ.
+ * Tiền so theo giá trị (null = 0, bỏ số 0 thừa), dòng dịch vụ so theo id dịch vụ -> tổng số lượng.
+ */
+public final class SalesTransactionFingerprint {
+
+    private SalesTransactionFingerprint() {
+    }
+
+    public static String of(SalesTransaction st) {
+        List<Object> parts = new ArrayList<>();
+        parts.add(st.getOrderCode());
+        parts.add(st.getOrderDate());
+        parts.add(st.getFacility() != null ? st.getFacility().getId() : null);
+        parts.add(st.getCustomerName());
+        parts.add(st.getPhoneNumber());
+        for (BigDecimal amount : List.of(amount(st.getTotalAmount()), amount(st.getCashTransferCredit()),
+                amount(st.getCash()), amount(st.getTransfer()), amount(st.getCreditCard()), amount(st.getWallet()),
+                amount(st.getPrepaidCard()), amount(st.getDebt()))) {
+            parts.add(amount.toPlainString());
+        }
+        TreeMap<Long, Integer> items = new TreeMap<>();
+        if (st.getSaleServiceItems() != null) {
+            for (SaleServiceItem item : st.getSaleServiceItems()) {
+                if (item.getServiceType() == null) continue;
+                items.merge(item.getServiceType().getId(), item.getQuantity() == null ? 0 : item.getQuantity(), Integer::sum);
+            }
+        }
+        parts.add(items);
+        return ImportKeyIndex.naturalKey(parts.toArray());
+    }
+
+    // Thiếu tiền tính như 0 (import Excel ghi 0 cho ô trống)
+    private static BigDecimal amount(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value.stripTrailingZeros();
+    }
+}
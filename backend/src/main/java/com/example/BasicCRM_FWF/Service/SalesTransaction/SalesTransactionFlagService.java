@@ -0,0 +1,153 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tính sẵn phân loại item trên từng sales_transaction (item_count, cb_dv_count, dv_count, product_count,
+ * card_count, has_service/has_product/has_card) để báo cáo chỉ cần quét theo order_date, không phải join
+ * sale_service_item x service_type trên toàn bộ lịch sử.
+ *
+ * <p>Quy tắc phân loại giữ nguyên các query báo cáo cũ (LIKE trên service_type):
+ * <ul>
+ *   <li>thẻ: category = 'Foxie Member Card' hoặc tên bắt đầu 'Foxie Card';</li>
+ *   <li>sản phẩm: mã MD%/MP% và không phải thẻ;</li>
+ *   <li>dịch vụ: còn lại.</li>
+ * </ul>
+ * Các cột *_count đếm theo dòng item (như COUNT trên LEFT JOIN cũ), has_* là cờ theo đơn.
+ * Import gọi {@link #refresh} trong transaction ghi lô; giao dịch cũ được backfill theo dải id.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesTransactionFlagService {
+
+    private static final int IDS_PER_STATEMENT = 1000;
+    private static final int BACKFILL_ID_STEP = 5000;
+
+    private static final String IS_CARD = "(ser.category = 'Foxie Member Card' OR ser.service_name LIKE 'Foxie Card%')";
+    private static final String IS_PRODUCT_CODE = "(ser.service_code LIKE 'MD%' OR ser.service_code LIKE 'MP%')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataWatermarkService watermarkService;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    /** Tính lại cờ của các giao dịch (sau khi đã ghi item của chúng). */
+    public void refresh(Collection<Long> transactionIds) {
+        Long[] ids = transactionIds.toArray(new Long[0]);
+        for (int from = 0; from < ids.length; from += IDS_PER_STATEMENT) {
+            int to = Math.min(from + IDS_PER_STATEMENT, ids.length);
+            String in = "IN (" + String.join(", ", Collections.nCopies(to - from, "?")) + ")";
+            Object[] chunk = Arrays.copyOfRange(ids, from, to);
+            Object[] args = new Object[chunk.length * 2];
+            System.arraycopy(chunk, 0, args, 0, chunk.length);
+            System.arraycopy(chunk, 0, args, chunk.length, chunk.length);
+            jdbcTemplate.update(updateSql("ssi.sale_transaction_id " + in, "st.id " + in), args);
+        }
+    }
+
+    /**
+     * Backfill theo dải id. {@code all = false}: chỉ giao dịch chưa có cờ (item_count IS NULL).
+     * @return số giao dịch được cập nhật
+     */
+    public int backfill(boolean all) {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new IllegalStateException("Backfill cờ sales_transaction đang chạy");
+        }
+        try {
+            return runBackfill(all);
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    public boolean isBackfillRunning() {
+        return backfillRunning.get();
+    }
+
+    /**
+     * Chạy backfill trên thread nền.
+     * @return {@code false} nếu đang có lần backfill khác chạy
+     */
+    public boolean startBackfill(boolean all) {
+        if (!backfillRunning.compareAndSet(false, true)) return false;
+        Thread t = new Thread(() -> {
+            try {
+                runBackfill(all);
+            } catch (Exception e) {
+                log.error("sales_transaction flag backfill failed: {}", e.getMessage(), e);
+            } finally {
+                backfillRunning.set(false);
+            }
+        }, "sales-flag-backfill");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    private int runBackfill(boolean all) {
+        Map<String, Object> range = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM sales_transaction");
+        if (range.get("min_id") == null) return 0;
+        long min = ((Number) range.get("min_id")).longValue();
+        long max = ((Number) range.get("max_id")).longValue();
+
+        String sql = updateSql("ssi.sale_transaction_id BETWEEN ? AND ?",
+                "st.id BETWEEN ? AND ?" + (all ? "" : " AND st.item_count IS NULL"));
+        int updated = 0;
+        for (long from = min; from <= max; from += BACKFILL_ID_STEP) {
+            long to = Math.min(from + BACKFILL_ID_STEP - 1, max);
+            updated += jdbcTemplate.update(sql, from, to, from, to);
+        }
+        log.info("Backfilled sales_transaction flags: {} rows (all = {})", updated, all);
+        if (updated > 0) watermarkService.touch(DataWatermarkService.SALES_TRANSACTION, null, null);
+        return updated;
+    }
+
+    // Giao dịch cũ chưa có cờ: backfill nền để không chặn khởi động
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissingOnStartup() {
+        startBackfill(false);
+    }
+
+    private static String updateSql(String itemFilter, String transactionFilter) {
+        return """
+                UPDATE sales_transaction st
+                LEFT JOIN (
+                    SELECT ssi.sale_transaction_id AS tx_id,
+                           COUNT(*) AS item_count,
+                           SUM(ser.service_code LIKE 'CB%%' OR ser.service_code LIKE 'DV%%') AS cb_dv_count,
+                           SUM(ser.service_code LIKE 'DV%%') AS dv_count,
+                           SUM(%2$s) AS product_count,
+                           SUM(%1$s) AS card_count,
+                           MAX(%1$s) AS has_card,
+                           MAX(%2$s AND NOT %1$s) AS has_product,
+                           MAX(NOT (%1$s OR %2$s)) AS has_service
+                    FROM sale_service_item ssi
+                    JOIN service_type ser ON ssi.service_type_id = ser.id
+                    WHERE %3$s
+                    GROUP BY ssi.sale_transaction_id
+                ) f ON f.tx_id = st.id
+                SET st.item_count = COALESCE(f.item_count, 0),
+                    st.cb_dv_count = COALESCE(f.cb_dv_count, 0),
+                    st.dv_count = COALESCE(f.dv_count, 0),
+                    st.product_count = COALESCE(f.product_count, 0),
+                    st.card_count = COALESCE(f.card_count, 0),
+                    st.has_service = COALESCE(f.has_service, 0),
+                    st.has_product = COALESCE(f.has_product, 0),
+                    st.has_card = COALESCE(f.has_card, 0)
+                WHERE %4$s
+                """.formatted(IS_CARD, IS_PRODUCT_CODE, itemFilter, transactionFilter);
+    }
+}
@@ -2,12 +2,14 @@ package com.example.BasicCRM_FWF.Service.SalesTransaction;
 
 import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
 import com.example.BasicCRM_FWF.DTOResponse.*;
-import org.springframework.web.multipart.MultipartFile;
+import com.example.BasicCRM_FWF.Service.Import.ImportProgress;
+
+import java.nio.file.Path;
 
 import java.util.List;
 
 public interface SalesTransactionInterface {
-    public void importFromExcel(MultipartFile file);
+    public void importFromExcel(Path file, ImportProgress progress);
 
     public List<RegionRevenueDTO> getRevenueByRegion(CustomerReportRequest request);
 
@@ -9,17 +9,18 @@ import com.example.BasicCRM_FWF.Model.ServiceType;
 import com.example.BasicCRM_FWF.Repository.RegionRepository;
 import com.example.BasicCRM_FWF.Repository.SaleServiceItemRepository;
 import com.example.BasicCRM_FWF.Repository.SalesTransactionRepository;
-import com.example.BasicCRM_FWF.Repository.ServiceTypeRepository;
 import com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordService;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import com.example.BasicCRM_FWF.Service.Import.*;
+import com.example.BasicCRM_FWF.Service.Report.PeriodRows;
+import com.example.BasicCRM_FWF.Service.Report.ReportCached;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.math.RoundingMode;
 import java.sql.Date;
 import java.time.LocalDate;
@@ -27,10 +28,12 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordService.getResult;
@@ -43,18 +46,22 @@ public class SalesTransactionService implements SalesTransactionInterface {
 
     private final SalesTransactionRepository repository;
     private final RegionRepository regionRepository;
-    private final ServiceTypeRepository serviceTypeRepository;
+    private final ServiceTypeResolver serviceTypeResolver;
     private final SaleServiceItemRepository saleServiceItemRepository;
-
-    public void importFromExcel(MultipartFile file) {
-        int successCount = 0;
-        int failCount = 0;
-        int failed = 0;
-
-        try (InputStream is = file.getInputStream()) {
-            Workbook workbook = WorkbookFactory.create(is);
-            Sheet sheet = workbook.getSheetAt(0);
-
+    private final SalesTransactionBulkWriter bulkWriter;
+    private final ImportPipeline importPipeline;
+    private final CustomerKeyRegistry customerKeyRegistry;
+    private final SalesDailyIndex dailyIndex;
+
+    // Cột 3: ngày đơn, 16-23: các cột tiền
+    private static final ColumnSchema SALES_COLUMNS = ColumnSchema.builder()
+            .dateTime(3, DateLayout.TIME_DMY)
+            .decimal(16, 17, 18, 19, 20, 21, 22, 23)
+            .build();
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public void importFromExcel(Path file, ImportProgress progress) {
+        try {
             // ✅ Tạo map Region: shop_name (chuẩn hoá) → Region
             Map<String, Region> regionMap = regionRepository.findAll()
                     .stream()
@@ -63,207 +70,135 @@ public class SalesTransactionService implements SalesTransactionInterface {
                             Function.identity()
                     ));
 
-            for (int i = 2; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
+            // ✅ Danh mục dịch vụ tra trong bộ nhớ, nạp 1 lần cho cả file
+            ServiceTypeIndex serviceTypes = serviceTypeResolver.load();
 
-                if (row == null || isRowEmpty(row)) {
-                    log.info("Stopped at row {} (blank)", i);
-                    break;
+            // ✅ Khoá đơn đã import (mã đơn + ngày), nạp theo ngày để import lại không tạo trùng
+            ImportKeyIndex<SalesTransaction> importKeys = new ImportKeyIndex<>(DataWatermarkService.SALES_TRANSACTION,
+                    repository::findImportKeysBetween, repository::findByImportKeys);
+            RowDecoder decoder = SALES_COLUMNS.decoder();
+
+            importPipeline.run(file, progress, new RowImporter<SalesTransaction>() {
+                @Override
+                public SalesTransaction parse(ImportRow row) {
+                    return parseRow(decoder.decode(row), regionMap, serviceTypes, progress);
                 }
 
-                try {
-                    String orderCodeStr = getString(row.getCell(1));
-                    String dateTimeStr = getString(row.getCell(3));
-
-                    if (orderCodeStr == null || dateTimeStr == null) {
-                        log.warn("Row {} skipped: missing required fields", i);
-                        failCount++;
-                        continue;
-                    }
-
-                    LocalDateTime orderDate = LocalDateTime.parse(
-                            dateTimeStr,
-                            DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy")
-                    );
-
-                    // ✅ Tra Region bằng shop name (cột CƠ SỞ trong Excel, cột 11 tính từ 0)
-                    String shopName = getString(row.getCell(2)).trim().toLowerCase();
-                    Region facilityRecordService = regionMap.get(shopName);
-
-                    if (facilityRecordService == null) {
-                        log.warn("Row {} skipped: Không tìm thấy Region cho tên '{}'", i, shopName);
-                        failed++;
-                        continue;
-                    }
-
-                    Map<ServiceType, Integer> serviceTypeMap = new HashMap<>();
-                    String allComboString = getString(row.getCell(26)).trim().replaceAll("\\s+", " ");
-                    int start = 0;
-                    while (true) {
-                        int idx = allComboString.indexOf(";", start);
-                        String originalString = (idx == -1)
-                                ? allComboString.substring(start).trim()
-                                : allComboString.substring(start, idx).trim();
-
-                        if (!originalString.isEmpty()) {
-                            Pair<String, Integer> parsed = extractQuantityAndCleanName(originalString);
-                            String perfectString = parsed.getLeft();
-                            int quantity = parsed.getRight();
-
-                            if (perfectString.endsWith("))")) {
-                                perfectString = perfectString.substring(0, perfectString.length() - 1);
-                            } else if (perfectString.endsWith(" )")) {
-                                int open = perfectString.lastIndexOf("(");
-                                int close = perfectString.lastIndexOf(")");
-                                if (open != -1 && close != -1 && close > open) {
-                                    String tag = perfectString.substring(open + 1, close).trim();
-                                }
-                            }
-
-                            ServiceType serviceType = getServiceType(perfectString);
-                            if (serviceType != null && quantity > 0) {
-                                // Gộp quantity nếu trùng ServiceType
-                                serviceTypeMap.merge(serviceType, quantity, Integer::sum);
-                            } else {
-                                if (serviceType != null) {
-                                    serviceTypeMap.merge(serviceType, 1, Integer::sum);
-                                } else {
-                                    log.warn("Row {}: Không tìm thấy ServiceType hoặc quantity=0 cho '{}'", i, perfectString);
-                                }
-                            }
-                        }
-
-                        if (idx == -1) break;
-                        start = idx + 1;
-                    }
-
-                    SalesTransaction st = SalesTransaction.builder()
-                            .facility(facilityRecordService)
-                            .orderDate(orderDate)
-                            .customerName(getString(row.getCell(5)))
-                            .phoneNumber(getString(row.getCell(6)))
-                            .totalAmount(toBigDecimal(getString(row.getCell(16)).isBlank() ? null : row.getCell(16)))
-                            .cashTransferCredit(toBigDecimal(getString(row.getCell(17)).isBlank() ? null : row.getCell(17)))
-                            .cash(toBigDecimal(getString(row.getCell(18)).isBlank() ? null : row.getCell(18)))
-                            .transfer(toBigDecimal(getString(row.getCell(19)).isBlank() ? null : row.getCell(19)))
-                            .creditCard(toBigDecimal(getString(row.getCell(20)).isBlank() ? null : row.getCell(20)))
-                            .wallet(toBigDecimal(getString(row.getCell(21)).startsWith("0") ? null : row.getCell(21)))
-                            .prepaidCard(toBigDecimal(getString(row.getCell(22)).startsWith("0") ? null : row.getCell(22)))
-                            .debt(toBigDecimal(getString(row.getCell(23)).startsWith("0") ? null : row.getCell(23)))
-                            .build();
-                    repository.save(st);
-
-                    List<SaleServiceItem> items = serviceTypeMap.entrySet().stream()
-                            .map(entry -> SaleServiceItem.builder()
-                                    .salesTransaction(st)
-                                    .serviceType(entry.getKey())
-                                    .quantity(entry.getValue())
-                                    .build())
-                            .collect(Collectors.toList());
-                    saleServiceItemRepository.saveAll(items);
-
-                    successCount++;
-//                    log.info("Successfully processed {} SalesTransaction records", successCount);
-
-                } catch (Exception e) {
-                    log.error("Row {} failed: {}", i, e.getMessage());
-                    failCount++;
+                @Override
+                public void write(List<ParsedRow<SalesTransaction>> batch, ImportProgress progress) {
+                    importKeys.writeBatch(batch, progress, list -> {
+                        customerKeyRegistry.assign(list, SalesTransaction::getPhoneNumber, SalesTransaction::setCustomerKey);
+                        bulkWriter.write(list);
+                    });
                 }
-            }
+            });
 
-            log.info("IMPORT COMPLETE: Success = {}, Failed = {}", successCount, failCount);
+            log.info("IMPORT COMPLETE: Success = {}, Unchanged = {}, Failed = {}, Skipped = {}",
+                    progress.getSuccess(), progress.getUnchanged(), progress.getFailed(), progress.getSkipped());
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to import Excel", e);
         }
     }
 
-    private ServiceType getServiceType(String perfectString) {
-        int cutString = Math.round((float) perfectString.length() / 3);
-        ServiceType serviceType;
-        if (perfectString.startsWith(perfectString.substring(0, cutString)) && perfectString.endsWith("lẻ)")) {
-            String startString = perfectString.substring(0, cutString);
-            serviceType = serviceTypeRepository.findByServiceName(startString + "%", "%lẻ)");
-        } else if (perfectString.startsWith(perfectString.substring(0, cutString)) && perfectString.endsWith("ard)")) {
-            String startString = perfectString.substring(0, cutString);
-            serviceType = serviceTypeRepository.findByServiceName(startString + "%", "%ard)");
-        } else if (perfectString.startsWith(perfectString.substring(0, cutString)) && perfectString.endsWith("ĐẦU)")) {
-            String startString = perfectString.substring(0, cutString);
-            serviceType = serviceTypeRepository.findByServiceName(startString + "%", "%ĐẦU)");
-//        } else if (perfectString.toUpperCase().startsWith("QT KÈM THẺ TIỀN FOXIE")) {
-//            serviceType = serviceTypeRepository.findByCode("QT 1.1");
-//        } else if (perfectString.startsWith("DV 1: AQUA PEEL CLEANSE")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 1.1"); // service_code = 'DV 1.1'
-//        } else if (perfectString.contains("COMBO CS 11: BURNT SKIN SOS")) {
-//            serviceType = serviceTypeRepository.findByCode("CBCS 11.2");
-//        } else if (perfectString.contains("COMBO CS 3: PRESERVE YOUTH") && perfectString.toLowerCase().contains("giá thẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("CBCS 3.2");
-//        } else if (perfectString.contains("DV 4: LUMIGLOW CLEANSE") && perfectString.contains("buổi lẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 4.1");
-//        } else if (perfectString.contains("COMBO CS 3: PRESERVE YOUTH") && perfectString.contains("buổi lẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("CBCS 3.1");
-//        } else if (perfectString.contains("CT 2: ADDED LUMIGLOW")) {
-//            serviceType = perfectString.toLowerCase().contains("giá") ? serviceTypeRepository.findByCode("CT 2.2") : serviceTypeRepository.findByCode("CT 2.1");
-//        } else if (perfectString.contains("COMBO 1: DEEP CLEANSE CRYO") && perfectString.toLowerCase().contains("giá")) {
-//            serviceType = serviceTypeRepository.findByCode("CB 1.2");
-//        } else if (perfectString.contains("COMBO CS 1: MESO TẾ BÀO GỐC DNA CÁ HỒI") && perfectString.toLowerCase().contains("giá")) {
-//            serviceType = serviceTypeRepository.findByCode("CBCS 1.2");
-//        } else if (perfectString.contains("DV 2: DEEP CLEANSE") && perfectString.toLowerCase().contains("giá")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 2.2");
-//        } else if (perfectString.contains("COMBO CS 1: MESO TẾ BÀO GỐC DNA CÁ HỒI") && perfectString.contains("buổi lẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("CBCS 1.1");
-//        } else if (perfectString.contains("DV 3: CRYO CLEANSE") && perfectString.toLowerCase().contains("giá")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 3.3");
-//        } else if (perfectString.contains("COMBO 6") && perfectString.toLowerCase().contains("giá")) {
-//            serviceType = serviceTypeRepository.findByCode("CB 6.2");
-//        } else if (perfectString.contains("DV 1: AQUA PEEL CLEANSE") && perfectString.contains("buổi lẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 1.1");
-//        } else if (perfectString.contains("DV 1: AQUA PEEL CLEANSE") && perfectString.toLowerCase().contains("giá")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 1.3");
-//        } else if (perfectString.contains("DV 5: GYMMING CLEANSE") && perfectString.toLowerCase().contains("giá")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 5.2");
-//        } else if (perfectString.contains("DV 6: EYE-REVIVE CLEANSE") && perfectString.toLowerCase().contains("giá")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 6.2");
-//        } else if (perfectString.contains("COMBO 1: DEEP CLEANSE CRYO") && perfectString.contains("buổi lẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("CB 1.1");
-//        } else if (perfectString.contains("DV 4: LUMIGLOW CLEANSE") && perfectString.contains("buổi lẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 4.1");
-//        } else if (perfectString.contains("DV 5: GYMMING CLEANSE") && perfectString.contains("buổi lẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 5.1");
-//        } else if (perfectString.contains("DV 6: EYE-REVIVE CLEANSE") && perfectString.contains("buổi lẻ")) {
-//            serviceType = serviceTypeRepository.findByCode("DV 6.1");
-//        } else if (perfectString.contains("TRẢI NGHIỆM LẦN ĐẦU") && perfectString.contains("COMBO 9")) {
-//            serviceType = serviceTypeRepository.findByCode("CB9.3");
-//        } else if (perfectString.contains("KHUYẾN MÃI TRẢI NGHIỆM LẦN ĐẦU") && perfectString.contains("COMBO 4")) {
-//            serviceType = serviceTypeRepository.findByCode("CB 4.3");
-//        } else if (perfectString.contains("SỮA RỬA MẶT LÀM DỊU ELRAVIE")) {
-//            serviceType = serviceTypeRepository.findByCode("MP000037");
-//        } else if (perfectString.contains("BỘ SẢN PHẨM DƯỠNG DA FULL SIZE ELRAVIE")) {
-//            serviceType = serviceTypeRepository.findByCode("MP000024");
-//        } else if (perfectString.contains("KEM DƯỠNG MẮT ELRAVIE")) {
-//            serviceType = serviceTypeRepository.findByCode("MP000014");
-//        } else if (perfectString.startsWith("CT 6: ADDED GOODBYE ACNE")) {
-//            serviceType = serviceTypeRepository.findByCode("CT 6.1");
-//        } else if (perfectString.startsWith("COMBO CS 3: PRESERVE YOUTH")) {
-//            serviceType = serviceTypeRepository.findByCode("CBCS 3.1");
-//        } else if (perfectString.startsWith("COMBO CS 9: PHỤC HỒI NÂNG CAO PDRN")) {
-//            serviceType = serviceTypeRepository.findByCode("CBCS 9.1");
-//        } else if (perfectString.startsWith("CT 4: ADDED EYE-REVIVE - CỘNG THÊM CHĂM SÓC MẮT")) {
-//            serviceType = serviceTypeRepository.findByCode("CT 4.1");
-//        } else if (perfectString.startsWith("CT 3: ADDED GYMMING - CỘNG THÊM SĂN CHẮC DA")) {
-//            serviceType = serviceTypeRepository.findByCode("CT 3.1");
-//        } else if (perfectString.startsWith("COMBO CS 1: MESO TẾ BÀO GỐC DNA CÁ HỒI (Giá Foxie Member Card)")) {
-//            serviceType = serviceTypeRepository.findByCode("CBCS 1.1");
-//        } else if (perfectString.startsWith("COMBO 6 : LUMIGLOW CLEANSE CRYO GYMMING (Giá Foxie Member Card)")) {
-//            serviceType = serviceTypeRepository.findByCode("CB 6.1");
-        } else if (perfectString.equals("Gel Dưỡng Da Dưỡng Âm Dịu Nhẹ Phục Hồi Se Khít Lỗ Chân Lông Elravie Pro Ultra Soothing Gel 140ml")) {
-            serviceType = serviceTypeRepository.findByCode("MP000028");
-        } else {
-            serviceType = serviceTypeRepository.findByName(perfectString);
+    private SalesTransaction parseRow(DecodedRow r, Map<String, Region> regionMap,
+                                      ServiceTypeIndex serviceTypes, ImportProgress progress) {
+        int i = r.getRowNum();
+        String orderCodeStr = r.text(1);
+
+        if (orderCodeStr == null || r.text(3) == null) {
+            throw new InvalidRowException(ImportIssue.MISSING_FIELD, "Thiếu mã đơn hoặc ngày");
+        }
+
+        LocalDateTime orderDate = r.requireDateTime(3);
+
+        // ✅ Tra Region bằng shop name (cột CƠ SỞ trong Excel)
+        String shopName = r.text(2).toLowerCase();
+        Region facilityRecordService = regionMap.get(shopName);
+
+        if (facilityRecordService == null) {
+            throw new SkipRowException(ImportIssue.UNKNOWN_SHOP, "Không tìm thấy Region cho tên '" + shopName + "'");
+        }
+
+        Map<ServiceType, Integer> serviceTypeMap = new HashMap<>();
+        String allComboString = WHITESPACE.matcher(r.text(26)).replaceAll(" ");
+        int start = 0;
+        while (true) {
+            int idx = allComboString.indexOf(";", start);
+            String originalString = (idx == -1)
+                    ? allComboString.substring(start).trim()
+                    : allComboString.substring(start, idx).trim();
+
+            if (!originalString.isEmpty()) {
+                Pair<String, Integer> parsed = extractQuantityAndCleanName(originalString);
+                String perfectString = parsed.getLeft();
+                int quantity = parsed.getRight();
+
+                if (perfectString.endsWith("))")) {
+                    perfectString = perfectString.substring(0, perfectString.length() - 1);
+                }
+
+                ServiceType serviceType = serviceTypes.resolve(perfectString);
+                if (serviceType != null) {
+                    // Gộp quantity nếu trùng ServiceType
+                    serviceTypeMap.merge(serviceType, quantity > 0 ? quantity : 1, Integer::sum);
+                } else {
+                    log.warn("Row {}: Không tìm thấy ServiceType hoặc quantity=0 cho '{}'", i, perfectString);
+                    progress.issue(ImportIssue.UNKNOWN_SERVICE, i, "Không tìm thấy dịch vụ '" + perfectString + "'");
+                }
+            }
+
+            if (idx == -1) break;
+            start = idx + 1;
+        }
+
+        if (r.isBlank(16)) {
+            progress.issue(ImportIssue.BLANK_AMOUNT, i, "Tổng tiền trống");
+        }
+
+        SalesTransaction st = SalesTransaction.builder()
+                .orderCode(parseOrderCode(orderCodeStr))
+                .importKey(ImportKeyIndex.naturalKey(orderCodeStr, orderDate))
+                .facility(facilityRecordService)
+                .orderDate(orderDate)
+                .customerName(r.text(5))
+                .phoneNumber(r.text(6))
+                .totalAmount(r.decimal(16))
+                .cashTransferCredit(r.decimal(17))
+                .cash(r.decimal(18))
+                .transfer(r.decimal(19))
+                .creditCard(r.decimal(20))
+                .wallet(r.decimal(21))
+                .prepaidCard(r.decimal(22))
+                .debt(r.decimal(23))
+                .build();
+
+        List<SaleServiceItem> items = serviceTypeMap.entrySet().stream()
+                .map(entry -> SaleServiceItem.builder()
+                        .salesTransaction(st)
+                        .serviceType(entry.getKey())
+                        .quantity(entry.getValue())
+                        .build())
+                .collect(Collectors.toList());
+        st.setSaleServiceItems(items);
+        st.setRowFingerprint(SalesTransactionFingerprint.of(st));
+        return st;
+    }
+
+    // Mã đơn dạng "#12345" -> 12345; null nếu không có số hoặc vượt Integer
+    private static Integer parseOrderCode(String orderCodeStr) {
+        int value = 0;
+        int digits = 0;
+        for (int k = 0; k < orderCodeStr.length(); k++) {
+            char c = orderCodeStr.charAt(k);
+            if (c < '0' || c > '9') continue;
+            if (++digits > 9) return null;
+            value = value * 10 + (c - '0');
         }
-        return serviceType;
+        return digits == 0 ? null : value;
     }
 
+    @ReportCached
     public List<RegionRevenueDTO> getRevenueByRegion(CustomerReportRequest request) {
         List<Object[]> rawData = repository.fetchRevenueByRegionAndDate(request.getFromDate(), request.getToDate());
 
@@ -275,6 +210,7 @@ public class SalesTransactionService implements SalesTransactionInterface {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<ShopTypeRevenueDTO> getRevenueByShopType(CustomerReportRequest request) {
         List<Object[]> rawData = repository.fetchRevenueByShopTypeAndDate(request.getFromDate(), request.getToDate());
 
@@ -286,13 +222,17 @@ public class SalesTransactionService implements SalesTransactionInterface {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public RevenueSummaryDTO getRevenueSummary(CustomerReportRequest request) {
         CustomerSaleRecordService.Result r = getResult(request);
-        BigDecimal total = repository.fetchRevenueSummary(r.fromDate(), r.toDate( ));
-        BigDecimal actual = repository.fetchActualRevenueSummary(r.fromDate(), r.toDate());
+        SalesDailyIndex.Totals current = dailyIndex.total(r.fromDate().toLocalDate(), r.toDate().toLocalDate());
+        SalesDailyIndex.Totals previous = dailyIndex.total(r.prevFrom().toLocalDate(), r.prevTo().toLocalDate());
 
-        BigDecimal prevTotal = repository.fetchRevenueSummary(r.prevFrom(), r.prevTo());
-        BigDecimal prevActual = repository.fetchActualRevenueSummary(r.prevFrom(), r.prevTo());
+        BigDecimal total = current.sum(SalesDailyIndex.Metric.PREPAID_CARD);
+        BigDecimal actual = current.sum(SalesDailyIndex.Metric.CASH_TRANSFER_CREDIT);
+
+        BigDecimal prevTotal = previous.sum(SalesDailyIndex.Metric.PREPAID_CARD);
+        BigDecimal prevActual = previous.sum(SalesDailyIndex.Metric.CASH_TRANSFER_CREDIT);
 
         double growthTotal = calculateGrowthBigDecimal(prevTotal, total);
         double growthActual = calculateGrowthBigDecimal(prevActual, actual);
@@ -300,14 +240,28 @@ public class SalesTransactionService implements SalesTransactionInterface {
         return new RevenueSummaryDTO(total, actual, growthTotal, growthActual);
     }
 
+    @ReportCached
     public List<RegionRevenueStatDTO> getStatus(CustomerReportRequest request) {
+        return getStatus(regionPeriodRows(request));
+    }
+
+    // Kỳ hiện tại và kỳ trước: [region, orders, revenue]
+    @ReportCached
+    public PeriodRows regionPeriodRows(CustomerReportRequest request) {
         CustomerSaleRecordService.Result r = getResult(request);
+        return new PeriodRows(regionRows(r.fromDate(), r.toDate()), regionRows(r.prevFrom(), r.prevTo()));
+    }
 
-        // Kỳ hiện tại
-        Map<String, Object[]> current = toMap(repository.fetchOrderAndRevenueByRegion(r.fromDate(), r.toDate()));
+    private List<Object[]> regionRows(LocalDateTime start, LocalDateTime end) {
+        return dailyIndex.totalsBy(SalesDailyIndex.Dimension.REGION, start.toLocalDate(), end.toLocalDate())
+                .entrySet().stream()
+                .map(e -> new Object[]{e.getKey(), e.getValue().orders(), e.getValue().sum(SalesDailyIndex.Metric.CASH_TRANSFER_CREDIT)})
+                .toList();
+    }
 
-        // Kỳ trước
-        Map<String, Object[]> previous = toMap(repository.fetchOrderAndRevenueByRegion(r.prevFrom(), r.prevTo()));
+    public List<RegionRevenueStatDTO> getStatus(PeriodRows rows) {
+        Map<String, Object[]> current = toMap(rows.current());
+        Map<String, Object[]> previous = toMap(rows.previous());
 
         List<RegionRevenueStatDTO> result = new ArrayList<>();
         BigDecimal totalRevenue = BigDecimal.ZERO;
@@ -349,9 +303,15 @@ public class SalesTransactionService implements SalesTransactionInterface {
         return result;
     }
 
+    @ReportCached
     public List<RegionRevenuePieDTO> getActualRevenuePie(CustomerReportRequest request) {
-        List<Object[]> raw = repository.fetchActualRevenueByRegion(request.getFromDate(), request.getToDate());
+        return getActualRevenuePie(regionRows(request.getFromDate(), request.getToDate()).stream()
+                .map(row -> new Object[]{row[0], row[2]})
+                .toList());
+    }
 
+    // raw: [region, thực thu]; cùng số liệu với cột revenue kỳ hiện tại của regionPeriodRows
+    public List<RegionRevenuePieDTO> getActualRevenuePie(List<Object[]> raw) {
         BigDecimal total = raw.stream()
                 .map(row -> (BigDecimal) row[1])
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
@@ -368,6 +328,7 @@ public class SalesTransactionService implements SalesTransactionInterface {
                 .toList();
     }
 
+    @ReportCached
     public List<DailyShopTypeRevenueDTO> getDailyRevenueByShopType(CustomerReportRequest request) {
         List<Object[]> raw = repository.getDailyRevenueByShopType(request.getFromDate(), request.getToDate());
 
@@ -380,6 +341,7 @@ public class SalesTransactionService implements SalesTransactionInterface {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<DailyCustomerTypeRevenueDTO> getRevenueByCustomerTypePerDay(CustomerReportRequest request) {
         List<Object[]> rawData = repository
                 .findRevenueByCustomerTypeAndDate(request.getFromDate(), request.getToDate());
@@ -391,19 +353,24 @@ public class SalesTransactionService implements SalesTransactionInterface {
         )).collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<TopStoreRevenueDTO> getTopStoreRevenue(CustomerReportRequest request) {
-        List<Object[]> rawData = repository.findTop10StoreRevenue(request.getFromDate(), request.getToDate());
-        return rawData.stream().map(row -> new TopStoreRevenueDTO(
-                (String) row[0],
-                (BigDecimal) row[1],
-                (BigDecimal) row[2]
-        )).collect(Collectors.toList());
+        return dailyIndex.totalsBy(SalesDailyIndex.Dimension.SHOP, request.getFromDate().toLocalDate(), request.getToDate().toLocalDate())
+                .entrySet().stream()
+                .map(e -> new TopStoreRevenueDTO(
+                        e.getKey(),
+                        e.getValue().sum(SalesDailyIndex.Metric.CASH_TRANSFER_CREDIT),
+                        e.getValue().sum(SalesDailyIndex.Metric.PREPAID_CARD)))
+                .sorted(Comparator.comparing(TopStoreRevenueDTO::getActualRevenue).reversed())
+                .collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<StoreRevenueStatDTO> getFullStoreRevenueStats(CustomerReportRequest request) {
         CustomerSaleRecordService.Result r = getResult(request);
-        List<Object[]> current = repository.findStoreRevenueStatsBetween(r.fromDate(), r.toDate());
-        List<Object[]> previous = repository.findStoreRevenueStatsBetween(r.prevFrom(), r.prevTo());
+        PeriodRows rows = PeriodRows.of(repository.findStoreRevenueStatsByPeriod(r.fromDate(), r.toDate(), r.prevFrom(), r.prevTo()));
+        List<Object[]> current = rows.current();
+        List<Object[]> previous = rows.previous();
 
         Map<String, Object[]> prevMap = previous.stream()
                 .collect(Collectors.toMap(row -> row[0].toString(), Function.identity()));
@@ -456,6 +423,7 @@ public class SalesTransactionService implements SalesTransactionInterface {
         return result;
     }
 
+    @ReportCached
     public List<DailyShopOrderStatDTO> getDailyOrderStats(CustomerReportRequest request) {
         List<Object[]> rawData = repository.findDailyOrderAndShopStats(request.getFromDate(), request.getToDate());
 
@@ -468,6 +436,7 @@ public class SalesTransactionService implements SalesTransactionInterface {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<DailyRegionRevenueDTO> getDailyRevenue(CustomerReportRequest request) {
         List<Object[]> raw = repository.fetchDailyRevenueByRegion(request.getFromDate(), request.getToDate());
         List<DailyRegionRevenueDTO> result = new ArrayList<>();
@@ -484,6 +453,7 @@ public class SalesTransactionService implements SalesTransactionInterface {
         return result;
     }
 
+    @ReportCached
     public List<RegionPaymentDTO> getPaymentByRegion(CustomerReportRequest request) {
         List<Object[]> result = repository.findPaymentByRegion(
                 request.getFromDate(),
@@ -499,6 +469,7 @@ public class SalesTransactionService implements SalesTransactionInterface {
         )).collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<RegionOrderBreakdownDTO> getRegionOrderBreakdown(CustomerReportRequest request) {
         List<Object[]> raw = repository.fetchRegionOrderBreakdown(
                 request.getFromDate(), request.getToDate());
@@ -517,10 +488,12 @@ public class SalesTransactionService implements SalesTransactionInterface {
         return result;
     }
 
+    @ReportCached
     public List<RegionOrderBreakdownTableDTO> getRegionOrderBreakdownTable(CustomerReportRequest request) {
         CustomerSaleRecordService.Result r = getResult(request);
-        List<Object[]> current = repository.fetchRegionOrderBreakdown(r.fromDate(), r.toDate());
-        List<Object[]> previous = repository.fetchRegionOrderBreakdown(r.prevFrom(), r.prevTo());
+        PeriodRows rows = PeriodRows.of(repository.fetchRegionOrderBreakdownByPeriod(r.fromDate(), r.toDate(), r.prevFrom(), r.prevTo()));
+        List<Object[]> current = rows.current();
+        List<Object[]> previous = rows.previous();
 
         Map<String, Object[]> prevMap = previous.stream()
                 .collect(Collectors.toMap(row -> (String) row[0], row -> row));
@@ -561,13 +534,14 @@ public class SalesTransactionService implements SalesTransactionInterface {
         return result;
     }
 
+    @ReportCached
     public OverallOrderSummaryDTO getOverallOrderSummary(CustomerReportRequest request) {
         CustomerSaleRecordService.Result r = getResult(request);
-        List<Object[]> currentList = repository.fetchOverallOrderSummary(r.fromDate(), r.toDate());
-        List<Object[]> previousList = repository.fetchOverallOrderSummary(r.prevFrom(), r.prevTo());
+        PeriodRows rows = PeriodRows.of(repository.fetchOverallOrderSummaryByPeriod(r.fromDate(), r.toDate(), r.prevFrom(), r.prevTo()));
 
-        Object[] current = currentList.get(0);
-        Object[] previous = previousList.get(0);
+        // Kỳ không có đơn nào không có dòng trong kết quả
+        Object[] current = rows.currentRow(0L, 0L, 0L, 0L, 0L);
+        Object[] previous = rows.previousRow(0L, 0L, 0L, 0L, 0L);
 
         OverallOrderSummaryDTO dto = new OverallOrderSummaryDTO();
 
@@ -598,13 +572,14 @@ public class SalesTransactionService implements SalesTransactionInterface {
         return dto;
     }
 
+    @ReportCached
     public OverallSummaryDTO getOverallSummary(CustomerReportRequest request) {
         CustomerSaleRecordService.Result r = getResult(request);
-        List<Object[]> currentList = repository.fetchOverallRevenueSummary(r.fromDate(), r.toDate());
-        List<Object[]> previousList = repository.fetchOverallRevenueSummary(r.prevFrom(), r.prevTo());
+        PeriodRows rows = PeriodRows.of(repository.fetchOverallRevenueSummaryByPeriod(r.fromDate(), r.toDate(), r.prevFrom(), r.prevTo()));
 
-        Object[] current = currentList.get(0);
-        Object[] previous = previousList.get(0);
+        // Kỳ không có đơn nào không có dòng trong kết quả; toSafeBigDecimal coi null là 0
+        Object[] current = rows.currentRow(new Object[6]);
+        Object[] previous = rows.previousRow(new Object[6]);
 
         OverallSummaryDTO dto = new OverallSummaryDTO();
 
@@ -656,6 +631,7 @@ public class SalesTransactionService implements SalesTransactionInterface {
         return dto;
     }
 
+    @ReportCached
     public List<TopCustomerSpendingDTO> getTopCustomersBySpending(CustomerReportRequest request) {
         List<Object[]> rawData = repository.fetchTopCustomersBySpending(request.getFromDate(), request.getToDate());
 
@@ -0,0 +1,65 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.ServiceGroup;
+import com.example.BasicCRM_FWF.Model.ServiceType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * INSERT nhiều dòng vào service_type qua JDBC (entity dùng IDENTITY nên saveAll của Hibernate vẫn là từng câu).
+ * Id sinh ra được gán lại cho entity theo thứ tự VALUES, giống {@link SalesTransactionBulkWriter}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ServiceTypeBulkWriter {
+
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void insert(List<ServiceType> serviceTypes) {
+        for (int from = 0; from < serviceTypes.size(); from += ROWS_PER_STATEMENT) {
+            insertChunk(serviceTypes.subList(from, Math.min(from + ROWS_PER_STATEMENT, serviceTypes.size())));
+        }
+    }
+
+    private void insertChunk(List<ServiceType> chunk) {
+        String sql = "INSERT INTO service_type (service_code, service_name, price, category, service_group) VALUES "
+                + String.join(", ", Collections.nCopies(chunk.size(), ROW_PLACEHOLDER));
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int p = 1;
+                for (ServiceType st : chunk) {
+                    ps.setObject(p++, st.getService_code());
+                    ps.setObject(p++, st.getService_name());
+                    ps.setObject(p++, st.getPrice());
+                    ps.setObject(p++, st.getCategory());
+                    ps.setObject(p++, ServiceGroup.classify(st.getService_name()).getLabel());
+                }
+                ps.executeUpdate();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (ServiceType st : chunk) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Thiếu generated key cho service_type");
+                        }
+                        st.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.ServiceType;
+
+import java.util.*;
+
+import static com.example.BasicCRM_FWF.Utils.ServiceUtils.foldForMatch;
+
+/**
+ * So khớp file danh mục với service_type hiện có hoàn toàn trong bộ nhớ: danh mục được đọc một lần,
+ * mã và tên (đã fold, giống LIKE trên collation *_ai_ci của các query findByCode/findByName cũ) được đưa vào map.
+ * Mỗi dòng được xếp vào một trong ba nhóm:
+ * <ul>
+ *   <li>{@link Verdict#NEW}: chưa có mã lẫn tên -> sẽ được INSERT;</li>
+ *   <li>{@link Verdict#UNCHANGED}: mã và tên trỏ cùng một bản ghi, giá và nhóm không đổi;</li>
+ *   <li>{@link Verdict#CONFLICT}: còn lại, không ghi, kèm bản ghi đang có trong {@link CatalogDiff}.</li>
+ * </ul>
+ * Dòng mới được đăng ký ngay vào map nên dòng trùng phía dưới trong cùng file cũng được phát hiện.
+ * Không thread-safe: chỉ gọi từ writer của pipeline (chạy tuần tự theo thứ tự dòng).
+ */
+public final class ServiceTypeCatalogMerge {
+
+    public enum Verdict { NEW, UNCHANGED, CONFLICT }
+
+    private final Map<String, ServiceType> byCode = new HashMap<>();
+    private final Map<String, ServiceType> byName = new HashMap<>();
+    private final CatalogDiff diff = new CatalogDiff();
+
+    public ServiceTypeCatalogMerge(Collection<ServiceType> catalog) {
+        List<ServiceType> sorted = new ArrayList<>(catalog);
+        // trùng mã/tên trong DB: giữ bản ghi id nhỏ nhất như LIMIT 1 của query cũ
+        sorted.sort(Comparator.comparing(ServiceType::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        for (ServiceType st : sorted) {
+            register(st);
+        }
+    }
+
+    public CatalogDiff getDiff() {
+        return diff;
+    }
+
+    public Verdict classify(int rowNum, ServiceType incoming) {
+        ServiceType sameCode = byCode.get(foldForMatch(incoming.getService_code()));
+        ServiceType sameName = byName.get(foldForMatch(incoming.getService_name()));
+        CatalogDiff.Entry entry = new CatalogDiff.Entry(rowNum + 1, incoming.getService_code(),
+                incoming.getService_name(), incoming.getPrice(), incoming.getCategory());
+
+        if (sameCode == null && sameName == null) {
+            register(incoming);
+            diff.added(entry);
+            return Verdict.NEW;
+        }
+
+        if (sameCode != null && sameCode == sameName
+                && samePrice(sameCode, incoming)
+                && Objects.equals(foldForMatch(sameCode.getCategory()), foldForMatch(incoming.getCategory()))) {
+            diff.unchanged();
+            return Verdict.UNCHANGED;
+        }
+
+        ServiceType existing = sameCode != null ? sameCode : sameName;
+        diff.conflict(new CatalogDiff.Conflict(entry,
+                sameCode != null
+                        ? CatalogDiff.ConflictReason.CODE_EXISTS_WITH_DIFFERENT_DATA
+                        : CatalogDiff.ConflictReason.NAME_EXISTS_UNDER_OTHER_CODE,
+                existing.getId(), existing.getService_code(), existing.getService_name(),
+                existing.getPrice(), existing.getCategory()));
+        return Verdict.CONFLICT;
+    }
+
+    private void register(ServiceType st) {
+        String code = foldForMatch(st.getService_code());
+        String name = foldForMatch(st.getService_name());
+        if (code != null) byCode.putIfAbsent(code, st);
+        if (name != null) byName.putIfAbsent(name, st);
+    }
+
+    private static boolean samePrice(ServiceType a, ServiceType b) {
+        if (a.getPrice() == null || b.getPrice() == null) return a.getPrice() == b.getPrice();
+        return a.getPrice().compareTo(b.getPrice()) == 0;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.ServiceType;
+
+import java.util.*;
+
+import static com.example.BasicCRM_FWF.Utils.ServiceUtils.foldForMatch;
+
+/**
+ * Snapshot bất biến của danh mục service_type để tra tên dịch vụ trong bộ nhớ.
+ * Quy tắc khớp giống các query cũ trong ServiceTypeRepository (LIKE trên collation *_ai_ci):
+ * <ul>
+ *   <li>tên kết thúc bằng "lẻ)", "ard)", "ĐẦU)": khớp tiền tố = 1/3 đầu của tên + cùng hậu tố
+ *       ({@code findByServiceName}), có nhiều kết quả thì báo lỗi như query cũ;</li>
+ *   <li>tên gel Elravie 140ml: tra theo mã MP000028 ({@code findByCode});</li>
+ *   <li>còn lại: khớp nguyên tên, lấy bản ghi id nhỏ nhất ({@code findByName ... LIMIT 1}).</li>
+ * </ul>
+ */
+public final class ServiceTypeIndex {
+
+    private static final List<String> SUFFIXES = List.of("lẻ)", "ard)", "ĐẦU)");
+    private static final String ELRAVIE_GEL_NAME =
+            "Gel Dưỡng Da Dưỡng Âm Dịu Nhẹ Phục Hồi Se Khít Lỗ Chân Lông Elravie Pro Ultra Soothing Gel 140ml";
+    private static final String ELRAVIE_GEL_CODE = "MP000028";
+
+    private final Map<String, ServiceType> byName = new HashMap<>();
+    private final Map<String, List<ServiceType>> byCode = new HashMap<>();
+    // hậu tố (đã fold) -> tên (đã fold, sắp xếp) -> các ServiceType; subMap theo tiền tố thay cho LIKE 'abc%'
+    private final Map<String, NavigableMap<String, List<ServiceType>>> bySuffix = new HashMap<>();
+
+    public ServiceTypeIndex(Collection<ServiceType> catalog) {
+        List<ServiceType> sorted = new ArrayList<>(catalog);
+        sorted.sort(Comparator.comparing(ServiceType::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        for (String suffix : SUFFIXES) {
+            bySuffix.put(foldForMatch(suffix), new TreeMap<>());
+        }
+
+        for (ServiceType st : sorted) {
+            String name = foldForMatch(st.getService_name());
+            if (name != null) {
+                byName.putIfAbsent(name, st);
+                for (Map.Entry<String, NavigableMap<String, List<ServiceType>>> bucket : bySuffix.entrySet()) {
+                    if (name.endsWith(bucket.getKey())) {
+                        bucket.getValue().computeIfAbsent(name, k -> new ArrayList<>(1)).add(st);
+                    }
+                }
+            }
+            String code = foldForMatch(st.getService_code());
+            if (code != null) {
+                byCode.computeIfAbsent(code, k -> new ArrayList<>(1)).add(st);
+            }
+        }
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * @return ServiceType khớp, hoặc {@code null} nếu không có.
+     * @throws IllegalStateException khi tra theo tiền tố/hậu tố hoặc theo mã mà khớp nhiều bản ghi
+     */
+    public ServiceType resolve(String perfectString) {
+        if (perfectString == null) return null;
+
+        for (String suffix : SUFFIXES) {
+            if (perfectString.endsWith(suffix)) {
+                int cut = Math.round((float) perfectString.length() / 3);
+                String prefix = foldForMatch(perfectString.substring(0, cut));
+                NavigableMap<String, List<ServiceType>> bucket = bySuffix.get(foldForMatch(suffix));
+
+                List<ServiceType> matches = new ArrayList<>(1);
+                for (List<ServiceType> list : bucket.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                    matches.addAll(list);
+                }
+                return single(matches, perfectString);
+            }
+        }
+
+        if (perfectString.equals(ELRAVIE_GEL_NAME)) {
+            return single(byCode.getOrDefault(foldForMatch(ELRAVIE_GEL_CODE), List.of()), ELRAVIE_GEL_CODE);
+        }
+
+        return byName.get(foldForMatch(perfectString));
+    }
+
+    private static ServiceType single(List<ServiceType> matches, String key) {
+        if (matches.isEmpty()) return null;
+        if (matches.size() > 1) {
+            throw new IllegalStateException("Có " + matches.size() + " ServiceType cùng khớp '" + key + "'");
+        }
+        return matches.get(0);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Repository.ServiceTypeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nạp {@link ServiceTypeIndex} từ danh mục service_type, mỗi lần import/đồng bộ một lần.
+ * Không giữ giữa các lần chạy: danh mục có thể đổi qua import trên instance khác hoặc sửa thẳng DB.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ServiceTypeResolver {
+
+    private final ServiceTypeRepository serviceTypeRepository;
+
+    /** Index mới từ danh mục hiện tại trong DB; người gọi dùng cho trọn một lần chạy. */
+    public ServiceTypeIndex load() {
+        ServiceTypeIndex index = new ServiceTypeIndex(serviceTypeRepository.findAll());
+        log.info("Loaded service_type index: {} names", index.size());
+        return index;
+    }
+}
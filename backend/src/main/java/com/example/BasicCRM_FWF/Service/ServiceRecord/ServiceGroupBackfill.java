@@ -0,0 +1,59 @@
+package com.example.BasicCRM_FWF.Service.ServiceRecord;
+
+import com.example.BasicCRM_FWF.Model.ServiceGroup;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Điền/sửa cột service_group của service_type và service_type_temp khi khởi động.
+ * Entity tự gán nhóm khi lưu qua JPA; ở đây bắt các dòng cũ (NULL) và dòng bị sửa tên trực tiếp trong DB.
+ * Hai bảng danh mục chỉ vài nghìn dòng nên phân loại lại toàn bộ, chỉ UPDATE dòng có nhóm khác.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ServiceGroupBackfill {
+
+    private static final List<String> TABLES = List.of("service_type", "service_type_temp");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataWatermarkService watermarkService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        for (String table : TABLES) {
+            try {
+                int updated = reclassify(table);
+                if (updated > 0) {
+                    log.info("Reclassified service_group for {} rows in {}", updated, table);
+                    watermarkService.touch(table, null, null);
+                }
+            } catch (Exception e) {
+                log.error("service_group backfill failed for {}: {}", table, e.getMessage(), e);
+            }
+        }
+    }
+
+    private int reclassify(String table) {
+        List<Object[]> changes = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, service_name, service_group FROM " + table, rs -> {
+            String group = ServiceGroup.classify(rs.getString("service_name")).getLabel();
+            if (!Objects.equals(group, rs.getString("service_group"))) {
+                changes.add(new Object[]{group, rs.getLong("id")});
+            }
+        });
+        if (!changes.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE " + table + " SET service_group = ? WHERE id = ?", changes);
+        }
+        return changes.size();
+    }
+}
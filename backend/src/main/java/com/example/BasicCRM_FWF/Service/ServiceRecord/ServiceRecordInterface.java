@@ -2,14 +2,16 @@ package com.example.BasicCRM_FWF.Service.ServiceRecord;
 
 import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
 import com.example.BasicCRM_FWF.DTOResponse.*;
-import org.springframework.web.multipart.MultipartFile;
+import com.example.BasicCRM_FWF.Service.Import.ImportProgress;
+
+import java.nio.file.Path;
 
 import java.util.List;
 
 public interface ServiceRecordInterface {
-    public void importFromExcelOrigin(MultipartFile file);
+    public void importFromExcelOrigin(Path file, ImportProgress progress);
 
-    public void importSaleServiceFile(MultipartFile file);
+    public void importSaleServiceFile(Path file, ImportProgress progress);
 
     public List<DailyServiceTypeStatDTO> getServiceTypeBreakdown(CustomerReportRequest request);
 
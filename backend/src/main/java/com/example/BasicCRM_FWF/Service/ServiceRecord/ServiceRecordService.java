@@ -5,22 +5,29 @@ import com.example.BasicCRM_FWF.DTOResponse.*;
 import com.example.BasicCRM_FWF.Model.*;
 import com.example.BasicCRM_FWF.Repository.*;
 import com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordService;
+import com.example.BasicCRM_FWF.Service.Report.PeriodRows;
+import com.example.BasicCRM_FWF.Service.Report.ReportCached;
+import com.example.BasicCRM_FWF.Service.Import.*;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.ServiceTypeBulkWriter;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.ServiceTypeCatalogMerge;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.math.RoundingMode;
 import java.sql.Date;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.example.BasicCRM_FWF.Service.CustomerSaleRecord.CustomerSaleRecordService.getResult;
@@ -36,15 +43,24 @@ public class ServiceRecordService {
     private final AppliedCardRepository appliedCardRepository;
     private final ServiceTypeRepository serviceTypeRepository;
     private final ServiceTypeTempRepository serviceTypeTempRepository;
-
-    public void importFromExcelOrigin(MultipartFile file) {
-        int success = 0;
-        int failed = 0;
-
-        try (InputStream is = file.getInputStream()) {
-            Workbook workbook = WorkbookFactory.create(is);
-            Sheet sheet = workbook.getSheetAt(0);
-
+    private final ServiceTypeBulkWriter serviceTypeBulkWriter;
+    private final ImportPipeline importPipeline;
+    private final CustomerKeyRegistry customerKeyRegistry;
+    private final DataWatermarkService watermarkService;
+
+    // Cột 3: giờ đặt, 10: giá buổi, 13: tổng phụ thu, 16: lương nhân viên
+    private static final ColumnSchema SERVICE_RECORD_COLUMNS = ColumnSchema.builder()
+            .dateTime(3, DateLayout.TIME_DMY)
+            .decimal(10, 13, 16)
+            .build();
+    // File danh mục dịch vụ, cột 5: giá
+    private static final ColumnSchema CATALOG_COLUMNS = ColumnSchema.builder()
+            .decimal(5)
+            .build();
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public void importFromExcelOrigin(Path file, ImportProgress progress) {
+        try {
             // Map chuẩn hóa cho Region, ServiceType, AppliedCard
             Map<String, Region> regionMap = regionRepository.findAll().stream()
                     .collect(Collectors.toMap(r -> r.getShop_name().trim().toLowerCase(), Function.identity()));
@@ -55,128 +71,155 @@ public class ServiceRecordService {
             Map<String, AppliedCard> appliedCardMap = appliedCardRepository.findAll().stream()
                     .collect(Collectors.toMap(c -> c.getCard_name().trim().toLowerCase(), Function.identity()));
 
-            for (int i = 2; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null || isRowEmpty(row)) {
-                    log.info("Stopped at row {} (blank)", i);
-                    break;
-                }
-
-                try {
-                    String dateStr = getString(row.getCell(3));
-                    LocalDateTime bookingDate = LocalDateTime.parse(dateStr, DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy"));
-
-                    String key = getString(row.getCell(4)).trim().toLowerCase();
-                    Region facility = regionMap.get(key);
-
-                    String key2 = getString(row.getCell(8)).trim().toLowerCase();
-                    ServiceTypeTemp serviceType = serviceTypeMap.get(key2);
+            // ✅ Khoá đã import (giờ đặt + SĐT + cơ sở + dịch vụ), nạp theo ngày để import lại không tạo trùng
+            ImportKeyIndex<ServiceRecord> importKeys = new ImportKeyIndex<>(DataWatermarkService.SERVICE_RECORD,
+                    repository::findImportKeysBetween, repository::findByImportKeys);
+            RowDecoder decoder = SERVICE_RECORD_COLUMNS.decoder();
+
+            importPipeline.run(file, progress, new RowImporter<ServiceRecord>() {
+                @Override
+                public ServiceRecord parse(ImportRow row) {
+                    DecodedRow r = decoder.decode(row);
+                    LocalDateTime bookingDate = r.requireDateTime(3);
+
+                    Region facility = regionMap.get(r.text(4).toLowerCase());
+                    ServiceTypeTemp serviceType = serviceTypeMap.get(r.text(8).toLowerCase());
+                    AppliedCard appliedCard = appliedCardMap.get(r.text(9).toLowerCase());
+
+                    // Không chặn dòng (giữ như trước: ghi với giá trị null) nhưng đưa vào bảng tổng hợp
+                    int i = r.getRowNum();
+                    if (facility == null) {
+                        progress.issue(ImportIssue.UNKNOWN_SHOP, i, "Không tìm thấy cơ sở '" + r.text(4) + "'");
+                    }
+                    if (serviceType == null) {
+                        progress.issue(ImportIssue.UNKNOWN_SERVICE, i, "Không tìm thấy dịch vụ '" + r.text(8) + "'");
+                    }
+                    if (r.isBlank(10)) {
+                        progress.issue(ImportIssue.BLANK_AMOUNT, i, "Giá buổi trống");
+                    }
 
-                    String key3 = getString(row.getCell(9)).trim().toLowerCase();
-                    AppliedCard appliedCard = appliedCardMap.get(key3);
+                    String sessionType = r.text(11);
+                    String surcharge = r.text(12);
+                    String totalSurcharge = r.text(13);
+                    String status = r.text(17);
 
-                    ServiceRecord record = ServiceRecord.builder()
+                    return ServiceRecord.builder()
+                            .importKey(ImportKeyIndex.naturalKey(bookingDate, r.text(6),
+                                    facility != null ? facility.getId() : null, r.text(8)))
+                            .rowFingerprint(row.fingerprint())
                             .bookingDate(bookingDate)
                             .facility(facility)
-                            .customerName(getString(row.getCell(5)))
-                            .phoneNumber(getString(row.getCell(6)))
+                            .customerName(r.text(5))
+                            .phoneNumber(r.text(6))
                             .baseService(serviceType)
-                            .serviceName(getString(row.getCell(8)))
+                            .serviceName(r.text(8))
                             .appliedCard(appliedCard)
-                            .sessionPrice(toBigDecimal(row.getCell(10)))
-                            .sessionType(getString(row.getCell(11)).startsWith("Buổi thường") || getString(row.getCell(11)).isBlank() ? null : getString(row.getCell(11)))
-                            .surcharge(getString(row.getCell(12)).startsWith("Không có") || getString(row.getCell(12)).isBlank() ? null : getString(row.getCell(12)))
-                            .totalSurcharge(getString(row.getCell(13)).startsWith("0") || getString(row.getCell(13)).isBlank() ? null : toBigDecimal(row.getCell(13)))
-                            .shiftEmployee(getString(row.getCell(14)))
-                            .performingEmployee(getString(row.getCell(15)))
-                            .employeeSalary(toBigDecimal(row.getCell(16)))
-                            .status(getString(row.getCell(17)).startsWith("Hoàn thành") || getString(row.getCell(17)).isBlank() ? null : getString(row.getCell(17)))
+                            .sessionPrice(r.decimal(10))
+                            .sessionType(sessionType.startsWith("Buổi thường") || sessionType.isBlank() ? null : sessionType)
+                            .surcharge(surcharge.startsWith("Không có") || surcharge.isBlank() ? null : surcharge)
+                            .totalSurcharge(totalSurcharge.startsWith("0") || totalSurcharge.isBlank() ? null : r.decimal(13))
+                            .shiftEmployee(r.text(14))
+                            .performingEmployee(r.text(15))
+                            .employeeSalary(r.decimal(16))
+                            .status(status.startsWith("Hoàn thành") || status.isBlank() ? null : status)
                             .build();
+                }
 
-                    repository.save(record);
-                    success++;
-
-                } catch (Exception e) {
-                    failed++;
-                    log.warn("Row {} failed: {}", i, e.getMessage());
+                @Override
+                public void write(List<ParsedRow<ServiceRecord>> batch, ImportProgress progress) {
+                    importKeys.writeBatch(batch, progress, list -> {
+                        customerKeyRegistry.assign(list, ServiceRecord::getPhoneNumber, ServiceRecord::setCustomerKey);
+                        watermarkService.write(DataWatermarkService.SERVICE_RECORD,
+                                list, ServiceRecord::getBookingDate, repository::saveAll);
+                    });
                 }
-            }
+            });
 
-            log.info("IMPORT SERVICE RECORD: Success = {}, Failed = {}", success, failed);
+            log.info("IMPORT SERVICE RECORD: Success = {}, Unchanged = {}, Failed = {}",
+                    progress.getSuccess(), progress.getUnchanged(), progress.getFailed());
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to import service record Excel", e);
         }
     }
 
-    public void importSaleServiceFile(MultipartFile file) {
-        int successCount = 0;
-        int failCount = 0;
-        int skippedCount = 0;
-
-        try (InputStream is = file.getInputStream()) {
-            Workbook workbook = new XSSFWorkbook(is);
-            Sheet sheet = workbook.getSheetAt(0);
-
-            for (int i = 2; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-
-                if (row == null || isRowEmpty(row)) {
-                    log.info("Stopped at row {} (blank)", i);
-                    break;
-                }
-
-                try {
-                    String service_name = getString(row.getCell(2));
-                    String service_code = getString(row.getCell(3));
-                    String price = getString(row.getCell(5));
-                    String category = getString(row.getCell(6));
-
-                    if (service_code == null || service_name == null || price == null || category == null) {
-                        log.warn("Row {} skipped: missing required fields", i);
-                        failCount++;
-                        continue;
+    public void importSaleServiceFile(Path file, ImportProgress progress) {
+        try {
+            RowDecoder decoder = CATALOG_COLUMNS.decoder();
+            // Đọc danh mục một lần, so khớp mã/tên trong bộ nhớ thay cho findByCode/findByName từng dòng
+            ServiceTypeCatalogMerge merge = new ServiceTypeCatalogMerge(serviceTypeRepository.findAll());
+            progress.setReport(merge.getDiff());
+
+            importPipeline.run(file, progress, new RowImporter<ServiceType>() {
+                @Override
+                public ServiceType parse(ImportRow row) {
+                    DecodedRow r = decoder.decode(row);
+                    String service_name = r.text(2);
+                    String service_code = r.text(3);
+                    String category = r.text(6);
+
+                    if (service_code == null || service_name == null || r.text(5) == null || category == null) {
+                        throw new InvalidRowException(ImportIssue.MISSING_FIELD, "Thiếu tên, mã, giá hoặc nhóm dịch vụ");
                     }
-
-                    // ✅ Chuẩn hoá service_name
-                    service_name = service_name.trim().replaceAll("\\s+", " ");
-
-                    // ✅ Kiểm tra tồn tại theo code hoặc name
-                    ServiceType byCode = serviceTypeRepository.findByCode(service_code);
-                    ServiceType byName = serviceTypeRepository.findByName(service_name);
-
-                    if (byCode != null || byName != null) {
-                        log.warn("Row {} skipped: ServiceType đã tồn tại (code='{}', name='{}')",
-                                i, service_code, service_name);
-                        skippedCount++;
-                        continue;
+                    BigDecimal price = r.decimalOrNull(5);
+                    if (price == null) {
+                        throw new InvalidRowException(ImportIssue.OTHER, "Giá không hợp lệ: '" + r.text(5) + "'");
                     }
 
-                    // ✅ Nếu chưa có thì insert
-                    ServiceType st = ServiceType.builder()
-                            .service_name(service_name)
+                    // ✅ Chuẩn hoá service_name
+                    return ServiceType.builder()
+                            .service_name(WHITESPACE.matcher(service_name).replaceAll(" "))
                             .service_code(service_code)
-                            .price(new BigDecimal(price))
+                            .price(price)
                             .category(category)
                             .build();
+                }
 
-                    serviceTypeRepository.save(st);
-                    successCount++;
+                @Override
+                public void write(List<ParsedRow<ServiceType>> batch, ImportProgress progress) {
+                    List<ParsedRow<ServiceType>> inserts = new ArrayList<>();
+                    for (ParsedRow<ServiceType> row : batch) {
+                        ServiceType st = row.value();
+                        switch (merge.classify(row.rowNum(), st)) {
+                            case NEW -> inserts.add(row);
+                            case UNCHANGED -> progress.unchanged();
+                            case CONFLICT -> {
+                                String message = "ServiceType đã tồn tại với dữ liệu khác (code='"
+                                        + st.getService_code() + "', name='" + st.getService_name() + "')";
+                                progress.skipped(row.rowNum(), message);
+                                progress.issue(ImportIssue.DUPLICATE, row.rowNum(), message);
+                            }
+                        }
+                    }
+
+                    if (progress.isDryRun()) {
+                        progress.success(inserts.size());
+                    } else {
+                        ImportPipeline.writeWithFallback(inserts, progress, serviceTypeBulkWriter::insert);
+                    }
+                }
+
+                @Override
+                public int batchSize() {
+                    // danh mục chỉ vài nghìn dòng: thường cả file là một lô INSERT
+                    return 5000;
+                }
 
-                } catch (Exception e) {
-                    failCount++;
-                    log.error("Row {} failed: {}", i, e.getMessage(), e);
+                @Override
+                public boolean previewInDryRun() {
+                    return true;
                 }
-            }
+            });
 
-            log.info("IMPORT SERVICE RECORD: Success = {}, Skipped = {}, Failed = {}",
-                    successCount, skippedCount, failCount);
+            log.info("IMPORT SERVICE RECORD: Success = {}, Unchanged = {}, Skipped = {}, Failed = {}",
+                    progress.getSuccess(), progress.getUnchanged(), progress.getSkipped(), progress.getFailed());
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to import service record Excel", e);
         }
     }
 
+    @ReportCached
     public List<DailyServiceTypeStatDTO> getServiceTypeBreakdown(CustomerReportRequest request) {
         List<Object[]> raw = repository.countServiceTypesPerDay(request.getFromDate(), request.getToDate());
         return raw.stream()
@@ -187,19 +230,25 @@ public class ServiceRecordService {
                 )).collect(Collectors.toList());
     }
 
+    @ReportCached
     public ServiceSummaryDTO getServiceSummary(CustomerReportRequest request) {
         CustomerSaleRecordService.Result r = getResult(request);
 
-        long combo = count("combo", r.fromDate(), r.toDate());
-        long le = count("dv", r.fromDate(), r.toDate());
-        long ct = count("ct", r.fromDate(), r.toDate());
-        long gift = count("quà tặng", r.fromDate(), r.toDate());
+        // Một query gom theo (kỳ, nhóm); "combo" gồm cả Combo CS (như LIKE 'combo%' trước đây)
+        PeriodRows rows = PeriodRows.of(repository.countByServiceGroupByPeriod(r.fromDate(), r.toDate(), r.prevFrom(), r.prevTo()));
+        Map<String, Long> current = countByGroup(rows.current());
+        Map<String, Long> previous = countByGroup(rows.previous());
+
+        long combo = group(current, ServiceGroup.COMBO_CS) + group(current, ServiceGroup.COMBO);
+        long le = group(current, ServiceGroup.SERVICE);
+        long ct = group(current, ServiceGroup.ADD_ON);
+        long gift = group(current, ServiceGroup.GIFT);
         long total = combo + le + ct + gift;
 
-        long prevCombo = count("combo", r.prevFrom(), r.prevTo());
-        long prevLe = count("dv", r.prevFrom(), r.prevTo());
-        long prevCT = count("ct", r.prevFrom(), r.prevTo());
-        long prevGift = count("quà tặng", r.prevFrom(), r.prevTo());
+        long prevCombo = group(previous, ServiceGroup.COMBO_CS) + group(previous, ServiceGroup.COMBO);
+        long prevLe = group(previous, ServiceGroup.SERVICE);
+        long prevCT = group(previous, ServiceGroup.ADD_ON);
+        long prevGift = group(previous, ServiceGroup.GIFT);
         long prevTotal = prevCombo + prevLe + prevCT + prevGift;
 
         return new ServiceSummaryDTO(
@@ -213,10 +262,19 @@ public class ServiceRecordService {
         );
     }
 
-    private long count(String prefix, LocalDateTime start, LocalDateTime end) {
-        return repository.countByServiceCodePrefix(prefix, start, end);
+    private static Map<String, Long> countByGroup(List<Object[]> groupRows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : groupRows) {
+            if (row[0] != null) counts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private static long group(Map<String, Long> counts, ServiceGroup group) {
+        return counts.getOrDefault(group.getLabel(), 0L);
     }
 
+    @ReportCached
     public List<RegionServiceTypeUsageDTO> getServiceUsageByRegion(CustomerReportRequest request) {
         List<Object[]> result = repository.findRegionServiceTypeCount(
                 request.getFromDate(), request.getToDate()
@@ -229,6 +287,7 @@ public class ServiceRecordService {
         )).collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<ServiceUsageDTO> getServiceUsageByShop(CustomerReportRequest request) {
         List<Object[]> raw = repository.findServiceUsageByShop(request.getFromDate(), request.getToDate());
 
@@ -240,6 +299,7 @@ public class ServiceRecordService {
         )).collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<TopServiceUsage> getTop10ServiceUsage(CustomerReportRequest request) {
         LocalDateTime start = request.getFromDate();
         LocalDateTime end = request.getToDate();
@@ -253,6 +313,7 @@ public class ServiceRecordService {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<TopServiceRevenue> getTop10ServicesByRevenue(CustomerReportRequest request) {
         List<Object[]> rawResults = repository.findTop10ServicesByRevenue(
                 request.getFromDate(),
@@ -268,6 +329,7 @@ public class ServiceRecordService {
                 .collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<TopServiceRevenue> getBottom3ServiceRevenue(CustomerReportRequest request) {
         LocalDateTime start = request.getFromDate();
         LocalDateTime end = request.getToDate();
@@ -279,6 +341,7 @@ public class ServiceRecordService {
                 )).collect(Collectors.toList());
     }
 
+    @ReportCached
     public List<TopServiceUsage> getBottom3ServicesUsage(CustomerReportRequest request) {
         LocalDateTime start = request.getFromDate();
         LocalDateTime end = request.getToDate();
@@ -290,16 +353,74 @@ public class ServiceRecordService {
                 )).collect(Collectors.toList());
     }
 
+    // [service_name, số lượt, doanh thu] trong khoảng ngày; các hàm bên dưới xếp hạng giống các query LIMIT riêng lẻ
+    @ReportCached
+    public List<Object[]> getServiceNameStats(CustomerReportRequest request) {
+        return repository.sumUsageAndRevenueByServiceName(request.getFromDate(), request.getToDate());
+    }
+
+    public static List<TopServiceUsage> top10ServiceUsage(List<Object[]> stats) {
+        return stats.stream()
+                .sorted(Comparator.comparingLong((Object[] row) -> ((Number) row[1]).longValue()).reversed())
+                .limit(10)
+                .map(ServiceRecordService::toUsage)
+                .toList();
+    }
+
+    public static List<TopServiceUsage> bottom3ServicesUsage(List<Object[]> stats) {
+        return stats.stream()
+                .sorted(Comparator.comparingLong((Object[] row) -> ((Number) row[1]).longValue()))
+                .limit(5)
+                .map(ServiceRecordService::toUsage)
+                .toList();
+    }
+
+    // NULL xếp cuối như ORDER BY ... DESC của MySQL
+    public static List<TopServiceRevenue> top10ServicesByRevenue(List<Object[]> stats) {
+        return stats.stream()
+                .sorted(Comparator.comparing((Object[] row) -> (BigDecimal) row[2], Comparator.nullsFirst(Comparator.<BigDecimal>naturalOrder())).reversed())
+                .limit(10)
+                .map(ServiceRecordService::toRevenue)
+                .toList();
+    }
+
+    // HAVING totalRevenue > 10000 ORDER BY totalRevenue ASC LIMIT 5
+    public static List<TopServiceRevenue> bottom3ServiceRevenue(List<Object[]> stats) {
+        BigDecimal threshold = BigDecimal.valueOf(10000);
+        return stats.stream()
+                .filter(row -> row[2] != null && ((BigDecimal) row[2]).compareTo(threshold) > 0)
+                .sorted(Comparator.comparing((Object[] row) -> (BigDecimal) row[2]))
+                .limit(5)
+                .map(ServiceRecordService::toRevenue)
+                .toList();
+    }
+
+    private static TopServiceUsage toUsage(Object[] row) {
+        return new TopServiceUsage(row[0] != null ? row[0].toString() : "Không xác định", ((Number) row[1]).longValue());
+    }
+
+    private static TopServiceRevenue toRevenue(Object[] row) {
+        return new TopServiceRevenue(row[0] != null ? row[0].toString() : "Không xác định",
+                row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO);
+    }
+
+    @ReportCached
     public List<ServiceStatsDTO> getTopServiceTable(CustomerReportRequest request) {
         CustomerSaleRecordService.Result result = getResult(request);
-        Map<String, Object[]> previousData = repository.findTop10ServicesWithPreviousData(result.prevFrom(), result.prevTo())
+        PeriodRows rows = PeriodRows.of(repository.findTopServicesByPeriod(
+                result.fromDate(), result.toDate(), result.prevFrom(), result.prevTo()));
+        Map<String, Object[]> previousData = rows.previous()
                 .stream()
                 .collect(Collectors.toMap(
                         row -> row[0].toString(),
-                        row -> row
+                        row -> row,
+                        // kỳ trước gom theo tên dịch vụ như query cũ
+                        (a, b) -> new Object[]{a[0], a[1],
+                                ((Number) a[2]).longValue() + ((Number) b[2]).longValue(),
+                                toSafeBigDecimal(a[3]).add(toSafeBigDecimal(b[3]))}
                 ));
 
-        List<Object[]> currentData = repository.findTop10ServicesWithCurrentData(result.fromDate(), result.toDate());
+        List<Object[]> currentData = rows.current();
         long totalUsage = currentData.stream().mapToLong(r -> ((Number) r[2]).longValue()).sum();
         BigDecimal totalRevenue = currentData.stream()
                 .map(r -> (BigDecimal) r[3])
@@ -312,8 +433,8 @@ public class ServiceRecordService {
             BigDecimal currentRevenue = (BigDecimal) row[3];
 
             Object[] prev = previousData.get(name);
-            long prevCount = prev != null ? ((Number) prev[1]).longValue() : 0;
-            BigDecimal prevRevenue = prev != null && prev[2] != null ? (BigDecimal) prev[2] : BigDecimal.ZERO;
+            long prevCount = prev != null ? ((Number) prev[2]).longValue() : 0;
+            BigDecimal prevRevenue = prev != null && prev[3] != null ? (BigDecimal) prev[3] : BigDecimal.ZERO;
 
             long deltaCount = currentCount - prevCount;
             double deltaRevenuePct = prevRevenue.compareTo(BigDecimal.ZERO) == 0 ? 100.0 :
@@ -0,0 +1,124 @@
+package com.example.BasicCRM_FWF.Service.ShiftEmployee;
+
+import com.example.BasicCRM_FWF.Model.Shift;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Ghi chấm công theo lô qua JDBC với khoá (username, stockId, work_date): dòng đã có được UPDATE theo id, dòng mới
+ * được INSERT ... ON DUPLICATE KEY UPDATE trên khoá {@code uk_shift_user_stock_date} (do {@link ShiftTypedColumnMigrator}
+ * tạo lúc khởi động), nên hai lần sync song song (cron trên mỗi instance, sync tay trên instance khác) không chèn trùng.
+ * Dữ liệu cũ bị trùng khoá (do job cũ chạy hai lần) được dọn: giữ id nhỏ nhất, xoá phần dư.
+ * Dòng cũ chưa được {@link ShiftTypedColumnMigrator} chuyển (work_date NULL) được khớp theo cột chuỗi {@code date},
+ * nên sync chạy trước/trong lúc chuyển đổi không chèn trùng; lần UPDATE cũng điền luôn work_date cho dòng đó.
+ */
+@Component
+@RequiredArgsConstructor
+public class ShiftBulkWriter {
+
+    private static final int STOCKS_PER_STATEMENT = 500;
+
+    private static final String COLUMNS = "fullname, username, stock_id, stock_title, work_date, check_in_time, check_out_time, title, " +
+            "shift_start, shift_end, mandays_value, type_check_in, des_type_check_in, type_check_out, des_type_check_out, " +
+            "di_som, di_muon, ve_som, ve_muon";
+    private static final String UPSERT_SQL = "INSERT INTO shift (" + COLUMNS + ") VALUES ("
+            + String.join(", ", Collections.nCopies(19, "?")) + ") ON DUPLICATE KEY UPDATE "
+            + String.join(", ", Arrays.stream(COLUMNS.split(", ")).map(c -> c + " = VALUES(" + c + ")").toList());
+    private static final String UPDATE_SQL = "UPDATE shift SET " +
+            String.join(" = ?, ", COLUMNS.split(", ")) + " = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Cột date cũ còn hay không, đọc một lần
+    private volatile Boolean legacyDateColumn;
+
+    /**
+     * Số dòng thêm/sửa đếm theo lần đọc trước khi ghi; lô của instance khác chen giữa chỉ làm lệch con số,
+     * không tạo dòng trùng.
+     * @return {inserted, updated, duplicatesRemoved}
+     */
+    @Transactional
+    public int[] upsert(List<Shift> shifts) {
+        if (shifts.isEmpty()) return new int[]{0, 0, 0};
+
+        // Dòng sau cùng của API thắng nếu một khoá xuất hiện hai lần trong cùng lô
+        Map<String, Shift> byKey = new LinkedHashMap<>();
+        for (Shift s : shifts) byKey.put(key(s.getUsername(), s.getStockId(), s.getWorkDate()), s);
+
+        // Tra dòng sẵn có theo (stock_id, work_date) để dùng idx_shift_stock_date
+        LocalDate minDate = byKey.values().stream().map(Shift::getWorkDate).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDate maxDate = byKey.values().stream().map(Shift::getWorkDate).max(Comparator.naturalOrder()).orElseThrow();
+        boolean legacy = hasLegacyDateColumn();
+        Map<String, Integer> existing = new HashMap<>();
+        List<Object[]> duplicates = new ArrayList<>();
+        List<String> stocks = byKey.values().stream().map(Shift::getStockId).distinct().toList();
+        for (int from = 0; from < stocks.size(); from += STOCKS_PER_STATEMENT) {
+            List<String> chunk = stocks.subList(from, Math.min(from + STOCKS_PER_STATEMENT, stocks.size()));
+            String sql = "SELECT id, username, stock_id, work_date" + (legacy ? ", date" : "") + " FROM shift WHERE stock_id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") AND "
+                    + (legacy ? "(work_date BETWEEN ? AND ? OR work_date IS NULL)" : "work_date BETWEEN ? AND ?")
+                    + " ORDER BY id";
+            List<Object> args = new ArrayList<>(chunk);
+            args.add(minDate);
+            args.add(maxDate);
+            jdbcTemplate.query(sql, rs -> {
+                LocalDate date = rs.getObject("work_date", LocalDate.class);
+                if (date == null) {
+                    // Dòng cũ chưa chuyển: ngày chỉ có trong chuỗi date; không đọc được thì không khớp được
+                    date = legacy ? ShiftTimeParser.parseDate(rs.getString("date")) : null;
+                    if (date == null || date.isBefore(minDate) || date.isAfter(maxDate)) return;
+                }
+                String k = key(rs.getString("username"), rs.getString("stock_id"), date);
+                int id = rs.getInt("id");
+                if (existing.putIfAbsent(k, id) != null) duplicates.add(new Object[]{id});
+            }, args.toArray());
+        }
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<String, Shift> e : byKey.entrySet()) {
+            Object[] values = values(e.getValue());
+            Integer id = existing.get(e.getKey());
+            if (id == null) {
+                inserts.add(values);
+            } else {
+                Object[] args = Arrays.copyOf(values, values.length + 1);
+                args[values.length] = id;
+                updates.add(args);
+            }
+        }
+        if (!duplicates.isEmpty()) jdbcTemplate.batchUpdate("DELETE FROM shift WHERE id = ?", duplicates);
+        if (!updates.isEmpty()) jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        // Dòng chưa có lúc đọc: instance khác có thể vừa chèn cùng khoá, khoá duy nhất biến lần chèn thứ hai thành UPDATE
+        if (!inserts.isEmpty()) jdbcTemplate.batchUpdate(UPSERT_SQL, inserts);
+        return new int[]{inserts.size(), updates.size(), duplicates.size()};
+    }
+
+    private boolean hasLegacyDateColumn() {
+        Boolean legacy = legacyDateColumn;
+        if (legacy == null) {
+            Integer columns = jdbcTemplate.queryForObject(ShiftTypedColumnMigrator.LEGACY_DATE_COLUMN_SQL, Integer.class);
+            legacy = columns != null && columns > 0;
+            legacyDateColumn = legacy;
+        }
+        return legacy;
+    }
+
+    private static String key(String username, String stockId, LocalDate date) {
+        return username + "|" + stockId + "|" + date;
+    }
+
+    private static Object[] values(Shift s) {
+        return new Object[]{
+                s.getFullname(), s.getUsername(), s.getStockId(), s.getStockTitle(), s.getWorkDate(),
+                s.getCheckInTime(), s.getCheckOutTime(), s.getTitle(), s.getShiftStart(), s.getShiftEnd(), s.getMandaysValue(),
+                s.getTypeCheckIn(), s.getDesTypeCheckIn(), s.getTypeCheckOut(), s.getDesTypeCheckOut(),
+                s.getDiSom(), s.getDiMuon(), s.getVeSom(), s.getVeMuon()
+        };
+    }
+}
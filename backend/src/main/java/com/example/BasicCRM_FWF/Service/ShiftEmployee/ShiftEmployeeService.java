@@ -1,5 +1,7 @@
 package com.example.BasicCRM_FWF.Service.ShiftEmployee;
 
+import com.example.BasicCRM_FWF.DTORequest.CustomerReportRequest;
+import com.example.BasicCRM_FWF.DTOResponse.AttendanceStatDTO;
 import com.example.BasicCRM_FWF.Model.Region;
 import com.example.BasicCRM_FWF.Model.Shift;
 import com.example.BasicCRM_FWF.Repository.RegionRepository;
@@ -11,10 +13,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.sql.Time;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -29,6 +33,56 @@ public class ShiftEmployeeService {
     private final ShiftRepository repository;
     private final RegionRepository regionRepository;
 
+    // Chấm công theo nhân viên trong khoảng ngày, stockId = null là mọi cơ sở
+    public List<AttendanceStatDTO> getAttendanceByEmployee(CustomerReportRequest request, String stockId) {
+        return repository.attendanceByEmployee(request.getFromDate().toLocalDate(), request.getToDate().toLocalDate(), stockId)
+                .stream()
+                .map(r -> toAttendance((String) r[0], (String) r[1], 1, r, 2))
+                .toList();
+    }
+
+    public List<AttendanceStatDTO> getAttendanceByStore(CustomerReportRequest request, String stockId) {
+        return repository.attendanceByStore(request.getFromDate().toLocalDate(), request.getToDate().toLocalDate(), stockId)
+                .stream()
+                .map(r -> toAttendance((String) r[0], (String) r[1], ((Number) r[2]).longValue(), r, 3))
+                .toList();
+    }
+
+    public List<AttendanceStatDTO> getAttendanceByMonth(CustomerReportRequest request, String stockId) {
+        return repository.attendanceByMonth(request.getFromDate().toLocalDate(), request.getToDate().toLocalDate(), stockId)
+                .stream()
+                .map(r -> toAttendance((String) r[0], null, ((Number) r[1]).longValue(), r, 2))
+                .toList();
+    }
+
+    // Các cột số liệu bắt đầu từ vị trí offset: work_days, mandays, late_count, late_minutes, early_leave_count, early_leave_minutes, overtime_minutes
+    private static AttendanceStatDTO toAttendance(String key, String name, long employees, Object[] r, int offset) {
+        return new AttendanceStatDTO(
+                key,
+                name,
+                employees,
+                ((Number) r[offset]).longValue(),
+                toBigDecimal(r[offset + 1]),
+                toLong(r[offset + 2]),
+                toDouble(r[offset + 3]),
+                toLong(r[offset + 4]),
+                toDouble(r[offset + 5]),
+                toDouble(r[offset + 6])
+        );
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal bd ? bd : value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static double toDouble(Object value) {
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
 //    public void importFromExcel(MultipartFile file) {
 //        int successCount = 0;
 //        int failCount = 0;
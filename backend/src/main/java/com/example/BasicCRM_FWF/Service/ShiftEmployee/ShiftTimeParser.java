@@ -0,0 +1,77 @@
+package com.example.BasicCRM_FWF.Service.ShiftEmployee;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Đọc ngày/giờ/công từ chuỗi của API chấm công (và dữ liệu cũ lưu dạng chuỗi trong bảng shift).
+ * Chấp nhận ISO date-time ("2025-09-01T08:55:12"), ISO date, dd/MM/yyyy và HH:mm[:ss]; chuỗi rỗng/không đọc được trả null.
+ */
+public final class ShiftTimeParser {
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+            DateTimeFormatter.ofPattern("d/M/yyyy"));
+
+    private ShiftTimeParser() {
+    }
+
+    public static LocalDate parseDate(String s) {
+        s = clean(s);
+        if (s == null) return null;
+        LocalDateTime dt = parseDateTime(s);
+        if (dt != null) return dt.toLocalDate();
+        String datePart = s.length() > 10 ? s.substring(0, 10) : s;
+        for (DateTimeFormatter f : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(datePart, f);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        return null;
+    }
+
+    /** Giờ trong ngày; chuỗi có cả ngày thì lấy phần giờ. */
+    public static LocalTime parseTime(String s) {
+        s = clean(s);
+        if (s == null) return null;
+        LocalDateTime dt = parseDateTime(s);
+        if (dt != null) return dt.toLocalTime();
+        try {
+            return LocalTime.parse(s.length() == 4 ? "0" + s : s); // "8:30" -> "08:30"
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public static BigDecimal parseDecimal(String s) {
+        s = clean(s);
+        if (s == null) return null;
+        try {
+            return new BigDecimal(s.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime parseDateTime(String s) {
+        if (s.length() < 16 || s.charAt(10) != 'T' && s.charAt(10) != ' ') return null;
+        try {
+            return LocalDateTime.parse(s.replace(' ', 'T').substring(0, Math.min(s.length(), 19)));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String clean(String s) {
+        if (s == null) return null;
+        s = s.trim();
+        return s.isEmpty() || s.equalsIgnoreCase("null") ? null : s;
+    }
+}
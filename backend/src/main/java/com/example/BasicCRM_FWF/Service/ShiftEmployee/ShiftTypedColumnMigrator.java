@@ -0,0 +1,132 @@
+package com.example.BasicCRM_FWF.Service.ShiftEmployee;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chuyển dữ liệu chấm công cũ (date, check_in, check_out, time_from, time_to, mandays lưu dạng chuỗi)
+ * sang các cột có kiểu work_date, check_in_time, check_out_time, shift_start, shift_end, mandays_value.
+ * Chạy nền khi khởi động theo dải id, chỉ xử lý dòng chưa có work_date; cột cũ được giữ lại để đối chiếu.
+ * Sau đó dọn dòng trùng (username, stock_id, work_date) và tạo khoá duy nhất {@value #UNIQUE_KEY} mà
+ * {@link ShiftBulkWriter} dựa vào; khoá không khai báo trên entity vì ddl-auto sẽ tạo nó trước khi dọn trùng.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShiftTypedColumnMigrator {
+
+    private static final int ID_STEP = 5000;
+    private static final int UNIQUE_KEY_ATTEMPTS = 3;
+
+    static final String UNIQUE_KEY = "uk_shift_user_stock_date";
+
+    /** Bảng shift còn cột chuỗi {@code date} cũ (trả về số cột, 0 hoặc 1). */
+    static final String LEGACY_DATE_COLUMN_SQL = """
+            SELECT COUNT(*) FROM information_schema.columns
+            WHERE table_schema = DATABASE() AND table_name = 'shift' AND column_name = 'date'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        Thread t = new Thread(() -> {
+            try {
+                migrate();
+                ensureUniqueKey();
+            } catch (Exception e) {
+                log.error("shift typed column migration failed: {}", e.getMessage(), e);
+            }
+        }, "shift-typed-migration");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** @return số dòng được chuyển */
+    public int migrate() {
+        Integer legacy = jdbcTemplate.queryForObject(LEGACY_DATE_COLUMN_SQL, Integer.class);
+        if (legacy == null || legacy == 0) return 0;
+
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM shift WHERE work_date IS NULL AND date IS NOT NULL");
+        if (range.get("min_id") == null) return 0;
+        long min = ((Number) range.get("min_id")).longValue();
+        long max = ((Number) range.get("max_id")).longValue();
+
+        int migrated = 0, unreadable = 0;
+        for (long from = min; from <= max; from += ID_STEP) {
+            List<Object[]> updates = new ArrayList<>();
+            int[] skipped = {0};
+            jdbcTemplate.query("""
+                    SELECT id, date, check_in, check_out, time_from, time_to, mandays FROM shift
+                    WHERE id BETWEEN ? AND ? AND work_date IS NULL AND date IS NOT NULL
+                    """, rs -> {
+                var workDate = ShiftTimeParser.parseDate(rs.getString("date"));
+                if (workDate == null) {
+                    skipped[0]++;
+                    return;
+                }
+                updates.add(new Object[]{
+                        workDate,
+                        ShiftTimeParser.parseTime(rs.getString("check_in")),
+                        ShiftTimeParser.parseTime(rs.getString("check_out")),
+                        ShiftTimeParser.parseTime(rs.getString("time_from")),
+                        ShiftTimeParser.parseTime(rs.getString("time_to")),
+                        ShiftTimeParser.parseDecimal(rs.getString("mandays")),
+                        rs.getInt("id")
+                });
+            }, from, Math.min(from + ID_STEP - 1, max));
+
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("""
+                        UPDATE shift SET work_date = ?, check_in_time = ?, check_out_time = ?,
+                                         shift_start = ?, shift_end = ?, mandays_value = ?
+                        WHERE id = ?
+                        """, updates);
+            }
+            migrated += updates.size();
+            unreadable += skipped[0];
+        }
+        log.info("Migrated {} shift rows to typed columns ({} with unreadable date left as is)", migrated, unreadable);
+        return migrated;
+    }
+
+    /**
+     * Xoá dòng trùng khoá (giữ id nhỏ nhất) rồi tạo khoá duy nhất; khoá đã có thì thôi.
+     * Sync chen giữa hai bước có thể chèn lại dòng trùng làm lần tạo khoá lỗi, nên thử lại vài lần.
+     * @return true nếu khoá đã có hoặc vừa được tạo
+     */
+    public boolean ensureUniqueKey() {
+        for (int attempt = 1; attempt <= UNIQUE_KEY_ATTEMPTS; attempt++) {
+            Integer present = jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) FROM information_schema.statistics
+                    WHERE table_schema = DATABASE() AND table_name = 'shift' AND index_name = ?
+                    """, Integer.class, UNIQUE_KEY);
+            if (present != null && present > 0) return true;
+
+            int removed = jdbcTemplate.update("""
+                    DELETE s FROM shift s
+                    JOIN shift k ON k.username = s.username AND k.stock_id = s.stock_id
+                                AND k.work_date = s.work_date AND k.id < s.id
+                    """);
+            try {
+                jdbcTemplate.execute("CREATE UNIQUE INDEX " + UNIQUE_KEY + " ON shift (username, stock_id, work_date)");
+                log.info("Created {} after removing {} duplicate shift rows", UNIQUE_KEY, removed);
+                return true;
+            } catch (DataAccessException e) {
+                // Dòng trùng mới chen vào, hoặc instance khác vừa tạo khoá: vòng sau kiểm tra lại
+                log.warn("Create {} failed (attempt {}): {}", UNIQUE_KEY, attempt, e.getMessage());
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.BasicCRM_FWF.Service.ShiftEmployee;
+
+import com.example.BasicCRM_FWF.Model.Shift;
+import com.example.BasicCRM_FWF.Model.SyncState;
+import com.example.BasicCRM_FWF.Repository.SyncStateRepository;
+import com.example.BasicCRM_FWF.Service.AuthRealTime.AuthService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Đồng bộ chấm công (userwork23@workList) vào bảng shift.
+ *
+ * <p>Ghi qua {@link ShiftBulkWriter} (upsert theo username, stockId, date) nên chạy lại một ngày không tạo trùng.
+ * Job hằng đêm chạy bù mọi ngày từ sau mốc đồng bộ thành công gần nhất (sync_state "work-track") tới hôm qua.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WorkTrackSyncService {
+
+    public static final String SYNC_NAME = "work-track";
+
+    private static final String URL = "https://app.facewashfox.com/api/v3/userwork23@workList";
+    private static final DateTimeFormatter API_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuthService authService;
+    private final SyncStateRepository syncStateRepository;
+    private final ShiftBulkWriter shiftBulkWriter;
+
+    // Số ngày mỗi lần gọi API khi đồng bộ một khoảng dài
+    @Value("${application.work-track.days-per-request:7}")
+    private int daysPerRequest;
+
+    // Lần chạy đầu (chưa có mốc) chạy bù bao nhiêu ngày
+    @Value("${application.work-track.initial-days:1}")
+    private int initialDays;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public record Result(LocalDate from, LocalDate to, int inserted, int updated, int duplicatesRemoved) {}
+
+    @Scheduled(cron = "0 0 1 * * *")
+    public void scheduledCatchUp() {
+        try {
+            catchUp();
+        } catch (Exception e) {
+            log.error("Work-track catch-up failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Đồng bộ mọi ngày từ sau mốc gần nhất tới hôm qua, rồi dời mốc. */
+    public Result catchUp() throws Exception {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        SyncState state = syncStateRepository.findById(SYNC_NAME).orElseGet(() -> {
+            SyncState s = new SyncState();
+            s.setName(SYNC_NAME);
+            return s;
+        });
+        LocalDate from = state.getWatermark() != null
+                ? state.getWatermark().toLocalDate().plusDays(1)
+                : yesterday.minusDays(initialDays - 1L);
+        if (from.isAfter(yesterday)) {
+            return new Result(from, yesterday, 0, 0, 0);
+        }
+
+        state.setLastRunAt(LocalDateTime.now());
+        try {
+            Result result = sync(from, yesterday);
+            state.setWatermark(yesterday.atStartOfDay());
+            state.setLastStatus("SUCCESS");
+            state.setLastMessage(result.toString());
+            return result;
+        } catch (Exception e) {
+            state.setLastStatus("FAILED");
+            String message = String.valueOf(e.getMessage());
+            state.setLastMessage(message.length() > 500 ? message.substring(0, 500) : message);
+            throw e;
+        } finally {
+            syncStateRepository.save(state);
+        }
+    }
+
+    /**
+     * Đồng bộ khoảng ngày bất kỳ [from, to], gọi API theo từng đoạn {@code daysPerRequest} ngày.
+     * @throws IllegalStateException nếu đang có lần đồng bộ khác chạy
+     */
+    public Result sync(LocalDate from, LocalDate to) throws Exception {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Khoảng ngày không hợp lệ");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Đồng bộ chấm công đang chạy");
+        }
+        try {
+            int inserted = 0, updated = 0, removed = 0;
+            for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(daysPerRequest)) {
+                LocalDate end = start.plusDays(daysPerRequest - 1L).isAfter(to) ? to : start.plusDays(daysPerRequest - 1L);
+                int[] counts = shiftBulkWriter.upsert(fetch(start, end));
+                inserted += counts[0];
+                updated += counts[1];
+                removed += counts[2];
+            }
+            Result result = new Result(from, to, inserted, updated, removed);
+            log.info("==== WORK TRACK SYNC {} ====", result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<Shift> fetch(LocalDate from, LocalDate to) throws Exception {
+        String token = authService.getToken();
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("From", from.format(API_DATE));
+        payload.put("To", to.format(API_DATE));
+        payload.put("key", "");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Accept", "application/json, text/plain, */*");
+        headers.set("Authorization", "Bearer " + token);
+        headers.set("User-Agent", "Mozilla/5.0 (iPhone; CPU iPhone OS 18_6_2 like Mac OS X)");
+
+        ResponseEntity<String> response = restTemplate.exchange(URL, HttpMethod.POST, new HttpEntity<>(payload, headers), String.class);
+        if (response.getStatusCode() != HttpStatus.OK) {
+            throw new RuntimeException("API call failed: " + response.getStatusCode());
+        }
+
+        List<Shift> shifts = new ArrayList<>();
+        JsonNode items = objectMapper.readTree(response.getBody()).path("list");
+        for (JsonNode item : items) {
+            String fullname = item.path("FullName").asText();
+            String username = item.path("UserName").asText();
+            String stockId = item.path("StockID").asText();
+            String stockTitle = item.path("StockTitle").asText();
+
+            for (JsonNode dateNode : item.path("Dates")) {
+                JsonNode workTrack = dateNode.path("WorkTrack");
+                if (workTrack.isMissingNode() || workTrack.isNull()) continue;
+                LocalDate workDate = ShiftTimeParser.parseDate(dateNode.path("Date").asText());
+                if (workDate == null) {
+                    log.warn("Skip work-track of {}: unreadable date '{}'", username, dateNode.path("Date").asText());
+                    continue;
+                }
+                shifts.add(toShift(fullname, username, stockId, stockTitle, workDate, workTrack));
+            }
+        }
+        return shifts;
+    }
+
+    private static Shift toShift(String fullname, String username, String stockId, String stockTitle,
+                                 LocalDate workDate, JsonNode workTrack) {
+        JsonNode info = workTrack.path("Info");
+        double diSom = 0, diMuon = 0, veSom = 0, veMuon = 0;
+
+        if (info.has("DI_MUON")) {
+            diMuon = 0 - Math.abs(info.path("DI_MUON").path("Value").asDouble(0)); // luôn âm
+        }
+        if (info.has("VE_SOM")) {
+            veSom = 0 - Math.abs(info.path("VE_SOM").path("Value").asDouble(0)); // luôn âm
+        }
+        if (info.has("CheckOut") && info.path("CheckOut").has("VE_MUON")) {
+            veMuon = Math.abs(info.path("CheckOut").path("VE_MUON").path("Value").asDouble(0)); // luôn dương
+        }
+
+        JsonNode workToday = info.path("WorkToday");
+        JsonNode checkOutNode = info.path("CheckOut");
+
+        return Shift.builder()
+                .fullname(fullname)
+                .username(username)
+                .stockId(stockId)
+                .stockTitle(stockTitle)
+                .workDate(workDate)
+                .checkInTime(ShiftTimeParser.parseTime(workTrack.path("CheckIn").asText()))
+                .checkOutTime(ShiftTimeParser.parseTime(workTrack.path("CheckOut").asText()))
+                .title(workToday.path("Title").asText())
+                .shiftStart(ShiftTimeParser.parseTime(workToday.path("TimeFrom").asText()))
+                .shiftEnd(ShiftTimeParser.parseTime(workToday.path("TimeTo").asText()))
+                .mandaysValue(ShiftTimeParser.parseDecimal(workToday.path("Value").asText()))
+                .typeCheckIn(info.path("Type").asText())
+                .desTypeCheckIn(info.path("Desc").asText())
+                .typeCheckOut(checkOutNode.path("Type").asText())
+                .desTypeCheckOut(checkOutNode.path("Desc").asText())
+                .diSom(diSom)
+                .diMuon(diMuon)
+                .veSom(veSom)
+                .veMuon(veMuon)
+                .build();
+    }
+}
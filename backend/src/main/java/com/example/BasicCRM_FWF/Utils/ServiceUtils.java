@@ -9,6 +9,7 @@ import org.apache.poi.ss.usermodel.Row;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.sql.Time;
+import java.text.Normalizer;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -53,6 +54,31 @@ public class ServiceUtils {
         return phone == null ? "" : phone.trim();
     }
 
+    /**
+     * Dạng chuẩn của số điện thoại để ghép khách giữa các bảng: chỉ giữ chữ số, đầu số quốc gia 84/0084
+     * đổi về 0, số mất số 0 đầu do Excel lưu dạng số (9-10 chữ số) được thêm lại 0.
+     * Trả về {@code null} nếu không có chữ số nào hoặc dài quá 20 ký tự.
+     */
+    public static String canonicalPhone(String phone) {
+        if (phone == null) return null;
+        StringBuilder sb = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        String d = sb.toString();
+        if (d.isEmpty()) return null;
+
+        if (d.startsWith("0084")) {
+            d = "0" + d.substring(4);
+        } else if (d.startsWith("84") && (d.length() == 11 || d.length() == 12)) {
+            d = "0" + d.substring(2);
+        } else if (!d.startsWith("0") && (d.length() == 9 || d.length() == 10)) {
+            d = "0" + d;
+        }
+        return d.length() > 20 ? null : d;
+    }
+
     public static BigDecimal avg(List<BigDecimal> values) {
         if (values == null || values.isEmpty()) return BigDecimal.ZERO;
         return values.stream().reduce(BigDecimal.ZERO, BigDecimal::add)
@@ -185,6 +211,22 @@ public class ServiceUtils {
     }
 
 
+    /**
+     * Chuẩn hoá để so khớp giống collation *_ai_ci của MySQL: bỏ dấu, đ -> d, chữ thường.
+     */
+    public static String foldForMatch(String s) {
+        if (s == null) return null;
+        String t = Normalizer.normalize(s, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(t.length());
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (c == 'đ' || c == 'Đ') c = 'd';
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
     public static String normalizeShop(String s) {
         if (s == null) return null;
         String t = s.trim().toLowerCase();
@@ -0,0 +1,85 @@
+package com.example.BasicCRM_FWF.Service.Backfill;
+
+import com.example.BasicCRM_FWF.Model.BackfillJob;
+import com.example.BasicCRM_FWF.Repository.BackfillChunkRepository;
+import com.example.BasicCRM_FWF.Repository.BackfillJobRepository;
+import com.example.BasicCRM_FWF.Service.SalesTransaction.PosSalesSyncService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BackfillServiceTest {
+
+    private final BackfillJobRepository jobs = mock(BackfillJobRepository.class);
+    private final BackfillChunkRepository chunks = mock(BackfillChunkRepository.class);
+    private final BackfillService service = new BackfillService(jobs, chunks, mock(PosSalesSyncService.class));
+
+    BackfillServiceTest() {
+        ReflectionTestUtils.setField(service, "leaseSeconds", 120L);
+        when(jobs.save(any())).thenAnswer(i -> i.getArgument(0));
+    }
+
+    private BackfillJob job(long id, LocalDateTime leaseUntil) {
+        BackfillJob job = new BackfillJob();
+        job.setId(id);
+        job.setSource(BackfillService.Source.SALES.name());
+        job.setFromDate(LocalDate.of(2025, 1, 1));
+        job.setToDate(LocalDate.of(2025, 1, 7));
+        job.setStatus(BackfillJob.Status.RUNNING);
+        job.setOwner(leaseUntil == null ? null : "other");
+        job.setLeaseUntil(leaseUntil);
+        when(jobs.findById(id)).thenReturn(Optional.of(job));
+        return job;
+    }
+
+    @Test
+    void resumeOfJobLeasedElsewhereTouchesNothing() {
+        job(1, LocalDateTime.now().plusMinutes(1));
+        when(jobs.claim(eq(1L), anyString(), any(), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> service.resume(1L)).hasMessageContaining("instance khác");
+        // chỗ giữ trong JVM được nhả: lần sau vẫn hỏi lại DB, không báo "đang chạy"
+        assertThatThrownBy(() -> service.resume(1L)).hasMessageContaining("instance khác");
+
+        verify(chunks, never()).resetUnfinished(any());
+        verify(jobs, never()).save(any());
+        verify(jobs, never()).release(any(), any());
+    }
+
+    @Test
+    void startupResumesOnlyJobsWithExpiredLease() {
+        BackfillJob live = job(1, LocalDateTime.now().plusMinutes(1));
+        BackfillJob expired = job(2, LocalDateTime.now().minusMinutes(1));
+        BackfillJob unowned = job(3, null);
+        when(jobs.findByStatus(BackfillJob.Status.RUNNING)).thenReturn(List.of(live, expired, unowned));
+        when(jobs.claim(anyLong(), anyString(), any(), any())).thenReturn(1);
+        when(jobs.finish(anyLong(), anyString(), anyString(), any())).thenReturn(1);
+
+        service.resumeInterrupted();
+
+        verify(jobs, never()).claim(eq(1L), anyString(), any(), any());
+        verify(chunks).resetUnfinished(2L);
+        verify(chunks).resetUnfinished(3L);
+        // không còn chunk nào: job xong và nhả quyền giữ trong cùng câu UPDATE
+        verify(jobs, timeout(5000)).finish(eq(2L), anyString(), eq("DONE"), any());
+        verify(jobs, timeout(5000)).finish(eq(3L), anyString(), eq("DONE"), any());
+    }
+
+    @Test
+    void failedSetupReleasesLease() {
+        job(4, null);
+        when(jobs.claim(eq(4L), anyString(), any(), any())).thenReturn(1);
+        when(chunks.resetUnfinished(4L)).thenThrow(new IllegalArgumentException("db down"));
+
+        assertThatThrownBy(() -> service.resume(4L)).hasMessage("db down");
+        verify(jobs).release(eq(4L), anyString());
+    }
+}
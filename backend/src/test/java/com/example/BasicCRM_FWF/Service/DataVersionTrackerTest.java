@@ -0,0 +1,61 @@
+package com.example.BasicCRM_FWF.Service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataVersionTrackerTest {
+
+    @Test
+    void unknownBaseIsNeverExplained() {
+        DataVersionTracker tracker = new DataVersionTracker();
+        assertThat(tracker.advance("t", 3)).isFalse();
+        assertThat(tracker.advance("t", 3)).isTrue();
+    }
+
+    @Test
+    void versionsSeenThroughEventsAreExplained() {
+        DataVersionTracker tracker = new DataVersionTracker();
+        tracker.reset("t", 5);
+        tracker.observe("t", 6);
+        tracker.observe("t", 7);
+        assertThat(tracker.advance("t", 7)).isTrue();
+    }
+
+    @Test
+    void gapMeansAnotherWriter() {
+        DataVersionTracker tracker = new DataVersionTracker();
+        tracker.reset("t", 5);
+        tracker.observe("t", 7);
+        assertThat(tracker.advance("t", 7)).isFalse();
+        // mốc đã dời lên 7
+        tracker.observe("t", 8);
+        assertThat(tracker.advance("t", 8)).isTrue();
+    }
+
+    @Test
+    void lateEventsAndVersionlessEventsAreIgnored() {
+        DataVersionTracker tracker = new DataVersionTracker();
+        tracker.reset("t", 5);
+        tracker.observe("t", 4);
+        tracker.observe("t", 0);
+        assertThat(tracker.advance("t", 6)).isFalse();
+    }
+
+    @Test
+    void versionGoingBackwardsIsNotExplained() {
+        DataVersionTracker tracker = new DataVersionTracker();
+        tracker.reset("t", 5);
+        assertThat(tracker.advance("t", 2)).isFalse();
+    }
+
+    @Test
+    void tablesAreTrackedSeparately() {
+        DataVersionTracker tracker = new DataVersionTracker();
+        tracker.reset("a", 1);
+        tracker.reset("b", 1);
+        tracker.observe("a", 2);
+        assertThat(tracker.advance("b", 2)).isFalse();
+        assertThat(tracker.advance("a", 2)).isTrue();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import com.example.BasicCRM_FWF.Model.SyncState;
+import com.example.BasicCRM_FWF.Repository.SyncStateRepository;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CustomerKeyBackfillTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final CustomerKeyRegistry registry = mock(CustomerKeyRegistry.class);
+    private final SyncStateRepository states = mock(SyncStateRepository.class);
+    private final CustomerKeyBackfill backfill =
+            new CustomerKeyBackfill(jdbc, registry, mock(DataWatermarkService.class), states);
+
+    private void nullKeyRange(Long min, Long max) {
+        Map<String, Object> range = new HashMap<>();
+        range.put("min_id", min);
+        range.put("max_id", max);
+        when(jdbc.queryForMap(contains("MIN(id)"), anyLong())).thenReturn(range);
+    }
+
+    @Test
+    void rowsWithInvalidPhoneAreNotRescannedAfterCursorIsSaved() {
+        when(states.findById("customer-key:booking_record")).thenReturn(Optional.empty());
+        nullKeyRange(10L, 11L);
+        doAnswer(i -> {
+            RowCallbackHandler handler = i.getArgument(1);
+            for (Object[] row : List.of(new Object[]{10L, "0901 234 567"}, new Object[]{11L, "abc"})) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn((Long) row[0]);
+                when(rs.getString("phone_number")).thenReturn((String) row[1]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(contains("SELECT id, phone_number"), any(RowCallbackHandler.class), anyLong(), anyLong());
+        when(registry.keysFor(any())).thenReturn(Map.of("0901234567", 7L));
+
+        assertThat(backfill.backfill("booking_record")).isEqualTo(1);
+
+        ArgumentCaptor<SyncState> saved = ArgumentCaptor.forClass(SyncState.class);
+        verify(states).save(saved.capture());
+        assertThat(saved.getValue().getName()).isEqualTo("customer-key:booking_record");
+        assertThat(saved.getValue().getPosition()).isEqualTo(11L); // dòng 11 ("abc") vẫn NULL nhưng đã quét
+    }
+
+    @Test
+    void nextRunStartsAfterCursor() {
+        SyncState state = new SyncState();
+        state.setName("customer-key:booking_record");
+        state.setPosition(11L);
+        when(states.findById("customer-key:booking_record")).thenReturn(Optional.of(state));
+        nullKeyRange(null, null);
+
+        assertThat(backfill.backfill("booking_record")).isZero();
+        verify(jdbc).queryForMap(contains("WHERE id > ? AND customer_key IS NULL"), eq(11L));
+        verify(states, never()).save(any());
+    }
+}
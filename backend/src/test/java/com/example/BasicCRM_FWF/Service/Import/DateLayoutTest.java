@@ -0,0 +1,67 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DateLayoutTest {
+
+    @Test
+    void eachLayoutReadsItsOwnShape() {
+        assertThat(DateLayout.TIME_DMY.parse("09:05 10/03/2025")).isEqualTo(LocalDateTime.of(2025, 3, 10, 9, 5));
+        assertThat(DateLayout.DMY_TIME.parse("10/03/2025 09:05")).isEqualTo(LocalDateTime.of(2025, 3, 10, 9, 5));
+        assertThat(DateLayout.ISO_SPACE.parse("2025-03-10 09:05:30")).isEqualTo(LocalDateTime.of(2025, 3, 10, 9, 5, 30));
+        assertThat(DateLayout.ISO_T.parse("2025-03-10T09:05:30")).isEqualTo(LocalDateTime.of(2025, 3, 10, 9, 5, 30));
+        assertThat(DateLayout.DMY.parse("10/03/2025")).isEqualTo(LocalDateTime.of(2025, 3, 10, 0, 0));
+        assertThat(DateLayout.MDY.parse("03/10/2025")).isEqualTo(LocalDateTime.of(2025, 3, 10, 0, 0));
+    }
+
+    @Test
+    void wrongShapeIsNull() {
+        assertThat(DateLayout.TIME_DMY.parse("10/03/2025 09:05")).isNull();
+        assertThat(DateLayout.DMY.parse("1/3/2025")).isNull();
+        assertThat(DateLayout.DMY.parse("10-03-2025")).isNull();
+        assertThat(DateLayout.ISO_SPACE.parse("2025-03-10T09:05:30")).isNull();
+        assertThat(DateLayout.DMY.parse("")).isNull();
+        assertThat(DateLayout.DMY.parse(null)).isNull();
+    }
+
+    @Test
+    void ambiguousDayMonthDependsOnLayout() {
+        assertThat(DateLayout.DMY.parse("05/06/2025")).isEqualTo(LocalDateTime.of(2025, 6, 5, 0, 0));
+        assertThat(DateLayout.MDY.parse("05/06/2025")).isEqualTo(LocalDateTime.of(2025, 5, 6, 0, 0));
+        assertThat(DateLayout.DMY.parse("06/13/2025")).isNull();
+        assertThat(DateLayout.MDY.parse("13/06/2025")).isNull();
+        assertThat(DateLayout.DMY.sameShape(DateLayout.MDY)).isTrue();
+        assertThat(DateLayout.DMY.sameShape(DateLayout.TIME_DMY)).isFalse();
+    }
+
+    @Test
+    void february29OnlyInLeapYears() {
+        assertThat(DateLayout.DMY.parse("29/02/2024")).isEqualTo(LocalDateTime.of(2024, 2, 29, 0, 0));
+        assertThat(DateLayout.DMY.parse("29/02/2025")).isNull();
+        assertThat(DateLayout.DMY.parse("29/02/1900")).isNull();
+        assertThat(DateLayout.DMY.parse("29/02/2000")).isNotNull();
+    }
+
+    @Test
+    void outOfRangeFieldsAreNull() {
+        assertThat(DateLayout.DMY.parse("31/04/2025")).isNull();
+        assertThat(DateLayout.DMY.parse("00/01/2025")).isNull();
+        assertThat(DateLayout.TIME_DMY.parse("24:00 10/03/2025")).isNull();
+        assertThat(DateLayout.TIME_DMY.parse("23:60 10/03/2025")).isNull();
+        assertThat(DateLayout.ISO_SPACE.parse("2025-03-10 09:05:60")).isNull();
+    }
+
+    @Test
+    void isoFractionalSecondsAreDropped() {
+        LocalDateTime expected = LocalDateTime.of(2025, 3, 10, 9, 5, 30);
+        assertThat(DateLayout.ISO_T.parse("2025-03-10T09:05:30.1")).isEqualTo(expected);
+        assertThat(DateLayout.ISO_T.parse("2025-03-10T09:05:30.123456")).isEqualTo(expected);
+        assertThat(DateLayout.ISO_T.parse("2025-03-10T09:05:30.")).isNull();
+        assertThat(DateLayout.ISO_T.parse("2025-03-10T09:05:30Z")).isNull();
+        assertThat(DateLayout.ISO_T.parse("2025-03-10T09:05:30.12a")).isNull();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DelimitedRowSourceTest {
+
+    @TempDir
+    Path dir;
+
+    private List<List<String>> read(String content, char delimiter) throws IOException {
+        return read(content.getBytes(StandardCharsets.UTF_8), delimiter);
+    }
+
+    private List<List<String>> read(byte[] content, char delimiter) throws IOException {
+        Path file = dir.resolve("data.csv");
+        Files.write(file, content);
+        List<List<String>> rows = new ArrayList<>();
+        new DelimitedRowSource(file, delimiter).forEachRow(row -> {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < row.size(); i++) values.add(row.getString(i));
+            rows.add(values);
+            return true;
+        });
+        return rows;
+    }
+
+    @Test
+    void splitsPlainFieldsWithLfAndCrlf() throws IOException {
+        assertThat(read("a,b,c\n1,2,3\r\nx,,z", ','))
+                .containsExactly(List.of("a", "b", "c"), List.of("1", "2", "3"), List.of("x", "", "z"));
+    }
+
+    @Test
+    void quotedFieldsKeepDelimitersNewlinesAndEscapedQuotes() throws IOException {
+        assertThat(read("\"a,b\",\"line1\nline2\",\"say \"\"hi\"\"\"\n", ','))
+                .containsExactly(List.of("a,b", "line1\nline2", "say \"hi\""));
+    }
+
+    @Test
+    void skipsUtf8BomAndDecodesMultibyteText() throws IOException {
+        byte[] body = "Tên;Cơ sở\nNguyễn;Quận 1\n".getBytes(StandardCharsets.UTF_8);
+        byte[] withBom = new byte[body.length + 3];
+        withBom[0] = (byte) 0xEF;
+        withBom[1] = (byte) 0xBB;
+        withBom[2] = (byte) 0xBF;
+        System.arraycopy(body, 0, withBom, 3, body.length);
+
+        assertThat(read(withBom, ';')).containsExactly(List.of("Tên", "Cơ sở"), List.of("Nguyễn", "Quận 1"));
+    }
+
+    @Test
+    void blankLineIsEmittedAsEmptyRowAndHandlerCanStop() throws IOException {
+        Path file = dir.resolve("stop.tsv");
+        Files.writeString(file, "a\tb\n\nc\td\n");
+        List<Integer> rowNums = new ArrayList<>();
+        new DelimitedRowSource(file, '\t').forEachRow(row -> {
+            rowNums.add(row.getRowNum());
+            return !row.isBlank();
+        });
+        assertThat(rowNums).containsExactly(0, 1);
+    }
+
+    @Test
+    void trailingDelimiterProducesEmptyLastField() throws IOException {
+        assertThat(read("a,b,\n", ',')).containsExactly(List.of("a", "b", ""));
+    }
+
+    @Test
+    void detectsDelimiterIgnoringQuotedText() throws IOException {
+        Path file = dir.resolve("sniff.csv");
+        Files.writeString(file, "Báo cáo\n\"x;y;z\",1,2\n3,4,5\n");
+        assertThat(DelimitedRowSource.detectDelimiter(file)).isEqualTo(',');
+
+        Files.writeString(file, "a\tb\tc\n1\t2\t3\n");
+        assertThat(DelimitedRowSource.detectDelimiter(file)).isEqualTo('\t');
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import com.example.BasicCRM_FWF.Model.SalesTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportKeyIndexTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 10, 9, 30);
+
+    private static SalesTransaction tx(String key, String fingerprint) {
+        return SalesTransaction.builder().orderDate(DAY).importKey(key).rowFingerprint(fingerprint).build();
+    }
+
+    private static List<RowImporter.ParsedRow<SalesTransaction>> rows(SalesTransaction... txs) {
+        List<RowImporter.ParsedRow<SalesTransaction>> rows = new ArrayList<>();
+        for (int i = 0; i < txs.length; i++) rows.add(new RowImporter.ParsedRow<>(i + 1, txs[i]));
+        return rows;
+    }
+
+    private static ImportKeyIndex<SalesTransaction> index(List<Object[]> existing) {
+        return new ImportKeyIndex<>("test_" + System.nanoTime(), (from, to) -> existing, keys -> List.of());
+    }
+
+    @Test
+    void naturalKeyIsStableAndTruncatesToMinute() {
+        String a = ImportKeyIndex.naturalKey("#1", DAY);
+        String b = ImportKeyIndex.naturalKey("#1", DAY.plusSeconds(42));
+        assertThat(a).hasSize(32).isEqualTo(b);
+        assertThat(ImportKeyIndex.naturalKey("#1", null)).isEqualTo(ImportKeyIndex.naturalKey("#1", ""));
+    }
+
+    @Test
+    void duplicateKeysInFileAreNumberedInOrder() {
+        ImportKeyIndex<SalesTransaction> index = index(List.of());
+        SalesTransaction first = tx("k", "f1");
+        SalesTransaction second = tx("k", "f2");
+        SalesTransaction third = tx("k", "f3");
+
+        index.classify(rows(first, second), new ImportProgress());
+        index.classify(rows(third), new ImportProgress());
+
+        assertThat(first.getImportKey()).isEqualTo("k");
+        assertThat(second.getImportKey()).isEqualTo("k#2");
+        assertThat(third.getImportKey()).isEqualTo("k#3");
+    }
+
+    @Test
+    void classifiesUnchangedUpdateAndInsert() {
+        ImportKeyIndex<SalesTransaction> index = index(List.of(
+                new Object[]{1L, "same", "f", null},
+                new Object[]{2L, "changed", "old", null}));
+        SalesTransaction same = tx("same", "f");
+        SalesTransaction changed = tx("changed", "new");
+        SalesTransaction fresh = tx("fresh", "f");
+        fresh.setId(99L);
+        ImportProgress progress = new ImportProgress();
+
+        List<RowImporter.ParsedRow<SalesTransaction>> toWrite = index.classify(rows(same, changed, fresh), progress);
+
+        assertThat(toWrite).extracting(RowImporter.ParsedRow::value).containsExactly(changed, fresh);
+        assertThat(progress.getUnchanged()).isEqualTo(1);
+        assertThat(changed.getId()).isEqualTo(2L);
+        assertThat(fresh.getId()).isNull();
+    }
+
+    @Test
+    void legacyRowsWithoutImportKeyAreMatchedByLegacyKeyInIdOrder() {
+        ImportKeyIndex<SalesTransaction> index = index(List.of(
+                new Object[]{10L, null, null, "legacy"},
+                new Object[]{11L, null, null, "legacy"}));
+        SalesTransaction first = tx("legacy", "f1");
+        SalesTransaction second = tx("legacy", "f2");
+
+        index.classify(rows(first, second), new ImportProgress());
+
+        assertThat(first.getId()).isEqualTo(10L);
+        assertThat(second.getId()).isEqualTo(11L);
+    }
+
+    @Test
+    void lookupSeesRowsWrittenByOtherJobsAfterSnapshot() {
+        List<Object[]> db = new ArrayList<>();
+        ImportKeyIndex<SalesTransaction> index = new ImportKeyIndex<>("test_" + System.nanoTime(),
+                (from, to) -> List.of(),
+                keys -> db.stream().filter(r -> keys.contains((String) r[1])).toList());
+        index.classify(rows(tx("other", "x")), new ImportProgress()); // nạp snapshot (rỗng) của ngày
+        db.add(new Object[]{5L, "k", "f"});
+
+        SalesTransaction same = tx("k", "f");
+        ImportProgress progress = new ImportProgress();
+        assertThat(index.classify(rows(same), progress)).isEmpty();
+        assertThat(progress.getUnchanged()).isEqualTo(1);
+    }
+
+    @Test
+    void writeRestoresIdsWhenWriterFails() {
+        ImportKeyIndex<SalesTransaction> index = index(List.<Object[]>of(new Object[]{7L, "upd", "old", null}));
+        SalesTransaction update = tx("upd", "new");
+        SalesTransaction insert = tx("ins", "new");
+        index.classify(rows(update, insert), new ImportProgress());
+
+        assertThatThrownBy(() -> index.write(List.of(update, insert), list -> {
+            list.forEach(st -> { if (st.getId() == null) st.setId(100L); });
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(update.getId()).isEqualTo(7L);
+        assertThat(insert.getId()).isNull();
+    }
+
+    @Test
+    void writeBatchWritesOnlyChangedRows() {
+        ImportKeyIndex<SalesTransaction> index = index(List.<Object[]>of(new Object[]{1L, "same", "f", null}));
+        List<SalesTransaction> written = new ArrayList<>();
+        ImportProgress progress = new ImportProgress();
+
+        index.writeBatch(rows(tx("same", "f"), tx("new", "f")), progress, written::addAll);
+
+        assertThat(written).extracting(SalesTransaction::getImportKey).containsExactly("new");
+        assertThat(progress.getSuccess()).isEqualTo(1);
+        assertThat(progress.getUnchanged()).isEqualTo(1);
+    }
+}
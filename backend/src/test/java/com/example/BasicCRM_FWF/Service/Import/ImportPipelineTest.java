@@ -0,0 +1,243 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ImportPipelineTest {
+
+    // ImportPipeline gom 256 dòng mỗi chunk, mỗi worker được giữ 4 chunk chưa ghi
+    private static final int CHUNK_ROWS = 256;
+
+    @TempDir
+    Path dir;
+
+    /** Dòng 0 là header, mỗi dòng sau là "i,x"; parse trả về i. */
+    private Path file(int rows) throws IOException {
+        StringBuilder sb = new StringBuilder("id,name\n");
+        for (int i = 1; i <= rows; i++) sb.append(i).append(",x\n");
+        Path file = dir.resolve("data.csv");
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static ImportPipeline pipeline(int workers) {
+        ImportPipeline pipeline = new ImportPipeline();
+        ReflectionTestUtils.setField(pipeline, "configuredWorkers", workers);
+        return pipeline;
+    }
+
+    /** Importer ghi lại thứ tự các dòng được ghi; parse/write có thể thay để chèn độ trễ hoặc lỗi. */
+    private static class Recorder implements RowImporter<Integer> {
+        final List<Integer> written = new CopyOnWriteArrayList<>();
+        final AtomicInteger writeCalls = new AtomicInteger();
+        Function<Integer, Integer> parser = i -> i;
+        int batchSize = 100;
+        boolean preview;
+
+        @Override
+        public Integer parse(ImportRow row) {
+            return parser.apply(Integer.parseInt(row.getString(0)));
+        }
+
+        @Override
+        public void write(List<ParsedRow<Integer>> batch, ImportProgress progress) {
+            writeCalls.incrementAndGet();
+            ImportPipeline.writeWithFallback(batch, progress, written::addAll);
+        }
+
+        @Override
+        public int firstDataRow() {
+            return 1;
+        }
+
+        @Override
+        public int batchSize() {
+            return batchSize;
+        }
+
+        @Override
+        public boolean previewInDryRun() {
+            return preview;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void chunksFinishedOutOfOrderAreWrittenInFileOrder() throws IOException {
+        Recorder importer = new Recorder();
+        // chunk đầu parse chậm nhất: các chunk sau xong trước nó
+        importer.parser = i -> {
+            if (i == 1) sleep(300);
+            else if (i == CHUNK_ROWS + 1) sleep(150);
+            return i;
+        };
+        ImportProgress progress = new ImportProgress();
+
+        pipeline(4).run(file(CHUNK_ROWS * 4 + 10), progress, importer);
+
+        assertThat(importer.written).hasSize(CHUNK_ROWS * 4 + 10).isSorted();
+        assertThat(progress.getSuccess()).isEqualTo(CHUNK_ROWS * 4 + 10);
+    }
+
+    @Test
+    void slowWriterBoundsRowsInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder importer = new Recorder() {
+            @Override
+            public void write(List<ParsedRow<Integer>> batch, ImportProgress progress) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(batch, progress);
+            }
+        };
+        importer.batchSize = 1;
+        ImportProgress progress = new ImportProgress();
+        Path file = file(20_000);
+
+        Thread run = new Thread(() -> {
+            try {
+                pipeline(1).run(file, progress, importer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        run.start();
+        sleep(500);
+
+        // 1 worker -> 4 permit: reader dừng sau 4 chunk đã gửi + chunk đang gom
+        assertThat(progress.getRowsRead()).isLessThanOrEqualTo(CHUNK_ROWS * 5);
+        release.countDown();
+        run.join(10_000);
+        assertThat(run.isAlive()).isFalse();
+        assertThat(progress.getRowsRead()).isEqualTo(20_000);
+        assertThat(importer.written).hasSize(20_000);
+    }
+
+    @Test
+    void parserExceptionsAreClassifiedIntoIssues() throws IOException {
+        Recorder importer = new Recorder();
+        importer.parser = i -> switch (i) {
+            case 1 -> throw new SkipRowException(ImportIssue.DUPLICATE, "trùng");
+            case 2 -> throw new InvalidRowException(ImportIssue.UNKNOWN_SHOP, "không có cửa hàng");
+            case 3 -> throw new DateTimeParseException("sai ngày", "x", 0);
+            case 4 -> throw new NullPointerException();
+            case 5 -> throw new IllegalStateException("khác");
+            case 6 -> null;
+            default -> i;
+        };
+        ImportProgress progress = new ImportProgress();
+
+        pipeline(2).run(file(8), progress, importer);
+
+        assertThat(importer.written).containsExactly(7, 8);
+        assertThat(progress.getSkipped()).isEqualTo(2);
+        assertThat(progress.getFailed()).isEqualTo(4);
+        Map<ImportIssue, Integer> issues = new EnumMap<>(ImportIssue.class);
+        progress.getIssues().forEach(s -> issues.put(s.issue(), s.count()));
+        assertThat(issues).containsOnly(
+                entry(ImportIssue.DUPLICATE, 1),
+                entry(ImportIssue.UNKNOWN_SHOP, 1),
+                entry(ImportIssue.BAD_DATE, 1),
+                entry(ImportIssue.MISSING_FIELD, 1),
+                entry(ImportIssue.OTHER, 2));
+    }
+
+    @Test
+    void writeWithFallbackIsolatesTheBadRow() {
+        ImportProgress progress = new ImportProgress();
+        List<String> written = new ArrayList<>();
+        List<RowImporter.ParsedRow<String>> batch = List.of(
+                new RowImporter.ParsedRow<>(10, "a"), new RowImporter.ParsedRow<>(11, "bad"), new RowImporter.ParsedRow<>(12, "c"));
+
+        ImportPipeline.writeWithFallback(batch, progress, values -> {
+            if (values.contains("bad")) throw new IllegalArgumentException("constraint");
+            written.addAll(values);
+        });
+
+        assertThat(written).containsExactly("a", "c");
+        assertThat(progress.getSuccess()).isEqualTo(2);
+        assertThat(progress.getFailed()).isEqualTo(1);
+        assertThat(progress.getErrors()).extracting(ImportProgress.RowError::rowNum).containsExactly(12); // hiển thị từ 1
+    }
+
+    @Test
+    void writerFailureStopsReaderAndSurfaces() {
+        Recorder importer = new Recorder() {
+            @Override
+            public void write(List<ParsedRow<Integer>> batch, ImportProgress progress) {
+                throw new IllegalStateException("db down");
+            }
+        };
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            Path file = file(50_000);
+            ImportProgress progress = new ImportProgress();
+            assertThatThrownBy(() -> pipeline(2).run(file, progress, importer)).hasMessage("db down");
+            assertThat(progress.getRowsRead()).isLessThan(50_000);
+        });
+    }
+
+    @Test
+    void workerCrashStopsPipelineAndSurfaces() {
+        Recorder importer = new Recorder();
+        importer.parser = i -> {
+            if (i == 300) throw new AssertionError("worker crashed");
+            return i;
+        };
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            Path file = file(50_000);
+            assertThatThrownBy(() -> pipeline(2).run(file, new ImportProgress(), importer))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("worker crashed");
+        });
+    }
+
+    @Test
+    void dryRunNeverWrites() throws IOException {
+        Recorder importer = new Recorder();
+        ImportProgress progress = new ImportProgress(true);
+
+        pipeline(2).run(file(600), progress, importer);
+
+        assertThat(importer.writeCalls).hasValue(0);
+        assertThat(progress.getSuccess()).isEqualTo(600);
+    }
+
+    @Test
+    void dryRunCallsWriteOnlyForPreviewImporters() throws IOException {
+        Recorder importer = new Recorder();
+        importer.preview = true;
+
+        pipeline(2).run(file(600), new ImportProgress(true), importer);
+
+        assertThat(importer.writeCalls).hasPositiveValue();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RowDecoderTest {
+
+    private static final ColumnSchema SCHEMA = ColumnSchema.builder()
+            .dateTime(0, DateLayout.DMY, DateLayout.MDY)
+            .dateTime(1, DateLayout.TIME_DMY, DateLayout.ISO_SPACE)
+            .decimal(2)
+            .integer(3)
+            .build();
+
+    private static DecodedRow decode(RowDecoder decoder, String... values) {
+        return decoder.decode(new ImportRow(1, values));
+    }
+
+    @Test
+    void ambiguousDateStaysDayFirstAfterMonthFirstRow() {
+        RowDecoder decoder = SCHEMA.decoder();
+
+        // chỉ đọc được theo MDY
+        assertThat(decode(decoder, "06/13/2025").dateTime(0)).isEqualTo(LocalDateTime.of(2025, 6, 13, 0, 0));
+        // MDY không được nhớ cho cột: chuỗi mơ hồ vẫn đọc ngày trước
+        assertThat(decode(decoder, "05/06/2025").dateTime(0)).isEqualTo(LocalDateTime.of(2025, 6, 5, 0, 0));
+    }
+
+    @Test
+    void ambiguousDateStaysDayFirstAfterDayFirstCacheIsSet() {
+        RowDecoder decoder = SCHEMA.decoder();
+
+        assertThat(decode(decoder, "13/06/2025").dateTime(0)).isEqualTo(LocalDateTime.of(2025, 6, 13, 0, 0));
+        assertThat(decode(decoder, "05/06/2025").dateTime(0)).isEqualTo(LocalDateTime.of(2025, 6, 5, 0, 0));
+        assertThat(decode(decoder, "06/13/2025").dateTime(0)).isEqualTo(LocalDateTime.of(2025, 6, 13, 0, 0));
+        assertThat(decode(decoder, "05/06/2025").dateTime(0)).isEqualTo(LocalDateTime.of(2025, 6, 5, 0, 0));
+    }
+
+    @Test
+    void cachedLayoutFallsBackToOthers() {
+        RowDecoder decoder = SCHEMA.decoder();
+
+        assertThat(decode(decoder, null, "2025-03-10 09:05:30").dateTime(1)).isEqualTo(LocalDateTime.of(2025, 3, 10, 9, 5, 30));
+        assertThat(decode(decoder, null, "09:05 10/03/2025").dateTime(1)).isEqualTo(LocalDateTime.of(2025, 3, 10, 9, 5));
+        assertThat(decode(decoder, null, "10/03/2025").dateTime(1)).isNull();
+    }
+
+    @Test
+    void nonBreakingSpacesAreReadAsSpaces() {
+        RowDecoder decoder = SCHEMA.decoder();
+
+        // Excel hay xuất NBSP giữa giờ và ngày, hoặc ở đầu/cuối ô (trim() không bỏ NBSP)
+        assertThat(decode(decoder, null, "09:05\u00A010/03/2025").dateTime(1)).isEqualTo(LocalDateTime.of(2025, 3, 10, 9, 5));
+        assertThat(decode(decoder, "\u00A010/03/2025\u00A0").dateTime(0)).isEqualTo(LocalDateTime.of(2025, 3, 10, 0, 0));
+        assertThat(decode(decoder, null, "09:05\u00A0\u00A010/03/2025").dateTime(1)).isNull();
+    }
+
+    @Test
+    void cellsAreTrimmedAndTextKept() {
+        DecodedRow row = decode(SCHEMA.decoder(), "  10/03/2025 ", "x", " 1,500.25 ", " 7 ", "ghi chú");
+
+        assertThat(row.dateTime(0)).isEqualTo(LocalDateTime.of(2025, 3, 10, 0, 0));
+        assertThat(row.dateTime(1)).isNull();
+        assertThat(row.text(1)).isEqualTo("x");
+        assertThat(row.decimal(2)).isEqualByComparingTo("1500.25");
+        assertThat(row.integer(3)).isEqualTo(7);
+        assertThat(row.text(4)).isEqualTo("ghi chú");
+    }
+
+    @Test
+    void integerTruncatesFractionAndSkipsThousandsSeparator() {
+        assertThat(RowDecoder.integer("1,234.0")).isEqualTo(1234);
+        assertThat(RowDecoder.integer("123.")).isEqualTo(123);
+        assertThat(RowDecoder.integer("12.9")).isEqualTo(12);
+        assertThat(RowDecoder.integer("12.9x")).isNull();
+        assertThat(RowDecoder.integer("1a")).isNull();
+        assertThat(RowDecoder.integer(".5")).isNull();
+    }
+
+    @Test
+    void integerSignsAndOverflow() {
+        assertThat(RowDecoder.integer("-42")).isEqualTo(-42);
+        assertThat(RowDecoder.integer("+42")).isEqualTo(42);
+        assertThat(RowDecoder.integer("-")).isNull();
+        assertThat(RowDecoder.integer("2147483647")).isEqualTo(Integer.MAX_VALUE);
+        assertThat(RowDecoder.integer("-2147483648")).isEqualTo(Integer.MIN_VALUE);
+        assertThat(RowDecoder.integer("2147483648")).isNull();
+        assertThat(RowDecoder.integer("99999999999")).isNull();
+    }
+
+    @Test
+    void decimalAcceptsSignsAndThousandsSeparator() {
+        assertThat(RowDecoder.decimal("1,234,567.89")).isEqualByComparingTo("1234567.89");
+        assertThat(RowDecoder.decimal("-0.5")).isEqualByComparingTo("-0.5");
+        assertThat(RowDecoder.decimal("+3")).isEqualByComparingTo("3");
+        assertThat(RowDecoder.decimal("7.")).isEqualByComparingTo("7");
+    }
+
+    @Test
+    void decimalRejectsMalformed() {
+        assertThat(RowDecoder.decimal("1.2.3")).isNull();
+        assertThat(RowDecoder.decimal("1e5")).isNull();
+        assertThat(RowDecoder.decimal("-")).isNull();
+        assertThat(RowDecoder.decimal(".")).isNull();
+        assertThat(RowDecoder.decimal("12 000")).isNull();
+        assertThat(decode(SCHEMA.decoder(), null, null, "1.2.3").decimal(2)).isEqualTo(BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.BasicCRM_FWF.Service.Import;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class XlsxRowSourceTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Dòng 0: header; dòng 1 trống hẳn (không có trong XML); dòng 2: ngày, số có dấu phân cách, số lẻ, chữ;
+     * dòng 3-4 trống; dòng 5: số lớn, ô đầu để trống.
+     */
+    private Path fixture() throws IOException {
+        Path file = dir.resolve("data.xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = wb.createSheet("Sheet1");
+            CellStyle date = wb.createCellStyle();
+            date.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy hh:mm"));
+            CellStyle grouped = wb.createCellStyle();
+            grouped.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("#,##0.00"));
+
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Ngày");
+            header.createCell(1).setCellValue("Tiền");
+
+            Row row = sheet.createRow(2);
+            row.createCell(0).setCellValue(LocalDateTime.of(2025, 3, 10, 9, 5));
+            row.getCell(0).setCellStyle(date);
+            row.createCell(1).setCellValue(1_500_000);
+            row.getCell(1).setCellStyle(grouped);
+            row.createCell(2).setCellValue(12.50);
+            row.createCell(3).setCellValue("Chi nhánh 1");
+
+            Row last = sheet.createRow(5);
+            last.createCell(1).setCellValue(123456789012L);
+            wb.write(out);
+        }
+        return file;
+    }
+
+    private static List<String> values(ImportRow row) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) values.add(row.getString(i));
+        return values;
+    }
+
+    @Test
+    void readsFormattedValuesAndFillsSkippedRows() throws IOException {
+        List<ImportRow> rows = new ArrayList<>();
+        new XlsxRowSource(fixture()).forEachRow(rows::add);
+
+        assertThat(rows).extracting(ImportRow::getRowNum).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(values(rows.get(0))).containsExactly("Ngày", "Tiền");
+        assertThat(rows.get(1).isEmpty()).isTrue();
+        // ngày -> "HH:mm dd/MM/yyyy", số -> chuỗi số thuần không dấu phân cách
+        assertThat(values(rows.get(2))).containsExactly("09:05 10/03/2025", "1500000", "12.5", "Chi nhánh 1");
+        assertThat(rows.get(3).isEmpty()).isTrue();
+        assertThat(rows.get(4).isEmpty()).isTrue();
+        assertThat(values(rows.get(5))).containsExactly(null, "123456789012");
+    }
+
+    @Test
+    void stopsWhenHandlerReturnsFalse() throws IOException {
+        List<Integer> seen = new ArrayList<>();
+        new XlsxRowSource(fixture()).forEachRow(row -> {
+            seen.add(row.getRowNum());
+            return row.getRowNum() < 2;
+        });
+
+        assertThat(seen).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void malformedFileIsReportedAsIOException() throws IOException {
+        Path file = dir.resolve("broken.xlsx");
+        Files.write(file, Arrays.copyOf(new byte[]{'P', 'K', 3, 4}, 64));
+
+        assertThatThrownBy(() -> new XlsxRowSource(file).forEachRow(row -> true))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Không đọc được file Excel");
+    }
+
+    @Test
+    void handlerExceptionIsNotWrapped() throws IOException {
+        Path file = fixture();
+
+        assertThatThrownBy(() -> new XlsxRowSource(file).forEachRow(row -> {
+            throw new IllegalStateException("handler failed");
+        })).isExactlyInstanceOf(IllegalStateException.class).hasMessage("handler failed");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PeriodRowsTest {
+
+    @Test
+    void splitsByPeriodAndDropsPeriodColumn() {
+        PeriodRows rows = PeriodRows.of(List.of(
+                new Object[]{"previous", "HCM", 3L},
+                new Object[]{"current", "HCM", 5L},
+                new Object[]{"current", "HN", 2L}));
+
+        assertThat(rows.current()).containsExactly(new Object[]{"HCM", 5L}, new Object[]{"HN", 2L});
+        assertThat(rows.previous()).containsExactly(new Object[]{"HCM", 3L});
+    }
+
+    @Test
+    void singleRowAccessorsFallBackToDefaultsForEmptyPeriod() {
+        PeriodRows rows = PeriodRows.of(List.<Object[]>of(new Object[]{"current", BigDecimal.TEN, BigDecimal.ONE}));
+
+        assertThat(rows.currentRow(null, null)).containsExactly(BigDecimal.TEN, BigDecimal.ONE);
+        assertThat(rows.previousRow(BigDecimal.ZERO, BigDecimal.ZERO)).containsExactly(BigDecimal.ZERO, BigDecimal.ZERO);
+        assertThat(rows.previousRow(null, null)).containsExactly(null, null);
+    }
+
+    @Test
+    void emptyResultGivesEmptyPeriods() {
+        PeriodRows rows = PeriodRows.of(List.of());
+        assertThat(rows.current()).isEmpty();
+        assertThat(rows.previous()).isEmpty();
+    }
+
+    @Test
+    void rejectsUnknownPeriod() {
+        assertThatThrownBy(() -> PeriodRows.of(List.<Object[]>of(new Object[]{"next", 1})))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
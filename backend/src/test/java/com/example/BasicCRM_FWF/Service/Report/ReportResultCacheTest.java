@@ -0,0 +1,103 @@
+package com.example.BasicCRM_FWF.Service.Report;
+
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportResultCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+
+    @Data
+    @AllArgsConstructor
+    static class Stat {
+        private String name;
+        private List<Long> counts;
+    }
+
+    static class Reports {
+        final AtomicInteger calls = new AtomicInteger();
+
+        public List<Stat> stats(LocalDate day) {
+            calls.incrementAndGet();
+            return new ArrayList<>(List.of(new Stat("b", new ArrayList<>(List.of(2L))), new Stat("a", new ArrayList<>(List.of(1L)))));
+        }
+    }
+
+    private final DataWatermarkService watermarkService = mock(DataWatermarkService.class);
+    private final Map<String, Long> versions = new HashMap<>(Map.of(DataWatermarkService.SALES_TRANSACTION, 1L));
+    private final Reports reports = new Reports();
+
+    private ReportResultCache cache(long versionCheckMs) {
+        when(watermarkService.versions()).thenAnswer(i -> new HashMap<>(versions));
+        return new ReportResultCache(new SimpleMeterRegistry(), watermarkService, true, 100, 10_000, versionCheckMs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Stat> call(ReportResultCache cache) throws Throwable {
+        Method method = Reports.class.getMethod("stats", LocalDate.class);
+        return (List<Stat>) cache.invoke(new MethodInvocation() {
+            public Method getMethod() { return method; }
+            public Object[] getArguments() { return new Object[]{DAY}; }
+            public Object proceed() { return reports.stats(DAY); }
+            public Object getThis() { return reports; }
+            public AccessibleObject getStaticPart() { return method; }
+        });
+    }
+
+    @Test
+    void callerChangesDoNotLeakIntoCachedValue() throws Throwable {
+        ReportResultCache cache = cache(60_000);
+
+        List<Stat> first = call(cache);
+        first.sort(Comparator.comparing(Stat::getName));
+        first.get(0).getCounts().add(99L);
+        first.remove(1);
+
+        List<Stat> second = call(cache);
+        assertThat(reports.calls).hasValue(1);
+        assertThat(second).extracting(Stat::getName).containsExactly("b", "a");
+        assertThat(second.get(1).getCounts()).containsExactly(1L);
+
+        second.get(0).setName("x");
+        assertThat(call(cache).get(0).getName()).isEqualTo("b");
+    }
+
+    @Test
+    void versionBumpWithoutLocalEventClearsCache() throws Throwable {
+        ReportResultCache cache = cache(0);
+        call(cache);
+        call(cache);
+        assertThat(reports.calls).hasValue(1);
+
+        // instance khác ghi: version tăng, không có sự kiện trong JVM này
+        versions.put(DataWatermarkService.SALES_TRANSACTION, 2L);
+        call(cache);
+        assertThat(reports.calls).hasValue(2);
+    }
+
+    @Test
+    void versionBumpSeenThroughLocalEventKeepsUnrelatedEntries() throws Throwable {
+        ReportResultCache cache = cache(0);
+        call(cache);
+
+        versions.put(DataWatermarkService.SALES_TRANSACTION, 2L);
+        cache.onDataChanged(new ReportDataChangedEvent(DataWatermarkService.SALES_TRANSACTION,
+                DAY.plusDays(30), DAY.plusDays(31), 2L));
+        call(cache);
+        assertThat(reports.calls).hasValue(1);
+    }
+}
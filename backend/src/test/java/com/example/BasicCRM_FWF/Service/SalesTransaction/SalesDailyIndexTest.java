@@ -0,0 +1,288 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.Region;
+import com.example.BasicCRM_FWF.Service.DataWatermarkService;
+import com.example.BasicCRM_FWF.Service.Report.ReportDataChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SalesDailyIndexTest {
+
+    private static final int METRICS = SalesDailyIndex.Metric.values().length;
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate FIRST = TODAY.minusDays(99);
+
+    /** Bảng rollup/region trong bộ nhớ, đếm số lần nạp toàn bộ. */
+    private static class FakeSource implements SalesDailyIndex.Source {
+        final TreeMap<LocalDate, Map<Long, long[]>> rows = new TreeMap<>();
+        final Map<Long, Region> facilities = new HashMap<>();
+        long version = 1;
+        int fullLoads;
+
+        void put(LocalDate day, long facility, long[] values) {
+            rows.computeIfAbsent(day, d -> new HashMap<>()).put(facility, values);
+        }
+
+        @Override
+        public long version() {
+            return version;
+        }
+
+        @Override
+        public Map<Long, Region> facilities() {
+            return new HashMap<>(facilities);
+        }
+
+        @Override
+        public LocalDate[] dayRange() {
+            if (rows.isEmpty()) return null;
+            return new LocalDate[]{rows.firstKey(), rows.lastKey()};
+        }
+
+        @Override
+        public void rollups(LocalDate from, LocalDate to, Consumer<SalesDailyIndex.Rollup> sink) {
+            if (from == null) fullLoads++;
+            rows.forEach((day, perFacility) -> {
+                if (from != null && (day.isBefore(from) || day.isAfter(to))) return;
+                perFacility.forEach((facility, v) -> sink.accept(new SalesDailyIndex.Rollup(day, facility, v.clone())));
+            });
+        }
+
+        // Tổng brute force theo cơ sở được chọn
+        long[] sum(LocalDate from, LocalDate to, Set<Long> only) {
+            long[] sum = new long[METRICS];
+            rows.forEach((day, perFacility) -> {
+                if (day.isBefore(from) || day.isAfter(to)) return;
+                perFacility.forEach((facility, v) -> {
+                    if (only != null && !only.contains(facility)) return;
+                    for (int m = 0; m < METRICS; m++) sum[m] += v[m];
+                });
+            });
+            return sum;
+        }
+    }
+
+    private static long[] random(Random random) {
+        long[] v = new long[METRICS];
+        v[0] = 1 + random.nextInt(20);
+        for (int m = 1; m < METRICS; m++) v[m] = random.nextInt(10_000_000) - 1_000_000; // cả giá trị âm (hoàn tiền)
+        return v;
+    }
+
+    private static Region region(long id, String region) {
+        return Region.builder().id(id).shop_name("Shop " + id).shop_type("Type " + (id % 2)).region(region).build();
+    }
+
+    private static FakeSource source(Random random) {
+        FakeSource source = new FakeSource();
+        source.facilities.put(1L, region(1, "HCM"));
+        source.facilities.put(2L, region(2, "HCM"));
+        source.facilities.put(3L, region(3, "HN"));
+        for (LocalDate d = FIRST; d.isBefore(TODAY); d = d.plusDays(1)) {
+            for (long f = 0; f <= 3; f++) {
+                if (random.nextInt(4) > 0) source.put(d, f, random(random));
+            }
+        }
+        return source;
+    }
+
+    private static void changed(SalesDailyIndex index, FakeSource source, LocalDate from, LocalDate to) {
+        source.version++;
+        index.onDataChanged(new ReportDataChangedEvent(DataWatermarkService.SALES_TRANSACTION, from, to, source.version));
+    }
+
+    @Test
+    void seriesRangesAndPointsMatchBruteForce() {
+        Random random = new Random(1);
+        int days = 200;
+        long[][] values = new long[days][];
+        SalesDailyIndex.Series series = new SalesDailyIndex.Series(days);
+        for (int d = 0; d < days; d++) {
+            values[d] = random(random);
+            series.load(d, values[d]);
+        }
+        series.build();
+        for (int i = 0; i < 50; i++) {
+            int d = random.nextInt(days);
+            long[] delta = random(random);
+            series.add(d, delta);
+            for (int m = 0; m < METRICS; m++) values[d][m] += delta[m];
+        }
+
+        for (int d = 0; d < days; d++) assertThat(series.point(d)).containsExactly(values[d]);
+        List<int[]> ranges = new ArrayList<>(List.of(new int[]{0, 0}, new int[]{0, days - 1}, new int[]{days - 1, days - 1}));
+        for (int i = 0; i < 200; i++) {
+            int a = random.nextInt(days), b = random.nextInt(days);
+            ranges.add(new int[]{Math.min(a, b), Math.max(a, b)});
+        }
+        for (int[] r : ranges) {
+            long[] expected = new long[METRICS];
+            for (int d = r[0]; d <= r[1]; d++) {
+                for (int m = 0; m < METRICS; m++) expected[m] += values[d][m];
+            }
+            long[] actual = new long[METRICS];
+            series.addRange(actual, r[0], r[1]);
+            assertThat(actual).as("[%d, %d]", r[0], r[1]).containsExactly(expected);
+        }
+    }
+
+    @Test
+    void randomRangesMatchBruteForceIncludingEdgesAndHeadroom() {
+        Random random = new Random(2);
+        FakeSource source = source(random);
+        SalesDailyIndex index = new SalesDailyIndex(source);
+
+        List<LocalDate[]> ranges = new ArrayList<>(List.of(
+                new LocalDate[]{FIRST, FIRST},
+                new LocalDate[]{FIRST, TODAY},
+                new LocalDate[]{FIRST.minusDays(30), FIRST.minusDays(1)},   // trước dữ liệu
+                new LocalDate[]{FIRST.minusDays(30), FIRST.plusDays(3)},
+                new LocalDate[]{TODAY, TODAY.plusDays(100)},                // vùng chừa sẵn, chưa có dữ liệu
+                new LocalDate[]{TODAY.minusDays(5), TODAY.plusDays(1000)})); // vượt cả vùng chừa sẵn
+        for (int i = 0; i < 300; i++) {
+            LocalDate a = FIRST.plusDays(random.nextInt(140) - 20);
+            LocalDate b = FIRST.plusDays(random.nextInt(140) - 20);
+            ranges.add(a.isAfter(b) ? new LocalDate[]{b, a} : new LocalDate[]{a, b});
+        }
+
+        for (LocalDate[] r : ranges) {
+            assertThat(index.total(r[0], r[1]).values()).as("%s -> %s", r[0], r[1])
+                    .containsExactly(source.sum(r[0], r[1], null));
+            Map<String, SalesDailyIndex.Totals> byRegion = index.totalsBy(SalesDailyIndex.Dimension.REGION, r[0], r[1]);
+            long[] hcm = source.sum(r[0], r[1], Set.of(1L, 2L));
+            if (hcm[0] > 0) {
+                assertThat(byRegion.get("HCM").values()).containsExactly(hcm);
+            } else {
+                assertThat(byRegion).doesNotContainKey("HCM");
+            }
+        }
+        assertThat(source.fullLoads).isEqualTo(1);
+    }
+
+    @Test
+    void dirtyRangeIsRecomputedWithoutFullReload() {
+        Random random = new Random(3);
+        FakeSource source = source(random);
+        SalesDailyIndex index = new SalesDailyIndex(source);
+        index.total(FIRST, TODAY);
+
+        LocalDate from = FIRST.plusDays(10), to = FIRST.plusDays(14);
+        source.rows.get(from).remove(1L);
+        source.put(from.plusDays(1), 2L, random(random));
+        source.put(TODAY.plusDays(3), 3L, random(random)); // ngày mới trong vùng chừa sẵn
+        changed(index, source, from, to);
+        changed(index, source, TODAY.plusDays(3), TODAY.plusDays(3));
+
+        assertThat(index.total(FIRST, TODAY.plusDays(10)).values()).containsExactly(source.sum(FIRST, TODAY.plusDays(10), null));
+        assertThat(index.total(from, from).values()).containsExactly(source.sum(from, from, null));
+        assertThat(source.fullLoads).isEqualTo(1);
+    }
+
+    @Test
+    void newFacilityShowsUpInRegionTotals() {
+        Random random = new Random(4);
+        FakeSource source = source(random);
+        SalesDailyIndex index = new SalesDailyIndex(source);
+        assertThat(index.totalsBy(SalesDailyIndex.Dimension.REGION, FIRST, TODAY)).doesNotContainKey("DN");
+
+        LocalDate day = TODAY.minusDays(2);
+        source.facilities.put(9L, region(9, "DN"));
+        source.put(day, 9L, random(random));
+        changed(index, source, day, day);
+
+        Map<String, SalesDailyIndex.Totals> byRegion = index.totalsBy(SalesDailyIndex.Dimension.REGION, FIRST, TODAY);
+        assertThat(byRegion.get("DN").values()).containsExactly(source.sum(FIRST, TODAY, Set.of(9L)));
+        assertThat(index.totalsBy(SalesDailyIndex.Dimension.SHOP, day, day)).containsKey("Shop 9");
+        assertThat(source.fullLoads).isEqualTo(1);
+    }
+
+    @Test
+    void facilityWithoutRegionRowIsPickedUpOnceRegionAppears() {
+        Random random = new Random(5);
+        FakeSource source = source(random);
+        SalesDailyIndex index = new SalesDailyIndex(source);
+        index.versionCheckNanos = 0;
+
+        LocalDate day = TODAY.minusDays(1);
+        source.put(day, 7L, random(random));
+        changed(index, source, day, day);
+        assertThat(index.totalsBy(SalesDailyIndex.Dimension.REGION, day, day)).doesNotContainKey("CT");
+
+        source.facilities.put(7L, region(7, "CT"));
+        assertThat(index.totalsBy(SalesDailyIndex.Dimension.REGION, day, day).get("CT").values())
+                .containsExactly(source.sum(day, day, Set.of(7L)));
+    }
+
+    @Test
+    void versionChangeWithoutEventReloads() {
+        Random random = new Random(6);
+        FakeSource source = source(random);
+        SalesDailyIndex index = new SalesDailyIndex(source);
+        index.versionCheckNanos = 0;
+        index.total(FIRST, TODAY);
+
+        // instance khác ghi: không có sự kiện trong JVM này
+        source.put(FIRST.plusDays(5), 1L, random(random));
+        source.version++;
+
+        assertThat(index.total(FIRST, TODAY).values()).containsExactly(source.sum(FIRST, TODAY, null));
+        assertThat(source.fullLoads).isEqualTo(2);
+
+        // version không đổi: không nạp lại
+        index.total(FIRST, TODAY);
+        assertThat(source.fullLoads).isEqualTo(2);
+    }
+
+    @Test
+    void missedEventAmongLocalEventsReloads() {
+        Random random = new Random(7);
+        FakeSource source = source(random);
+        SalesDailyIndex index = new SalesDailyIndex(source);
+        index.total(FIRST, TODAY);
+
+        source.put(FIRST.plusDays(1), 3L, random(random));
+        source.version++; // ghi từ instance khác
+        source.put(FIRST.plusDays(2), 3L, random(random));
+        changed(index, source, FIRST.plusDays(2), FIRST.plusDays(2));
+
+        assertThat(index.total(FIRST, TODAY).values()).containsExactly(source.sum(FIRST, TODAY, null));
+        assertThat(source.fullLoads).isEqualTo(2);
+    }
+
+    @Test
+    void dirtySpanIsMeasuredAgainstPopulatedDays() {
+        Random random = new Random(8);
+        FakeSource source = source(random);
+        SalesDailyIndex index = new SalesDailyIndex(source);
+        index.total(FIRST, TODAY);
+
+        // 30 ngày > 1/4 của 100 ngày có dữ liệu (chưa tới 1/4 nếu tính cả vùng chừa sẵn)
+        changed(index, source, FIRST, FIRST.plusDays(29));
+        index.total(FIRST, TODAY);
+        assertThat(source.fullLoads).isEqualTo(2);
+
+        changed(index, source, FIRST, FIRST.plusDays(9));
+        index.total(FIRST, TODAY);
+        assertThat(source.fullLoads).isEqualTo(2);
+    }
+
+    @Test
+    void rangeOutsideAllocatedDaysReloads() {
+        Random random = new Random(9);
+        FakeSource source = source(random);
+        SalesDailyIndex index = new SalesDailyIndex(source);
+        index.total(FIRST, TODAY);
+
+        LocalDate early = FIRST.minusDays(3);
+        source.put(early, 1L, random(random));
+        changed(index, source, early, early);
+
+        assertThat(index.total(early, TODAY).values()).containsExactly(source.sum(early, TODAY, null));
+        assertThat(source.fullLoads).isEqualTo(2);
+    }
+}
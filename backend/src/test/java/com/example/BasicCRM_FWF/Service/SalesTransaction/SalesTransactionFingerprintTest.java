@@ -0,0 +1,57 @@
+package com.example.BasicCRM_FWF.Service.SalesTransaction;
+
+import com.example.BasicCRM_FWF.Model.Region;
+import com.example.BasicCRM_FWF.Model.SaleServiceItem;
+import com.example.BasicCRM_FWF.Model.SalesTransaction;
+import com.example.BasicCRM_FWF.Model.ServiceType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SalesTransactionFingerprintTest {
+
+    private static SaleServiceItem item(long serviceTypeId, int quantity) {
+        ServiceType serviceType = new ServiceType();
+        serviceType.setId(serviceTypeId);
+        return SaleServiceItem.builder().serviceType(serviceType).quantity(quantity).build();
+    }
+
+    private static SalesTransaction tx(BigDecimal total, BigDecimal debt, List<SaleServiceItem> items) {
+        return SalesTransaction.builder()
+                .orderCode(123)
+                .orderDate(LocalDateTime.of(2025, 3, 10, 9, 30, 15))
+                .facility(Region.builder().id(4L).build())
+                .customerName("An")
+                .phoneNumber("0901234567")
+                .totalAmount(total)
+                .debt(debt)
+                .saleServiceItems(items)
+                .build();
+    }
+
+    @Test
+    void missingAmountsEqualZeroAndScaleIsIgnored() {
+        String excel = SalesTransactionFingerprint.of(tx(new BigDecimal("150000.00"), BigDecimal.ZERO, List.of(item(1, 2))));
+        String api = SalesTransactionFingerprint.of(tx(new BigDecimal("150000"), null, List.of(item(1, 2))));
+        assertThat(api).isEqualTo(excel);
+    }
+
+    @Test
+    void itemOrderAndSplitLinesDoNotMatter() {
+        String a = SalesTransactionFingerprint.of(tx(BigDecimal.TEN, null, List.of(item(1, 2), item(2, 1))));
+        String b = SalesTransactionFingerprint.of(tx(BigDecimal.TEN, null, List.of(item(2, 1), item(1, 1), item(1, 1))));
+        assertThat(b).isEqualTo(a);
+    }
+
+    @Test
+    void storedFieldChangesChangeFingerprint() {
+        String base = SalesTransactionFingerprint.of(tx(BigDecimal.TEN, null, List.of(item(1, 2))));
+        assertThat(SalesTransactionFingerprint.of(tx(BigDecimal.ONE, null, List.of(item(1, 2))))).isNotEqualTo(base);
+        assertThat(SalesTransactionFingerprint.of(tx(BigDecimal.TEN, BigDecimal.ONE, List.of(item(1, 2))))).isNotEqualTo(base);
+        assertThat(SalesTransactionFingerprint.of(tx(BigDecimal.TEN, null, List.of(item(1, 3))))).isNotEqualTo(base);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.BasicCRM_FWF.Service.ShiftEmployee;
+
+import com.example.BasicCRM_FWF.Model.Shift;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShiftBulkWriterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 1);
+
+    /** Bảng shift giả: trả các dòng cho query tra cứu, ghi lại các lô ghi. */
+    private static class FakeJdbc extends JdbcTemplate {
+        final List<Object[]> rows = new ArrayList<>(); // id, username, stock_id, work_date, date
+        final Map<String, List<Object[]>> batches = new HashMap<>();
+        final Map<String, String> statements = new HashMap<>();
+        boolean legacyColumn = true;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            return (T) Integer.valueOf(legacyColumn ? 1 : 0);
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            assertThat(sql.contains("work_date IS NULL")).isEqualTo(legacyColumn);
+            try {
+                for (Object[] row : rows) {
+                    if (row[3] == null && !legacyColumn) continue;
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getInt("id")).thenReturn((Integer) row[0]);
+                    when(rs.getString("username")).thenReturn((String) row[1]);
+                    when(rs.getString("stock_id")).thenReturn((String) row[2]);
+                    when(rs.getObject("work_date", LocalDate.class)).thenReturn((LocalDate) row[3]);
+                    when(rs.getString("date")).thenReturn((String) row[4]);
+                    rch.processRow(rs);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            String verb = sql.substring(0, sql.indexOf(' '));
+            statements.put(verb, sql);
+            batches.computeIfAbsent(verb, k -> new ArrayList<>()).addAll(batchArgs);
+            return new int[batchArgs.size()];
+        }
+
+        List<Object[]> batch(String verb) {
+            return batches.getOrDefault(verb, List.of());
+        }
+    }
+
+    private static Shift shift(String username, String stockId, LocalDate day) {
+        return Shift.builder().username(username).stockId(stockId).workDate(day).fullname(username).build();
+    }
+
+    @Test
+    void legacyRowWithoutWorkDateIsUpdatedInsteadOfDuplicated() {
+        FakeJdbc jdbc = new FakeJdbc();
+        jdbc.rows.add(new Object[]{7, "an", "S1", null, "01/09/2025"});
+
+        int[] counts = new ShiftBulkWriter(jdbc).upsert(List.of(shift("an", "S1", DAY)));
+
+        assertThat(counts).containsExactly(0, 1, 0);
+        assertThat(jdbc.batch("INSERT")).isEmpty();
+        Object[] update = jdbc.batch("UPDATE").get(0);
+        assertThat(update[update.length - 1]).isEqualTo(7);
+        assertThat(update).contains(DAY); // work_date được điền
+    }
+
+    @Test
+    void legacyDuplicateOfMigratedRowIsRemoved() {
+        FakeJdbc jdbc = new FakeJdbc();
+        jdbc.rows.add(new Object[]{5, "an", "S1", DAY, "2025-09-01"});
+        jdbc.rows.add(new Object[]{9, "an", "S1", null, "2025-09-01T08:00:00"});
+
+        int[] counts = new ShiftBulkWriter(jdbc).upsert(List.of(shift("an", "S1", DAY)));
+
+        assertThat(counts).containsExactly(0, 1, 1);
+        assertThat(jdbc.batch("DELETE")).containsExactly(new Object[]{9});
+    }
+
+    @Test
+    void legacyRowOutsideBatchOrUnreadableDoesNotMatch() {
+        FakeJdbc jdbc = new FakeJdbc();
+        jdbc.rows.add(new Object[]{3, "an", "S1", null, "02/09/2025"});
+        jdbc.rows.add(new Object[]{4, "an", "S1", null, "không rõ"});
+
+        int[] counts = new ShiftBulkWriter(jdbc).upsert(List.of(shift("an", "S1", DAY)));
+
+        assertThat(counts).containsExactly(1, 0, 0);
+        assertThat(jdbc.batch("DELETE")).isEmpty();
+    }
+
+    @Test
+    void withoutLegacyColumnOnlyTypedRowsAreLookedUp() {
+        FakeJdbc jdbc = new FakeJdbc();
+        jdbc.legacyColumn = false;
+        jdbc.rows.add(new Object[]{5, "an", "S1", DAY, null});
+
+        int[] counts = new ShiftBulkWriter(jdbc).upsert(List.of(shift("an", "S1", DAY), shift("binh", "S1", DAY)));
+
+        assertThat(counts).containsExactly(1, 1, 0);
+    }
+
+    @Test
+    void newRowsAreInsertedAsUpsertOnUniqueKey() {
+        FakeJdbc jdbc = new FakeJdbc();
+        jdbc.rows.add(new Object[]{5, "an", "S1", DAY, null});
+
+        int[] counts = new ShiftBulkWriter(jdbc).upsert(List.of(shift("an", "S1", DAY), shift("binh", "S1", DAY)));
+
+        assertThat(counts).containsExactly(1, 1, 0);
+        // sync song song trên instance khác cũng chèn "binh": lần chèn sau thành UPDATE, không thành dòng trùng
+        assertThat(jdbc.statements.get("INSERT")).contains("ON DUPLICATE KEY UPDATE").contains("check_in_time = VALUES(check_in_time)");
+        assertThat(jdbc.statements.get("UPDATE")).endsWith("WHERE id = ?");
+    }
+}
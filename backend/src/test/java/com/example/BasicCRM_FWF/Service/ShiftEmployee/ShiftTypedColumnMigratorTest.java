@@ -0,0 +1,57 @@
+package com.example.BasicCRM_FWF.Service.ShiftEmployee;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ShiftTypedColumnMigratorTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final ShiftTypedColumnMigrator migrator = new ShiftTypedColumnMigrator(jdbc);
+
+    private void keyPresent(Integer first, Integer... rest) {
+        when(jdbc.queryForObject(contains("information_schema.statistics"), eq(Integer.class), eq(ShiftTypedColumnMigrator.UNIQUE_KEY)))
+                .thenReturn(first, rest);
+    }
+
+    @Test
+    void existingKeySkipsDedupe() {
+        keyPresent(1);
+
+        assertThat(migrator.ensureUniqueKey()).isTrue();
+        verify(jdbc, never()).update(anyString());
+        verify(jdbc, never()).execute(anyString());
+    }
+
+    @Test
+    void duplicatesAreRemovedBeforeKeyIsCreated() {
+        keyPresent(0);
+
+        assertThat(migrator.ensureUniqueKey()).isTrue();
+        var order = inOrder(jdbc);
+        order.verify(jdbc).update(startsWith("DELETE s FROM shift s"));
+        order.verify(jdbc).execute("CREATE UNIQUE INDEX uk_shift_user_stock_date ON shift (username, stock_id, work_date)");
+    }
+
+    @Test
+    void duplicateInsertedBetweenStepsIsRemovedOnRetry() {
+        keyPresent(0, 0);
+        doThrow(new DataIntegrityViolationException("Duplicate entry")).doNothing().when(jdbc).execute(startsWith("CREATE UNIQUE INDEX"));
+
+        assertThat(migrator.ensureUniqueKey()).isTrue();
+        verify(jdbc, times(2)).update(startsWith("DELETE s FROM shift s"));
+    }
+
+    @Test
+    void givesUpAfterRepeatedFailures() {
+        keyPresent(0);
+        doThrow(new DataIntegrityViolationException("Duplicate entry")).when(jdbc).execute(startsWith("CREATE UNIQUE INDEX"));
+
+        assertThat(migrator.ensureUniqueKey()).isFalse();
+        verify(jdbc, times(3)).execute(startsWith("CREATE UNIQUE INDEX"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.BasicCRM_FWF.Utils;
+
+import org.junit.jupiter.api.Test;
+
+import static com.example.BasicCRM_FWF.Utils.ServiceUtils.canonicalPhone;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServiceUtilsTest {
+
+    @Test
+    void canonicalPhoneStripsFormatting() {
+        assertThat(canonicalPhone("0912 345 678")).isEqualTo("0912345678");
+        assertThat(canonicalPhone("(091) 234-5678")).isEqualTo("0912345678");
+        assertThat(canonicalPhone(" 0912.345.678 ")).isEqualTo("0912345678");
+    }
+
+    @Test
+    void canonicalPhoneRewritesCountryCode() {
+        assertThat(canonicalPhone("+84 912 345 678")).isEqualTo("0912345678");
+        assertThat(canonicalPhone("84912345678")).isEqualTo("0912345678");
+        assertThat(canonicalPhone("0084912345678")).isEqualTo("0912345678");
+        // số 84... ngắn không phải mã quốc gia
+        assertThat(canonicalPhone("841234567")).isEqualTo("0841234567");
+    }
+
+    @Test
+    void canonicalPhoneRestoresLeadingZeroDroppedByExcel() {
+        assertThat(canonicalPhone("912345678")).isEqualTo("0912345678");
+        assertThat(canonicalPhone("2838123456")).isEqualTo("02838123456");
+    }
+
+    @Test
+    void canonicalPhoneRejectsEmptyAndOverlongValues() {
+        assertThat(canonicalPhone(null)).isNull();
+        assertThat(canonicalPhone("")).isNull();
+        assertThat(canonicalPhone("không có")).isNull();
+        assertThat(canonicalPhone("0".repeat(21))).isNull();
+    }
+
+    @Test
+    void canonicalPhoneKeepsOtherNumbersAsIs() {
+        assertThat(canonicalPhone("0912345678")).isEqualTo("0912345678");
+        assertThat(canonicalPhone("1900123")).isEqualTo("1900123");
+    }
+}